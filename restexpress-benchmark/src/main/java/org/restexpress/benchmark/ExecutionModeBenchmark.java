@@ -0,0 +1,121 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.restexpress.Request;
+import org.restexpress.Response;
+import org.restexpress.RestExpressService;
+import org.restexpress.pipeline.VirtualThreadExecutor;
+import org.restexpress.settings.ExecutionMode;
+
+/**
+ * {@link ExecutionModeBenchmark} compares throughput and latency percentiles
+ * (see sample time p0.99) of both {@link ExecutionMode} with a controller
+ * blocking on I/O, when concurrent keep-alive connections outnumber executor
+ * threads.
+ * <p>
+ * {@link ExecutionMode#VIRTUAL_THREAD} requires a Java 21 runtime.
+ * </p>
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(64)
+@Fork(1)
+public class ExecutionModeBenchmark {
+
+	private static final int PORT = 8199;
+	private static final int POOL_SIZE = 16;
+	private static final long BLOCKING_DELAY = 10;
+
+	@Param({ "THREAD_POOL", "VIRTUAL_THREAD" })
+	public ExecutionMode mode;
+
+	private RestExpressService restExpress;
+
+	private URL url;
+
+	@Setup
+	public void setUp() throws Exception {
+		if (mode == ExecutionMode.VIRTUAL_THREAD && !VirtualThreadExecutor.isSupported()) {
+			throw new IllegalStateException("virtual threads are not supported on this runtime");
+		}
+		restExpress = RestExpressService.newBuilder();
+		restExpress.settings().serverSettings().setExecutorThreadPoolSize(POOL_SIZE).setExecutionMode(mode);
+		restExpress.uri("/blocking", new Controller()).noSerialization();
+		restExpress.bind(PORT);
+		url = new URL("http://localhost:" + PORT + "/blocking");
+	}
+
+	@TearDown
+	public void tearDown() {
+		restExpress.shutdown();
+	}
+
+	@Benchmark
+	public int blocking() throws IOException {
+		// JDK keep-alive cache reuses the connection once the body is consumed
+		final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		final InputStream input = connection.getInputStream();
+		try {
+			final byte[] buffer = new byte[256];
+			while (input.read(buffer) >= 0) {
+				// drain
+			}
+		} finally {
+			input.close();
+		}
+		return connection.getResponseCode();
+	}
+
+	/**
+	 * Benchmark controller simulating a blocking call.
+	 */
+	public static class Controller {
+
+		public void read(final Request request, final Response response) throws InterruptedException {
+			Thread.sleep(BLOCKING_DELAY);
+			response.setResponseNoContent();
+		}
+	}
+}
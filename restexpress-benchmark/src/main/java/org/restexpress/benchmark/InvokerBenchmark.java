@@ -0,0 +1,119 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.benchmark;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.netty.handler.codec.http.DefaultHttpRequest;
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.jboss.netty.handler.codec.http.HttpVersion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.restexpress.Request;
+import org.restexpress.Response;
+import org.restexpress.pipeline.MessageContext;
+import org.restexpress.route.invoker.Invoker;
+import org.restexpress.route.invoker.Invokers;
+import org.restexpress.route.invoker.ParamMappers.ArrayParamMapper;
+import org.restexpress.route.invoker.ParamMappers.HeaderParamMapper;
+import org.restexpress.route.invoker.ParamMappers.ParamMapper;
+import org.restexpress.route.invoker.ParamMappers.RequestParamMapper;
+import org.restexpress.route.invoker.RestExpressParamConverterProvider;
+
+/**
+ * {@link InvokerBenchmark} compares reflection invokers of {@link Invokers}
+ * with generated invokers, for the three controller method shapes: no
+ * argument, standard (request, response) and annotated parameters.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InvokerBenchmark {
+
+	@Param({ "noArg", "standard", "fieldMap" })
+	public String shape;
+
+	@Param({ "reflection", "generated" })
+	public String invoker;
+
+	private Invoker target;
+
+	private MessageContext context;
+
+	@Setup
+	public void setUp() throws Exception {
+		final Controller controller = new Controller();
+		final RestExpressParamConverterProvider provider = new RestExpressParamConverterProvider();
+		if ("noArg".equals(shape)) {
+			final Method method = Controller.class.getMethod("count");
+			target = "generated".equals(invoker) ? Invokers.newInvoker(provider, controller, method) : new Invokers.NoArgInvoker(controller, method);
+		} else if ("standard".equals(shape)) {
+			final Method method = Controller.class.getMethod("read", Request.class, Response.class);
+			target = "generated".equals(invoker) ? Invokers.newInvoker(provider, controller, method) : new Invokers.StandardInvoker(controller, method);
+		} else {
+			final Method method = Controller.class.getMethod("find", long.class, String.class, Request.class);
+			final ArrayParamMapper mappers = new ArrayParamMapper(new ParamMapper[] { //
+					new HeaderParamMapper("id", provider.getConverter(long.class, null, null), Long.valueOf(0)), //
+					new HeaderParamMapper("name", provider.getConverter(String.class, null, null), null), //
+					new RequestParamMapper() });
+			target = "generated".equals(invoker) ? Invokers.newInvoker(controller, method, mappers) : new Invokers.FieldMapInvoker(controller, method, mappers);
+		}
+		context = new MessageContext(new Request(new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/orders?id=42&name=foo"), null), new Response());
+	}
+
+	@Benchmark
+	public Object invoke() {
+		return target.invoke(context);
+	}
+
+	/**
+	 * Benchmark controller.
+	 */
+	public static class Controller {
+		private int count = 0;
+
+		public int count() {
+			return count++;
+		}
+
+		public Object read(final Request request, final Response response) {
+			return request;
+		}
+
+		public String find(final long id, final String name, final Request request) {
+			return name;
+		}
+	}
+}
@@ -0,0 +1,119 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.restexpress.domain.MediaRange;
+import org.restexpress.domain.MediaRanges;
+
+/**
+ * {@link MediaRangeBenchmark} compares {@link MediaRanges#parse(String)} with
+ * the regular expression based parser it replaced, on Accept headers sent by
+ * browsers and HTTP clients.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MediaRangeBenchmark {
+
+	@Param({ "application/json", //
+			"text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,image/apng,*/*;q=0.8,application/signed-exchange;v=b3;q=0.7", //
+			"text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8", //
+			"application/json, text/plain, */*", //
+			"text/html, image/gif, image/jpeg, *; q=.2, */*; q=.2" })
+	public String accept;
+
+	@Benchmark
+	public List<MediaRange> scanner() {
+		return MediaRanges.parse(accept);
+	}
+
+	@Benchmark
+	public List<RegexMediaRange> regex() {
+		return RegexMediaRange.parseAll(accept);
+	}
+
+	/**
+	 * Former regular expression based parser, kept as baseline.
+	 */
+	public static final class RegexMediaRange {
+		private static final Pattern MEDIA_TYPE_PATTERN = Pattern.compile("(\\S+?|\\*)/(\\S+?|\\*)");
+		private static final Pattern PARAMETER_PATTERN = Pattern.compile("(\\w+?)(?:\\s*?=\\s*?(\\S+?))");
+
+		String name;
+		String type;
+		String subtype;
+		float qvalue = 1.0f;
+		Map<String, String> parameters = new HashMap<String, String>();
+
+		static List<RegexMediaRange> parseAll(final String mediaType) {
+			final String[] segments = mediaType.split("\\s*,\\s*");
+			final List<RegexMediaRange> items = new ArrayList<RegexMediaRange>();
+			for (final String segment : segments) {
+				items.add(parse(segment));
+			}
+			return items;
+		}
+
+		static RegexMediaRange parse(final String segment) {
+			final RegexMediaRange r = new RegexMediaRange();
+			r.name = segment;
+			final String[] pieces = segment.split("\\s*;\\s*");
+			final Matcher x = MEDIA_TYPE_PATTERN.matcher(pieces[0]);
+			if (x.matches()) {
+				r.type = x.group(1);
+				r.subtype = x.group(2);
+			}
+			for (int i = 1; i < pieces.length; ++i) {
+				final Matcher p = PARAMETER_PATTERN.matcher(pieces[i]);
+				if (p.matches()) {
+					if ("q".equalsIgnoreCase(p.group(1))) {
+						r.qvalue = Float.parseFloat(p.group(2));
+					} else {
+						r.parameters.put(p.group(1), p.group(2));
+					}
+				}
+			}
+			return r;
+		}
+	}
+}
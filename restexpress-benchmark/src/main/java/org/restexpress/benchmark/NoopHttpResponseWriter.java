@@ -0,0 +1,49 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.benchmark;
+
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.restexpress.Request;
+import org.restexpress.Response;
+import org.restexpress.pipeline.HttpResponseWriter;
+
+/**
+ * {@link NoopHttpResponseWriter} keeps last written {@link Response} instead of
+ * writing it to the channel, so a benchmark measures the pipeline only and can
+ * return the response to the black hole.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public final class NoopHttpResponseWriter implements HttpResponseWriter {
+
+	private Response response;
+
+	@Override
+	public void write(final ChannelHandlerContext ctx, final Request request, final Response response) {
+		this.response = response;
+	}
+
+	/**
+	 * @return last written {@link Response}.
+	 */
+	public Response response() {
+		return response;
+	}
+}
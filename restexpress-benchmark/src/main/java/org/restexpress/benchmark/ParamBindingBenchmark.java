@@ -0,0 +1,127 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.netty.handler.codec.http.DefaultHttpRequest;
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.jboss.netty.handler.codec.http.HttpVersion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.restexpress.Request;
+import org.restexpress.Response;
+import org.restexpress.pipeline.MessageContext;
+import org.restexpress.route.invoker.Invoker;
+import org.restexpress.route.invoker.Invokers;
+import org.restexpress.route.invoker.ParamMappers.ArrayParamMapper;
+import org.restexpress.route.invoker.ParamMappers.BooleanParamMapper;
+import org.restexpress.route.invoker.ParamMappers.ConverterParamMapper;
+import org.restexpress.route.invoker.ParamMappers.HeaderParamMapper;
+import org.restexpress.route.invoker.ParamMappers.IntParamMapper;
+import org.restexpress.route.invoker.ParamMappers.LongParamMapper;
+import org.restexpress.route.invoker.ParamMappers.ParamMapper;
+import org.restexpress.route.invoker.ParamMappers.ParamSource;
+import org.restexpress.route.invoker.RestExpressParamConverterProvider;
+import org.restexpress.url.UrlPattern;
+
+/**
+ * {@link ParamBindingBenchmark} compares parameter binding through request
+ * headers and {@link javax.ws.rs.ext.ParamConverter}, binding read straight
+ * from URL parameters and query string with a
+ * {@link javax.ws.rs.ext.ParamConverter}, and typed binding into primitive
+ * slots.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParamBindingBenchmark {
+
+	@Param({ "header", "converter", "typed" })
+	public String binding;
+
+	private Invoker invoker;
+
+	private MessageContext context;
+
+	@Setup
+	public void setUp() throws Exception {
+		final RestExpressParamConverterProvider provider = new RestExpressParamConverterProvider();
+		final ParamMapper[] mappers;
+		if ("header".equals(binding)) {
+			mappers = new ParamMapper[] { //
+			new HeaderParamMapper("id", provider.getConverter(long.class, null, null), Long.valueOf(0)), //
+					new HeaderParamMapper("page", provider.getConverter(int.class, null, null), Integer.valueOf(0)), //
+					new HeaderParamMapper("active", provider.getConverter(boolean.class, null, null), Boolean.FALSE) };
+		} else if ("converter".equals(binding)) {
+			mappers = new ParamMapper[] { //
+			new ConverterParamMapper("id", ParamSource.PATH, provider.getConverter(long.class, null, null), Long.valueOf(0)), //
+					new ConverterParamMapper("page", ParamSource.QUERY, provider.getConverter(int.class, null, null), Integer.valueOf(0)), //
+					new ConverterParamMapper("active", ParamSource.QUERY, provider.getConverter(boolean.class, null, null), Boolean.FALSE) };
+		} else {
+			mappers = new ParamMapper[] { //
+			new LongParamMapper("id", ParamSource.PATH, 0), //
+					new IntParamMapper("page", ParamSource.QUERY, 0), //
+					new BooleanParamMapper("active", ParamSource.QUERY, false) };
+		}
+		final Controller controller = new Controller();
+		invoker = Invokers.newInvoker(controller, Controller.class.getMethod("find", long.class, int.class, boolean.class), new ArrayParamMapper(mappers));
+
+		final String url = "/orders/1234567?page=3&active=true";
+		final Request request = new Request(new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, url), null);
+		request.addHeader("Host", "localhost");
+		request.addHeader("Accept", "application/json");
+		request.addHeader("User-Agent", "benchmark");
+		request.setUrlMatch(new UrlPattern("/orders/{id}").match(url));
+		if ("header".equals(binding)) {
+			// URL parameter copied as header, as before
+			request.addHeader("id", "1234567");
+		}
+		context = new MessageContext(request, new Response());
+	}
+
+	@Benchmark
+	public Object bind() {
+		return invoker.invoke(context);
+	}
+
+	/**
+	 * Benchmark controller.
+	 */
+	public static class Controller {
+		public long find(final long id, final int page, final boolean active) {
+			return active ? id + page : id;
+		}
+	}
+}
@@ -0,0 +1,116 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.restexpress.Request;
+import org.restexpress.Response;
+import org.restexpress.pipeline.handler.RestExpressRequestHandlerBuilder;
+import org.restexpress.response.Wrapper;
+import org.restexpress.route.RouteDeclaration;
+import org.restexpress.serialization.JacksonJsonProcessor;
+import org.restexpress.serialization.JacksonXmlProcessor;
+
+/**
+ * {@link PipelineBenchmark} measures a whole request through
+ * {@link org.restexpress.pipeline.handler.RestExpressRequestHandler}: route
+ * resolution at varying route counts, content negotiation, invocation,
+ * serialization and, optionally, post processors of
+ * {@link org.restexpress.plugin.CacheControlPlugin}. The miss path (404) is
+ * measured as well.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+
+	private static final String ACCEPT = "text/html,application/xhtml+xml,application/xml;q=0.9,application/json,*/*;q=0.8";
+
+	@Param({ "10", "100", "1000" })
+	public int routeCount;
+
+	@Param({ "false", "true" })
+	public boolean cacheControl;
+
+	private PipelineFixture fixture;
+
+	private String hit;
+
+	@Setup
+	public void setUp() throws Exception {
+		final RouteDeclaration routeDeclaration = new RouteDeclaration();
+		final Controller controller = new Controller();
+		for (int i = 0; i < routeCount; i++) {
+			routeDeclaration.uri("/api/v1/resource" + i + "/{id}.{format}", controller).method(HttpMethod.GET);
+		}
+		RestExpressRequestHandlerBuilder builder = PipelineFixture.newBuilder(routeDeclaration)//
+				.add(new JacksonJsonProcessor(), Wrapper.newRawResponseWrapper(), true)//
+				.add(new JacksonXmlProcessor(), Wrapper.newRawResponseWrapper());
+		if (cacheControl) {
+			builder = PipelineFixture.addCacheControl(builder);
+		}
+		fixture = new PipelineFixture(builder);
+		hit = "/api/v1/resource" + (routeCount - 1) + "/1234?ref=benchmark";
+	}
+
+	@Benchmark
+	public Response get() throws Exception {
+		return fixture.send(HttpMethod.GET, hit, ACCEPT);
+	}
+
+	@Benchmark
+	public Response getWithFormat() throws Exception {
+		return fixture.send(HttpMethod.GET, hit.replace("/1234", "/1234.json"), null);
+	}
+
+	@Benchmark
+	public Response notFound() throws Exception {
+		return fixture.send(HttpMethod.GET, "/api/v1/unknown/1234", ACCEPT);
+	}
+
+	/**
+	 * Benchmark controller.
+	 */
+	public static class Controller {
+		private final Product product = Product.newProduct(1234);
+
+		public Product read(final Request request, final Response response) {
+			return product;
+		}
+	}
+}
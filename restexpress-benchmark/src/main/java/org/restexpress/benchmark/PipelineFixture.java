@@ -0,0 +1,123 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.benchmark;
+
+import java.net.InetSocketAddress;
+
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.UpstreamMessageEvent;
+import org.jboss.netty.channel.local.DefaultLocalServerChannelFactory;
+import org.jboss.netty.handler.codec.http.DefaultHttpRequest;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.jboss.netty.handler.codec.http.HttpRequest;
+import org.jboss.netty.handler.codec.http.HttpVersion;
+import org.restexpress.Response;
+import org.restexpress.TestToolKit;
+import org.restexpress.pipeline.RestExpressPipelineFactory;
+import org.restexpress.pipeline.handler.RestExpressRequestHandler;
+import org.restexpress.pipeline.handler.RestExpressRequestHandlerBuilder;
+import org.restexpress.processor.CacheHeaderPostprocessor;
+import org.restexpress.processor.DateHeaderPostprocessor;
+import org.restexpress.processor.EtagHeaderPostprocessor;
+import org.restexpress.processor.LastModifiedHeaderPostprocessor;
+import org.restexpress.route.RouteDeclaration;
+
+/**
+ * {@link PipelineFixture} drives
+ * {@link RestExpressRequestHandler#messageReceived(ChannelHandlerContext, org.jboss.netty.channel.MessageEvent)}
+ * in process: handler is built with {@link TestToolKit} and a
+ * {@link NoopHttpResponseWriter}, and attached to a local channel pipeline.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public final class PipelineFixture {
+
+	private static final InetSocketAddress REMOTE_ADDRESS = new InetSocketAddress(1);
+
+	private final NoopHttpResponseWriter writer = new NoopHttpResponseWriter();
+
+	private final RestExpressRequestHandler handler;
+
+	private final Channel channel;
+
+	private final ChannelHandlerContext context;
+
+	/**
+	 * Build a new instance of {@link PipelineFixture}.
+	 * 
+	 * @param builder
+	 *            builder obtained with {@link #newBuilder(RouteDeclaration)}
+	 * @throws Exception
+	 *             if pipeline can not be created
+	 */
+	public PipelineFixture(final RestExpressRequestHandlerBuilder builder) throws Exception {
+		super();
+		handler = (RestExpressRequestHandler) builder.setHttpResponseWriter(writer).build();
+		final ChannelPipeline pipeline = new RestExpressPipelineFactory().addRequestHandler(handler).getPipeline();
+		channel = new DefaultLocalServerChannelFactory().newChannel(pipeline);
+		context = pipeline.getContext(handler);
+	}
+
+	/**
+	 * @param routeDeclaration
+	 * @return a {@link RestExpressRequestHandlerBuilder} from
+	 *         {@link TestToolKit}.
+	 */
+	public static RestExpressRequestHandlerBuilder newBuilder(final RouteDeclaration routeDeclaration) {
+		return TestToolKit.newBuilder(routeDeclaration);
+	}
+
+	/**
+	 * Add post processors of {@link org.restexpress.plugin.CacheControlPlugin}
+	 * , in the same order.
+	 * 
+	 * @param builder
+	 * @return builder
+	 */
+	public static RestExpressRequestHandlerBuilder addCacheControl(final RestExpressRequestHandlerBuilder builder) {
+		return builder.addPostprocessor(new DateHeaderPostprocessor())//
+				.addPostprocessor(new CacheHeaderPostprocessor())//
+				.addPostprocessor(new LastModifiedHeaderPostprocessor())//
+				.addFinallyProcessor(new EtagHeaderPostprocessor());
+	}
+
+	/**
+	 * Process a request.
+	 * 
+	 * @param method
+	 * @param uri
+	 * @param accept
+	 *            Accept header value (can be null)
+	 * @return written {@link Response}.
+	 * @throws Exception
+	 */
+	public Response send(final HttpMethod method, final String uri, final String accept) throws Exception {
+		final HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, method, uri);
+		request.headers().add(HttpHeaders.Names.HOST, "localhost");
+		if (accept != null) {
+			request.headers().add(HttpHeaders.Names.ACCEPT, accept);
+		}
+		handler.messageReceived(context, new UpstreamMessageEvent(channel, request, REMOTE_ADDRESS));
+		return writer.response();
+	}
+}
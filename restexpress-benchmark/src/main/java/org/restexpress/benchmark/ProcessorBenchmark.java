@@ -0,0 +1,111 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.restexpress.Response;
+import org.restexpress.plugin.gson.json.GsonJsonProcessor;
+import org.restexpress.plugin.xstream.XstreamXmlProcessor;
+import org.restexpress.response.Wrapper;
+import org.restexpress.route.RouteDeclaration;
+import org.restexpress.serialization.JacksonJsonProcessor;
+import org.restexpress.serialization.JacksonXmlProcessor;
+import org.restexpress.serialization.Processor;
+
+/**
+ * {@link ProcessorBenchmark} measures each {@link Processor} on its own (write
+ * and read of a {@link Product}) and as the only processor of a whole request
+ * pipeline.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProcessorBenchmark {
+
+	@Param({ "jackson-json", "jackson-xml", "gson", "xstream" })
+	public String processorName;
+
+	private Processor processor;
+
+	private PipelineFixture fixture;
+
+	private byte[] serialized;
+
+	@Setup
+	public void setUp() throws Exception {
+		processor = newProcessor(processorName);
+		final RouteDeclaration routeDeclaration = new RouteDeclaration();
+		routeDeclaration.uri("/api/v1/products/{id}", new PipelineBenchmark.Controller()).method(HttpMethod.GET);
+		fixture = new PipelineFixture(PipelineFixture.newBuilder(routeDeclaration).add(processor, Wrapper.newRawResponseWrapper(), true));
+		final ChannelBuffer buffer = write();
+		serialized = new byte[buffer.readableBytes()];
+		buffer.readBytes(serialized);
+	}
+
+	@Benchmark
+	public ChannelBuffer write() {
+		final ChannelBuffer buffer = ChannelBuffers.dynamicBuffer();
+		processor.write(Product.newProduct(1234), buffer);
+		return buffer;
+	}
+
+	@Benchmark
+	public Product read() {
+		return processor.read(ChannelBuffers.wrappedBuffer(serialized), Product.class);
+	}
+
+	@Benchmark
+	public Response pipeline() throws Exception {
+		return fixture.send(HttpMethod.GET, "/api/v1/products/1234", processor.mediaType());
+	}
+
+	static Processor newProcessor(final String name) {
+		if ("jackson-json".equals(name)) {
+			return new JacksonJsonProcessor();
+		} else if ("jackson-xml".equals(name)) {
+			return new JacksonXmlProcessor();
+		} else if ("gson".equals(name)) {
+			return new GsonJsonProcessor();
+		} else if ("xstream".equals(name)) {
+			return new XstreamXmlProcessor();
+		}
+		throw new IllegalArgumentException(name);
+	}
+}
@@ -0,0 +1,56 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link Product} is a small entity shared by pipeline benchmarks, readable
+ * and writable by every processor.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public class Product {
+
+	public long id;
+	public String name;
+	public String description;
+	public double price;
+	public boolean available;
+	public List<String> tags;
+
+	public Product() {
+		super();
+	}
+
+	public static Product newProduct(final long id) {
+		final Product product = new Product();
+		product.id = id;
+		product.name = "product-" + id;
+		product.description = "A rather common product description, with a few more words.";
+		product.price = id * 1.25;
+		product.available = true;
+		product.tags = new ArrayList<String>();
+		product.tags.add("alpha");
+		product.tags.add("beta");
+		return product;
+	}
+}
@@ -0,0 +1,136 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.netty.handler.codec.http.DefaultHttpRequest;
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.jboss.netty.handler.codec.http.HttpRequest;
+import org.jboss.netty.handler.codec.http.HttpVersion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.restexpress.Request;
+import org.restexpress.Response;
+import org.restexpress.RestExpress;
+import org.restexpress.RestExpressService;
+import org.restexpress.http.HttpHeader;
+import org.restexpress.http.MethodNotAllowedException;
+import org.restexpress.pipeline.MessageContext;
+import org.restexpress.route.Action;
+import org.restexpress.route.RouteDeclaration;
+import org.restexpress.route.RouteMapping;
+import org.restexpress.route.trie.TrieRouteResolver;
+
+/**
+ * {@link RouteResolverBenchmark} measures route resolution cost of
+ * {@link RouteMapping} (linear regex scan) and {@link TrieRouteResolver}
+ * (segment trie) while sweeping the number of declared routes. The resolved
+ * URL always targets the last declared route, and the miss path (405 with its
+ * 'Allow' header) is measured as well.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteResolverBenchmark {
+
+	@Param({ "10", "100", "400", "1000" })
+	public int routeCount;
+
+	@Param({ "regex", "trie" })
+	public String resolver;
+
+	private RouteMapping routeMapping;
+
+	private TrieRouteResolver trieRouteResolver;
+
+	private String hit;
+
+	private String miss;
+
+	@Setup
+	public void setUp() {
+		final RouteDeclaration routeDeclaration = new RouteDeclaration();
+		final Controller controller = new Controller();
+		for (int i = 0; i < routeCount; i++) {
+			routeDeclaration.uri("/api/v1/resource" + i + "/{id}.{format}", controller).method(HttpMethod.GET);
+		}
+		final RestExpress restExpress = RestExpressService.newBuilder();
+		routeMapping = routeDeclaration.createRouteMapping(restExpress);
+		trieRouteResolver = new TrieRouteResolver(routeMapping);
+		hit = "/api/v1/resource" + (routeCount - 1) + "/1234.json?ref=benchmark";
+		miss = "/api/v1/unknown/1234.json";
+	}
+
+	@Benchmark
+	public Action resolveHit() {
+		return resolve(hit);
+	}
+
+	@Benchmark
+	public Action resolveMiss() {
+		return resolve(miss);
+	}
+
+	/**
+	 * Full miss path: route lookup then allowed methods for the 'Allow'
+	 * header.
+	 */
+	@Benchmark
+	public Object resolveMethodNotAllowed() {
+		final HttpRequest httpRequest = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.DELETE, hit);
+		final MessageContext context = new MessageContext(new Request(httpRequest, null), new Response());
+		try {
+			return ("trie".equals(resolver) ? trieRouteResolver : routeMapping).resolve(context);
+		} catch (final MethodNotAllowedException e) {
+			return context.getResponse().getHeader(HttpHeader.ALLOW);
+		}
+	}
+
+	private Action resolve(final String url) {
+		if ("trie".equals(resolver)) {
+			return trieRouteResolver.getActionFor(HttpMethod.GET, url);
+		}
+		return routeMapping.getActionFor(HttpMethod.GET, url);
+	}
+
+	/**
+	 * Benchmark controller.
+	 */
+	public static class Controller {
+		public Object read(final Request request, final Response response) {
+			return null;
+		}
+	}
+}
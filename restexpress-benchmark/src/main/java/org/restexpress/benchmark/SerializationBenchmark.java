@@ -0,0 +1,124 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.benchmark;
+
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBufferOutputStream;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.restexpress.Response;
+import org.restexpress.domain.CharacterSet;
+import org.restexpress.domain.MediaType;
+import org.restexpress.response.ContentSizeEstimator;
+import org.restexpress.response.ResponseProcessor;
+import org.restexpress.response.Wrapper;
+import org.restexpress.serialization.JacksonJsonProcessor;
+import org.restexpress.serialization.jackson.Jackson;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * {@link SerializationBenchmark} measures JSON serialization of a response of
+ * 400 or 4000 items (nearly 100 KB or 1 MB): former path (default dynamic buffer, char writer over
+ * buffer) against byte oriented generator writing into a buffer sized by
+ * {@link ContentSizeEstimator}.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+	@Param({ "400", "4000" })
+	public int items;
+
+	private List<Item> entity;
+
+	private ObjectMapper objectMapper;
+
+	private ResponseProcessor responseProcessor;
+
+	private ContentSizeEstimator estimator;
+
+	@Setup
+	public void setup() {
+		entity = new ArrayList<Item>(items);
+		for (int i = 0; i < items; i++) {
+			entity.add(new Item(i));
+		}
+		objectMapper = Jackson.newObjectMapper();
+		responseProcessor = new ResponseProcessor(new JacksonJsonProcessor(objectMapper, MediaType.APPLICATION_JSON), Wrapper.newRawResponseWrapper());
+		estimator = new ContentSizeEstimator();
+		for (int i = 0; i < 8; i++) {
+			streaming();
+		}
+	}
+
+	@Benchmark
+	public ChannelBuffer writer() throws Exception {
+		final ChannelBuffer content = ChannelBuffers.dynamicBuffer();
+		objectMapper.writeValue(new OutputStreamWriter(new ChannelBufferOutputStream(content), CharacterSet.UTF_8.getCharset()), entity);
+		return content;
+	}
+
+	@Benchmark
+	public Object streaming() {
+		final Response response = new Response();
+		response.setEntity(entity);
+		responseProcessor.serialize(response, estimator);
+		return response.getEntity();
+	}
+
+	public static final class Item {
+		public final long id;
+		public final String name;
+		public final String description;
+		public final double price;
+		public final List<String> tags;
+
+		Item(final int id) {
+			this.id = id;
+			this.name = "item-" + id;
+			this.description = "A rather common product description, number " + id + ", with a few more words.";
+			this.price = id * 1.25;
+			this.tags = Arrays.asList("alpha", "beta", "gamma");
+		}
+	}
+}
@@ -0,0 +1,106 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.netty.handler.codec.http.DefaultHttpRequest;
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.jboss.netty.handler.codec.http.HttpVersion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.restexpress.Request;
+import org.restexpress.Response;
+import org.restexpress.RestExpress;
+import org.restexpress.RestExpressService;
+import org.restexpress.pipeline.MessageContext;
+import org.restexpress.route.RouteDeclaration;
+import org.restexpress.route.RouteMapping;
+import org.restexpress.route.RouteResolver;
+import org.restexpress.route.trie.TrieRouteResolver;
+
+/**
+ * {@link UrlParameterBenchmark} measures the cost of resolving a request and
+ * binding its URL parameters on the {@link MessageContext}, with and without
+ * reading one of them. Run it with '-prof gc' to get allocation per resolved
+ * request.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UrlParameterBenchmark {
+
+	@Param({ "regex", "trie" })
+	public String resolver;
+
+	private RouteResolver routeResolver;
+
+	private String url;
+
+	@Setup
+	public void setUp() {
+		final RouteDeclaration routeDeclaration = new RouteDeclaration();
+		final RouteResolverBenchmark.Controller controller = new RouteResolverBenchmark.Controller();
+		routeDeclaration.uri("/api/v1/users/{userId}", controller).method(HttpMethod.GET);
+		routeDeclaration.uri("/api/v1/users/{userId}/orders/{orderId}.{format}", controller).method(HttpMethod.GET);
+		final RestExpress restExpress = RestExpressService.newBuilder();
+		final RouteMapping routeMapping = routeDeclaration.createRouteMapping(restExpress);
+		routeResolver = "trie".equals(resolver) ? new TrieRouteResolver(routeMapping) : routeMapping;
+		url = "/api/v1/users/42/orders/2014%2F0001.json";
+	}
+
+	/**
+	 * Resolve and bind parameters without reading them.
+	 */
+	@Benchmark
+	public MessageContext resolve() {
+		final MessageContext context = newMessageContext();
+		context.setAction(routeResolver.resolve(context));
+		return context;
+	}
+
+	/**
+	 * Resolve, bind parameters and read a percent-encoded one.
+	 */
+	@Benchmark
+	public String resolveAndRead() {
+		final MessageContext context = newMessageContext();
+		context.setAction(routeResolver.resolve(context));
+		return context.getRequest().getHeader("orderId");
+	}
+
+	private MessageContext newMessageContext() {
+		return new MessageContext(new Request(new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, url), null), new Response());
+	}
+}
@@ -0,0 +1,107 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.restexpress.Request;
+import org.restexpress.Response;
+import org.restexpress.http.NotFoundException;
+import org.restexpress.response.ResponseWrapper;
+import org.restexpress.response.Wrapper;
+import org.restexpress.route.RouteDeclaration;
+import org.restexpress.serialization.JacksonJsonProcessor;
+
+/**
+ * {@link WrapperBenchmark} measures each {@link ResponseWrapper} through a
+ * whole request pipeline, for a successful response and for an exception.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WrapperBenchmark {
+
+	@Param({ "raw", "jsend", "error" })
+	public String wrapperName;
+
+	private PipelineFixture fixture;
+
+	@Setup
+	public void setUp() throws Exception {
+		final RouteDeclaration routeDeclaration = new RouteDeclaration();
+		final Controller controller = new Controller();
+		routeDeclaration.uri("/api/v1/products/{id}", controller).method(HttpMethod.GET);
+		routeDeclaration.uri("/api/v1/missing/{id}", controller).action("missing", HttpMethod.GET);
+		fixture = new PipelineFixture(PipelineFixture.newBuilder(routeDeclaration).add(new JacksonJsonProcessor(), newWrapper(wrapperName), true));
+	}
+
+	@Benchmark
+	public Response success() throws Exception {
+		return fixture.send(HttpMethod.GET, "/api/v1/products/1234", "application/json");
+	}
+
+	@Benchmark
+	public Response exception() throws Exception {
+		return fixture.send(HttpMethod.GET, "/api/v1/missing/1234", "application/json");
+	}
+
+	static ResponseWrapper newWrapper(final String name) {
+		if ("raw".equals(name)) {
+			return Wrapper.newRawResponseWrapper();
+		} else if ("jsend".equals(name)) {
+			return Wrapper.newJsendResponseWrapper();
+		} else if ("error".equals(name)) {
+			return Wrapper.newErrorResponseWrapper();
+		}
+		throw new IllegalArgumentException(name);
+	}
+
+	/**
+	 * Benchmark controller.
+	 */
+	public static class Controller {
+		private final Product product = Product.newProduct(1234);
+
+		public Product read(final Request request, final Response response) {
+			return product;
+		}
+
+		public Product missing(final Request request, final Response response) {
+			throw new NotFoundException("no product");
+		}
+	}
+}
@@ -34,30 +34,50 @@
  */
 package org.restexpress.domain;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * A {@link MediaRange} is a single segment parsed from an Accept or
  * Content-Type header.
+ * <p>
+ * Parsing is a single pass over the characters of the segment (RFC 7231
+ * <code>type "/" subtype *( OWS ";" OWS parameter )</code>): common type,
+ * subtype and parameter names are interned, the q-value is stored in fixed
+ * point (thousandths, see {@link #quality}) and no parameter map is allocated
+ * when the segment has no parameter.
+ * </p>
  * 
  * @author toddf
  * @since Jan 18, 2013
  */
 public class MediaRange {
-	private static final String MEDIA_TYPE_REGEX = "(\\S+?|\\*)/(\\S+?|\\*)";
-	private static final Pattern MEDIA_TYPE_PATTERN = Pattern.compile(MEDIA_TYPE_REGEX);
-	private static final String PARAMETER_REGEX = "(\\w+?)(?:\\s*?=\\s*?(\\S+?))";
-	private static final Pattern PARAMETER_PATTERN = Pattern.compile(PARAMETER_REGEX);
+	/**
+	 * Maximum quality, fixed point value of q=1.
+	 */
+	public static final int MAX_QUALITY = 1000;
+
+	/**
+	 * Common type, subtype and parameter names, shared instead of copied.
+	 */
+	private static final String[] INTERNED = { "*", "text", "application", "image", "audio", "video", "multipart", "html", "plain", "xml", "json", "xhtml+xml",
+			"javascript", "css", "csv", "avif", "webp", "apng", "png", "jpeg", "gif", "svg+xml", "signed-exchange", "hal+json", "octet-stream", "form-data",
+			"x-www-form-urlencoded", "charset", "level", "version", "UTF-8", "utf-8", "v", "b3" };
 
 	protected String name;
 	protected String type;
 	protected String subtype;
+	/**
+	 * q-value, kept for compatibility: see {@link #quality}.
+	 */
 	protected float qvalue = 1.0f;
-	protected Map<String, String> parameters = new HashMap<String, String>();
+	/**
+	 * q-value in thousandths (0 to {@link #MAX_QUALITY}).
+	 */
+	protected int quality = MAX_QUALITY;
+	protected Map<String, String> parameters = Collections.emptyMap();
 
 	/**
 	 * Build a new instance of {@link MediaRange}.
@@ -153,29 +173,152 @@ public class MediaRange {
 	 * @return {@link MediaRange} instance.
 	 */
 	public static MediaRange parse(final String segment) {
-		final MediaRange r = new MediaRange(segment);
-		final String[] pieces = segment.split("\\s*;\\s*");
-		final Matcher x = MEDIA_TYPE_PATTERN.matcher(pieces[0]);
-		if (x.matches()) {
-			r.type = x.group(1);
-			r.subtype = x.group(2);
-		}
-		for (int i = 1; i < pieces.length; ++i) {
-			final Matcher p = PARAMETER_PATTERN.matcher(pieces[i]);
-
-			if (p.matches()) {
-				final String token = p.group(1);
-				final String value = p.group(2);
-
-				if ("q".equalsIgnoreCase(token)) {
-					r.qvalue = Float.parseFloat(value);
-				} else if (value != null) {
-					r.parameters.put(token, value);
-				} else {
-					r.parameters.put(token, null);
+		return parse(segment, 0, segment.length());
+	}
+
+	/**
+	 * Parse segment between start (inclusive) and end (exclusive) of value.
+	 * Surrounding white spaces are ignored, a single <code>*</code> is read as
+	 * <code>*&#47;*</code>, parameters without value and malformed q-values are
+	 * ignored.
+	 * 
+	 * @param value
+	 * @param start
+	 * @param end
+	 * @return {@link MediaRange} instance.
+	 */
+	static MediaRange parse(final String value, int start, int end) {
+		start = skipWhitespace(value, start, end);
+		end = trimWhitespace(value, start, end);
+		final MediaRange r = new MediaRange(start == 0 && end == value.length() ? value : value.substring(start, end));
+		// type "/" subtype
+		int i = start;
+		while (i < end && value.charAt(i) != ';') {
+			i++;
+		}
+		final int typeEnd = trimWhitespace(value, start, i);
+		final int slash = value.indexOf('/', start);
+		if (slash > start && slash < typeEnd - 1 && !containsWhitespace(value, start, typeEnd)) {
+			r.type = intern(value, start, slash);
+			r.subtype = intern(value, slash + 1, typeEnd);
+		} else if (typeEnd == start + 1 && value.charAt(start) == '*') {
+			r.type = "*";
+			r.subtype = "*";
+		}
+		// *( ";" parameter )
+		while (i < end) {
+			final int paramStart = skipWhitespace(value, i + 1, end);
+			i = paramStart;
+			while (i < end && value.charAt(i) != ';') {
+				i++;
+			}
+			final int paramEnd = trimWhitespace(value, paramStart, i);
+			final int equal = value.indexOf('=', paramStart);
+			if (equal <= paramStart || equal >= paramEnd - 1) {
+				continue;
+			}
+			final int tokenEnd = trimWhitespace(value, paramStart, equal);
+			final int valueStart = skipWhitespace(value, equal + 1, paramEnd);
+			if (!isToken(value, paramStart, tokenEnd) || containsWhitespace(value, valueStart, paramEnd)) {
+				continue;
+			}
+			if (tokenEnd - paramStart == 1 && (value.charAt(paramStart) | 0x20) == 'q') {
+				final int quality = parseQuality(value, valueStart, paramEnd);
+				if (quality >= 0) {
+					r.quality = quality;
+					r.qvalue = quality / (float) MAX_QUALITY;
 				}
+			} else {
+				if (r.parameters.isEmpty()) {
+					r.parameters = new HashMap<String, String>(4);
+				}
+				r.parameters.put(intern(value, paramStart, tokenEnd), intern(value, valueStart, paramEnd));
 			}
 		}
 		return r;
 	}
+
+	/**
+	 * Parse a q-value (<code>0[.ddd]</code>, <code>.ddd</code> or
+	 * <code>1[.000]</code>) in thousandths. Digits after the third decimal are ignored.
+	 * 
+	 * @return quality or -1 if malformed.
+	 */
+	static int parseQuality(final String value, final int start, final int end) {
+		if (start >= end) {
+			return -1;
+		}
+		// lenient on a missing unit (".2"), as sent by some clients
+		final char unit = value.charAt(start);
+		final int decimal = unit == '.' ? start : start + 1;
+		if (unit != '0' && unit != '1' && unit != '.') {
+			return -1;
+		}
+		int quality = unit == '1' ? MAX_QUALITY : 0;
+		if (decimal < end) {
+			if (value.charAt(decimal) != '.') {
+				return -1;
+			}
+			int scale = MAX_QUALITY / 10;
+			for (int i = decimal + 1; i < end; i++) {
+				final char c = value.charAt(i);
+				if (c < '0' || c > '9') {
+					return -1;
+				}
+				quality += (c - '0') * scale;
+				scale /= 10;
+			}
+		}
+		return Math.min(quality, MAX_QUALITY);
+	}
+
+	private static String intern(final String value, final int start, final int end) {
+		final int length = end - start;
+		for (final String candidate : INTERNED) {
+			if (candidate.length() == length && value.regionMatches(start, candidate, 0, length)) {
+				return candidate;
+			}
+		}
+		return value.substring(start, end);
+	}
+
+	/**
+	 * @return true if characters between start and end are a non empty RFC
+	 *         7230 token.
+	 */
+	private static boolean isToken(final String value, final int start, final int end) {
+		if (start >= end) {
+			return false;
+		}
+		for (int i = start; i < end; i++) {
+			final char c = value.charAt(i);
+			if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || "!#$%&'*+-.^_`|~".indexOf(c) >= 0)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean containsWhitespace(final String value, final int start, final int end) {
+		for (int i = start; i < end; i++) {
+			if (Character.isWhitespace(value.charAt(i))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	static int skipWhitespace(final String value, int start, final int end) {
+		while (start < end && Character.isWhitespace(value.charAt(start))) {
+			start++;
+		}
+		return start;
+	}
+
+	static int trimWhitespace(final String value, final int start, int end) {
+		while (end > start && Character.isWhitespace(value.charAt(end - 1))) {
+			end--;
+		}
+		return end;
+	}
 }
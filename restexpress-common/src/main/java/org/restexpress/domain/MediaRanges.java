@@ -61,10 +61,19 @@ public enum MediaRanges {
 		if (mediaType == null) {
 			return Collections.emptyList();
 		}
-		final String[] segments = mediaType.split("\\s*,\\s*");
-		final List<MediaRange> items = new ArrayList<MediaRange>();
-		for (final String segment : segments) {
-			items.add(MediaRange.parse(segment));
+		final int length = mediaType.length();
+		final List<MediaRange> items = new ArrayList<MediaRange>(4);
+		int start = 0;
+		while (start <= length) {
+			int end = mediaType.indexOf(',', start);
+			if (end < 0) {
+				end = length;
+			}
+			// ignore empty segment, but keep at least one range like before
+			if (MediaRange.skipWhitespace(mediaType, start, end) < end || (end == length && items.isEmpty())) {
+				items.add(MediaRange.parse(mediaType, start, end));
+			}
+			start = end + 1;
 		}
 		return items;
 	}
@@ -162,7 +171,7 @@ public enum MediaRanges {
 		public int compareTo(final WeightedMatch that) {
 			final int rankSign = (that.rank - this.rank);
 			if (rankSign == 0) {
-				return (int) ((that.mediaRange.qvalue - this.mediaRange.qvalue) * 10);
+				return that.mediaRange.quality - this.mediaRange.quality;
 			}
 			return rankSign;
 		}
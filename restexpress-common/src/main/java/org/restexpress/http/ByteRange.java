@@ -0,0 +1,281 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.http;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * {@link ByteRange} is a satisfiable byte range of a representation, as
+ * requested with a 'Range: bytes=...' header (RFC 7233).
+ * <p/>
+ * Positions are zero based and inclusive: "bytes=0-499" is the first 500 bytes.
+ * The byte counterpart of the 'items' pagination supported by
+ * <code>QueryRange</code>.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public final class ByteRange {
+
+	/**
+	 * Range unit supported by this server.
+	 */
+	public static final String BYTES_UNIT = "bytes";
+
+	/**
+	 * Above this number of ranges, the 'Range' header is ignored and the full
+	 * representation is sent: many small ranges are far more expensive to serve
+	 * than the whole content.
+	 */
+	public static final int MAX_RANGES = 16;
+
+	private static final Comparator<ByteRange> BY_START = new Comparator<ByteRange>() {
+		@Override
+		public int compare(final ByteRange o1, final ByteRange o2) {
+			return o1.start < o2.start ? -1 : (o1.start == o2.start ? 0 : 1);
+		}
+	};
+
+	private final long start;
+	private final long end;
+
+	/**
+	 * Build a new instance of {@link ByteRange}.
+	 * 
+	 * @param start
+	 *            first byte position
+	 * @param end
+	 *            last byte position, inclusive
+	 * @throws IllegalArgumentException
+	 *             if start is negative or end is before start
+	 */
+	public ByteRange(final long start, final long end) {
+		super();
+		if (start < 0 || end < start) {
+			throw new IllegalArgumentException("invalid byte range " + start + "-" + end);
+		}
+		this.start = start;
+		this.end = end;
+	}
+
+	/**
+	 * @return first byte position.
+	 */
+	public long getStart() {
+		return start;
+	}
+
+	/**
+	 * @return last byte position, inclusive.
+	 */
+	public long getEnd() {
+		return end;
+	}
+
+	/**
+	 * @return number of bytes in this range.
+	 */
+	public long getLength() {
+		return end - start + 1;
+	}
+
+	/**
+	 * Creates a string in the form "bytes 0-499/1234" suitable for the
+	 * 'Content-Range' header of a 206 response.
+	 * 
+	 * @param completeLength
+	 *            length of the whole representation
+	 * @return a String of the form "bytes &lt;first&gt;-&lt;last&gt;/&lt;length&gt;"
+	 */
+	public String asContentRange(final long completeLength) {
+		return new StringBuilder(BYTES_UNIT).append(' ').append(start).append('-').append(end).append('/').append(completeLength).toString();
+	}
+
+	/**
+	 * Creates a string in the form "bytes *&#47;1234" suitable for the
+	 * 'Content-Range' header of a 416 response.
+	 * 
+	 * @param completeLength
+	 *            length of the whole representation
+	 * @return a String of the form "bytes *&#47;&lt;length&gt;"
+	 */
+	public static String asUnsatisfiedContentRange(final long completeLength) {
+		return BYTES_UNIT + " */" + completeLength;
+	}
+
+	/**
+	 * Parse a 'Range' header value against a representation of the specified
+	 * length.
+	 * <p/>
+	 * Unsatisfiable ranges are dropped, ranges ending beyond the
+	 * representation are shortened, and overlapping or adjacent ranges are
+	 * coalesced.
+	 * 
+	 * @param value
+	 *            'Range' header value, like "bytes=0-499,-500"
+	 * @param completeLength
+	 *            length of the representation
+	 * @return <code>null</code> if the header must be ignored (other unit,
+	 *         invalid syntax, too many ranges), an empty list if no range is
+	 *         satisfiable, or satisfiable ranges ordered by position.
+	 */
+	public static List<ByteRange> parse(final String value, final long completeLength) {
+		if (value == null) {
+			return null;
+		}
+		final int length = value.length();
+		int index = skipWhitespace(value, 0, length);
+		if (!value.regionMatches(true, index, BYTES_UNIT, 0, BYTES_UNIT.length())) {
+			return null;
+		}
+		index = skipWhitespace(value, index + BYTES_UNIT.length(), length);
+		if (index == length || value.charAt(index) != '=') {
+			return null;
+		}
+		index++;
+		final List<ByteRange> ranges = new ArrayList<ByteRange>(2);
+		int count = 0;
+		while (index <= length) {
+			int comma = value.indexOf(',', index);
+			if (comma < 0) {
+				comma = length;
+			}
+			final int from = skipWhitespace(value, index, comma);
+			final int to = trimWhitespace(value, from, comma);
+			if (from < to) {
+				if (++count > MAX_RANGES) {
+					return null;
+				}
+				final int dash = value.indexOf('-', from);
+				if (dash < 0 || dash >= to) {
+					return null;
+				}
+				final long first = parseNumber(value, from, dash);
+				final long last = parseNumber(value, dash + 1, to);
+				if (first < 0) {
+					// suffix range "-n": last n bytes
+					if (from != dash || last < 0) {
+						return null;
+					}
+					if (last > 0 && completeLength > 0) {
+						ranges.add(new ByteRange(Math.max(0, completeLength - last), completeLength - 1));
+					}
+				} else if (dash + 1 == to) {
+					// open range "a-"
+					if (first < completeLength) {
+						ranges.add(new ByteRange(first, completeLength - 1));
+					}
+				} else {
+					if (last < first) {
+						return null;
+					}
+					if (first < completeLength) {
+						ranges.add(new ByteRange(first, Math.min(last, completeLength - 1)));
+					}
+				}
+			}
+			index = comma + 1;
+		}
+		if (count == 0) {
+			return null;
+		}
+		return ranges.size() > 1 ? coalesce(ranges) : ranges;
+	}
+
+	private static List<ByteRange> coalesce(final List<ByteRange> ranges) {
+		Collections.sort(ranges, BY_START);
+		final List<ByteRange> result = new ArrayList<ByteRange>(ranges.size());
+		ByteRange current = ranges.get(0);
+		for (int i = 1; i < ranges.size(); i++) {
+			final ByteRange next = ranges.get(i);
+			if (next.start <= current.end + 1) {
+				if (next.end > current.end) {
+					current = new ByteRange(current.start, next.end);
+				}
+			} else {
+				result.add(current);
+				current = next;
+			}
+		}
+		result.add(current);
+		return result;
+	}
+
+	/**
+	 * @return parsed value, -1 if empty or not a number, or
+	 *         {@link Long#MAX_VALUE} when it overflows.
+	 */
+	private static long parseNumber(final String value, final int from, final int to) {
+		if (from >= to) {
+			return -1;
+		}
+		long result = 0;
+		for (int i = from; i < to; i++) {
+			final char c = value.charAt(i);
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			if (result > (Long.MAX_VALUE - 9) / 10) {
+				result = Long.MAX_VALUE;
+			} else {
+				result = result * 10 + (c - '0');
+			}
+		}
+		return result;
+	}
+
+	private static int skipWhitespace(final String value, int from, final int to) {
+		while (from < to && (value.charAt(from) == ' ' || value.charAt(from) == '\t')) {
+			from++;
+		}
+		return from;
+	}
+
+	private static int trimWhitespace(final String value, final int from, int to) {
+		while (to > from && (value.charAt(to - 1) == ' ' || value.charAt(to - 1) == '\t')) {
+			to--;
+		}
+		return to;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * (int) (start ^ (start >>> 32)) + (int) (end ^ (end >>> 32));
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof ByteRange)) {
+			return false;
+		}
+		final ByteRange other = (ByteRange) obj;
+		return start == other.start && end == other.end;
+	}
+
+	@Override
+	public String toString() {
+		return BYTES_UNIT + "=" + start + "-" + end;
+	}
+}
@@ -21,7 +21,8 @@ package org.restexpress.http;
 
 
 /**
- * ServiceUnavailableException.
+ * ServiceUnavailableException, optionally with a delay after which client
+ * could retry (Retry-After header).
  * 
  * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
  * 
@@ -30,6 +31,8 @@ public class ServiceUnavailableException extends HttpRuntimeException {
 
 	private static final long serialVersionUID = 3732813253500357763L;
 
+	private long retryAfter = -1;
+
 	public ServiceUnavailableException() {
 		super(HttpStatus.SERVICE_UNAVAILABLE);
 	}
@@ -45,4 +48,22 @@ public class ServiceUnavailableException extends HttpRuntimeException {
 	public ServiceUnavailableException(final String message, final Throwable cause) {
 		super(HttpStatus.SERVICE_UNAVAILABLE, message, cause);
 	}
+
+	/**
+	 * @param message
+	 * @param retryAfter
+	 *            delay in seconds after which client could retry.
+	 */
+	public ServiceUnavailableException(final String message, final long retryAfter) {
+		super(HttpStatus.SERVICE_UNAVAILABLE, message);
+		this.retryAfter = retryAfter;
+	}
+
+	/**
+	 * @return delay in seconds after which client could retry, or -1 if
+	 *         unspecified.
+	 */
+	public long getRetryAfter() {
+		return retryAfter;
+	}
 }
@@ -37,6 +37,7 @@ package org.restexpress.domain;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.List;
@@ -235,4 +236,45 @@ public class MediaRangesTest {
 		List<MediaRange> requested = MediaRanges.parse("text/html;q=0.5,text/plain; q=0.1,*/*");
 		assertEquals("text/html; charset=UTF-8", MediaRanges.getBestMatch(supported, requested));
 	}
+
+	@Test
+	public void shouldParseBrowserAccept() {
+		List<MediaRange> r = MediaRanges.parse("text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,image/apng,*/*;q=0.8,application/signed-exchange;v=b3;q=0.7");
+		assertEquals(8, r.size());
+		assertEquals("application/xml", r.get(2).asMediaType());
+		assertEquals(900, r.get(2).quality);
+		assertEquals(0.9, r.get(2).qvalue, 0.001);
+		assertEquals("*/*", r.get(6).asMediaType());
+		assertEquals(800, r.get(6).quality);
+		assertEquals("application/signed-exchange; v=b3", r.get(7).asMediaType());
+		assertEquals(700, r.get(7).quality);
+		// common names are shared
+		assertSame("application", r.get(1).type);
+		assertSame("xhtml+xml", r.get(1).subtype);
+		assertSame(r.get(0).parameters, r.get(1).parameters);
+	}
+
+	@Test
+	public void shouldParseQualityInFixedPoint() {
+		assertEquals(1000, MediaRange.parse("text/plain").quality);
+		assertEquals(0, MediaRange.parse("text/plain;q=0").quality);
+		assertEquals(1000, MediaRange.parse("text/plain; Q=1.000").quality);
+		assertEquals(125, MediaRange.parse("text/plain;q=0.125").quality);
+		assertEquals(5, MediaRange.parse("text/plain ; q = 0.0059").quality);
+		assertEquals(200, MediaRange.parse("*; q=.2").quality);
+		// malformed q-value is ignored
+		assertEquals(1000, MediaRange.parse("text/plain;q=abc").quality);
+		assertEquals(1000, MediaRange.parse("text/plain;q=2").quality);
+		assertEquals(0, MediaRange.parse("text/plain;q=0.").quality);
+	}
+
+	@Test
+	public void shouldIgnoreBlankSegmentsAndWhitespaces() {
+		List<MediaRange> r = MediaRanges.parse("  text/html ,, application/json ; charset = UTF-8 ,*");
+		assertEquals(3, r.size());
+		assertEquals("text/html", r.get(0).asMediaType());
+		assertEquals("application/json; charset=UTF-8", r.get(1).asMediaType());
+		assertEquals("*/*", r.get(2).asMediaType());
+		assertEquals(1, MediaRanges.parse("").size());
+	}
 }
@@ -0,0 +1,89 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * ByteRangeTest.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public class ByteRangeTest {
+
+	@Test
+	public void shouldParseSingleRanges() {
+		assertEquals(Arrays.asList(new ByteRange(0, 499)), ByteRange.parse("bytes=0-499", 1000));
+		assertEquals(Arrays.asList(new ByteRange(500, 999)), ByteRange.parse("bytes=500-", 1000));
+		assertEquals(Arrays.asList(new ByteRange(900, 999)), ByteRange.parse("bytes=-100", 1000));
+		assertEquals(Arrays.asList(new ByteRange(0, 999)), ByteRange.parse("bytes=-5000", 1000));
+		assertEquals(Arrays.asList(new ByteRange(10, 999)), ByteRange.parse(" Bytes = 10-99999999999999999999999 ", 1000));
+	}
+
+	@Test
+	public void shouldCoalesceOverlappingRanges() {
+		assertEquals(Arrays.asList(new ByteRange(0, 199), new ByteRange(500, 599)), ByteRange.parse("bytes=500-599, 100-199,0-99, 50-60", 1000));
+		assertEquals(Arrays.asList(new ByteRange(0, 999)), ByteRange.parse("bytes=0-,-10", 1000));
+	}
+
+	@Test
+	public void shouldDropUnsatisfiableRanges() {
+		assertEquals(Arrays.asList(new ByteRange(0, 9)), ByteRange.parse("bytes=0-9,1000-1010", 1000));
+		final List<ByteRange> ranges = ByteRange.parse("bytes=1000-,-0", 1000);
+		assertTrue(ranges.isEmpty());
+		assertTrue(ByteRange.parse("bytes=-10", 0).isEmpty());
+	}
+
+	@Test
+	public void shouldIgnoreInvalidHeader() {
+		assertNull(ByteRange.parse(null, 1000));
+		assertNull(ByteRange.parse("items=0-24", 1000));
+		assertNull(ByteRange.parse("bytes=", 1000));
+		assertNull(ByteRange.parse("bytes 0-10", 1000));
+		assertNull(ByteRange.parse("bytes=10-5", 1000));
+		assertNull(ByteRange.parse("bytes=a-5", 1000));
+		assertNull(ByteRange.parse("bytes=5", 1000));
+		assertNull(ByteRange.parse("bytes=0-1,-", 1000));
+		final StringBuilder many = new StringBuilder("bytes=0-0");
+		for (int i = 1; i <= ByteRange.MAX_RANGES; i++) {
+			many.append(',').append(i * 2).append('-').append(i * 2);
+		}
+		assertNull(ByteRange.parse(many.toString(), 1000));
+	}
+
+	@Test
+	public void shouldFormatContentRange() {
+		assertEquals("bytes 0-499/1234", new ByteRange(0, 499).asContentRange(1234));
+		assertEquals("bytes */1234", ByteRange.asUnsatisfiedContentRange(1234));
+		assertEquals(500, new ByteRange(0, 499).getLength());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectInvertedRange() {
+		new ByteRange(10, 9);
+	}
+}
@@ -40,7 +40,32 @@ public enum Flags {
 	 */
 	PUBLIC_ROUTE("not.secured"), //
 	NO_AUTHENTICATION("no.authentication"), //
-	NO_AUTHORIZATION("no.authorization") //
+	NO_AUTHORIZATION("no.authorization"), //
+	/**
+	 * STREAMING_DOWNLOAD flag: serialize a returned Iterable, Iterator or
+	 * Stream element by element in HTTP chunks
+	 */
+	STREAMING_DOWNLOAD("streaming.download"), //
+	/**
+	 * STREAMING_MULTIPART_UPLOAD flag: decode a multipart request body as it
+	 * arrives, spilling large parts to disk
+	 */
+	STREAMING_MULTIPART_UPLOAD("streaming.multipart.upload"), //
+	/**
+	 * INLINE_EXECUTION flag: process requests on the I/O thread, without
+	 * dispatching them to an executor
+	 */
+	INLINE_EXECUTION("execution.inline"), //
+	/**
+	 * CACHEABLE flag: keep serialized responses of GET requests in the server
+	 * side response cache
+	 */
+	CACHEABLE("cacheable"), //
+	/**
+	 * COALESCING flag: collapse concurrent identical GET requests, which
+	 * share the response of the first one
+	 */
+	COALESCING("request.coalescing") //
 	;
 
 	private String value;
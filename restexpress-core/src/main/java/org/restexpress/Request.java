@@ -21,11 +21,12 @@ package org.restexpress;
 
 import java.io.InputStream;
 import java.net.InetSocketAddress;
-import java.net.URLDecoder;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -39,13 +40,21 @@ import org.jboss.netty.handler.codec.http.HttpMethod;
 import org.jboss.netty.handler.codec.http.HttpRequest;
 import org.jboss.netty.handler.codec.http.HttpVersion;
 import org.jboss.netty.handler.codec.http.QueryStringDecoder;
+import org.jboss.netty.handler.codec.http.multipart.DefaultHttpDataFactory;
+import org.jboss.netty.handler.codec.http.multipart.HttpPostRequestDecoder;
+import org.jboss.netty.handler.codec.http.multipart.HttpPostRequestDecoder.ErrorDataDecoderException;
+import org.jboss.netty.handler.codec.http.multipart.HttpPostRequestDecoder.NotEnoughDataDecoderException;
+import org.jboss.netty.handler.codec.http.multipart.InterfaceHttpData;
 import org.restexpress.domain.CharacterSet;
 import org.restexpress.http.BadRequestException;
 import org.restexpress.http.HttpHeader;
+import org.restexpress.pipeline.handler.StreamingUploadRequest;
 import org.restexpress.response.ResponseProcessorSettingResolver;
 import org.restexpress.route.Route;
 import org.restexpress.route.RouteResolver;
+import org.restexpress.url.QueryString;
 import org.restexpress.url.QueryStringParser;
+import org.restexpress.url.UrlMatch;
 
 import com.google.common.collect.Maps;
 
@@ -85,12 +94,16 @@ public class Request {
 	private final HttpRequest httpRequest;
 	private final RouteResolver routeResolver;
 	private final ResponseProcessorSettingResolver responseProcessorSettingResolver;
-	private final Map<String, String> queryStringMap;
+	private QueryString queryString;
+	private Map<String, String> queryStringMap;
+	private boolean queryStringAsHeaders = true;
 	private final HttpMethod effectiveHttpMethod;
 	private final String correlationId;
 	private final InetSocketAddress remoteAddress;
 	private Route resolvedRoute;
+	private UrlMatch urlMatch;
 	private final Map<String, Object> attachments = Maps.newHashMap();
+	private HttpPostRequestDecoder partDecoder;
 
 	/**
 	 * Build a new instance of {@link Request} for testing purpose.
@@ -123,7 +136,6 @@ public class Request {
 		this.httpRequest = httpRequest;
 		this.routeResolver = routeResolver;
 		this.responseProcessorSettingResolver = responseProcessorSettingResolver;
-		this.queryStringMap = parseQueryString(httpRequest);
 		this.effectiveHttpMethod = determineEffectiveHttpMethod(httpRequest);
 		this.correlationId = createCorrelationId();
 		this.remoteAddress = remoteAddress;
@@ -299,6 +311,68 @@ public class Request {
 		return qsp.getParameters();
 	}
 
+	/**
+	 * @return true if request body is a multipart form submission.
+	 */
+	public boolean hasParts() {
+		if (httpRequest instanceof StreamingUploadRequest) {
+			return true;
+		}
+		try {
+			return HttpPostRequestDecoder.isMultipart(httpRequest);
+		} catch (final ErrorDataDecoderException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Returns decoded parts of a multipart form submission, attributes and
+	 * file uploads. On a route declared with
+	 * {@link org.restexpress.route.RouteBuilder#useStreamingMultipartUpload()},
+	 * large parts are held in temporary files, deleted once the request is
+	 * processed.
+	 * 
+	 * @return a {@link List} of {@link InterfaceHttpData}.
+	 * @throws BadRequestException
+	 *             if body is not a valid multipart form submission
+	 */
+	@SuppressWarnings("deprecation")
+	public List<InterfaceHttpData> getParts() throws BadRequestException {
+		if (partDecoder == null) {
+			if (httpRequest instanceof StreamingUploadRequest) {
+				partDecoder = ((StreamingUploadRequest) httpRequest).decoder();
+			} else {
+				if (!hasParts()) {
+					throw new BadRequestException("Request body is not a multipart form submission");
+				}
+				try {
+					partDecoder = new HttpPostRequestDecoder(new DefaultHttpDataFactory(false), httpRequest);
+				} catch (final ErrorDataDecoderException e) {
+					throw new BadRequestException(e);
+				} catch (final HttpPostRequestDecoder.IncompatibleDataDecoderException e) {
+					throw new BadRequestException(e);
+				}
+			}
+		}
+		try {
+			return partDecoder.getBodyHttpDatas();
+		} catch (final NotEnoughDataDecoderException e) {
+			throw new BadRequestException(e);
+		}
+	}
+
+	/**
+	 * Release decoded parts, deleting their temporary files.
+	 */
+	public void releaseParts() {
+		if (partDecoder != null) {
+			partDecoder.cleanFiles();
+			partDecoder = null;
+		} else if (httpRequest instanceof StreamingUploadRequest) {
+			((StreamingUploadRequest) httpRequest).decoder().cleanFiles();
+		}
+	}
+
 	/**
 	 * Set body content.
 	 * 
@@ -314,6 +388,8 @@ public class Request {
 	 */
 	public void clearHeaders() {
 		httpRequest.headers().clear();
+		queryStringAsHeaders = false;
+		urlMatch = null;
 	}
 
 	/**
@@ -326,6 +402,10 @@ public class Request {
 	 * with QueryStringDecoder, HTTP headers are URL decoded. Also query-string
 	 * parameters that get processed by RestExpress are URL decoded before being
 	 * set as headers on the request.
+	 * <p/>
+	 * Query string parameters, then URL parameters of the resolved route, are
+	 * read as headers after HTTP headers: the query string is parsed on first
+	 * read, and values are URL decoded on demand.
 	 * 
 	 * @param name
 	 * @return the requested header, or null if 'name' doesn't exist as a
@@ -336,7 +416,14 @@ public class Request {
 	}
 
 	public String getHeader(final String name) {
-		return httpRequest.headers().get(name);
+		String value = httpRequest.headers().get(name);
+		if ((value == null) && queryStringAsHeaders) {
+			value = getQueryString().getFirstIgnoreCase(name);
+		}
+		if ((value == null) && (urlMatch != null)) {
+			value = urlMatch.getDecoded(name);
+		}
+		return value;
 	}
 
 	/**
@@ -357,7 +444,19 @@ public class Request {
 	}
 
 	public List<String> getHeaders(final String name) {
-		return httpRequest.headers().getAll(name);
+		final List<String> values = httpRequest.headers().getAll(name);
+		final List<String> parameters = queryStringAsHeaders ? getQueryString().getAll(name, true) : Collections.<String> emptyList();
+		final String value = urlMatch != null ? urlMatch.getDecoded(name) : null;
+		if (parameters.isEmpty() && (value == null)) {
+			return values;
+		}
+		final List<String> result = new ArrayList<String>(values.size() + parameters.size() + 1);
+		result.addAll(values);
+		result.addAll(parameters);
+		if (value != null) {
+			result.add(value);
+		}
+		return result;
 	}
 
 	/**
@@ -390,7 +489,18 @@ public class Request {
 	 * @return Set of all header names
 	 */
 	public Set<String> getHeaderNames() {
-		return httpRequest.headers().names();
+		final boolean hasQueryString = queryStringAsHeaders && !getQueryString().isEmpty();
+		if (!hasQueryString && ((urlMatch == null) || urlMatch.isEmpty())) {
+			return httpRequest.headers().names();
+		}
+		final Set<String> names = new LinkedHashSet<String>(httpRequest.headers().names());
+		if (hasQueryString) {
+			names.addAll(getQueryString().names());
+		}
+		if (urlMatch != null) {
+			names.addAll(urlMatch.names());
+		}
+		return names;
 	}
 
 	/**
@@ -423,6 +533,24 @@ public class Request {
 		}
 	}
 
+	/**
+	 * @return {@link UrlMatch} of the resolved route, null if none.
+	 */
+	public UrlMatch getUrlMatch() {
+		return urlMatch;
+	}
+
+	/**
+	 * Set parameters parsed from the URL by the resolved route. They are
+	 * available as headers, without being copied into the HTTP request.
+	 * 
+	 * @param urlMatch
+	 *            {@link UrlMatch} instance
+	 */
+	public void setUrlMatch(final UrlMatch urlMatch) {
+		this.urlMatch = urlMatch;
+	}
+
 	/**
 	 * @return resolved {@link Route}.
 	 */
@@ -509,12 +637,42 @@ public class Request {
 	}
 
 	/**
-	 * @return query string as {@link Map}.
+	 * @return parsed {@link QueryString}. Query string is parsed on first
+	 *         call.
+	 */
+	public QueryString getQueryString() {
+		if (queryString == null) {
+			queryString = QueryString.parse(httpRequest.getUri());
+		}
+		return queryString;
+	}
+
+	/**
+	 * @return query string as a mutable {@link Map} of first raw value of each
+	 *         parameter, built on first call. Changes are kept for next calls,
+	 *         but are not seen by {@link #getQueryParameter(String)} nor
+	 *         header lookups, which read the parsed {@link QueryString}.
 	 */
 	public Map<String, String> getQueryStringMap() {
+		if (queryStringMap == null) {
+			queryStringMap = getQueryString().toMap();
+		}
 		return queryStringMap;
 	}
 
+	/**
+	 * Gets the first value of the named query string parameter, URL decoded.
+	 * Unlike {@link #getHeader(String)}, HTTP headers and URL parameters are
+	 * not considered.
+	 * 
+	 * @param name
+	 *            parameter name
+	 * @return parameter value, or null if not present.
+	 */
+	public String getQueryParameter(final String name) {
+		return getQueryString().getFirst(name);
+	}
+
 	/**
 	 * @return {@link Boolean#TRUE} if and only if the connection can remain
 	 *         open and thus 'kept alive'.
@@ -707,37 +865,6 @@ public class Request {
 		return remoteAddress;
 	}
 
-	/**
-	 * Add the query string parameters to the request as headers. Also parses
-	 * the query string into the queryStringMap, if applicable. Note, if the
-	 * query string contains multiple of the same parameter name, the headers
-	 * will contain them all, but the queryStringMap will only contain the first
-	 * one. This will be fixed in a future release.
-	 */
-	private static Map<String, String> parseQueryString(final HttpRequest request) {
-		if (!request.getUri().contains("?")) {
-			return new HashMap<String, String>();
-		}
-		final Map<String, List<String>> parameters = new QueryStringParser(request.getUri(), true).getParameters();
-		if ((parameters == null) || parameters.isEmpty()) {
-			return new HashMap<String, String>();
-		}
-		Map<String, String> queryStringMap = new HashMap<String, String>(parameters.size());
-		String charset = CharacterSet.UTF_8.getCharsetName();
-		for (final Entry<String, List<String>> entry : parameters.entrySet()) {
-			queryStringMap.put(entry.getKey(), entry.getValue().get(0));
-
-			for (final String value : entry.getValue()) {
-				try {
-					request.headers().add(entry.getKey(), URLDecoder.decode(value, charset));
-				} catch (final Exception e) {
-					request.headers().add(entry.getKey(), value);
-				}
-			}
-		}
-		return queryStringMap;
-	}
-
 	/**
 	 * If the request HTTP method is post, allow a query string parameter to
 	 * determine the request HTTP method of the post (e.g. _method=DELETE or
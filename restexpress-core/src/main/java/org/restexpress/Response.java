@@ -28,6 +28,7 @@ import javax.ws.rs.core.Response.StatusType;
 
 import org.jboss.netty.handler.codec.http.HttpHeaders;
 import org.jboss.netty.handler.codec.http.HttpResponseStatus;
+import org.restexpress.http.ByteRange;
 import org.restexpress.http.HttpHeader;
 import org.restexpress.http.HttpStatus;
 import org.restexpress.query.QueryRange;
@@ -156,6 +157,19 @@ public class Response {
 		addHeader(HttpHeader.CONTENT_RANGE, range.asContentRange(count));
 	}
 
+	/**
+	 * Add a "Content-Range" header to the response, setting it to the byte
+	 * range of a representation of the specified length.
+	 * 
+	 * @param range
+	 *            {@link ByteRange} sent
+	 * @param length
+	 *            length of the whole representation
+	 */
+	public void addRangeHeader(final ByteRange range, final long length) {
+		addHeader(HttpHeader.CONTENT_RANGE, range.asContentRange(length));
+	}
+
 	/**
 	 * Add a "Location" header to the response.
 	 * 
@@ -28,6 +28,7 @@ import org.restexpress.domain.metadata.ServerMetadata;
 import org.restexpress.pipeline.MessageObserver;
 import org.restexpress.pipeline.Postprocessor;
 import org.restexpress.pipeline.Preprocessor;
+import org.restexpress.pipeline.ResponseCache;
 import org.restexpress.plugin.Plugin;
 import org.restexpress.plugin.PluginService;
 import org.restexpress.response.ResponseProcessorManager;
@@ -98,6 +99,17 @@ public interface RestExpress {
 	 */
 	public RestExpress addFinallyProcessor(Postprocessor processor);
 
+	/**
+	 * Set the {@link ResponseCache} of serialized responses. A response found
+	 * in cache is sent without invoking preprocessors, controller,
+	 * postprocessors and serialization.
+	 * 
+	 * @param responseCache
+	 *            {@link ResponseCache} instance, null to disable it.
+	 * @return RestExpress for method chaining.
+	 */
+	public RestExpress setResponseCache(ResponseCache responseCache);
+
 	/**
 	 * Add the specified {@link Processor} and {@link ResponseWrapper}.
 	 * 
@@ -21,13 +21,25 @@ package org.restexpress;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.net.InetSocketAddress;
 import java.security.KeyStore;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
 import javax.ws.rs.ext.ParamConverterProvider;
@@ -40,15 +52,25 @@ import org.jboss.netty.channel.group.DefaultChannelGroup;
 import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
 import org.jboss.netty.handler.execution.ExecutionHandler;
 import org.jboss.netty.handler.execution.OrderedMemoryAwareThreadPoolExecutor;
+import org.jboss.netty.util.HashedWheelTimer;
+import org.jboss.netty.util.Timer;
 import org.restexpress.context.ServerContext;
 import org.restexpress.domain.metadata.ServerMetadata;
 import org.restexpress.domain.response.ErrorResult;
+import org.restexpress.pipeline.AdmissionLimiter;
+import org.restexpress.pipeline.ConnectionCounters;
+import org.restexpress.pipeline.RequestCoalescer;
 import org.restexpress.pipeline.MessageObserver;
 import org.restexpress.pipeline.Postprocessor;
 import org.restexpress.pipeline.Preprocessor;
+import org.restexpress.pipeline.ResponseCache;
 import org.restexpress.pipeline.RestExpressPipelineFactory;
+import org.restexpress.pipeline.VirtualThreadExecutor;
+import org.restexpress.pipeline.handler.AdmissionControlHandler;
 import org.restexpress.pipeline.handler.RestExpressRequestHandler;
 import org.restexpress.pipeline.handler.RestExpressRequestHandlerBuilder;
+import org.restexpress.pipeline.handler.RouteExecutionHandler;
+import org.restexpress.pipeline.handler.SpillingHttpDataFactory;
 import org.restexpress.plugin.Plugin;
 import org.restexpress.plugin.PluginManager;
 import org.restexpress.plugin.PluginService;
@@ -58,20 +80,31 @@ import org.restexpress.reader.JaxRsReader;
 import org.restexpress.response.ResponseWrapper;
 import org.restexpress.response.SerializationProvider;
 import org.restexpress.response.Wrapper;
+import org.restexpress.route.Route;
 import org.restexpress.route.RouteDeclaration;
 import org.restexpress.route.RouteMapping;
 import org.restexpress.route.invoker.RestExpressParamConverterProvider;
 import org.restexpress.route.parameterized.ParameterizedRouteBuilder;
 import org.restexpress.route.regex.RegexRouteBuilder;
+import org.restexpress.route.trie.TrieRouteResolver;
 import org.restexpress.serialization.JacksonJsonProcessor;
 import org.restexpress.serialization.JacksonXmlProcessor;
 import org.restexpress.serialization.Processor;
 import org.restexpress.serialization.TextProcessor;
+import org.restexpress.settings.AdmissionSettings;
+import org.restexpress.settings.ExecutionMode;
+import org.restexpress.settings.ExecutorSettings;
+import org.restexpress.settings.RejectionPolicy;
 import org.restexpress.settings.RestExpressSettings;
 import org.restexpress.settings.Settings;
+import org.restexpress.settings.SocketSettings;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * {@link RestExpressService} implement {@link RestExpress} and
@@ -143,6 +176,32 @@ public class RestExpressService implements RestExpress, RestExpressLifeCycle {
 	 */
 	private ServerBootstrap bootstrap = null;
 
+	/**
+	 * {@link ExecutionHandler} of requests, null if processed on I/O threads.
+	 */
+	private ExecutionHandler executionHandler = null;
+
+	/**
+	 * {@link AdmissionLimiter} of requests, null if admission control is
+	 * disabled.
+	 */
+	private AdmissionLimiter admissionLimiter = null;
+
+	/**
+	 * {@link ConnectionCounters} of bound server.
+	 */
+	private ConnectionCounters connectionCounters = null;
+
+	/**
+	 * {@link RequestCoalescer} of bound server, null if no route is coalesced.
+	 */
+	private RequestCoalescer requestCoalescer = null;
+
+	/**
+	 * {@link Timer} of connection timeouts, null if disabled.
+	 */
+	private Timer timer = null;
+
 	/**
 	 * {@link ParamConverterProvider} instance.
 	 */
@@ -241,11 +300,17 @@ public class RestExpressService implements RestExpress, RestExpressLifeCycle {
 		/* finalize RequestHandler */
 		routeDeclarations.createRouteMapping(this);
 		routeDeclarations.clear();
-		requestHandlerBuilder.setRouteResolver(routeMapping);
+		final TrieRouteResolver routeResolver = new TrieRouteResolver(routeMapping);
+		requestHandlerBuilder.setRouteResolver(routeResolver);
 
 		/* bind plugins */
 		pluginManager.bind(this);
 
+		if (hasRouteFlagged(Flags.COALESCING)) {
+			requestCoalescer = new RequestCoalescer();
+			registerMBean("RequestCoalescer", requestCoalescer);
+		}
+		requestHandlerBuilder.setRequestCoalescer(requestCoalescer);
 		final RestExpressRequestHandler requestHandler = requestHandlerBuilder.build();
 
 		// for test purpose
@@ -255,13 +320,43 @@ public class RestExpressService implements RestExpress, RestExpressLifeCycle {
 		final RestExpressPipelineFactory pipelineFactory = new RestExpressPipelineFactory()//
 				.addRequestHandler(requestHandler)//
 				.setMaxContentLength(settings.serverSettings().getMaxContentSize())//
+				.setRouteResolver(routeResolver)//
 				.setSSLContext(sslContext);
 
-		if (settings.serverSettings().getExecutorThreadPoolSize() > 0) {
-			final ExecutionHandler executionHandler = new ExecutionHandler(new OrderedMemoryAwareThreadPoolExecutor(settings.serverSettings().getExecutorThreadPoolSize(), 0, 0));
+		if (hasRouteFlagged(Flags.STREAMING_MULTIPART_UPLOAD)) {
+			pipelineFactory.setStreamingUpload(new SpillingHttpDataFactory(settings.serverSettings().getUploadSpillThreshold()));
+		}
+
+		final Map<String, Executor> executors = newRouteExecutors();
+		if ((settings.serverSettings().getExecutorThreadPoolSize() > 0) || !executors.isEmpty()) {
+			final Executor executor = settings.serverSettings().getExecutorThreadPoolSize() > 0 ? newExecutor() : MoreExecutors.sameThreadExecutor();
+			final Set<String> fallbacks = Sets.newHashSet();
+			for (final Map.Entry<String, ExecutorSettings> entry : settings.serverSettings().getExecutors().entrySet()) {
+				if (entry.getValue().getRejectionPolicy() == RejectionPolicy.DEFAULT_EXECUTOR) {
+					fallbacks.add(entry.getKey());
+				}
+			}
+			executionHandler = new RouteExecutionHandler(executor, routeResolver, executors, fallbacks);
 			pipelineFactory.setExecutionHandler(executionHandler);
 		}
 
+		final AdmissionSettings admissionSettings = settings.serverSettings().getAdmissionControl();
+		if (admissionSettings != null) {
+			admissionLimiter = new AdmissionLimiter(admissionSettings);
+			pipelineFactory.setAdmissionHandler(new AdmissionControlHandler(admissionLimiter, admissionSettings.getRetryAfter()));
+			registerMBean("AdmissionLimiter", admissionLimiter);
+		}
+
+		final SocketSettings socketSettings = settings.socketSettings();
+		connectionCounters = new ConnectionCounters();
+		pipelineFactory.setConnectionLimit(connectionCounters, socketSettings.getMaxConnections(), channelGroup);
+		if ((socketSettings.getReadHeaderTimeout() > 0) || (socketSettings.getIdleTimeout() > 0) || (socketSettings.getWriteTimeout() > 0)) {
+			// a single timer for all connections
+			timer = new HashedWheelTimer(new ThreadFactoryBuilder().setNameFormat(settings.serverSettings().getName() + "-timer-%d").setDaemon(true).build());
+			pipelineFactory.setTimeouts(timer, connectionCounters, socketSettings.getReadHeaderTimeout(), socketSettings.getIdleTimeout(), socketSettings.getWriteTimeout());
+		}
+		registerMBean("Connections", connectionCounters);
+
 		/* server bootstrap */
 
 		// Configure the server.
@@ -289,6 +384,89 @@ public class RestExpressService implements RestExpress, RestExpressLifeCycle {
 		return channel;
 	}
 
+	/**
+	 * @return {@link Executor} of request processing, according to
+	 *         {@link ExecutionMode} setting.
+	 */
+	private Executor newExecutor() {
+		if (settings.serverSettings().getExecutionMode() == ExecutionMode.VIRTUAL_THREAD) {
+			if (VirtualThreadExecutor.isSupported()) {
+				return new VirtualThreadExecutor();
+			}
+			if (settings.serverSettings().isUseSystemOut()) {
+				System.out.println("Virtual threads are not supported on Java " + System.getProperty("java.version") + ", fallback to a thread pool");
+			}
+		}
+		return new OrderedMemoryAwareThreadPoolExecutor(settings.serverSettings().getExecutorThreadPoolSize(), 0, 0);
+	}
+
+	/**
+	 * @return named {@link Executor} declared in
+	 *         {@link org.restexpress.settings.ServerSettings#getExecutors()}.
+	 * @throws ConfigurationException
+	 *             if a route use an undeclared executor
+	 */
+	private Map<String, Executor> newRouteExecutors() throws ConfigurationException {
+		final Map<String, ExecutorSettings> declared = settings.serverSettings().getExecutors();
+		for (final List<Route> routes : routeMapping.getRoutesByPattern().values()) {
+			for (final Route route : routes) {
+				if ((route.executor() != null) && !declared.containsKey(route.executor())) {
+					throw new ConfigurationException("Route " + route.getPattern() + " use an undeclared executor: " + route.executor());
+				}
+			}
+		}
+		final Map<String, Executor> executors = Maps.newHashMap();
+		for (final Map.Entry<String, ExecutorSettings> entry : declared.entrySet()) {
+			final ExecutorSettings executorSettings = entry.getValue();
+			final BlockingQueue<Runnable> queue = executorSettings.getQueueSize() > 0 ? new ArrayBlockingQueue<Runnable>(executorSettings.getQueueSize()) : new SynchronousQueue<Runnable>();
+			// rejected requests are handled by RouteExecutionHandler, never on the I/O thread
+			executors.put(entry.getKey(), new ThreadPoolExecutor(executorSettings.getPoolSize(), executorSettings.getPoolSize(), 0L, TimeUnit.MILLISECONDS, queue, //
+					new ThreadFactoryBuilder().setNameFormat(entry.getKey() + "-%d").build(), new ThreadPoolExecutor.AbortPolicy()));
+		}
+		return executors;
+	}
+
+	/**
+	 * Register (or unregister) a JMX MBean named
+	 * "org.restexpress:type=[type],name=[server name]-[port]".
+	 * 
+	 * @param type
+	 *            MBean type
+	 * @param mbean
+	 *            MBean to register, null to unregister
+	 */
+	private void registerMBean(final String type, final Object mbean) {
+		try {
+			final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			final ObjectName name = new ObjectName("org.restexpress:type=" + type + ",name=" + ObjectName.quote(settings.serverSettings().getName() + "-" + settings.serverSettings().getPort()));
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+			if (mbean != null) {
+				server.registerMBean(mbean, name);
+			}
+		} catch (final JMException e) {
+			if (settings.serverSettings().isUseSystemOut()) {
+				System.err.println("Unable to register " + type + " with JMX: " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * @param flag
+	 * @return true if at least one route is flagged with specified flag.
+	 */
+	private boolean hasRouteFlagged(final Flags flag) {
+		for (final List<Route> routes : routeMapping.getRoutesByPattern().values()) {
+			for (final Route route : routes) {
+				if (route.isFlagged(flag)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
 	@Override
 	public void awaitShutdown() {
 		/* just in case */
@@ -320,8 +498,29 @@ public class RestExpressService implements RestExpress, RestExpressLifeCycle {
 			if (settings.serverSettings().isUseSystemOut()) {
 				System.out.println(settings().serverSettings().getName() + " server shutdown...");
 			}
+			// close server and accepted channels: pending work of a closed
+			// channel is dropped, no more touching it once I/O threads are gone
 			final ChannelGroupFuture future = channelGroup.close();
 			future.awaitUninterruptibly();
+			// terminate executors
+			if (executionHandler != null) {
+				executionHandler.releaseExternalResources();
+				executionHandler = null;
+			}
+			if (admissionLimiter != null) {
+				registerMBean("AdmissionLimiter", null);
+				admissionLimiter = null;
+			}
+			if (timer != null) {
+				timer.stop();
+				timer = null;
+			}
+			registerMBean("Connections", null);
+			connectionCounters = null;
+			if (requestCoalescer != null) {
+				registerMBean("RequestCoalescer", null);
+				requestCoalescer = null;
+			}
 			// shut down all plugins
 			pluginManager.destroy(this);
 			// release resources
@@ -373,6 +572,12 @@ public class RestExpressService implements RestExpress, RestExpressLifeCycle {
 		return this;
 	}
 
+	@Override
+	public RestExpressService setResponseCache(final ResponseCache responseCache) {
+		requestHandlerBuilder.setResponseCache(responseCache);
+		return this;
+	}
+
 	@Override
 	public RestExpressService add(Processor processor, ResponseWrapper responseWrapper) {
 		requestHandlerBuilder.add(processor, responseWrapper);
@@ -415,6 +620,32 @@ public class RestExpressService implements RestExpress, RestExpressLifeCycle {
 		return settings;
 	}
 
+	/**
+	 * @return {@link ConnectionCounters} of bound server, or null if not
+	 *         bound.
+	 */
+	public ConnectionCounters connectionCounters() {
+		return connectionCounters;
+	}
+
+	/**
+	 * @return {@link AdmissionLimiter} of bound server, or null if admission
+	 *         control is disabled (see
+	 *         {@link org.restexpress.settings.ServerSettings#setAdmissionControl(AdmissionSettings)}
+	 *         ).
+	 */
+	public AdmissionLimiter admissionLimiter() {
+		return admissionLimiter;
+	}
+
+	/**
+	 * @return {@link RequestCoalescer} of bound server, or null if no route is
+	 *         coalesced (see {@link org.restexpress.route.RouteBuilder#coalesce()}).
+	 */
+	public RequestCoalescer requestCoalescer() {
+		return requestCoalescer;
+	}
+
 	@Override
 	public ServerContext context() {
 		return context;
@@ -31,6 +31,7 @@ import org.restexpress.processor.FileHeaderPostProcessor;
 import org.restexpress.response.ResponseProcessorManager;
 import org.restexpress.response.SerializationProvider;
 import org.restexpress.route.RouteDeclaration;
+import org.restexpress.route.trie.TrieRouteResolver;
 import org.restexpress.serialization.Processor;
 
 /**
@@ -71,7 +72,7 @@ public final class TestToolKit {
 				.addPostprocessor(new FileHeaderPostProcessor());
 		RestExpress restExpress = RestExpressService.newBuilder();
 		restExpress.settings().serverSettings().setBaseUrl(BASE_URL);
-		return builder.setRouteResolver(routeDeclaration.createRouteMapping(restExpress))//
+		return builder.setRouteResolver(new TrieRouteResolver(routeDeclaration.createRouteMapping(restExpress)))//
 				.setShouldEnforceHttpSpec(false);
 	}
 
@@ -0,0 +1,86 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.cache;
+
+import java.util.TreeSet;
+
+import org.restexpress.Request;
+import org.restexpress.pipeline.MessageContext;
+import org.restexpress.response.ResponseProcessorSetting;
+import org.restexpress.route.Route;
+import org.restexpress.url.QueryString;
+import org.restexpress.url.UrlMatch;
+
+/**
+ * {@link CacheKey} computes the key of a response, from:
+ * <ul>
+ * <li>method and pattern of the resolved route,</li>
+ * <li>path parameters,</li>
+ * <li>URL decoded query parameters, sorted by name,</li>
+ * <li>negotiated media type.</li>
+ * </ul>
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public final class CacheKey {
+
+	private CacheKey() {
+		// prevents instantiation.
+	}
+
+	/**
+	 * @param context
+	 *            {@link MessageContext} with a resolved route
+	 * @return the key of response of specified context.
+	 */
+	public static String of(final MessageContext context) {
+		final Request request = context.getRequest();
+		final Route route = request.getResolvedRoute();
+		final StringBuilder key = new StringBuilder(128);
+		key.append(route.getMethod()).append(' ').append(route.getPattern());
+
+		final UrlMatch match = request.getUrlMatch();
+		if (match != null) {
+			for (final String name : new TreeSet<String>(match.names())) {
+				append(key.append(';'), name, match.get(name));
+			}
+		}
+
+		final QueryString queryString = request.getQueryString();
+		key.append('?');
+		for (final String name : new TreeSet<String>(queryString.names())) {
+			for (final String value : queryString.getAll(name, false)) {
+				append(key.append('&'), name, value);
+			}
+		}
+
+		final ResponseProcessorSetting setting = context.getResponseProcessorSetting();
+		key.append(' ').append(setting != null ? setting.mediaType() : "");
+		return key.toString();
+	}
+
+	/**
+	 * Append a length prefixed parameter, so that no decoded value could
+	 * forge the key of another request.
+	 */
+	private static void append(final StringBuilder key, final String name, final String value) {
+		key.append(name.length()).append(':').append(name).append(value.length()).append(':').append(value);
+	}
+}
@@ -0,0 +1,71 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.cache;
+
+/**
+ * {@link CacheStore} defines storage of {@link CachedResponse}, bounded in
+ * size. Implementations must be thread safe.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public interface CacheStore {
+	/**
+	 * @param key
+	 *            response key
+	 * @return stored response of specified key, or null if none or expired.
+	 */
+	public CachedResponse get(String key);
+
+	/**
+	 * Store specified response. As content of response is released once
+	 * written, store must copy it. Store can refuse response, according to its
+	 * admission policy.
+	 * 
+	 * @param key
+	 *            response key
+	 * @param response
+	 *            {@link CachedResponse} instance
+	 */
+	public void put(String key, CachedResponse response);
+
+	/**
+	 * Remove all responses of specified route.
+	 * 
+	 * @param route
+	 *            name of route
+	 */
+	public void invalidate(String route);
+
+	/**
+	 * Remove all responses.
+	 */
+	public void invalidateAll();
+
+	/**
+	 * @return total weight of stored responses, in bytes.
+	 */
+	public long weight();
+
+	/**
+	 * Release resources of this store. A persistent store keeps its
+	 * responses.
+	 */
+	public void close();
+}
@@ -0,0 +1,146 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * {@link CachedResponse} holds a serialized response: status, headers and
+ * content.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public final class CachedResponse {
+	/**
+	 * Estimated overhead of an entry, in bytes.
+	 */
+	private static final int ENTRY_OVERHEAD = 128;
+
+	private final int status;
+	private final Map<String, List<String>> headers;
+	private final ChannelBuffer content;
+	private final String route;
+	private final long storedAt;
+	private final long expiresAt;
+
+	/**
+	 * Build a new instance of {@link CachedResponse}.
+	 * 
+	 * @param status
+	 *            HTTP status code
+	 * @param headers
+	 *            response headers, copied
+	 * @param content
+	 *            serialized content
+	 * @param route
+	 *            name of route, null if unnamed
+	 * @param storedAt
+	 *            time of storage, in milliseconds
+	 * @param expiresAt
+	 *            time of expiration, in milliseconds
+	 * @throws NullPointerException
+	 *             if headers or content is null
+	 */
+	public CachedResponse(final int status, final Map<String, List<String>> headers, final ChannelBuffer content, final String route, final long storedAt, final long expiresAt) throws NullPointerException {
+		super();
+		this.status = status;
+		final Map<String, List<String>> copy = new LinkedHashMap<String, List<String>>();
+		for (final Entry<String, List<String>> entry : Preconditions.checkNotNull(headers).entrySet()) {
+			copy.put(entry.getKey(), Collections.unmodifiableList(new ArrayList<String>(entry.getValue())));
+		}
+		this.headers = Collections.unmodifiableMap(copy);
+		this.content = Preconditions.checkNotNull(content);
+		this.route = route;
+		this.storedAt = storedAt;
+		this.expiresAt = expiresAt;
+	}
+
+	/**
+	 * @param content
+	 *            new content
+	 * @return a copy of this {@link CachedResponse} with specified content.
+	 */
+	public CachedResponse withContent(final ChannelBuffer content) {
+		return new CachedResponse(status, headers, content, route, storedAt, expiresAt);
+	}
+
+	public int status() {
+		return status;
+	}
+
+	public Map<String, List<String>> headers() {
+		return headers;
+	}
+
+	/**
+	 * @return a duplicate of serialized content, with its own indexes.
+	 */
+	public ChannelBuffer content() {
+		return content.duplicate();
+	}
+
+	public String route() {
+		return route;
+	}
+
+	public long storedAt() {
+		return storedAt;
+	}
+
+	public long expiresAt() {
+		return expiresAt;
+	}
+
+	/**
+	 * @param now
+	 *            current time, in milliseconds
+	 * @return true if this response has expired.
+	 */
+	public boolean isExpired(final long now) {
+		return now >= expiresAt;
+	}
+
+	/**
+	 * @return estimated size of this response, in bytes.
+	 */
+	public int weight() {
+		int weight = ENTRY_OVERHEAD + content.readableBytes();
+		for (final Entry<String, List<String>> entry : headers.entrySet()) {
+			for (final String value : entry.getValue()) {
+				weight += entry.getKey().length() + value.length();
+			}
+		}
+		return weight;
+	}
+
+	@Override
+	public String toString() {
+		return "CachedResponse {status=" + status + ", route=" + route + ", length=" + content.readableBytes() + ", expiresAt=" + expiresAt + "}";
+	}
+}
@@ -0,0 +1,101 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.cache;
+
+/**
+ * {@link FrequencySketch} is a count-min sketch, estimating recent access
+ * frequency of keys with saturating 4 bits counters. Counters are halved
+ * periodically, so that old popularity fades. This class is not thread safe.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+final class FrequencySketch {
+	private static final int MAX_COUNT = 15;
+	private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+
+	private final byte[] table;
+	private final int mask;
+	private final int sampleSize;
+	private int additions;
+
+	/**
+	 * Build a new instance of {@link FrequencySketch}.
+	 * 
+	 * @param width
+	 *            expected number of distinct keys, rounded to a power of two
+	 */
+	FrequencySketch(final int width) {
+		super();
+		final int size = Integer.highestOneBit(Math.max(width, 64) - 1) << 1;
+		table = new byte[size];
+		mask = size - 1;
+		sampleSize = 10 * size;
+		additions = 0;
+	}
+
+	/**
+	 * @param key
+	 * @return estimated frequency of specified key, between 0 and 15.
+	 */
+	int frequency(final Object key) {
+		final int hash = key.hashCode();
+		int frequency = MAX_COUNT;
+		for (final long seed : SEEDS) {
+			frequency = Math.min(frequency, table[index(hash, seed)]);
+		}
+		return frequency;
+	}
+
+	/**
+	 * Increment frequency of specified key.
+	 * 
+	 * @param key
+	 */
+	void increment(final Object key) {
+		final int hash = key.hashCode();
+		boolean added = false;
+		for (final long seed : SEEDS) {
+			final int index = index(hash, seed);
+			if (table[index] < MAX_COUNT) {
+				table[index]++;
+				added = true;
+			}
+		}
+		if (added && (++additions >= sampleSize)) {
+			reset();
+		}
+	}
+
+	/**
+	 * Halve all counters.
+	 */
+	private void reset() {
+		for (int i = 0; i < table.length; i++) {
+			table[i] = (byte) (table[i] >>> 1);
+		}
+		additions = additions >>> 1;
+	}
+
+	private int index(final int hash, final long seed) {
+		long h = (hash + seed) * seed;
+		h += h >>> 32;
+		return (int) h & mask;
+	}
+}
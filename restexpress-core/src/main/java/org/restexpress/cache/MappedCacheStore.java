@@ -0,0 +1,561 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * {@link MappedCacheStore} implements a {@link CacheStore} keeping responses
+ * out of the Java heap, in memory mapped segment files of a directory, so that
+ * a large cache does not lengthen garbage collection pauses, and survives
+ * restarts:
+ * <ul>
+ * <li>responses are appended to the active segment, a stored response content
+ * is a {@link ChannelBuffer} wrapping the mapped region, without copy on the
+ * heap,</li>
+ * <li>only keys and headers are indexed on the heap. The index is rebuilt by
+ * scanning segments when the store is opened, expired responses are
+ * skipped,</li>
+ * <li>when the active segment is full and the maximum number of segments is
+ * reached, the oldest segment is compacted: its live responses which have
+ * been read since they were written are rewritten in a new segment (up to
+ * half of it, and leaving room for the response being stored), the others
+ * are evicted, and its file is deleted.</li>
+ * </ul>
+ * A record is committed by writing its marker last, so that a record partially
+ * written before a crash is ignored. Replaced and invalidated records are
+ * marked dead in place.
+ * <p>
+ * Mapped regions are released by the garbage collector, once no more referenced
+ * by responses being written.
+ * </p>
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public final class MappedCacheStore implements CacheStore {
+
+	/**
+	 * Default size of a segment file.
+	 */
+	public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(MappedCacheStore.class);
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final String PREFIX = "segment-";
+	private static final String SUFFIX = ".dat";
+
+	/**
+	 * Marker of a live record.
+	 */
+	private static final int LIVE = 0x52584331;
+	/**
+	 * Marker of a dead record.
+	 */
+	private static final int DEAD = 0x52584330;
+	/**
+	 * Marker, length, stored at, expires at, status.
+	 */
+	private static final int RECORD_HEADER = 4 + 4 + 8 + 8 + 4;
+
+	private final File directory;
+	private final int segmentSize;
+	private final int maximumSegments;
+	private final ConcurrentMap<String, Record> index = new ConcurrentHashMap<String, Record>();
+	private final List<Segment> segments = new ArrayList<Segment>();
+	private Segment active;
+	private long nextSegmentId;
+	private long weight;
+
+	/**
+	 * Build a new instance of {@link MappedCacheStore} with segments of
+	 * {@link #DEFAULT_SEGMENT_SIZE} (or less if maximum weight is lower than 4
+	 * segments).
+	 * 
+	 * @param directory
+	 *            directory of segment files, created if needed
+	 * @param maximumWeight
+	 *            maximum total size of segment files, in bytes
+	 * @throws IOException
+	 *             if existing segments can not be read
+	 */
+	public MappedCacheStore(final File directory, final long maximumWeight) throws IOException {
+		this(directory, maximumWeight, (int) Math.min(DEFAULT_SEGMENT_SIZE, Math.max(4096, maximumWeight / 4)));
+	}
+
+	/**
+	 * Build a new instance of {@link MappedCacheStore}, rebuilding its index
+	 * from existing segment files.
+	 * 
+	 * @param directory
+	 *            directory of segment files, created if needed
+	 * @param maximumWeight
+	 *            maximum total size of segment files, in bytes
+	 * @param segmentSize
+	 *            size of a segment file, in bytes
+	 * @throws IOException
+	 *             if existing segments can not be read
+	 * @throws IllegalArgumentException
+	 *             if segmentSize is lower than 4096 bytes, or maximumWeight
+	 *             is lower than 2 segments
+	 */
+	public MappedCacheStore(final File directory, final long maximumWeight, final int segmentSize) throws IOException, IllegalArgumentException {
+		super();
+		Preconditions.checkArgument(segmentSize >= 4096, "segmentSize must be at least 4096 bytes");
+		Preconditions.checkArgument(maximumWeight >= 2L * segmentSize, "maximumWeight must be at least 2 segments");
+		this.directory = Preconditions.checkNotNull(directory);
+		this.segmentSize = segmentSize;
+		this.maximumSegments = (int) Math.min(Integer.MAX_VALUE, maximumWeight / segmentSize);
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("unable to create directory " + directory);
+		}
+		open();
+	}
+
+	/**
+	 * Map existing segments, oldest first, and rebuild index.
+	 */
+	private synchronized void open() throws IOException {
+		final File[] files = directory.listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(final File dir, final String name) {
+				return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+			}
+		});
+		if (files == null) {
+			throw new IOException("unable to list directory " + directory);
+		}
+		final List<Segment> existing = new ArrayList<Segment>();
+		for (final File file : files) {
+			try {
+				existing.add(new Segment(Long.parseLong(file.getName().substring(PREFIX.length(), file.getName().length() - SUFFIX.length())), file, false));
+			} catch (final NumberFormatException e) {
+				LOGGER.warn("ignore cache file {}", file);
+			}
+		}
+		Collections.sort(existing, new Comparator<Segment>() {
+			@Override
+			public int compare(final Segment first, final Segment second) {
+				return first.id < second.id ? -1 : (first.id == second.id ? 0 : 1);
+			}
+		});
+		final long now = System.currentTimeMillis();
+		for (final Segment segment : existing) {
+			scan(segment, now);
+			segments.add(segment);
+			nextSegmentId = segment.id + 1;
+		}
+		// drop oldest segments if maximum has been lowered
+		while (segments.size() > maximumSegments) {
+			evict(segments.remove(0));
+		}
+		if (segments.isEmpty()) {
+			active = new Segment(nextSegmentId++, null, true);
+			segments.add(active);
+		} else {
+			active = segments.get(segments.size() - 1);
+		}
+		LOGGER.info("response cache {} opened with {} responses in {} segments", directory, index.size(), segments.size());
+	}
+
+	/**
+	 * Index live records of specified segment.
+	 */
+	private void scan(final Segment segment, final long now) {
+		final ByteBuffer buffer = segment.buffer;
+		int offset = 0;
+		while ((offset + RECORD_HEADER) <= buffer.capacity()) {
+			final int marker = buffer.getInt(offset);
+			final int length = buffer.getInt(offset + 4);
+			if (((marker != LIVE) && (marker != DEAD)) || (length < RECORD_HEADER) || ((offset + length) > buffer.capacity())) {
+				break;
+			}
+			if (marker == LIVE) {
+				final Record record = read(segment, offset, length);
+				if (record.response.isExpired(now)) {
+					kill(record);
+				} else {
+					final Record previous = index.get(record.key);
+					if ((previous == null) || (previous.response.storedAt() <= record.response.storedAt())) {
+						index.put(record.key, record);
+						if (previous != null) {
+							kill(previous);
+						}
+					} else {
+						kill(record);
+					}
+				}
+			}
+			offset += length;
+		}
+		segment.position = offset;
+	}
+
+	@Override
+	public CachedResponse get(final String key) {
+		final Record record = index.get(key);
+		if (record == null) {
+			return null;
+		}
+		if (record.response.isExpired(System.currentTimeMillis())) {
+			synchronized (this) {
+				if (index.remove(key, record)) {
+					kill(record);
+				}
+			}
+			return null;
+		}
+		record.accessed = true;
+		return record.response;
+	}
+
+	@Override
+	public void put(final String key, final CachedResponse response) {
+		final byte[] metadata = encode(key, response);
+		final ChannelBuffer content = response.content();
+		final int length = metadata.length + content.readableBytes();
+		if (length > segmentSize) {
+			return;
+		}
+		synchronized (this) {
+			try {
+				if ((segmentSize - active.position) < length) {
+					roll(length);
+				}
+			} catch (final IOException e) {
+				LOGGER.error("unable to create cache segment", e);
+				return;
+			}
+			if ((segmentSize - active.position) < length) {
+				// no room left by compaction, should not happen
+				return;
+			}
+			append(key, metadata, content);
+		}
+	}
+
+	/**
+	 * Append a record in active segment, which must have enough room.
+	 */
+	private void append(final String key, final byte[] metadata, final ChannelBuffer content) {
+		final int offset = active.position;
+		final int length = metadata.length + content.readableBytes();
+		final ByteBuffer target = active.buffer.duplicate();
+		target.position(offset + 4);
+		target.putInt(length);
+		target.put(metadata, 8, metadata.length - 8);
+		target.limit(offset + length);
+		content.getBytes(content.readerIndex(), target);
+		// commit
+		active.buffer.putInt(offset, LIVE);
+		active.position = offset + length;
+
+		final Record record = read(active, offset, length);
+		final Record previous = index.put(key, record);
+		if (previous != null) {
+			kill(previous);
+		}
+	}
+
+	/**
+	 * Create a new active segment, compacting the oldest one if maximum number
+	 * of segments is reached.
+	 * 
+	 * @param reserved
+	 *            length of the incoming record, which compaction must leave
+	 *            room for
+	 */
+	private void roll(final int reserved) throws IOException {
+		final Segment oldest = segments.size() >= maximumSegments ? segments.remove(0) : null;
+		active = new Segment(nextSegmentId++, null, true);
+		segments.add(active);
+		if (oldest != null) {
+			compact(oldest, reserved);
+		}
+	}
+
+	/**
+	 * Rewrite live responses of specified segment which have been read since
+	 * they were written in active segment, up to half of it and leaving room
+	 * for the incoming record, evict others and delete segment.
+	 */
+	private void compact(final Segment segment, final int reserved) {
+		final long now = System.currentTimeMillis();
+		int budget = Math.min(segmentSize / 2, segmentSize - reserved);
+		final Iterator<Record> iterator = index.values().iterator();
+		final Map<String, Record> kept = new LinkedHashMap<String, Record>();
+		while (iterator.hasNext()) {
+			final Record record = iterator.next();
+			if (record.segment != segment) {
+				continue;
+			}
+			if (record.accessed && !record.response.isExpired(now) && (record.length <= budget)) {
+				kept.put(record.key, record);
+				budget -= record.length;
+			} else {
+				iterator.remove();
+				kill(record);
+			}
+		}
+		for (final Entry<String, Record> entry : kept.entrySet()) {
+			final Record record = entry.getValue();
+			final ByteBuffer source = segment.buffer.duplicate();
+			source.position(record.offset).limit(record.offset + record.length);
+			final byte[] metadata = new byte[record.length - record.response.content().readableBytes()];
+			source.get(metadata);
+			// previous record of same key is killed
+			append(entry.getKey(), metadata, record.response.content());
+		}
+		segment.delete();
+	}
+
+	/**
+	 * Evict all responses of specified segment and delete it.
+	 */
+	private void evict(final Segment segment) {
+		final Iterator<Record> iterator = index.values().iterator();
+		while (iterator.hasNext()) {
+			final Record record = iterator.next();
+			if (record.segment == segment) {
+				iterator.remove();
+				kill(record);
+			}
+		}
+		segment.delete();
+	}
+
+	/**
+	 * Mark specified record dead.
+	 */
+	private void kill(final Record record) {
+		if (!record.segment.deleted) {
+			record.segment.buffer.putInt(record.offset, DEAD);
+		}
+		if (record.indexed) {
+			record.indexed = false;
+			weight -= record.length;
+		}
+	}
+
+	@Override
+	public synchronized void invalidate(final String route) {
+		final Iterator<Record> iterator = index.values().iterator();
+		while (iterator.hasNext()) {
+			final Record record = iterator.next();
+			if ((route != null) && route.equals(record.response.route())) {
+				iterator.remove();
+				kill(record);
+			}
+		}
+	}
+
+	@Override
+	public synchronized void invalidateAll() {
+		final Iterator<Record> iterator = index.values().iterator();
+		while (iterator.hasNext()) {
+			final Record record = iterator.next();
+			iterator.remove();
+			kill(record);
+		}
+	}
+
+	@Override
+	public synchronized long weight() {
+		return weight;
+	}
+
+	@Override
+	public synchronized void close() {
+		for (final Segment segment : segments) {
+			segment.buffer.force();
+		}
+	}
+
+	/**
+	 * @return number of segment files.
+	 */
+	public synchronized int segments() {
+		return segments.size();
+	}
+
+	/**
+	 * Encode a record without its content: placeholders of marker and length,
+	 * stored at, expires at, status, key, route, headers and content length.
+	 */
+	private static byte[] encode(final String key, final CachedResponse response) {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+		final DataOutputStream output = new DataOutputStream(bytes);
+		try {
+			output.writeInt(0);
+			output.writeInt(0);
+			output.writeLong(response.storedAt());
+			output.writeLong(response.expiresAt());
+			output.writeInt(response.status());
+			writeString(output, key);
+			writeString(output, response.route());
+			int count = 0;
+			for (final List<String> values : response.headers().values()) {
+				count += values.size();
+			}
+			output.writeInt(count);
+			for (final Entry<String, List<String>> header : response.headers().entrySet()) {
+				for (final String value : header.getValue()) {
+					writeString(output, header.getKey());
+					writeString(output, value);
+				}
+			}
+			output.writeInt(response.content().readableBytes());
+		} catch (final IOException e) {
+			// no I/O on a byte array
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static void writeString(final DataOutputStream output, final String value) throws IOException {
+		if (value == null) {
+			output.writeInt(-1);
+		} else {
+			final byte[] bytes = value.getBytes(UTF_8);
+			output.writeInt(bytes.length);
+			output.write(bytes);
+		}
+	}
+
+	/**
+	 * Read record of specified segment at specified offset: content wraps the
+	 * mapped region.
+	 */
+	private Record read(final Segment segment, final int offset, final int length) {
+		final ByteBuffer buffer = segment.buffer.duplicate();
+		buffer.position(offset + 8);
+		final long storedAt = buffer.getLong();
+		final long expiresAt = buffer.getLong();
+		final int status = buffer.getInt();
+		final String key = readString(buffer);
+		final String route = readString(buffer);
+		final Map<String, List<String>> headers = new LinkedHashMap<String, List<String>>();
+		for (int count = buffer.getInt(); count > 0; count--) {
+			final String name = readString(buffer);
+			List<String> values = headers.get(name);
+			if (values == null) {
+				values = new ArrayList<String>(1);
+				headers.put(name, values);
+			}
+			values.add(readString(buffer));
+		}
+		final int contentLength = buffer.getInt();
+		buffer.limit(buffer.position() + contentLength);
+		final ChannelBuffer content = ChannelBuffers.wrappedBuffer(buffer.slice());
+		final Record record = new Record(key, segment, offset, length, new CachedResponse(status, headers, content, route, storedAt, expiresAt));
+		weight += length;
+		return record;
+	}
+
+	private static String readString(final ByteBuffer buffer) {
+		final int length = buffer.getInt();
+		if (length < 0) {
+			return null;
+		}
+		final byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, UTF_8);
+	}
+
+	/**
+	 * A memory mapped segment file.
+	 */
+	private final class Segment {
+		final long id;
+		final File file;
+		final MappedByteBuffer buffer;
+		int position = 0;
+		boolean deleted = false;
+
+		Segment(final long id, final File file, final boolean create) throws IOException {
+			this.id = id;
+			this.file = file != null ? file : new File(directory, PREFIX + id + SUFFIX);
+			final RandomAccessFile randomAccessFile = new RandomAccessFile(this.file, "rw");
+			try {
+				if (create || (randomAccessFile.length() != segmentSize)) {
+					randomAccessFile.setLength(segmentSize);
+				}
+				// mapping remains valid once channel is closed
+				buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+			} finally {
+				randomAccessFile.close();
+			}
+		}
+
+		void delete() {
+			deleted = true;
+			if (!file.delete()) {
+				LOGGER.warn("unable to delete cache segment {}", file);
+			}
+		}
+	}
+
+	/**
+	 * An indexed record.
+	 */
+	private static final class Record {
+		final String key;
+		final Segment segment;
+		final int offset;
+		final int length;
+		final CachedResponse response;
+		volatile boolean accessed = false;
+		boolean indexed = true;
+
+		Record(final String key, final Segment segment, final int offset, final int length, final CachedResponse response) {
+			this.key = key;
+			this.segment = segment;
+			this.offset = offset;
+			this.length = length;
+			this.response = response;
+		}
+	}
+}
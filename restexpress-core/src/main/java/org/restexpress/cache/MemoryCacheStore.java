@@ -0,0 +1,286 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * {@link MemoryCacheStore} implements an heap {@link CacheStore}, bounded by
+ * total weight of responses in bytes, with a W-TinyLFU policy:
+ * <ul>
+ * <li>new responses enter a small LRU window (1% of capacity),</li>
+ * <li>responses evicted from the window are admitted in the main LRU region
+ * only if they are accessed more frequently than the responses they would
+ * evict, according to a {@link FrequencySketch}.</li>
+ * </ul>
+ * A burst of responses accessed once could not flush popular ones.
+ * <p>
+ * Lookups do not lock: responses are found in a concurrent map, and accesses
+ * are recorded in a lossy ring buffer, replayed on the sketch and LRU order by
+ * the thread which fills it (if the lock is free) or by the next
+ * {@link #put(String, CachedResponse)}. The lock is taken for admission and
+ * eviction only.
+ * </p>
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public final class MemoryCacheStore implements CacheStore {
+
+	/**
+	 * Size of the buffer of accesses, a power of two.
+	 */
+	private static final int READ_BUFFER_SIZE = 128;
+	private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+
+	private final long windowMaximum;
+	private final long mainMaximum;
+	private final ConcurrentMap<String, Node> data = new ConcurrentHashMap<String, Node>();
+	private final AtomicReferenceArray<String> readBuffer = new AtomicReferenceArray<String>(READ_BUFFER_SIZE);
+	private final AtomicLong reads = new AtomicLong();
+	private final ReentrantLock lock = new ReentrantLock();
+	// guarded by lock
+	private final LinkedHashMap<String, Node> window = new LinkedHashMap<String, Node>(16, 0.75f, true);
+	private final LinkedHashMap<String, Node> main = new LinkedHashMap<String, Node>(16, 0.75f, true);
+	private final FrequencySketch sketch;
+	private long windowWeight = 0;
+	private long mainWeight = 0;
+
+	/**
+	 * Build a new instance of {@link MemoryCacheStore}.
+	 * 
+	 * @param maximumWeight
+	 *            maximum total weight of responses, in bytes
+	 * @throws IllegalArgumentException
+	 *             if maximumWeight is lower than 100 bytes
+	 */
+	public MemoryCacheStore(final long maximumWeight) throws IllegalArgumentException {
+		super();
+		Preconditions.checkArgument(maximumWeight >= 100, "maximumWeight must be at least 100 bytes");
+		windowMaximum = maximumWeight / 100;
+		mainMaximum = maximumWeight - windowMaximum;
+		sketch = new FrequencySketch((int) Math.min(1 << 20, Math.max(1024, maximumWeight / 1024)));
+	}
+
+	@Override
+	public CachedResponse get(final String key) {
+		recordAccess(key);
+		final Node node = data.get(key);
+		if (node == null) {
+			return null;
+		}
+		if (node.response.isExpired(System.currentTimeMillis())) {
+			lock.lock();
+			try {
+				if (data.get(key) == node) {
+					remove(key);
+				}
+			} finally {
+				lock.unlock();
+			}
+			return null;
+		}
+		return node.response;
+	}
+
+	/**
+	 * Record an access of specified key, hit or miss, and replay recorded
+	 * accesses once the buffer is full if the lock is free.
+	 */
+	private void recordAccess(final String key) {
+		final long index = reads.getAndIncrement();
+		readBuffer.lazySet((int) (index & READ_BUFFER_MASK), key);
+		if (((index & READ_BUFFER_MASK) == READ_BUFFER_MASK) && lock.tryLock()) {
+			try {
+				drainReads();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Replay recorded accesses: increment frequencies and move accessed
+	 * responses to the tail of their region. Lock must be held.
+	 */
+	private void drainReads() {
+		for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+			final String key = readBuffer.getAndSet(i, null);
+			if (key != null) {
+				sketch.increment(key);
+				if (window.get(key) == null) {
+					main.get(key);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void put(final String key, final CachedResponse response) {
+		// copy content out of lock
+		final ChannelBuffer content = response.content();
+		final byte[] bytes = new byte[content.readableBytes()];
+		content.getBytes(content.readerIndex(), bytes);
+		final Node node = new Node(response.withContent(ChannelBuffers.wrappedBuffer(bytes)));
+		lock.lock();
+		try {
+			drainReads();
+			remove(key);
+			if (node.weight > mainMaximum) {
+				return;
+			}
+			window.put(key, node);
+			data.put(key, node);
+			windowWeight += node.weight;
+			while (windowWeight > windowMaximum) {
+				final Iterator<Entry<String, Node>> iterator = window.entrySet().iterator();
+				final Entry<String, Node> candidate = iterator.next();
+				iterator.remove();
+				windowWeight -= candidate.getValue().weight;
+				admit(candidate.getKey(), candidate.getValue());
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Admit a candidate evicted from window in main region, if it is more
+	 * frequent than all the least recently used responses which must be
+	 * evicted to make room for it.
+	 */
+	private void admit(final String key, final Node candidate) {
+		final long now = System.currentTimeMillis();
+		final int frequency = sketch.frequency(key);
+		long freed = 0;
+		final Iterator<Entry<String, Node>> victims = main.entrySet().iterator();
+		while ((mainWeight - freed + candidate.weight) > mainMaximum) {
+			final Entry<String, Node> victim = victims.next();
+			if (!victim.getValue().response.isExpired(now) && (sketch.frequency(victim.getKey()) >= frequency)) {
+				// candidate rejected
+				data.remove(key, candidate);
+				return;
+			}
+			freed += victim.getValue().weight;
+		}
+		final Iterator<Entry<String, Node>> evicted = main.entrySet().iterator();
+		while ((mainWeight + candidate.weight) > mainMaximum) {
+			final Entry<String, Node> victim = evicted.next();
+			mainWeight -= victim.getValue().weight;
+			evicted.remove();
+			data.remove(victim.getKey(), victim.getValue());
+		}
+		main.put(key, candidate);
+		mainWeight += candidate.weight;
+	}
+
+	/**
+	 * Remove response of specified key. Lock must be held.
+	 */
+	private void remove(final String key) {
+		data.remove(key);
+		Node node = window.remove(key);
+		if (node != null) {
+			windowWeight -= node.weight;
+		}
+		node = main.remove(key);
+		if (node != null) {
+			mainWeight -= node.weight;
+		}
+	}
+
+	@Override
+	public void invalidate(final String route) {
+		lock.lock();
+		try {
+			windowWeight -= invalidate(window, route);
+			mainWeight -= invalidate(main, route);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private long invalidate(final LinkedHashMap<String, Node> region, final String route) {
+		long weight = 0;
+		final Iterator<Entry<String, Node>> iterator = region.entrySet().iterator();
+		while (iterator.hasNext()) {
+			final Entry<String, Node> entry = iterator.next();
+			if ((route != null) && route.equals(entry.getValue().response.route())) {
+				weight += entry.getValue().weight;
+				iterator.remove();
+				data.remove(entry.getKey(), entry.getValue());
+			}
+		}
+		return weight;
+	}
+
+	@Override
+	public void invalidateAll() {
+		lock.lock();
+		try {
+			data.clear();
+			window.clear();
+			main.clear();
+			windowWeight = 0;
+			mainWeight = 0;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public long weight() {
+		lock.lock();
+		try {
+			return windowWeight + mainWeight;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void close() {
+		invalidateAll();
+	}
+
+	/**
+	 * Stored response with its weight.
+	 */
+	private static final class Node {
+		final CachedResponse response;
+		final int weight;
+
+		Node(final CachedResponse response) {
+			this.response = response;
+			this.weight = response.weight();
+		}
+	}
+}
@@ -0,0 +1,173 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.pipeline;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.restexpress.settings.AdmissionSettings;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * {@link AdmissionLimiter} limits the number of concurrent requests with an
+ * adaptive limit (see {@link AdmissionSettings}):
+ * <ul>
+ * <li>while average latency of recent requests stays under target latency and
+ * at least half of the limit is used, limit grows by one per window of limit
+ * completed requests,</li>
+ * <li>once average latency is above target latency for a whole interval of
+ * target latency, limit shrinks by 10% per interval, like CoDel reacts to a
+ * standing queue.</li>
+ * </ul>
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public final class AdmissionLimiter implements AdmissionLimiterMXBean {
+
+	private static final double SMOOTHING = 0.1;
+	private static final double DECREASE = 0.9;
+
+	private final int minLimit;
+	private final int maxLimit;
+	private final long targetLatency;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicLong admitted = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+	private volatile int currentLimit;
+
+	// guarded by this
+	private double limit;
+	private double latency = -1;
+	private long aboveTargetSince = -1;
+	private long nextDecrease;
+
+	/**
+	 * Build a new instance of {@link AdmissionLimiter}.
+	 * 
+	 * @param settings
+	 *            {@link AdmissionSettings}
+	 * @throws IllegalArgumentException
+	 *             if limits are not ordered, or target latency is not positive
+	 */
+	public AdmissionLimiter(final AdmissionSettings settings) throws IllegalArgumentException {
+		super();
+		Preconditions.checkArgument((0 < settings.getMinLimit()) && (settings.getMinLimit() <= settings.getInitialLimit()) && (settings.getInitialLimit() <= settings.getMaxLimit()),
+				"limits must verify 0 < minLimit <= initialLimit <= maxLimit");
+		Preconditions.checkArgument(settings.getTargetLatency() > 0, "targetLatency must be positive");
+		this.minLimit = settings.getMinLimit();
+		this.maxLimit = settings.getMaxLimit();
+		this.targetLatency = TimeUnit.MILLISECONDS.toNanos(settings.getTargetLatency());
+		this.limit = settings.getInitialLimit();
+		this.currentLimit = settings.getInitialLimit();
+		this.nextDecrease = System.nanoTime();
+	}
+
+	/**
+	 * Admit a request if limit is not reached. An admitted request must be
+	 * released.
+	 * 
+	 * @return true if request is admitted.
+	 */
+	public boolean tryAcquire() {
+		for (;;) {
+			final int current = inFlight.get();
+			if (current >= currentLimit) {
+				rejected.incrementAndGet();
+				return false;
+			}
+			if (inFlight.compareAndSet(current, current + 1)) {
+				admitted.incrementAndGet();
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * @return true if a request could be admitted.
+	 */
+	public boolean hasCapacity() {
+		return inFlight.get() < currentLimit;
+	}
+
+	/**
+	 * Release an admitted request which is completed.
+	 * 
+	 * @param latency
+	 *            latency of request in nanoseconds
+	 */
+	public void release(final long latency) {
+		final int current = inFlight.getAndDecrement();
+		update(latency, current, System.nanoTime());
+	}
+
+	/**
+	 * Release an admitted request which is abandoned (channel closed), without
+	 * latency sample.
+	 */
+	public void release() {
+		inFlight.decrementAndGet();
+	}
+
+	private synchronized void update(final long sample, final int current, final long now) {
+		latency = latency < 0 ? sample : latency + ((sample - latency) * SMOOTHING);
+		if (latency > targetLatency) {
+			if (aboveTargetSince < 0) {
+				aboveTargetSince = now;
+			} else if (((now - aboveTargetSince) >= targetLatency) && (now - nextDecrease >= 0)) {
+				limit = Math.max(minLimit, limit * DECREASE);
+				nextDecrease = now + targetLatency;
+			}
+		} else {
+			aboveTargetSince = -1;
+			if ((current * 2) >= limit) {
+				limit = Math.min(maxLimit, limit + (1 / limit));
+			}
+		}
+		currentLimit = (int) limit;
+	}
+
+	@Override
+	public int getLimit() {
+		return currentLimit;
+	}
+
+	@Override
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	@Override
+	public synchronized double getLatency() {
+		return latency < 0 ? 0 : latency / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	@Override
+	public long getAdmittedCount() {
+		return admitted.get();
+	}
+
+	@Override
+	public long getRejectedCount() {
+		return rejected.get();
+	}
+}
@@ -0,0 +1,55 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.pipeline;
+
+/**
+ * {@link AdmissionLimiterMXBean} expose state of an {@link AdmissionLimiter}
+ * with JMX.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public interface AdmissionLimiterMXBean {
+
+	/**
+	 * @return current limit of concurrent requests.
+	 */
+	int getLimit();
+
+	/**
+	 * @return number of admitted requests which are processed or waiting in an
+	 *         executor queue.
+	 */
+	int getInFlight();
+
+	/**
+	 * @return average latency in milliseconds of recent requests.
+	 */
+	double getLatency();
+
+	/**
+	 * @return total number of admitted requests.
+	 */
+	long getAdmittedCount();
+
+	/**
+	 * @return total number of rejected requests.
+	 */
+	long getRejectedCount();
+}
@@ -0,0 +1,92 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.pipeline;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link ConnectionCounters} count open connections of a server, and those
+ * closed by a timeout (reaped) or by the maximum connections limit (rejected).
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public final class ConnectionCounters implements ConnectionCountersMXBean {
+
+	private final AtomicInteger openConnections = new AtomicInteger();
+	private final AtomicLong reaped = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+
+	/**
+	 * Build a new instance of {@link ConnectionCounters}.
+	 */
+	public ConnectionCounters() {
+		super();
+	}
+
+	/**
+	 * Count a new connection, if limit is not reached.
+	 * 
+	 * @param maxConnections
+	 *            maximum number of open connections, 0 for unlimited
+	 * @return true if connection is accepted, false if rejected.
+	 */
+	public boolean open(final int maxConnections) {
+		for (;;) {
+			final int current = openConnections.get();
+			if ((maxConnections > 0) && (current >= maxConnections)) {
+				rejected.incrementAndGet();
+				return false;
+			}
+			if (openConnections.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Count an accepted connection which is closed.
+	 */
+	public void close() {
+		openConnections.decrementAndGet();
+	}
+
+	/**
+	 * Count a connection closed by a timeout.
+	 */
+	public void reaped() {
+		reaped.incrementAndGet();
+	}
+
+	@Override
+	public int getOpenConnections() {
+		return openConnections.get();
+	}
+
+	@Override
+	public long getReapedCount() {
+		return reaped.get();
+	}
+
+	@Override
+	public long getRejectedCount() {
+		return rejected.get();
+	}
+}
@@ -19,15 +19,10 @@
  */
 package org.restexpress.pipeline;
 
-import java.net.URLDecoder;
-import java.util.Collection;
-import java.util.Map.Entry;
-
 import javax.ws.rs.core.Response.StatusType;
 
 import org.restexpress.Request;
 import org.restexpress.Response;
-import org.restexpress.domain.CharacterSet;
 import org.restexpress.http.HttpHeader;
 import org.restexpress.response.ResponseProcessorSetting;
 import org.restexpress.route.Action;
@@ -88,7 +83,7 @@ public final class MessageContext {
 
 	public void setAction(final Action action) {
 		this.action = action;
-		addUrlParametersAsHeaders(getRequest(), action.parameters());
+		getRequest().setUrlMatch(action.urlMatch());
 		getRequest().setResolvedRoute(action.resolvedRoute());
 		getResponse().setIsSerialized(action.shouldSerializeResponse());
 	}
@@ -131,21 +126,4 @@ public final class MessageContext {
 	public void setResponseProcessorSetting(ResponseProcessorSetting responseProcessorSetting) {
 		this.responseProcessorSetting = responseProcessorSetting;
 	}
-
-	/**
-	 * Copy all URL parameter in request header.
-	 * 
-	 * @param request
-	 * @param parameters
-	 *            parameters find from action.
-	 */
-	private static void addUrlParametersAsHeaders(final Request request, final Collection<Entry<String, String>> parameters) {
-		for (final Entry<String, String> entry : parameters) {
-			try {
-				request.addHeader(entry.getKey(), URLDecoder.decode(entry.getValue(), CharacterSet.UTF_8.getCharsetName()));
-			} catch (final Exception e) {
-				request.addHeader(entry.getKey(), entry.getValue());
-			}
-		}
-	}
 }
@@ -0,0 +1,181 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.pipeline;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.restexpress.Flags;
+import org.restexpress.Request;
+import org.restexpress.Response;
+import org.restexpress.cache.CacheKey;
+import org.restexpress.cache.CachedResponse;
+import org.restexpress.http.HttpHeader;
+import org.restexpress.http.HttpStatus;
+import org.restexpress.route.Route;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * {@link RequestCoalescer} collapses concurrent identical GET requests on routes
+ * flagged with {@link Flags#COALESCING} (single flight): the first request of a
+ * key (see {@link CacheKey}) leads the computation, following ones wait for
+ * its serialized response, and share its content. When the response of the
+ * leader can not be shared (error, status other than 200, content which is not
+ * serialized bytes, 'Set-Cookie' header), followers are processed on their
+ * own.
+ * <p>
+ * Followers get the status, headers and content of the leader: responses of a
+ * coalesced route must not depend on the caller (credentials, session...)
+ * beyond its cache key.
+ * </p>
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public final class RequestCoalescer implements RequestCoalescerMXBean {
+	/**
+	 * Request attachment of the flight led by a request.
+	 */
+	private static final String FLIGHT = "request.coalescing.flight";
+
+	private final ConcurrentMap<String, Flight> flights = new ConcurrentHashMap<String, Flight>();
+	private final AtomicLong collapsed = new AtomicLong();
+	private final AtomicLong fallback = new AtomicLong();
+
+	/**
+	 * Build a new instance of {@link RequestCoalescer}.
+	 */
+	public RequestCoalescer() {
+		super();
+	}
+
+	/**
+	 * Join the flight of specified context, if its route is coalesced.
+	 * 
+	 * @param context
+	 *            {@link MessageContext} with resolved route and response
+	 *            processor
+	 * @return response of the identical request in flight to wait for, or null
+	 *         if request must be processed: it leads a new flight, or its
+	 *         route is not coalesced.
+	 */
+	public ListenableFuture<CachedResponse> join(final MessageContext context) {
+		final Request request = context.getRequest();
+		final Route route = request.getResolvedRoute();
+		if (!request.isMethodGet() || (route == null) || !route.isFlagged(Flags.COALESCING))
+			return null;
+
+		final Flight flight = new Flight(CacheKey.of(context));
+		final Flight current = flights.putIfAbsent(flight.key, flight);
+		if (current != null)
+			return current.response;
+		request.putAttachment(FLIGHT, flight);
+		return null;
+	}
+
+	/**
+	 * Share serialized response of specified context with its followers, if it
+	 * leads a flight.
+	 * 
+	 * @param context
+	 *            {@link MessageContext} instance
+	 */
+	public void publish(final MessageContext context) {
+		final Flight flight = (Flight) context.getRequest().getAttachment(FLIGHT);
+		if (flight == null)
+			return;
+
+		final Response response = context.getResponse();
+		CachedResponse shared = null;
+		// like cached responses, a response setting a cookie belongs to its caller
+		if ((response.getStatus() == HttpStatus.OK.getStatusCode()) && !response.hasException() && (response.getEntity() instanceof ChannelBuffer)
+				&& !response.hasHeader(HttpHeader.SET_COOKIE)) {
+			final long now = System.currentTimeMillis();
+			// written content is left untouched: no copy
+			shared = new CachedResponse(response.getStatus(), response.headers(), ((ChannelBuffer) response.getEntity()).slice(), context.getRequest().getResolvedRoute().getName(), now, now);
+		}
+		land(flight, shared);
+	}
+
+	/**
+	 * Release followers of the flight led by specified context, if not already
+	 * done: they are processed on their own.
+	 * 
+	 * @param context
+	 *            {@link MessageContext} instance
+	 */
+	public void abandon(final MessageContext context) {
+		final Flight flight = (Flight) context.getRequest().getAttachment(FLIGHT);
+		if (flight != null) {
+			land(flight, null);
+		}
+	}
+
+	private void land(final Flight flight, final CachedResponse shared) {
+		// new requests lead a new flight
+		flights.remove(flight.key, flight);
+		flight.response.set(shared);
+	}
+
+	/**
+	 * Count a follower.
+	 * 
+	 * @param shared
+	 *            true if the follower is answered with the shared response,
+	 *            false if it is processed on its own.
+	 */
+	public void followed(final boolean shared) {
+		if (shared) {
+			collapsed.incrementAndGet();
+		} else {
+			fallback.incrementAndGet();
+		}
+	}
+
+	@Override
+	public int getInFlightCount() {
+		return flights.size();
+	}
+
+	@Override
+	public long getCollapsedCount() {
+		return collapsed.get();
+	}
+
+	@Override
+	public long getFallbackCount() {
+		return fallback.get();
+	}
+
+	/**
+	 * A computation in flight.
+	 */
+	private static final class Flight {
+		final String key;
+		final SettableFuture<CachedResponse> response = SettableFuture.create();
+
+		Flight(final String key) {
+			this.key = key;
+		}
+	}
+}
@@ -0,0 +1,49 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.pipeline;
+
+/**
+ * Defines a server side cache of serialized responses. A response found in
+ * cache is sent without invoking preprocessors, controller and serialization:
+ * only finally processors are applied on it. Responses are offered to the cache
+ * once serialized and processed by finally processors, just before being
+ * written.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public interface ResponseCache {
+	/**
+	 * Lookup response of specified context (with a resolved route and response
+	 * processor) in cache.
+	 * 
+	 * @param context
+	 *            {@link MessageContext} instance
+	 * @return true if the response of context has been filled from cache.
+	 */
+	public boolean lookup(MessageContext context);
+
+	/**
+	 * Offer serialized response of specified context to the cache.
+	 * 
+	 * @param context
+	 *            {@link MessageContext} instance
+	 */
+	public void store(MessageContext context);
+}
@@ -20,6 +20,7 @@
 package org.restexpress.pipeline;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
@@ -28,14 +29,24 @@ import org.jboss.netty.channel.ChannelHandler;
 import org.jboss.netty.channel.ChannelPipeline;
 import org.jboss.netty.channel.ChannelPipelineFactory;
 import org.jboss.netty.channel.Channels;
-import org.jboss.netty.handler.codec.http.HttpChunkAggregator;
+import org.jboss.netty.channel.group.ChannelGroup;
 import org.jboss.netty.handler.codec.http.HttpContentCompressor;
 import org.jboss.netty.handler.codec.http.HttpContentDecompressor;
 import org.jboss.netty.handler.codec.http.HttpRequestDecoder;
 import org.jboss.netty.handler.codec.http.HttpResponseEncoder;
+import org.jboss.netty.handler.codec.http.multipart.HttpDataFactory;
 import org.jboss.netty.handler.execution.ExecutionHandler;
 import org.jboss.netty.handler.ssl.SslHandler;
 import org.jboss.netty.handler.stream.ChunkedWriteHandler;
+import org.jboss.netty.handler.timeout.WriteTimeoutHandler;
+import org.jboss.netty.util.Timer;
+
+import org.restexpress.pipeline.handler.ConnectionLimitHandler;
+import org.restexpress.pipeline.handler.ConnectionTimeoutHandler;
+import org.restexpress.pipeline.handler.RequestContentAggregator;
+import org.restexpress.pipeline.handler.RoutedHttpRequestDecoder;
+import org.restexpress.pipeline.handler.StreamingUploadHandler;
+import org.restexpress.route.trie.TrieRouteResolver;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
@@ -50,17 +61,25 @@ public class RestExpressPipelineFactory implements ChannelPipelineFactory {
 
 	/**
 	 * Default max content length of the aggregated (chunked) content. If the
-	 * length of the aggregated content exceeds this value, a
-	 * TooLongFrameException will be raised during the request, which can be
-	 * mapped in the RestExpress server to return a BadRequestException, if
-	 * desired.
+	 * length of the content exceeds this value, request is rejected with a
+	 * RequestEntityTooLargeException (413), and its remaining content is
+	 * discarded.
 	 */
 	public static final int DEFAULT_MAX_CONTENT_LENGTH = 20480;
 
 	private final List<ChannelHandler> requestHandlers = Lists.newArrayList();
 	private ExecutionHandler executionHandler = null;
+	private ChannelHandler admissionHandler = null;
+	private ChannelHandler connectionLimitHandler = null;
+	private ChannelHandler writeTimeoutHandler = null;
+	private Timer timer = null;
+	private ConnectionCounters connectionCounters = null;
+	private long readHeaderTimeout = 0;
+	private long idleTimeout = 0;
 	private int maxContentLength = DEFAULT_MAX_CONTENT_LENGTH;
 	private SSLContext sslContext = null;
+	private TrieRouteResolver routeResolver = null;
+	private HttpDataFactory uploadDataFactory = null;
 
 	/**
 	 * Build a new instance of {@link RestExpressPipelineFactory}.
@@ -79,6 +98,60 @@ public class RestExpressPipelineFactory implements ChannelPipelineFactory {
 		return this;
 	}
 
+	/**
+	 * @param handler
+	 *            shared {@link ChannelHandler} admitting requests ahead of the
+	 *            execution handler, like
+	 *            {@link org.restexpress.pipeline.handler.AdmissionControlHandler}
+	 * @return this RestExpressPipelineFactory for method chaining.
+	 */
+	public RestExpressPipelineFactory setAdmissionHandler(final ChannelHandler handler) {
+		this.admissionHandler = handler;
+		return this;
+	}
+
+	/**
+	 * Count open connections and close those beyond a maximum number, with a
+	 * {@link ConnectionLimitHandler} at pipeline head.
+	 * 
+	 * @param counters
+	 *            {@link ConnectionCounters}
+	 * @param maxConnections
+	 *            maximum number of open connections, 0 for unlimited
+	 * @param channels
+	 *            {@link ChannelGroup} of accepted connections
+	 * @return this RestExpressPipelineFactory for method chaining.
+	 */
+	public RestExpressPipelineFactory setConnectionLimit(final ConnectionCounters counters, final int maxConnections, final ChannelGroup channels) {
+		this.connectionLimitHandler = new ConnectionLimitHandler(counters, maxConnections, channels);
+		return this;
+	}
+
+	/**
+	 * Close connections on read header, idle or write timeout (see
+	 * {@link ConnectionTimeoutHandler} and {@link WriteTimeoutHandler}).
+	 * 
+	 * @param timer
+	 *            {@link Timer} shared by all channels
+	 * @param counters
+	 *            {@link ConnectionCounters} of closed connections
+	 * @param readHeaderTimeout
+	 *            timeout in milliseconds of first request header, 0 to disable
+	 * @param idleTimeout
+	 *            timeout in milliseconds of next request header, 0 to disable
+	 * @param writeTimeout
+	 *            timeout in milliseconds of a write, 0 to disable
+	 * @return this RestExpressPipelineFactory for method chaining.
+	 */
+	public RestExpressPipelineFactory setTimeouts(final Timer timer, final ConnectionCounters counters, final long readHeaderTimeout, final long idleTimeout, final long writeTimeout) {
+		this.timer = Preconditions.checkNotNull(timer);
+		this.connectionCounters = Preconditions.checkNotNull(counters);
+		this.readHeaderTimeout = readHeaderTimeout;
+		this.idleTimeout = idleTimeout;
+		this.writeTimeoutHandler = writeTimeout > 0 ? new WriteTimeoutHandler(timer, writeTimeout, TimeUnit.MILLISECONDS) : null;
+		return this;
+	}
+
 	/**
 	 * @param handler
 	 *            {@link ChannelHandler} to add at pipeline end.
@@ -95,12 +168,11 @@ public class RestExpressPipelineFactory implements ChannelPipelineFactory {
 	}
 
 	/**
-	 * Set the maximum length of the aggregated (chunked) content. If the length
-	 * of the aggregated content exceeds this value, a TooLongFrameException
-	 * will be raised during the request, which can be mapped in the RestExpress
-	 * server to return a BadRequestException, if desired. By default the
-	 * maximum length is 20480 (
-	 * {@link RestExpressPipelineFactory#DEFAULT_MAX_CONTENT_LENGTH}.
+	 * Set the default maximum length of the aggregated (chunked) content, for
+	 * routes without their own limit. If the length of the content exceeds
+	 * this value, request is rejected with a RequestEntityTooLargeException
+	 * (413), and its remaining content is discarded. By default the maximum
+	 * length is 20480 ( {@link RestExpressPipelineFactory#DEFAULT_MAX_CONTENT_LENGTH}.
 	 * 
 	 * @param value
 	 * @return this RestExpressPipelineFactory for method chaining.
@@ -121,6 +193,36 @@ public class RestExpressPipelineFactory implements ChannelPipelineFactory {
 		return this;
 	}
 
+	/**
+	 * Set the {@link TrieRouteResolver} used to apply route settings while
+	 * request content is received, like
+	 * {@link org.restexpress.route.Route#maxContentLength()}. Route of each
+	 * request is resolved once, when its request line is decoded (see
+	 * {@link RoutedHttpRequestDecoder}).
+	 * 
+	 * @param routeResolver
+	 * @return this RestExpressPipelineFactory for method chaining.
+	 */
+	public RestExpressPipelineFactory setRouteResolver(final TrieRouteResolver routeResolver) {
+		this.routeResolver = routeResolver;
+		return this;
+	}
+
+	/**
+	 * Decode multipart request body of routes flagged with
+	 * {@link org.restexpress.Flags#STREAMING_MULTIPART_UPLOAD} as they arrive,
+	 * with a {@link StreamingUploadHandler} ahead of the aggregator. Needs a
+	 * route resolver (see {@link #setRouteResolver(TrieRouteResolver)}).
+	 * 
+	 * @param dataFactory
+	 *            {@link HttpDataFactory} of decoded parts
+	 * @return this RestExpressPipelineFactory for method chaining.
+	 */
+	public RestExpressPipelineFactory setStreamingUpload(final HttpDataFactory dataFactory) {
+		this.uploadDataFactory = Preconditions.checkNotNull(dataFactory);
+		return this;
+	}
+
 	/**
 	 * @return maximum length of the aggregated (chunked) content
 	 */
@@ -149,6 +251,12 @@ public class RestExpressPipelineFactory implements ChannelPipelineFactory {
 	public ChannelPipeline getPipeline() throws Exception {
 		final ChannelPipeline pipeline = Channels.pipeline();
 
+		if (null != connectionLimitHandler) {
+			pipeline.addLast("connectionLimit", connectionLimitHandler);
+		}
+		if (null != writeTimeoutHandler) {
+			pipeline.addLast("writeTimeout", writeTimeoutHandler);
+		}
 		if (null != sslContext) {
 			final SSLEngine sslEngine = sslContext.createSSLEngine();
 			sslEngine.setUseClientMode(false);
@@ -156,14 +264,28 @@ public class RestExpressPipelineFactory implements ChannelPipelineFactory {
 			pipeline.addLast("ssl", sslHandler);
 		}
 		// Upstream handlers
-		pipeline.addLast("decoder", new HttpRequestDecoder());
-		pipeline.addLast("aggregator", new HttpChunkAggregator(maxContentLength));
+		pipeline.addLast("decoder", null != routeResolver ? new RoutedHttpRequestDecoder(routeResolver) : new HttpRequestDecoder());
+		final ConnectionTimeoutHandler timeoutHandler = null != timer ? new ConnectionTimeoutHandler(timer, readHeaderTimeout, idleTimeout, connectionCounters) : null;
+		if (null != timeoutHandler) {
+			pipeline.addLast("timeout", timeoutHandler);
+		}
+		if ((uploadDataFactory != null) && (routeResolver != null)) {
+			pipeline.addLast("upload", new StreamingUploadHandler(routeResolver, uploadDataFactory));
+		}
+		pipeline.addLast("aggregator", new RequestContentAggregator(routeResolver, maxContentLength));
 		pipeline.addLast("inflater", new HttpContentDecompressor());
 		// Downstream handlers
 		pipeline.addLast("encoder", new HttpResponseEncoder());
 		pipeline.addLast("chunkWriter", new ChunkedWriteHandler());
 		pipeline.addLast("deflater", new HttpContentCompressor());
+		if (null != timeoutHandler) {
+			pipeline.addLast("timeoutResponse", timeoutHandler.responseListener());
+		}
 
+		// add optional admission control
+		if (admissionHandler != null) {
+			pipeline.addLast("admission", admissionHandler);
+		}
 		// add optional execution handler
 		if (executionHandler != null) {
 			pipeline.addLast("executionHandler", executionHandler);
@@ -0,0 +1,175 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.pipeline;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelEvent;
+import org.jboss.netty.channel.ChannelState;
+import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.handler.execution.ChannelEventRunnable;
+import org.jboss.netty.handler.execution.OrderedMemoryAwareThreadPoolExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link VirtualThreadExecutor} run tasks on virtual threads (Java 21 and
+ * later), keeping events of a same channel in order like
+ * {@link OrderedMemoryAwareThreadPoolExecutor}: events of a channel are queued
+ * and run one after the other by a single virtual thread, started when the
+ * queue was empty. A blocking controller parks its virtual thread, not a
+ * pooled one.
+ * <p>
+ * Other tasks are run on a new virtual thread each.
+ * </p>
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public final class VirtualThreadExecutor implements Executor {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreadExecutor.class);
+
+	/**
+	 * <code>Executors.newVirtualThreadPerTaskExecutor()</code>, null before
+	 * Java 21.
+	 */
+	private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = loadMethod();
+
+	private final ExecutorService virtualThreads;
+	private final ConcurrentMap<Channel, ChildExecutor> childExecutors = new ConcurrentHashMap<Channel, ChildExecutor>();
+
+	/**
+	 * Build a new instance of {@link VirtualThreadExecutor}.
+	 * 
+	 * @throws UnsupportedOperationException
+	 *             if JVM did not support virtual threads
+	 */
+	public VirtualThreadExecutor() throws UnsupportedOperationException {
+		super();
+		if (!isSupported()) {
+			throw new UnsupportedOperationException("virtual threads need Java 21 or later");
+		}
+		try {
+			virtualThreads = (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+		} catch (final IllegalAccessException e) {
+			throw new UnsupportedOperationException(e);
+		} catch (final InvocationTargetException e) {
+			throw new UnsupportedOperationException(e.getCause());
+		}
+	}
+
+	/**
+	 * @return true if JVM support virtual threads.
+	 */
+	public static boolean isSupported() {
+		return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+	}
+
+	@Override
+	public void execute(final Runnable task) {
+		if (task instanceof ChannelEventRunnable) {
+			childExecutor(((ChannelEventRunnable) task).getEvent().getChannel()).execute(task);
+		} else {
+			virtualThreads.execute(task);
+		}
+	}
+
+	/**
+	 * @return number of channels with an executor, for test purpose.
+	 */
+	int channelCount() {
+		return childExecutors.size();
+	}
+
+	private ChildExecutor childExecutor(final Channel channel) {
+		ChildExecutor executor = childExecutors.get(channel);
+		if (executor == null) {
+			executor = new ChildExecutor(channel);
+			final ChildExecutor previous = childExecutors.putIfAbsent(channel, executor);
+			if (previous != null) {
+				executor = previous;
+			}
+		}
+		return executor;
+	}
+
+	/**
+	 * {@link ChildExecutor} run tasks of one channel in order.
+	 */
+	private final class ChildExecutor implements Executor, Runnable {
+		private final Channel channel;
+		private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+		private final AtomicBoolean running = new AtomicBoolean();
+
+		ChildExecutor(final Channel channel) {
+			this.channel = channel;
+		}
+
+		@Override
+		public void execute(final Runnable task) {
+			tasks.add(task);
+			if (running.compareAndSet(false, true)) {
+				virtualThreads.execute(this);
+			}
+		}
+
+		@Override
+		public void run() {
+			do {
+				Runnable task;
+				while ((task = tasks.poll()) != null) {
+					try {
+						task.run();
+					} catch (final RuntimeException e) {
+						LOGGER.warn("Unexpected exception from a channel event", e);
+					}
+					if (isClosed(task)) {
+						childExecutors.remove(channel, this);
+					}
+				}
+				running.set(false);
+				// a task may have been added after last poll
+			} while (!tasks.isEmpty() && running.compareAndSet(false, true));
+		}
+
+		private boolean isClosed(final Runnable task) {
+			final ChannelEvent event = ((ChannelEventRunnable) task).getEvent();
+			return (event instanceof ChannelStateEvent) && (((ChannelStateEvent) event).getState() == ChannelState.OPEN) && !channel.isOpen();
+		}
+	}
+
+	private static Method loadMethod() {
+		try {
+			return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch (final NoSuchMethodException e) {
+			return null;
+		}
+	}
+}
@@ -19,26 +19,45 @@
  */
 package org.restexpress.pipeline.handler;
 
+import java.util.ArrayDeque;
 import java.util.List;
+import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.concurrent.Executor;
 
+import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelLocal;
+import org.jboss.netty.channel.ChannelStateEvent;
 import org.jboss.netty.channel.ExceptionEvent;
 import org.jboss.netty.channel.MessageEvent;
 import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+import org.jboss.netty.handler.execution.ExecutionHandler;
 import org.restexpress.Exceptions;
 import org.restexpress.HttpSpecification;
 import org.restexpress.Request;
 import org.restexpress.Response;
+import org.restexpress.cache.CachedResponse;
+import org.restexpress.http.HttpHeader;
 import org.restexpress.http.HttpRuntimeException;
 import org.restexpress.http.HttpStatus;
+import org.restexpress.http.ServiceUnavailableException;
 import org.restexpress.pipeline.HttpResponseWriter;
 import org.restexpress.pipeline.MessageContext;
 import org.restexpress.pipeline.MessageObserver;
 import org.restexpress.pipeline.Postprocessor;
 import org.restexpress.pipeline.Preprocessor;
+import org.restexpress.pipeline.RequestCoalescer;
+import org.restexpress.pipeline.ResponseCache;
 import org.restexpress.plugin.Plugin;
+import org.restexpress.response.StreamingContent;
+import org.restexpress.route.Action;
 
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 
 /**
  * {@link AbstractRequestHandler} extends {@link SimpleChannelUpstreamHandler}
@@ -68,6 +87,15 @@ public abstract class AbstractRequestHandler extends SimpleChannelUpstreamHandle
 
 	private final MessageObserver observer;
 
+	private final ResponseCache responseCache;
+
+	private final RequestCoalescer requestCoalescer;
+
+	/**
+	 * {@link HeldRequests} of channels with a pending response.
+	 */
+	private final ChannelLocal<HeldRequests> heldRequests = new ChannelLocal<HeldRequests>();
+
 	/**
 	 * Build a new instance of {@link AbstractRequestHandler}.
 	 * 
@@ -79,6 +107,24 @@ public abstract class AbstractRequestHandler extends SimpleChannelUpstreamHandle
 	 * @param observer
 	 */
 	protected AbstractRequestHandler(List<Preprocessor> preprocessors, List<Postprocessor> postprocessors, List<Postprocessor> finallyProcessors, HttpResponseWriter responseWriter, boolean shouldEnforceHttpSpec, MessageObserver observer) {
+		this(preprocessors, postprocessors, finallyProcessors, responseWriter, shouldEnforceHttpSpec, observer, null, null);
+	}
+
+	/**
+	 * Build a new instance of {@link AbstractRequestHandler}.
+	 * 
+	 * @param preprocessors
+	 * @param postprocessors
+	 * @param finallyProcessors
+	 * @param responseWriter
+	 * @param shouldEnforceHttpSpec
+	 * @param observer
+	 * @param responseCache
+	 *            {@link ResponseCache} instance, null if none
+	 * @param requestCoalescer
+	 *            {@link RequestCoalescer} instance, null if none
+	 */
+	protected AbstractRequestHandler(List<Preprocessor> preprocessors, List<Postprocessor> postprocessors, List<Postprocessor> finallyProcessors, HttpResponseWriter responseWriter, boolean shouldEnforceHttpSpec, MessageObserver observer, ResponseCache responseCache, RequestCoalescer requestCoalescer) {
 		super();
 		this.preprocessors = Preconditions.checkNotNull(preprocessors);
 		this.postprocessors = Preconditions.checkNotNull(postprocessors);
@@ -86,46 +132,411 @@ public abstract class AbstractRequestHandler extends SimpleChannelUpstreamHandle
 		this.responseWriter = Preconditions.checkNotNull(responseWriter);
 		this.shouldEnforceHttpSpec = shouldEnforceHttpSpec;
 		this.observer = observer;
+		this.responseCache = responseCache;
+		this.requestCoalescer = requestCoalescer;
 	}
 
+	/**
+	 * Process a request. When action return an asynchronous result (see
+	 * {@link AsyncResults}), this thread is released: response is processed
+	 * once the result is completed, on executor of the channel (or on the
+	 * completing thread without execution handler). A request collapsed by the
+	 * {@link RequestCoalescer} waits for the response of the identical request
+	 * in flight the same way.
+	 * <p>
+	 * To keep responses in request order, next requests of the channel
+	 * (pipelined by client) are held until the pending response (or streamed
+	 * content, see {@link StreamingContent}) is written,
+	 * then processed in order. Channel reads are suspended meanwhile, so only
+	 * requests already decoded are held. Once the channel is closed, by client
+	 * or on server shutdown, pending responses and held requests are dropped.
+	 * </p>
+	 */
 	@Override
 	public final void messageReceived(final ChannelHandlerContext ctx, final MessageEvent event) throws Exception {
-		final MessageContext context = createInitialContext(ctx, event);
+		final HeldRequests held = heldRequests.get(ctx.getChannel());
+		if ((held == null) || !held.hold(event)) {
+			process(ctx, event);
+		}
+	}
 
+	/**
+	 * Release requests held behind a pending response of a closed channel.
+	 */
+	@Override
+	public void channelClosed(final ChannelHandlerContext ctx, final ChannelStateEvent e) throws Exception {
+		final HeldRequests held = heldRequests.remove(ctx.getChannel());
+		if (held != null) {
+			held.release();
+		}
+		super.channelClosed(ctx, e);
+	}
+
+	/**
+	 * Process a request.
+	 * 
+	 * @param ctx
+	 * @param event
+	 * @return true if its response is pending.
+	 */
+	private boolean process(final ChannelHandlerContext ctx, final MessageEvent event) {
+		final MessageContext context = createInitialContext(ctx, event);
 		try {
 			notifyReceived(context);
-			resolveRoute(context);
+			resolveRoute(context, event);
 			resolveResponseProcessor(context);
+			if (event.getMessage() instanceof RejectedHttpRequest) {
+				// refused while reading its content
+				throw ((RejectedHttpRequest) event.getMessage()).cause();
+			}
+			if ((responseCache != null) && responseCache.lookup(context)) {
+				respondFromCache(ctx, context);
+				return false;
+			}
 			invokePreprocessors(context);
-			// invoke controller
-			final Object result = context.getAction().invoke(context);
+			if ((requestCoalescer != null) && !isNotModified(context)) {
+				final ListenableFuture<CachedResponse> inFlight = requestCoalescer.join(context);
+				if (inFlight != null) {
+					follow(ctx, context, inFlight);
+					return true;
+				}
+			}
+		} catch (final Throwable cause) {
+			try {
+				handleException(ctx, context, cause);
+			} finally {
+				complete(context);
+			}
+			return false;
+		}
+		return invoke(ctx, context);
+	}
+
+	/**
+	 * Invoke controller of specified context, unless a preprocessor has
+	 * answered 'Not Modified', and process its response.
+	 * 
+	 * @param ctx
+	 * @param context
+	 * @return true if action result is asynchronous, or its response is
+	 *         still being streamed: channel reads are suspended until its
+	 *         response is written.
+	 */
+	private boolean invoke(final ChannelHandlerContext ctx, final MessageContext context) {
+		final Object result;
+		try {
+			result = isNotModified(context) ? null : context.getAction().invoke(context);
+		} catch (final Throwable cause) {
+			try {
+				handleException(ctx, context, cause);
+			} finally {
+				complete(context);
+			}
+			return false;
+		}
+		if (AsyncResults.isAsync(result)) {
+			final Channel channel = ctx.getChannel();
+			hold(channel);
+			AsyncResults.addCallback(result, new FutureCallback<Object>() {
+				@Override
+				public void onSuccess(final Object value) {
+					if (!channel.isOpen()) {
+						// closed by client or on shutdown: response is dropped
+						complete(context);
+						return;
+					}
+					boolean pending = false;
+					try {
+						pending = respond(ctx, context, value);
+					} finally {
+						ReadSuspension.resume(channel);
+						if (!pending) {
+							processHeld(ctx);
+						}
+					}
+				}
+
+				@Override
+				public void onFailure(final Throwable cause) {
+					if (!channel.isOpen()) {
+						complete(context);
+						return;
+					}
+					try {
+						handleException(ctx, context, cause);
+					} finally {
+						complete(context);
+						ReadSuspension.resume(channel);
+						processHeld(ctx);
+					}
+				}
+			}, executorOf(ctx, context));
+			return true;
+		}
+		return respond(ctx, context, result);
+	}
+
+	/**
+	 * Wait for the response of an identical request in flight, with channel
+	 * reads suspended. Its serialized content is shared, or specified request
+	 * is processed on its own if it could not be.
+	 * 
+	 * @param ctx
+	 * @param context
+	 * @param inFlight
+	 *            response of identical request in flight
+	 */
+	private void follow(final ChannelHandlerContext ctx, final MessageContext context, final ListenableFuture<CachedResponse> inFlight) {
+		final Channel channel = ctx.getChannel();
+		hold(channel);
+		Futures.addCallback(inFlight, new FutureCallback<CachedResponse>() {
+			@Override
+			public void onSuccess(final CachedResponse shared) {
+				if (!channel.isOpen()) {
+					complete(context);
+					return;
+				}
+				boolean pending = false;
+				try {
+					requestCoalescer.followed(shared != null);
+					if (shared != null) {
+						respondShared(ctx, context, shared);
+					} else {
+						pending = invoke(ctx, context);
+					}
+				} finally {
+					ReadSuspension.resume(channel);
+					if (!pending) {
+						processHeld(ctx);
+					}
+				}
+			}
+
+			@Override
+			public void onFailure(final Throwable cause) {
+				onSuccess(null);
+			}
+		}, executorOf(ctx, context));
+	}
+
+	/**
+	 * Hold next requests of specified channel until the pending response is
+	 * written, with reads suspended.
+	 * 
+	 * @param channel
+	 */
+	private void hold(final Channel channel) {
+		HeldRequests held = heldRequests.get(channel);
+		if (held == null) {
+			held = new HeldRequests();
+			final HeldRequests previous = heldRequests.setIfAbsent(channel, held);
+			if (previous != null) {
+				held = previous;
+			}
+		}
+		held.pending();
+		ReadSuspension.suspend(channel);
+	}
+
+	/**
+	 * Process requests held while a response was pending, in order, until one
+	 * is pending again.
+	 * 
+	 * @param ctx
+	 */
+	private void processHeld(final ChannelHandlerContext ctx) {
+		final HeldRequests held = heldRequests.get(ctx.getChannel());
+		if (held == null) {
+			return;
+		}
+		MessageEvent next;
+		while (ctx.getChannel().isOpen() && ((next = held.next()) != null)) {
+			if (process(ctx, next)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Process response of specified action result.
+	 * 
+	 * @param ctx
+	 * @param context
+	 * @param result
+	 *            action result
+	 * @return true if response is still being streamed.
+	 */
+	private boolean respond(final ChannelHandlerContext ctx, final MessageContext context, final Object result) {
+		try {
 			if (result != null) {
 				context.getResponse().setEntity(result);
 			}
 			invokePostprocessors(context);
 			handleResponseContent(context, false);
 			enforceHttpSpecification(context);
+			if (requestCoalescer != null) {
+				requestCoalescer.publish(context);
+			}
 			invokeFinallyProcessors(context);
+			if (responseCache != null) {
+				responseCache.store(context);
+			}
 			writeResponse(ctx, context);
 			notifySuccess(context);
+			return awaitWritten(ctx, context);
 		} catch (final Throwable cause) {
-			// handle exception
-			Throwable rootCause = cause;
-			if (HttpRuntimeException.class.isAssignableFrom(cause.getClass())) {
-				final HttpRuntimeException httpRuntimeException = (HttpRuntimeException) cause;
-				context.setStatusInfo(httpRuntimeException.getHttpResponseStatus());
-			} else {
-				rootCause = Exceptions.findRootCause(cause);
-				context.setStatusInfo(HttpStatus.INTERNAL_SERVER_ERROR);
+			handleException(ctx, context, cause);
+			return false;
+		} finally {
+			complete(context);
+		}
+	}
+
+	/**
+	 * Hold next requests of the channel while streamed content of specified
+	 * context is being written, so that their responses are not written
+	 * between its chunks.
+	 * 
+	 * @param ctx
+	 * @param context
+	 * @return true if streamed content is still being written.
+	 */
+	private boolean awaitWritten(final ChannelHandlerContext ctx, final MessageContext context) {
+		final Object entity = context.getResponse().getEntity();
+		if (!(entity instanceof StreamingContent) || !((StreamingContent) entity).isStarted() || ((StreamingContent) entity).written().isDone()) {
+			return false;
+		}
+		final Channel channel = ctx.getChannel();
+		hold(channel);
+		((StreamingContent) entity).written().addListener(new Runnable() {
+			@Override
+			public void run() {
+				if (channel.isOpen()) {
+					ReadSuspension.resume(channel);
+					processHeld(ctx);
+				}
 			}
-			context.setException(rootCause);
-			notifyException(context);
-			handleResponseContent(context, true);
+		}, executorOf(ctx, context));
+		return true;
+	}
+
+	/**
+	 * Process the response of an identical request: its status, its headers
+	 * which have not been set by preprocessors of specified request, and its
+	 * serialized content.
+	 * 
+	 * @param ctx
+	 * @param context
+	 * @param shared
+	 *            shared response
+	 */
+	private void respondShared(final ChannelHandlerContext ctx, final MessageContext context, final CachedResponse shared) {
+		final Response response = context.getResponse();
+		response.setStatus(shared.status());
+		for (final Entry<String, List<String>> header : shared.headers().entrySet()) {
+			if (!response.hasHeader(header.getKey())) {
+				for (final String value : header.getValue()) {
+					response.addHeader(header.getKey(), value);
+				}
+			}
+		}
+		response.setEntity(shared.content());
+		respondFromCache(ctx, context);
+	}
+
+	/**
+	 * Process a response filled from {@link ResponseCache}: preprocessors,
+	 * controller, postprocessors and serialization are skipped.
+	 * 
+	 * @param ctx
+	 * @param context
+	 */
+	private void respondFromCache(final ChannelHandlerContext ctx, final MessageContext context) {
+		try {
 			invokeFinallyProcessors(context);
 			writeResponse(ctx, context);
+			notifySuccess(context);
+		} catch (final Throwable cause) {
+			handleException(ctx, context, cause);
 		} finally {
-			notifyComplete(context);
+			complete(context);
+		}
+	}
+
+	/**
+	 * Respond with specified failure.
+	 * 
+	 * @param ctx
+	 * @param context
+	 * @param cause
+	 */
+	private void handleException(final ChannelHandlerContext ctx, final MessageContext context, final Throwable cause) {
+		Throwable rootCause = cause;
+		if (HttpRuntimeException.class.isAssignableFrom(cause.getClass())) {
+			final HttpRuntimeException httpRuntimeException = (HttpRuntimeException) cause;
+			context.setStatusInfo(httpRuntimeException.getHttpResponseStatus());
+			if ((cause instanceof ServiceUnavailableException) && (((ServiceUnavailableException) cause).getRetryAfter() >= 0)) {
+				context.getResponse().addHeader(HttpHeader.RETRY_AFTER, String.valueOf(((ServiceUnavailableException) cause).getRetryAfter()));
+			}
+		} else {
+			rootCause = Exceptions.findRootCause(cause);
+			context.setStatusInfo(HttpStatus.INTERNAL_SERVER_ERROR);
 		}
+		context.setException(rootCause);
+		notifyException(context);
+		handleResponseContent(context, true);
+		invokeFinallyProcessors(context);
+		writeResponse(ctx, context);
+	}
+
+	/**
+	 * Set the {@link Action} resolved when request was decoded (see
+	 * {@link RoutedHttpRequest}), unless its method is tunneled, else resolve
+	 * route of specified context.
+	 * 
+	 * @param context
+	 * @param event
+	 */
+	private void resolveRoute(final MessageContext context, final MessageEvent event) {
+		final Action action = (event.getMessage() instanceof RoutedHttpRequest) ? ((RoutedHttpRequest) event.getMessage()).action() : null;
+		final Request request = context.getRequest();
+		if ((action != null) && request.getEffectiveHttpMethod().equals(request.getHttpMethod())) {
+			context.setAction(action);
+		} else {
+			resolveRoute(context);
+		}
+	}
+
+	/**
+	 * @param context
+	 * @return true if response status has been set to 304 (Not Modified).
+	 */
+	private static boolean isNotModified(final MessageContext context) {
+		return context.getResponse().getStatus() == HttpStatus.NOT_MODIFIED.getStatusCode();
+	}
+
+	private void complete(final MessageContext context) {
+		if (requestCoalescer != null) {
+			requestCoalescer.abandon(context);
+		}
+		context.getRequest().releaseParts();
+		notifyComplete(context);
+	}
+
+	/**
+	 * @param ctx
+	 * @param context
+	 * @return {@link Executor} of route of specified request (see
+	 *         {@link RouteExecutionHandler#executorOf(org.restexpress.route.Route)}
+	 *         ), {@link Executor} of {@link ExecutionHandler} in pipeline, or a
+	 *         same thread {@link Executor}.
+	 */
+	private static Executor executorOf(final ChannelHandlerContext ctx, final MessageContext context) {
+		final ExecutionHandler executionHandler = ctx.getPipeline().get(ExecutionHandler.class);
+		if (executionHandler instanceof RouteExecutionHandler) {
+			return ((RouteExecutionHandler) executionHandler).executorOf(context.hasAction() ? context.getAction().resolvedRoute() : null);
+		}
+		return (executionHandler != null) ? executionHandler.getExecutor() : MoreExecutors.sameThreadExecutor();
 	}
 
 	@Override
@@ -396,4 +807,49 @@ public abstract class AbstractRequestHandler extends SimpleChannelUpstreamHandle
 	 */
 	protected abstract void resolveResponseProcessor(final MessageContext context);
 
+	/**
+	 * {@link HeldRequests} queues requests of a channel received while the
+	 * response of a previous one is pending.
+	 */
+	private static final class HeldRequests {
+		private final Queue<MessageEvent> events = new ArrayDeque<MessageEvent>();
+		private boolean pending;
+
+		/**
+		 * @param event
+		 * @return true if specified event is held behind a pending response.
+		 */
+		synchronized boolean hold(final MessageEvent event) {
+			if (pending) {
+				events.add(event);
+			}
+			return pending;
+		}
+
+		synchronized void pending() {
+			pending = true;
+		}
+
+		/**
+		 * @return next held event, null if none: no response is pending
+		 *         anymore.
+		 */
+		synchronized MessageEvent next() {
+			final MessageEvent event = events.poll();
+			pending = event != null;
+			return event;
+		}
+
+		/**
+		 * Release resources of held events.
+		 */
+		synchronized void release() {
+			MessageEvent event;
+			while ((event = events.poll()) != null) {
+				if (event.getMessage() instanceof StreamingUploadRequest) {
+					((StreamingUploadRequest) event.getMessage()).decoder().cleanFiles();
+				}
+			}
+		}
+	}
 }
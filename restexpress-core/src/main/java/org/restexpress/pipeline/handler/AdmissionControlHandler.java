@@ -0,0 +1,178 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.pipeline.handler;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelHandler.Sharable;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelHandler;
+import org.jboss.netty.handler.codec.http.HttpChunk;
+import org.jboss.netty.handler.codec.http.HttpRequest;
+import org.jboss.netty.handler.codec.http.HttpResponse;
+import org.restexpress.http.ServiceUnavailableException;
+import org.restexpress.pipeline.AdmissionLimiter;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * {@link AdmissionControlHandler} admits requests ahead of the execution
+ * handler, according to an {@link AdmissionLimiter}. A request is completed
+ * once its response is written (last chunk for a chunked response).
+ * <p>
+ * A request beyond the limit is sent upstream as a {@link RejectedHttpRequest}
+ * with a {@link ServiceUnavailableException} (503 with Retry-After), and reads
+ * of its channel are suspended until the limiter has capacity again, so
+ * overloading clients are slowed down at TCP level.
+ * </p>
+ * <p>
+ * This handler is shared by all channels.
+ * </p>
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+@Sharable
+public final class AdmissionControlHandler extends SimpleChannelHandler {
+
+	/**
+	 * Pending entry of a request which has not been admitted.
+	 */
+	private static final long REJECTED = Long.MIN_VALUE;
+
+	private final AdmissionLimiter limiter;
+	private final long retryAfter;
+	private final Queue<Channel> suspended = new ConcurrentLinkedQueue<Channel>();
+
+	/**
+	 * Build a new instance of {@link AdmissionControlHandler}.
+	 * 
+	 * @param limiter
+	 *            {@link AdmissionLimiter}
+	 * @param retryAfter
+	 *            delay in seconds of Retry-After header of rejected requests
+	 * @throws NullPointerException
+	 *             if limiter is null
+	 */
+	public AdmissionControlHandler(final AdmissionLimiter limiter, final long retryAfter) throws NullPointerException {
+		super();
+		this.limiter = Preconditions.checkNotNull(limiter);
+		this.retryAfter = retryAfter;
+	}
+
+	@Override
+	public void messageReceived(final ChannelHandlerContext ctx, final MessageEvent e) throws Exception {
+		if (!(e.getMessage() instanceof HttpRequest)) {
+			ctx.sendUpstream(e);
+			return;
+		}
+		final HttpRequest request = (HttpRequest) e.getMessage();
+		final Queue<Long> pending = pending(ctx);
+		if (request instanceof RejectedHttpRequest) {
+			pending.add(REJECTED);
+			ctx.sendUpstream(e);
+		} else if (limiter.tryAcquire()) {
+			pending.add(System.nanoTime());
+			ctx.sendUpstream(e);
+		} else {
+			pending.add(REJECTED);
+			if (request instanceof StreamingUploadRequest) {
+				((StreamingUploadRequest) request).decoder().cleanFiles();
+			}
+			suspend(ctx.getChannel());
+			final ServiceUnavailableException cause = new ServiceUnavailableException("Server is overloaded", retryAfter);
+			Channels.fireMessageReceived(ctx, new RejectedHttpRequest(request, cause, false), e.getRemoteAddress());
+		}
+	}
+
+	@Override
+	public void writeRequested(final ChannelHandlerContext ctx, final MessageEvent e) throws Exception {
+		final Object message = e.getMessage();
+		if (message instanceof HttpResponse) {
+			final HttpResponse response = (HttpResponse) message;
+			// ignore informational responses (100 Continue)
+			if (!response.isChunked() && (response.getStatus().getCode() >= 200)) {
+				complete(ctx);
+			}
+		} else if ((message instanceof HttpChunk) && ((HttpChunk) message).isLast()) {
+			complete(ctx);
+		}
+		ctx.sendDownstream(e);
+	}
+
+	@Override
+	public void channelClosed(final ChannelHandlerContext ctx, final ChannelStateEvent e) throws Exception {
+		@SuppressWarnings("unchecked")
+		final Queue<Long> pending = (Queue<Long>) ctx.getAttachment();
+		if (pending != null) {
+			Long start;
+			while ((start = pending.poll()) != null) {
+				if (start.longValue() != REJECTED) {
+					limiter.release();
+				}
+			}
+			resume();
+		}
+		ctx.sendUpstream(e);
+	}
+
+	/**
+	 * @param ctx
+	 * @return {@link Queue} of start time of requests of channel waiting for
+	 *         their response, {@link #REJECTED} if not admitted.
+	 */
+	@SuppressWarnings("unchecked")
+	private static Queue<Long> pending(final ChannelHandlerContext ctx) {
+		Queue<Long> pending = (Queue<Long>) ctx.getAttachment();
+		if (pending == null) {
+			pending = new ConcurrentLinkedQueue<Long>();
+			ctx.setAttachment(pending);
+		}
+		return pending;
+	}
+
+	private void complete(final ChannelHandlerContext ctx) {
+		@SuppressWarnings("unchecked")
+		final Queue<Long> pending = (Queue<Long>) ctx.getAttachment();
+		final Long start = pending != null ? pending.poll() : null;
+		if ((start != null) && (start.longValue() != REJECTED)) {
+			limiter.release(System.nanoTime() - start.longValue());
+			resume();
+		}
+	}
+
+	private void suspend(final Channel channel) {
+		ReadSuspension.suspend(channel);
+		suspended.add(channel);
+		// capacity could have been released meanwhile
+		resume();
+	}
+
+	private void resume() {
+		Channel channel;
+		while (limiter.hasCapacity() && ((channel = suspended.poll()) != null)) {
+			ReadSuspension.resume(channel);
+		}
+	}
+}
@@ -0,0 +1,189 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.pipeline.handler;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * {@link AsyncResults} group utilities on asynchronous action results: a
+ * {@link ListenableFuture} or, from Java 8, a
+ * <code>java.util.concurrent.CompletionStage</code>.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public final class AsyncResults {
+
+	/**
+	 * <code>java.util.concurrent.CompletionStage</code>, null before Java 8.
+	 */
+	private static final Class<?> COMPLETION_STAGE = loadClass("java.util.concurrent.CompletionStage");
+	/**
+	 * <code>java.util.concurrent.CompletionException</code>, null before Java
+	 * 8.
+	 */
+	private static final Class<?> COMPLETION_EXCEPTION = loadClass("java.util.concurrent.CompletionException");
+	/**
+	 * <code>java.util.function.BiConsumer</code>, null before Java 8.
+	 */
+	private static final Class<?> BI_CONSUMER = loadClass("java.util.function.BiConsumer");
+	/**
+	 * <code>CompletionStage.whenComplete(BiConsumer)</code>, null before Java
+	 * 8.
+	 */
+	private static final Method WHEN_COMPLETE = loadMethod(COMPLETION_STAGE, "whenComplete", BI_CONSUMER);
+
+	private AsyncResults() {
+		super();
+	}
+
+	/**
+	 * @param type
+	 * @return true if specified type is an asynchronous result type.
+	 */
+	public static boolean isAsyncType(final Class<?> type) {
+		return ListenableFuture.class.isAssignableFrom(type) || ((COMPLETION_STAGE != null) && COMPLETION_STAGE.isAssignableFrom(type));
+	}
+
+	/**
+	 * @param result
+	 * @return true if specified result is an asynchronous result.
+	 */
+	public static boolean isAsync(final Object result) {
+		return (result != null) && isAsyncType(result.getClass());
+	}
+
+	/**
+	 * @param type
+	 *            generic return type of an action
+	 * @return the type of value of an asynchronous result type, if declared,
+	 *         {@link Object} otherwise.
+	 */
+	public static Class<?> valueType(final Type type) {
+		if (type instanceof ParameterizedType) {
+			final Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+			if ((arguments.length == 1) && (arguments[0] instanceof Class)) {
+				return (Class<?>) arguments[0];
+			}
+		}
+		return Object.class;
+	}
+
+	/**
+	 * Register a {@link FutureCallback} called on specified {@link Executor}
+	 * once the asynchronous result is completed. Failure cause is unwrapped
+	 * from any {@link ExecutionException} or
+	 * <code>CompletionException</code>.
+	 * 
+	 * @param result
+	 *            asynchronous result
+	 * @param callback
+	 *            {@link FutureCallback} instance
+	 * @param executor
+	 *            {@link Executor} which run callback
+	 * @throws IllegalArgumentException
+	 *             if result is not asynchronous
+	 */
+	@SuppressWarnings("unchecked")
+	public static void addCallback(final Object result, final FutureCallback<Object> callback, final Executor executor) throws IllegalArgumentException {
+		Preconditions.checkArgument(isAsync(result), "not an asynchronous result");
+		Preconditions.checkNotNull(callback);
+		Preconditions.checkNotNull(executor);
+		if (result instanceof ListenableFuture) {
+			Futures.addCallback((ListenableFuture<Object>) result, new FutureCallback<Object>() {
+				@Override
+				public void onSuccess(final Object value) {
+					callback.onSuccess(value);
+				}
+
+				@Override
+				public void onFailure(final Throwable cause) {
+					callback.onFailure(unwrap(cause));
+				}
+			}, executor);
+			return;
+		}
+		final Object consumer = Proxy.newProxyInstance(AsyncResults.class.getClassLoader(), new Class<?>[] { BI_CONSUMER }, new InvocationHandler() {
+			@Override
+			public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+				if (!"accept".equals(method.getName())) {
+					// Object methods
+					return method.invoke(this, args);
+				}
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						if (args[1] == null) {
+							callback.onSuccess(args[0]);
+						} else {
+							callback.onFailure(unwrap((Throwable) args[1]));
+						}
+					}
+				});
+				return null;
+			}
+		});
+		try {
+			WHEN_COMPLETE.invoke(result, consumer);
+		} catch (final IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		} catch (final InvocationTargetException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	private static Throwable unwrap(final Throwable cause) {
+		Throwable result = cause;
+		while ((result.getCause() != null) && ((result instanceof ExecutionException) || ((COMPLETION_EXCEPTION != null) && COMPLETION_EXCEPTION.isInstance(result)))) {
+			result = result.getCause();
+		}
+		return result;
+	}
+
+	private static Class<?> loadClass(final String name) {
+		try {
+			return Class.forName(name);
+		} catch (final ClassNotFoundException e) {
+			return null;
+		}
+	}
+
+	private static Method loadMethod(final Class<?> type, final String name, final Class<?> parameter) {
+		if ((type == null) || (parameter == null)) {
+			return null;
+		}
+		try {
+			return type.getMethod(name, parameter);
+		} catch (final NoSuchMethodException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,91 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.pipeline.handler;
+
+import org.jboss.netty.channel.ChannelHandler.Sharable;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+import org.jboss.netty.channel.group.ChannelGroup;
+import org.restexpress.pipeline.ConnectionCounters;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * {@link ConnectionLimitHandler} counts open connections with
+ * {@link ConnectionCounters}, and closes accepted connections beyond a maximum
+ * number of open connections, before anything is read from them.
+ * <p>
+ * Accepted connections are added to the {@link ChannelGroup} of the server,
+ * so that they are closed on shutdown before executors and I/O threads are
+ * released.
+ * </p>
+ * <p>
+ * This handler is shared by all channels.
+ * </p>
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+@Sharable
+public final class ConnectionLimitHandler extends SimpleChannelUpstreamHandler {
+
+	private final ConnectionCounters counters;
+	private final int maxConnections;
+	private final ChannelGroup channels;
+
+	/**
+	 * Build a new instance of {@link ConnectionLimitHandler}.
+	 * 
+	 * @param counters
+	 *            {@link ConnectionCounters}
+	 * @param maxConnections
+	 *            maximum number of open connections, 0 for unlimited
+	 * @param channels
+	 *            {@link ChannelGroup} of accepted connections
+	 * @throws NullPointerException
+	 *             if counters or channels is null
+	 */
+	public ConnectionLimitHandler(final ConnectionCounters counters, final int maxConnections, final ChannelGroup channels) throws NullPointerException {
+		super();
+		this.counters = Preconditions.checkNotNull(counters);
+		this.maxConnections = maxConnections;
+		this.channels = Preconditions.checkNotNull(channels);
+	}
+
+	@Override
+	public void channelConnected(final ChannelHandlerContext ctx, final ChannelStateEvent e) throws Exception {
+		if (counters.open(maxConnections)) {
+			ctx.setAttachment(Boolean.TRUE);
+			channels.add(e.getChannel());
+			ctx.sendUpstream(e);
+		} else {
+			e.getChannel().close();
+		}
+	}
+
+	@Override
+	public void channelClosed(final ChannelHandlerContext ctx, final ChannelStateEvent e) throws Exception {
+		if (ctx.getAttachment() != null) {
+			ctx.setAttachment(null);
+			counters.close();
+		}
+		ctx.sendUpstream(e);
+	}
+}
@@ -0,0 +1,188 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.pipeline.handler;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelDownstreamHandler;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.channel.ExceptionEvent;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelDownstreamHandler;
+import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+import org.jboss.netty.handler.codec.http.HttpChunk;
+import org.jboss.netty.handler.codec.http.HttpRequest;
+import org.jboss.netty.handler.codec.http.HttpResponse;
+import org.jboss.netty.handler.timeout.WriteTimeoutException;
+import org.jboss.netty.handler.timeout.WriteTimeoutHandler;
+import org.jboss.netty.util.Timeout;
+import org.jboss.netty.util.Timer;
+import org.jboss.netty.util.TimerTask;
+import org.restexpress.pipeline.ConnectionCounters;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * {@link ConnectionTimeoutHandler} closes connections which wait too long for
+ * a request header, with a shared {@link Timer}:
+ * <ul>
+ * <li>a new connection must send its first request header within read header
+ * timeout,</li>
+ * <li>a keep-alive connection must send its next request header within idle
+ * timeout once all responses are written.</li>
+ * </ul>
+ * No timeout apply while a request is processed. This handler also closes
+ * connections on {@link WriteTimeoutException} raised by a
+ * {@link WriteTimeoutHandler}. Closed connections are counted as reaped with
+ * {@link ConnectionCounters}.
+ * <p>
+ * This handler is stateful: one instance per channel, after the HTTP decoder
+ * to see request headers as soon as they are decoded, with its
+ * {@link #responseListener()} after the HTTP encoders to see responses before
+ * they are encoded.
+ * </p>
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public final class ConnectionTimeoutHandler extends SimpleChannelUpstreamHandler {
+
+	private final Timer timer;
+	private final long readHeaderTimeout;
+	private final long idleTimeout;
+	private final ConnectionCounters counters;
+
+	// guarded by this
+	private int pendingRequests;
+	private Timeout timeout;
+
+	/**
+	 * Build a new instance of {@link ConnectionTimeoutHandler}.
+	 * 
+	 * @param timer
+	 *            shared {@link Timer}
+	 * @param readHeaderTimeout
+	 *            timeout in milliseconds of first request header, 0 to disable
+	 * @param idleTimeout
+	 *            timeout in milliseconds of next request header, 0 to disable
+	 * @param counters
+	 *            {@link ConnectionCounters}
+	 * @throws NullPointerException
+	 *             if timer or counters is null
+	 */
+	public ConnectionTimeoutHandler(final Timer timer, final long readHeaderTimeout, final long idleTimeout, final ConnectionCounters counters) throws NullPointerException {
+		super();
+		this.timer = Preconditions.checkNotNull(timer);
+		this.readHeaderTimeout = readHeaderTimeout;
+		this.idleTimeout = idleTimeout;
+		this.counters = Preconditions.checkNotNull(counters);
+	}
+
+	/**
+	 * @return a {@link ChannelDownstreamHandler} which notify this handler of
+	 *         written responses.
+	 */
+	public ChannelDownstreamHandler responseListener() {
+		return new SimpleChannelDownstreamHandler() {
+			@Override
+			public void writeRequested(final ChannelHandlerContext ctx, final MessageEvent e) throws Exception {
+				final Object message = e.getMessage();
+				if (((message instanceof HttpResponse) && !((HttpResponse) message).isChunked() && (((HttpResponse) message).getStatus().getCode() >= 200)) //
+						|| ((message instanceof HttpChunk) && ((HttpChunk) message).isLast())) {
+					responseWritten(ctx.getChannel());
+				}
+				ctx.sendDownstream(e);
+			}
+		};
+	}
+
+	@Override
+	public void channelConnected(final ChannelHandlerContext ctx, final ChannelStateEvent e) throws Exception {
+		schedule(ctx.getChannel(), readHeaderTimeout);
+		ctx.sendUpstream(e);
+	}
+
+	@Override
+	public void messageReceived(final ChannelHandlerContext ctx, final MessageEvent e) throws Exception {
+		if (e.getMessage() instanceof HttpRequest) {
+			synchronized (this) {
+				pendingRequests++;
+				cancel();
+			}
+		}
+		ctx.sendUpstream(e);
+	}
+
+	@Override
+	public void exceptionCaught(final ChannelHandlerContext ctx, final ExceptionEvent e) throws Exception {
+		if (e.getCause() instanceof WriteTimeoutException) {
+			reap(ctx.getChannel());
+		} else {
+			ctx.sendUpstream(e);
+		}
+	}
+
+	@Override
+	public void channelClosed(final ChannelHandlerContext ctx, final ChannelStateEvent e) throws Exception {
+		synchronized (this) {
+			cancel();
+		}
+		ctx.sendUpstream(e);
+	}
+
+	private synchronized void responseWritten(final Channel channel) {
+		if ((pendingRequests > 0) && (--pendingRequests == 0)) {
+			schedule(channel, idleTimeout);
+		}
+	}
+
+	private synchronized void schedule(final Channel channel, final long delay) {
+		cancel();
+		if (delay > 0) {
+			timeout = timer.newTimeout(new TimerTask() {
+				@Override
+				public void run(final Timeout expired) throws Exception {
+					synchronized (ConnectionTimeoutHandler.this) {
+						if ((expired != timeout) || (pendingRequests > 0)) {
+							return;
+						}
+						timeout = null;
+					}
+					reap(channel);
+				}
+			}, delay, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void cancel() {
+		if (timeout != null) {
+			timeout.cancel();
+			timeout = null;
+		}
+	}
+
+	private void reap(final Channel channel) {
+		if (channel.isOpen()) {
+			counters.reaped();
+			channel.close();
+		}
+	}
+}
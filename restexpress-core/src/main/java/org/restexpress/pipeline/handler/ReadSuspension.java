@@ -0,0 +1,87 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.pipeline.handler;
+
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelLocal;
+
+/**
+ * {@link ReadSuspension} suspend reads of a channel on behalf of several
+ * handlers (admission control, pending asynchronous responses, ...). Each
+ * {@link #suspend(Channel)} must be balanced by a {@link #resume(Channel)}:
+ * reads are resumed once every handler which suspended them has resumed
+ * them, so one handler could not resume reads that another still need
+ * suspended.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public final class ReadSuspension {
+
+	/**
+	 * Number of suspensions of each channel, removed when channel is closed.
+	 */
+	private static final ChannelLocal<Suspensions> SUSPENSIONS = new ChannelLocal<Suspensions>(true);
+
+	private ReadSuspension() {
+		super();
+	}
+
+	/**
+	 * Suspend reads of specified channel.
+	 * 
+	 * @param channel
+	 */
+	public static void suspend(final Channel channel) {
+		Suspensions suspensions = SUSPENSIONS.get(channel);
+		if (suspensions == null) {
+			suspensions = new Suspensions();
+			final Suspensions previous = SUSPENSIONS.setIfAbsent(channel, suspensions);
+			if (previous != null) {
+				suspensions = previous;
+			}
+		}
+		synchronized (suspensions) {
+			if (suspensions.count++ == 0) {
+				channel.setReadable(false);
+			}
+		}
+	}
+
+	/**
+	 * Resume reads of specified channel, if no other suspension is pending.
+	 * 
+	 * @param channel
+	 */
+	public static void resume(final Channel channel) {
+		final Suspensions suspensions = SUSPENSIONS.get(channel);
+		if (suspensions == null) {
+			return;
+		}
+		synchronized (suspensions) {
+			if ((suspensions.count > 0) && (--suspensions.count == 0) && channel.isOpen()) {
+				channel.setReadable(true);
+			}
+		}
+	}
+
+	private static final class Suspensions {
+		private int count;
+	}
+}
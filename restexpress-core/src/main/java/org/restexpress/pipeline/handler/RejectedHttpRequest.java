@@ -0,0 +1,72 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.pipeline.handler;
+
+import org.jboss.netty.handler.codec.http.HttpHeaders;
+import org.jboss.netty.handler.codec.http.HttpRequest;
+import org.restexpress.http.HttpRuntimeException;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * {@link RejectedHttpRequest} is the {@link HttpRequest} sent in place of a
+ * request refused while reading its content (too large, malformed...) or
+ * dispatching it (saturated executor): its content is empty and
+ * {@link AbstractRequestHandler} respond with its {@link HttpRuntimeException}.
+ * <p>
+ * Remaining content is read and discarded, so the connection can be reused,
+ * except when client is still waiting for a "100 Continue": as it will not
+ * send content, connection is closed after response.
+ * </p>
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public final class RejectedHttpRequest extends RoutedHttpRequest {
+
+	private final HttpRuntimeException cause;
+
+	/**
+	 * Build a new instance of {@link RejectedHttpRequest}.
+	 * 
+	 * @param request
+	 *            received {@link HttpRequest}, headers are copied
+	 * @param cause
+	 *            {@link HttpRuntimeException} to respond with
+	 * @param awaitingContinue
+	 *            true if client waits for a "100 Continue" to send content
+	 */
+	public RejectedHttpRequest(final HttpRequest request, final HttpRuntimeException cause, final boolean awaitingContinue) {
+		super(request.getProtocolVersion(), request.getMethod(), request.getUri(), actionOf(request, null));
+		this.cause = Preconditions.checkNotNull(cause);
+		headers().set(request.headers());
+		headers().remove(HttpHeaders.Names.TRANSFER_ENCODING);
+		headers().remove(HttpHeaders.Names.CONTENT_LENGTH);
+		if (awaitingContinue) {
+			headers().set(HttpHeaders.Names.CONNECTION, HttpHeaders.Values.CLOSE);
+		}
+	}
+
+	/**
+	 * @return {@link HttpRuntimeException} to respond with.
+	 */
+	public HttpRuntimeException cause() {
+		return cause;
+	}
+}
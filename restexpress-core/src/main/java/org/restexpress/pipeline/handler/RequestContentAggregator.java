@@ -0,0 +1,166 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.pipeline.handler;
+
+import java.util.Map.Entry;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+import org.jboss.netty.handler.codec.http.HttpChunk;
+import org.jboss.netty.handler.codec.http.HttpChunkAggregator;
+import org.jboss.netty.handler.codec.http.HttpChunkTrailer;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
+import org.jboss.netty.handler.codec.http.HttpRequest;
+import org.jboss.netty.util.CharsetUtil;
+import org.restexpress.http.RequestEntityTooLargeException;
+import org.restexpress.route.Action;
+import org.restexpress.route.trie.TrieRouteResolver;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * {@link RequestContentAggregator} aggregates chunked requests like
+ * {@link HttpChunkAggregator}, but with a maximum content length resolved for
+ * each request from its route (see
+ * {@link org.restexpress.route.RouteBuilder#maxContentLength(int)}), once the
+ * request line is parsed.
+ * <p>
+ * A request whose declared or received content exceeds this limit is not
+ * aggregated: a {@link RejectedHttpRequest} with a
+ * {@link RequestEntityTooLargeException} is sent upstream in its place and its
+ * remaining chunks are discarded.
+ * </p>
+ * <p>
+ * This handler is stateful: one instance per channel.
+ * </p>
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public final class RequestContentAggregator extends SimpleChannelUpstreamHandler {
+
+	private static final ChannelBuffer CONTINUE = ChannelBuffers.copiedBuffer("HTTP/1.1 100 Continue\r\n\r\n", CharsetUtil.US_ASCII);
+
+	private final TrieRouteResolver routeResolver;
+	private final int maxContentLength;
+
+	private HttpRequest currentRequest;
+	private int currentMaxContentLength;
+	private boolean discarding;
+
+	/**
+	 * Build a new instance of {@link RequestContentAggregator}.
+	 * 
+	 * @param routeResolver
+	 *            {@link TrieRouteResolver} used to find route limit of a
+	 *            request which is not a {@link RoutedHttpRequest}, if null
+	 *            only default limit apply
+	 * @param maxContentLength
+	 *            default maximum length of aggregated content
+	 * @throws IllegalArgumentException
+	 *             if maxContentLength is not positive
+	 */
+	public RequestContentAggregator(final TrieRouteResolver routeResolver, final int maxContentLength) throws IllegalArgumentException {
+		super();
+		Preconditions.checkArgument(maxContentLength > 0, "maxContentLength must be positive");
+		this.routeResolver = routeResolver;
+		this.maxContentLength = maxContentLength;
+	}
+
+	@Override
+	public void messageReceived(final ChannelHandlerContext ctx, final MessageEvent e) throws Exception {
+		final Object message = e.getMessage();
+		if (message instanceof HttpRequest) {
+			final HttpRequest request = (HttpRequest) message;
+			currentRequest = null;
+			discarding = false;
+			final int limit = maxContentLengthFor(request);
+			if ((HttpHeaders.getContentLength(request, 0) > limit) || (request.getContent().readableBytes() > limit)) {
+				discarding = request.isChunked();
+				reject(ctx, e, request, limit, HttpHeaders.is100ContinueExpected(request));
+				return;
+			}
+			if (!request.isChunked()) {
+				ctx.sendUpstream(e);
+				return;
+			}
+			if (HttpHeaders.is100ContinueExpected(request)) {
+				Channels.write(ctx, Channels.succeededFuture(ctx.getChannel()), CONTINUE.duplicate());
+			}
+			HttpHeaders.removeTransferEncodingChunked(request);
+			request.setChunked(false);
+			final long contentLength = HttpHeaders.getContentLength(request, 0);
+			request.setContent(ChannelBuffers.dynamicBuffer((int) Math.max(contentLength, 256), ctx.getChannel().getConfig().getBufferFactory()));
+			currentRequest = request;
+			currentMaxContentLength = limit;
+		} else if (message instanceof HttpChunk) {
+			final HttpChunk chunk = (HttpChunk) message;
+			if (discarding) {
+				discarding = !chunk.isLast();
+				return;
+			}
+			final HttpRequest request = currentRequest;
+			if (request == null) {
+				throw new IllegalStateException("received " + HttpChunk.class.getSimpleName() + " without " + HttpRequest.class.getSimpleName());
+			}
+			final ChannelBuffer content = request.getContent();
+			if (content.readableBytes() > currentMaxContentLength - chunk.getContent().readableBytes()) {
+				currentRequest = null;
+				discarding = !chunk.isLast();
+				reject(ctx, e, request, currentMaxContentLength, false);
+				return;
+			}
+			content.writeBytes(chunk.getContent());
+			if (chunk.isLast()) {
+				currentRequest = null;
+				if (chunk instanceof HttpChunkTrailer) {
+					for (final Entry<String, String> header : ((HttpChunkTrailer) chunk).trailingHeaders()) {
+						request.headers().set(header.getKey(), header.getValue());
+					}
+				}
+				request.headers().set(HttpHeaders.Names.CONTENT_LENGTH, String.valueOf(content.readableBytes()));
+				Channels.fireMessageReceived(ctx, request, e.getRemoteAddress());
+			}
+		} else {
+			ctx.sendUpstream(e);
+		}
+	}
+
+	/**
+	 * @param request
+	 * @return maximum content length of the route of specified request, or
+	 *         default one.
+	 */
+	private int maxContentLengthFor(final HttpRequest request) {
+		final Action action = RoutedHttpRequest.actionOf(request, routeResolver);
+		if ((action != null) && (action.resolvedRoute().maxContentLength() > 0)) {
+			return action.resolvedRoute().maxContentLength();
+		}
+		return maxContentLength;
+	}
+
+	private static void reject(final ChannelHandlerContext ctx, final MessageEvent e, final HttpRequest request, final int limit, final boolean awaitingContinue) {
+		final RequestEntityTooLargeException cause = new RequestEntityTooLargeException("Request content exceeds " + limit + " bytes");
+		Channels.fireMessageReceived(ctx, new RejectedHttpRequest(request, cause, awaitingContinue), e.getRemoteAddress());
+	}
+}
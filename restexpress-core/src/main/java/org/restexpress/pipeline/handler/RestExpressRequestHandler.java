@@ -26,6 +26,7 @@ import org.jboss.netty.channel.ChannelHandler.Sharable;
 import org.jboss.netty.channel.ChannelHandlerContext;
 import org.jboss.netty.channel.MessageEvent;
 import org.jboss.netty.handler.codec.http.HttpRequest;
+import org.restexpress.Flags;
 import org.restexpress.HttpSpecification;
 import org.restexpress.Request;
 import org.restexpress.Response;
@@ -34,6 +35,9 @@ import org.restexpress.pipeline.MessageContext;
 import org.restexpress.pipeline.MessageObserver;
 import org.restexpress.pipeline.Postprocessor;
 import org.restexpress.pipeline.Preprocessor;
+import org.restexpress.pipeline.RequestCoalescer;
+import org.restexpress.pipeline.ResponseCache;
+import org.restexpress.response.ContentSizeEstimator;
 import org.restexpress.response.ResponseProcessorManager;
 import org.restexpress.response.ResponseProcessorSetting;
 import org.restexpress.response.SerializationProvider;
@@ -74,7 +78,30 @@ public final class RestExpressRequestHandler extends AbstractRequestHandler {
 			final HttpResponseWriter responseWriter, final boolean shouldEnforceHttpSpec, //
 			final MessageObserver observer, final RouteResolver routeResolver, //
 			final ResponseProcessorManager responseProcessorManager) {
-		super(preprocessors, postprocessors, finallyProcessors, responseWriter, shouldEnforceHttpSpec, observer);
+		this(preprocessors, postprocessors, finallyProcessors, responseWriter, shouldEnforceHttpSpec, observer, routeResolver, responseProcessorManager, null, null);
+	}
+
+	/**
+	 * Build a new instance of {@link RestExpressRequestHandler}.
+	 * 
+	 * @param preprocessors
+	 * @param postprocessors
+	 * @param finallyProcessors
+	 * @param responseWriter
+	 * @param shouldEnforceHttpSpec
+	 * @param observer
+	 * @param routeResolver
+	 * @param responseProcessorManager
+	 * @param responseCache
+	 *            {@link ResponseCache} instance, null if none
+	 * @param requestCoalescer
+	 *            {@link RequestCoalescer} instance, null if none
+	 */
+	public RestExpressRequestHandler(List<Preprocessor> preprocessors, List<Postprocessor> postprocessors, List<Postprocessor> finallyProcessors, //
+			final HttpResponseWriter responseWriter, final boolean shouldEnforceHttpSpec, //
+			final MessageObserver observer, final RouteResolver routeResolver, //
+			final ResponseProcessorManager responseProcessorManager, final ResponseCache responseCache, final RequestCoalescer requestCoalescer) {
+		super(preprocessors, postprocessors, finallyProcessors, responseWriter, shouldEnforceHttpSpec, observer, responseCache, requestCoalescer);
 		this.routeResolver = Preconditions.checkNotNull(routeResolver);
 		this.responseProcessorManager = Preconditions.checkNotNull(responseProcessorManager);
 	}
@@ -134,7 +161,13 @@ public final class RestExpressRequestHandler extends AbstractRequestHandler {
 			}
 			// process serialization if one was found
 			if (settings != null) {
-				settings.serialize(response);
+				// streamed content is serialized by response writer
+				if (!force && context.hasAction() && context.getAction().resolvedRoute().isFlagged(Flags.STREAMING_DOWNLOAD) && settings.stream(response)) {
+					return;
+				}
+				// size buffer from route history, error content does not count
+				final ContentSizeEstimator estimator = context.hasAction() && !response.hasException() ? context.getAction().resolvedRoute().contentSizeEstimator() : null;
+				settings.serialize(response, estimator);
 			}
 		}
 	}
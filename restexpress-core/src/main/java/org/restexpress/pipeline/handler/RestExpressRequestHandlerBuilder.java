@@ -27,6 +27,8 @@ import org.restexpress.pipeline.HttpResponseWriter;
 import org.restexpress.pipeline.MessageObserver;
 import org.restexpress.pipeline.Postprocessor;
 import org.restexpress.pipeline.Preprocessor;
+import org.restexpress.pipeline.RequestCoalescer;
+import org.restexpress.pipeline.ResponseCache;
 import org.restexpress.pipeline.writer.DefaultHttpResponseWriter;
 import org.restexpress.response.ResponseProcessorManager;
 import org.restexpress.response.ResponseWrapper;
@@ -58,6 +60,10 @@ public final class RestExpressRequestHandlerBuilder {
 
 	private ResponseProcessorManager responseProcessorManager;
 
+	private ResponseCache responseCache;
+
+	private RequestCoalescer requestCoalescer;
+
 	private RestExpressRequestHandlerBuilder() {
 		super();
 	}
@@ -106,7 +112,9 @@ public final class RestExpressRequestHandlerBuilder {
 				shouldEnforceHttpSpec, //
 				observer, //
 				routeResolver, //
-				responseProcessorManager);
+				responseProcessorManager, //
+				responseCache, //
+				requestCoalescer);
 	}
 
 	@VisibleForTesting
@@ -210,4 +218,14 @@ public final class RestExpressRequestHandlerBuilder {
 		return this;
 	}
 
+	public RestExpressRequestHandlerBuilder setResponseCache(ResponseCache responseCache) {
+		this.responseCache = responseCache;
+		return this;
+	}
+
+	public RestExpressRequestHandlerBuilder setRequestCoalescer(RequestCoalescer requestCoalescer) {
+		this.requestCoalescer = requestCoalescer;
+		return this;
+	}
+
 }
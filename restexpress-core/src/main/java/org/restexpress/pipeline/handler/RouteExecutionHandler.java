@@ -0,0 +1,202 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.pipeline.handler;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.jboss.netty.channel.ChannelEvent;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.UpstreamMessageEvent;
+import org.jboss.netty.handler.codec.http.HttpRequest;
+import org.jboss.netty.handler.execution.ChannelUpstreamEventRunnable;
+import org.jboss.netty.handler.execution.ExecutionHandler;
+import org.jboss.netty.util.internal.ExecutorUtil;
+import org.restexpress.Flags;
+import org.restexpress.http.ServiceUnavailableException;
+import org.restexpress.route.Action;
+import org.restexpress.route.Route;
+import org.restexpress.route.trie.TrieRouteResolver;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+
+/**
+ * {@link RouteExecutionHandler} is an {@link ExecutionHandler} which dispatch
+ * each request once its route is resolved:
+ * <ul>
+ * <li>routes flagged with {@link Flags#INLINE_EXECUTION} are processed on the
+ * I/O thread,</li>
+ * <li>routes declared with
+ * {@link org.restexpress.route.RouteBuilder#executor(String)} are processed by
+ * their named executor,</li>
+ * <li>other requests and channel events are processed by the default
+ * executor.</li>
+ * </ul>
+ * A request rejected by a saturated named executor is processed by the
+ * default executor if its
+ * {@link org.restexpress.settings.RejectionPolicy#DEFAULT_EXECUTOR} policy
+ * allows it, or else sent upstream on the I/O thread as a
+ * {@link RejectedHttpRequest} with a {@link ServiceUnavailableException}
+ * (503), like any other {@link RejectedHttpRequest}.
+ * <p>
+ * Named executors did not preserve order between channel events: requests of
+ * a channel are ordered as long as the client waits for a response before
+ * sending the next one, which is the common case of HTTP keep-alive without
+ * pipelining.
+ * </p>
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public final class RouteExecutionHandler extends ExecutionHandler {
+
+	private final TrieRouteResolver routeResolver;
+	private final Map<String, Executor> executors;
+	private final Set<String> fallbacks;
+	private final Map<String, Executor> resumeExecutors;
+	private final Executor defaultResumeExecutor;
+
+	/**
+	 * Build a new instance of {@link RouteExecutionHandler}.
+	 * 
+	 * @param executor
+	 *            default {@link Executor}
+	 * @param routeResolver
+	 *            {@link TrieRouteResolver} used to find route of requests
+	 * @param executors
+	 *            named {@link Executor} of routes
+	 * @param fallbacks
+	 *            names of executors whose rejected requests are processed by
+	 *            the default executor
+	 * @throws NullPointerException
+	 *             if one of parameters is null
+	 */
+	public RouteExecutionHandler(final Executor executor, final TrieRouteResolver routeResolver, final Map<String, Executor> executors, final Set<String> fallbacks) throws NullPointerException {
+		super(executor);
+		this.routeResolver = Preconditions.checkNotNull(routeResolver);
+		this.executors = ImmutableMap.copyOf(executors);
+		this.fallbacks = ImmutableSet.copyOf(fallbacks);
+		this.defaultResumeExecutor = new ResumeExecutor(executor, null);
+		final Map<String, Executor> resumeExecutors = Maps.newHashMap();
+		for (final Map.Entry<String, Executor> entry : this.executors.entrySet()) {
+			resumeExecutors.put(entry.getKey(), new ResumeExecutor(entry.getValue(), defaultResumeExecutor));
+		}
+		this.resumeExecutors = ImmutableMap.copyOf(resumeExecutors);
+	}
+
+	/**
+	 * Executor of processing which resume a request of specified route, like
+	 * an asynchronous result: its named executor, so that its processing stay
+	 * inside its bulkhead, or the default one. A request which has been
+	 * accepted is never rejected there: resuming fall back to the default
+	 * executor when the named one is saturated, and to the calling thread once
+	 * executors are shut down, where it only drops the pending work of a
+	 * channel closed on shutdown.
+	 * 
+	 * @param route
+	 *            resolved {@link Route} of request, may be null
+	 * @return {@link Executor} instance.
+	 */
+	public Executor executorOf(final Route route) {
+		final Executor executor = ((route != null) && (route.executor() != null)) ? resumeExecutors.get(route.executor()) : null;
+		return (executor != null) ? executor : defaultResumeExecutor;
+	}
+
+	@Override
+	public void handleUpstream(final ChannelHandlerContext ctx, final ChannelEvent e) throws Exception {
+		if ((e instanceof MessageEvent) && (((MessageEvent) e).getMessage() instanceof RejectedHttpRequest)) {
+			// responding with an error is cheap, and must not wait for a busy executor
+			ctx.sendUpstream(e);
+			return;
+		}
+		if ((e instanceof MessageEvent) && (((MessageEvent) e).getMessage() instanceof HttpRequest)) {
+			final HttpRequest request = (HttpRequest) ((MessageEvent) e).getMessage();
+			final Action action = RoutedHttpRequest.actionOf(request, routeResolver);
+			if (action != null) {
+				final Route route = action.resolvedRoute();
+				if (route.isFlagged(Flags.INLINE_EXECUTION)) {
+					ctx.sendUpstream(e);
+					return;
+				}
+				if (route.executor() != null) {
+					dispatch(ctx, (MessageEvent) e, request, route.executor());
+					return;
+				}
+			}
+		}
+		super.handleUpstream(ctx, e);
+	}
+
+	private void dispatch(final ChannelHandlerContext ctx, final MessageEvent e, final HttpRequest request, final String name) throws Exception {
+		final Executor executor = executors.get(name);
+		try {
+			executor.execute(new ChannelUpstreamEventRunnable(ctx, e, executor));
+		} catch (final RejectedExecutionException rejected) {
+			if (fallbacks.contains(name)) {
+				super.handleUpstream(ctx, e);
+				return;
+			}
+			final ServiceUnavailableException cause = new ServiceUnavailableException("Server is too busy to process request");
+			ctx.sendUpstream(new UpstreamMessageEvent(e.getChannel(), new RejectedHttpRequest(request, cause, false), e.getRemoteAddress()));
+		}
+	}
+
+	/**
+	 * Terminate default and named executors.
+	 */
+	@Override
+	public void releaseExternalResources() {
+		super.releaseExternalResources();
+		ExecutorUtil.terminate(executors.values().toArray(new Executor[executors.size()]));
+	}
+
+	/**
+	 * {@link ResumeExecutor} submit tasks to an executor, or to its fallback
+	 * when it is saturated. Without fallback, a rejected task is run by the
+	 * calling thread: the default executor only rejects tasks once shut down.
+	 */
+	private static final class ResumeExecutor implements Executor {
+		private final Executor executor;
+		private final Executor fallback;
+
+		ResumeExecutor(final Executor executor, final Executor fallback) {
+			this.executor = executor;
+			this.fallback = fallback;
+		}
+
+		@Override
+		public void execute(final Runnable command) {
+			try {
+				executor.execute(command);
+			} catch (final RejectedExecutionException e) {
+				if (fallback != null) {
+					fallback.execute(command);
+				} else {
+					command.run();
+				}
+			}
+		}
+	}
+}
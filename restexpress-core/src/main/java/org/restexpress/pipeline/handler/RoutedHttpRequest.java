@@ -0,0 +1,80 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.pipeline.handler;
+
+import org.jboss.netty.handler.codec.http.DefaultHttpRequest;
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.jboss.netty.handler.codec.http.HttpRequest;
+import org.jboss.netty.handler.codec.http.HttpVersion;
+import org.restexpress.route.Action;
+import org.restexpress.route.trie.TrieRouteResolver;
+
+/**
+ * {@link RoutedHttpRequest} is an {@link HttpRequest} which carries the
+ * {@link Action} resolved once, when its request line is decoded (see
+ * {@link RoutedHttpRequestDecoder}). Content aggregation, streaming upload,
+ * executor dispatch and request handler read it instead of resolving the route
+ * again.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public class RoutedHttpRequest extends DefaultHttpRequest {
+
+	private final Action action;
+
+	/**
+	 * Build a new instance of {@link RoutedHttpRequest}.
+	 * 
+	 * @param httpVersion
+	 *            {@link HttpVersion} of request
+	 * @param method
+	 *            {@link HttpMethod} of request
+	 * @param uri
+	 *            URI of request
+	 * @param action
+	 *            resolved {@link Action}, null if no route match
+	 */
+	public RoutedHttpRequest(final HttpVersion httpVersion, final HttpMethod method, final String uri, final Action action) {
+		super(httpVersion, method, uri);
+		this.action = action;
+	}
+
+	/**
+	 * @return resolved {@link Action}, null if no route match.
+	 */
+	public Action action() {
+		return action;
+	}
+
+	/**
+	 * @param request
+	 *            {@link HttpRequest}
+	 * @param routeResolver
+	 *            {@link TrieRouteResolver} used if request is not a
+	 *            {@link RoutedHttpRequest}, can be null
+	 * @return {@link Action} of specified request, null if none.
+	 */
+	public static Action actionOf(final HttpRequest request, final TrieRouteResolver routeResolver) {
+		if (request instanceof RoutedHttpRequest) {
+			return ((RoutedHttpRequest) request).action();
+		}
+		return routeResolver != null ? routeResolver.getActionFor(request.getMethod(), request.getUri()) : null;
+	}
+}
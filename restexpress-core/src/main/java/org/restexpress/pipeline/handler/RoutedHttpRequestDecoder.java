@@ -0,0 +1,59 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.pipeline.handler;
+
+import org.jboss.netty.handler.codec.http.HttpMessage;
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.jboss.netty.handler.codec.http.HttpRequestDecoder;
+import org.jboss.netty.handler.codec.http.HttpVersion;
+import org.restexpress.route.trie.TrieRouteResolver;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * {@link RoutedHttpRequestDecoder} is an {@link HttpRequestDecoder} which
+ * resolves the route of each request as soon as its request line is parsed,
+ * and decodes it as a {@link RoutedHttpRequest}.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public final class RoutedHttpRequestDecoder extends HttpRequestDecoder {
+
+	private final TrieRouteResolver routeResolver;
+
+	/**
+	 * Build a new instance of {@link RoutedHttpRequestDecoder}.
+	 * 
+	 * @param routeResolver
+	 *            {@link TrieRouteResolver} of requests
+	 * @throws NullPointerException
+	 *             if routeResolver is null
+	 */
+	public RoutedHttpRequestDecoder(final TrieRouteResolver routeResolver) throws NullPointerException {
+		super();
+		this.routeResolver = Preconditions.checkNotNull(routeResolver);
+	}
+
+	@Override
+	protected HttpMessage createMessage(final String[] initialLine) throws Exception {
+		final HttpMethod method = HttpMethod.valueOf(initialLine[0]);
+		return new RoutedHttpRequest(HttpVersion.valueOf(initialLine[2]), method, initialLine[1], routeResolver.getActionFor(method, initialLine[1]));
+	}
+}
@@ -0,0 +1,452 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.pipeline.handler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.handler.codec.http.HttpRequest;
+import org.jboss.netty.handler.codec.http.multipart.Attribute;
+import org.jboss.netty.handler.codec.http.multipart.DefaultHttpDataFactory;
+import org.jboss.netty.handler.codec.http.multipart.DiskAttribute;
+import org.jboss.netty.handler.codec.http.multipart.DiskFileUpload;
+import org.jboss.netty.handler.codec.http.multipart.FileUpload;
+import org.jboss.netty.handler.codec.http.multipart.HttpData;
+import org.jboss.netty.handler.codec.http.multipart.HttpDataFactory;
+import org.jboss.netty.handler.codec.http.multipart.InterfaceHttpData;
+import org.jboss.netty.handler.codec.http.multipart.MemoryAttribute;
+import org.jboss.netty.handler.codec.http.multipart.MemoryFileUpload;
+
+/**
+ * {@link SpillingHttpDataFactory} is the {@link HttpDataFactory} of streamed
+ * uploads. Like {@link DefaultHttpDataFactory} with a minimum size, a part is
+ * kept in memory until it grows above the spill threshold, then written to a
+ * temporary file.
+ * <p>
+ * Temporary files are deleted once the request is processed (see
+ * {@link org.restexpress.Request#releaseParts()}), so they are not registered
+ * with {@link File#deleteOnExit()}, which would retain their path until
+ * shutdown. This is done per part, without changing the global
+ * {@link DiskFileUpload#deleteOnExitTemporaryFile} and
+ * {@link DiskAttribute#deleteOnExitTemporaryFile} settings.
+ * </p>
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public final class SpillingHttpDataFactory implements HttpDataFactory {
+
+	private final long spillThreshold;
+	private long maxSize = -1;
+
+	/**
+	 * Parts of each request, deleted by {@link #cleanRequestHttpDatas(HttpRequest)}.
+	 */
+	private final ConcurrentMap<HttpRequest, List<HttpData>> requestHttpDatas = new ConcurrentHashMap<HttpRequest, List<HttpData>>();
+
+	/**
+	 * Build a new instance of {@link SpillingHttpDataFactory}.
+	 * 
+	 * @param spillThreshold
+	 *            size in bytes above which a part is written to disk
+	 */
+	public SpillingHttpDataFactory(final long spillThreshold) {
+		super();
+		this.spillThreshold = spillThreshold;
+	}
+
+	@Override
+	public void setMaxLimit(final long maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	@Override
+	public Attribute createAttribute(final HttpRequest request, final String name) {
+		final Attribute attribute = new SpillingAttribute(new MemoryAttribute(name), spillThreshold);
+		attribute.setMaxSize(maxSize);
+		register(request, attribute);
+		return attribute;
+	}
+
+	@Override
+	public Attribute createAttribute(final HttpRequest request, final String name, final String value) {
+		final Attribute attribute;
+		try {
+			attribute = new SpillingAttribute(value.length() > spillThreshold ? new TemporaryAttribute(name, value) : new MemoryAttribute(name, value), spillThreshold);
+		} catch (final IOException e) {
+			throw new IllegalArgumentException(e);
+		}
+		attribute.setMaxSize(maxSize);
+		checkSize(attribute);
+		register(request, attribute);
+		return attribute;
+	}
+
+	@Override
+	public FileUpload createFileUpload(final HttpRequest request, final String name, final String filename, final String contentType, final String contentTransferEncoding, final Charset charset, final long size) {
+		final FileUpload fileUpload = new SpillingFileUpload(size > spillThreshold ? //
+		new TemporaryFileUpload(name, filename, contentType, contentTransferEncoding, charset, size) : //
+				new MemoryFileUpload(name, filename, contentType, contentTransferEncoding, charset, size), spillThreshold, size);
+		fileUpload.setMaxSize(maxSize);
+		checkSize(fileUpload);
+		register(request, fileUpload);
+		return fileUpload;
+	}
+
+	@Override
+	public void removeHttpDataFromClean(final HttpRequest request, final InterfaceHttpData data) {
+		if (data instanceof HttpData) {
+			final List<HttpData> httpDatas = requestHttpDatas.get(request);
+			if (httpDatas != null) {
+				httpDatas.remove(data);
+			}
+		}
+	}
+
+	@Override
+	public void cleanRequestHttpDatas(final HttpRequest request) {
+		final List<HttpData> httpDatas = requestHttpDatas.remove(request);
+		if (httpDatas != null) {
+			for (final HttpData data : httpDatas) {
+				data.delete();
+			}
+		}
+	}
+
+	@Override
+	public void cleanAllHttpDatas() {
+		for (final HttpRequest request : requestHttpDatas.keySet()) {
+			cleanRequestHttpDatas(request);
+		}
+	}
+
+	private void register(final HttpRequest request, final HttpData data) {
+		List<HttpData> httpDatas = requestHttpDatas.get(request);
+		if (httpDatas == null) {
+			httpDatas = new ArrayList<HttpData>();
+			final List<HttpData> previous = requestHttpDatas.putIfAbsent(request, httpDatas);
+			if (previous != null) {
+				httpDatas = previous;
+			}
+		}
+		httpDatas.add(data);
+	}
+
+	private static void checkSize(final HttpData data) {
+		try {
+			data.checkSize(data.length());
+		} catch (final IOException e) {
+			throw new IllegalArgumentException("Attribute bigger than maxSize allowed");
+		}
+	}
+
+	/**
+	 * {@link SpillingHttpData} delegates to an in memory part, replaced by a
+	 * temporary file once its content grows above the spill threshold.
+	 * 
+	 * @param <T>
+	 *            type of part
+	 */
+	private static abstract class SpillingHttpData<T extends HttpData> implements HttpData {
+
+		protected T data;
+		private final long spillThreshold;
+		private long maxSize = -1;
+
+		protected SpillingHttpData(final T data, final long spillThreshold) {
+			super();
+			this.data = data;
+			this.spillThreshold = spillThreshold;
+		}
+
+		/**
+		 * @return a new temporary file part, with same name than current one.
+		 */
+		protected abstract T newTemporary();
+
+		private void spill(final boolean keepContent) throws IOException {
+			final T temporary = newTemporary();
+			temporary.setMaxSize(maxSize);
+			if (keepContent) {
+				final ChannelBuffer content = data.getChannelBuffer();
+				if (content != null) {
+					temporary.addContent(content, false);
+				}
+			}
+			data = temporary;
+		}
+
+		@Override
+		public void setMaxSize(final long maxSize) {
+			this.maxSize = maxSize;
+			data.setMaxSize(maxSize);
+		}
+
+		@Override
+		public void checkSize(final long newSize) throws IOException {
+			if ((maxSize >= 0) && (newSize > maxSize)) {
+				throw new IOException("Size exceed allowed maximum capacity");
+			}
+		}
+
+		@Override
+		public void addContent(final ChannelBuffer buffer, final boolean last) throws IOException {
+			if (data.isInMemory()) {
+				final long size = data.length() + buffer.readableBytes();
+				checkSize(size);
+				if (size > spillThreshold) {
+					spill(true);
+				}
+			}
+			data.addContent(buffer, last);
+		}
+
+		@Override
+		public void setContent(final ChannelBuffer buffer) throws IOException {
+			checkSize(buffer.readableBytes());
+			if (data.isInMemory() && (buffer.readableBytes() > spillThreshold)) {
+				spill(false);
+			}
+			data.setContent(buffer);
+		}
+
+		@Override
+		public void setContent(final File file) throws IOException {
+			checkSize(file.length());
+			if (data.isInMemory() && (file.length() > spillThreshold)) {
+				spill(false);
+			}
+			data.setContent(file);
+		}
+
+		@Override
+		public void setContent(final InputStream inputStream) throws IOException {
+			if (data.isInMemory()) {
+				spill(false);
+			}
+			data.setContent(inputStream);
+		}
+
+		@Override
+		public boolean isCompleted() {
+			return data.isCompleted();
+		}
+
+		@Override
+		public long length() {
+			return data.length();
+		}
+
+		@Override
+		public void delete() {
+			data.delete();
+		}
+
+		@Override
+		public byte[] get() throws IOException {
+			return data.get();
+		}
+
+		@Override
+		public ChannelBuffer getChannelBuffer() throws IOException {
+			return data.getChannelBuffer();
+		}
+
+		@Override
+		public ChannelBuffer getChunk(final int length) throws IOException {
+			return data.getChunk(length);
+		}
+
+		@Override
+		public String getString() throws IOException {
+			return data.getString();
+		}
+
+		@Override
+		public String getString(final Charset encoding) throws IOException {
+			return data.getString(encoding);
+		}
+
+		@Override
+		public void setCharset(final Charset charset) {
+			data.setCharset(charset);
+		}
+
+		@Override
+		public Charset getCharset() {
+			return data.getCharset();
+		}
+
+		@Override
+		public boolean renameTo(final File dest) throws IOException {
+			return data.renameTo(dest);
+		}
+
+		@Override
+		public boolean isInMemory() {
+			return data.isInMemory();
+		}
+
+		@Override
+		public File getFile() throws IOException {
+			return data.getFile();
+		}
+
+		@Override
+		public String getName() {
+			return data.getName();
+		}
+
+		@Override
+		public HttpDataType getHttpDataType() {
+			return data.getHttpDataType();
+		}
+
+		@Override
+		public int compareTo(final InterfaceHttpData other) {
+			return data.compareTo(other);
+		}
+
+		@Override
+		public String toString() {
+			return "Spilling: " + data;
+		}
+	}
+
+	/**
+	 * {@link SpillingAttribute} is an {@link Attribute} written to a temporary
+	 * file above the spill threshold.
+	 */
+	private static final class SpillingAttribute extends SpillingHttpData<Attribute> implements Attribute {
+
+		SpillingAttribute(final Attribute attribute, final long spillThreshold) {
+			super(attribute, spillThreshold);
+		}
+
+		@Override
+		protected Attribute newTemporary() {
+			return new TemporaryAttribute(data.getName());
+		}
+
+		@Override
+		public String getValue() throws IOException {
+			return data.getValue();
+		}
+
+		@Override
+		public void setValue(final String value) throws IOException {
+			if (value != null) {
+				checkSize(value.getBytes().length);
+			}
+			data.setValue(value);
+		}
+	}
+
+	/**
+	 * {@link SpillingFileUpload} is a {@link FileUpload} written to a
+	 * temporary file above the spill threshold.
+	 */
+	private static final class SpillingFileUpload extends SpillingHttpData<FileUpload> implements FileUpload {
+
+		private final long definedSize;
+
+		SpillingFileUpload(final FileUpload fileUpload, final long spillThreshold, final long definedSize) {
+			super(fileUpload, spillThreshold);
+			this.definedSize = definedSize;
+		}
+
+		@Override
+		protected FileUpload newTemporary() {
+			return new TemporaryFileUpload(data.getName(), data.getFilename(), data.getContentType(), data.getContentTransferEncoding(), data.getCharset(), definedSize);
+		}
+
+		@Override
+		public String getFilename() {
+			return data.getFilename();
+		}
+
+		@Override
+		public void setFilename(final String filename) {
+			data.setFilename(filename);
+		}
+
+		@Override
+		public void setContentType(final String contentType) {
+			data.setContentType(contentType);
+		}
+
+		@Override
+		public String getContentType() {
+			return data.getContentType();
+		}
+
+		@Override
+		public void setContentTransferEncoding(final String contentTransferEncoding) {
+			data.setContentTransferEncoding(contentTransferEncoding);
+		}
+
+		@Override
+		public String getContentTransferEncoding() {
+			return data.getContentTransferEncoding();
+		}
+	}
+
+	/**
+	 * {@link TemporaryAttribute} is a {@link DiskAttribute} whose file is not
+	 * registered with {@link File#deleteOnExit()}.
+	 */
+	private static final class TemporaryAttribute extends DiskAttribute {
+
+		TemporaryAttribute(final String name) {
+			super(name);
+		}
+
+		TemporaryAttribute(final String name, final String value) throws IOException {
+			super(name, value);
+		}
+
+		@Override
+		protected boolean deleteOnExit() {
+			return false;
+		}
+	}
+
+	/**
+	 * {@link TemporaryFileUpload} is a {@link DiskFileUpload} whose file is not
+	 * registered with {@link File#deleteOnExit()}.
+	 */
+	private static final class TemporaryFileUpload extends DiskFileUpload {
+
+		TemporaryFileUpload(final String name, final String filename, final String contentType, final String contentTransferEncoding, final Charset charset, final long size) {
+			super(name, filename, contentType, contentTransferEncoding, charset, size);
+		}
+
+		@Override
+		protected boolean deleteOnExit() {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,331 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.pipeline.handler;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+import org.jboss.netty.handler.codec.http.DefaultHttpResponse;
+import org.jboss.netty.handler.codec.http.HttpChunk;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
+import org.jboss.netty.handler.codec.http.HttpRequest;
+import org.jboss.netty.handler.codec.http.HttpResponseStatus;
+import org.jboss.netty.handler.codec.http.HttpVersion;
+import org.jboss.netty.handler.codec.http.multipart.HttpDataFactory;
+import org.jboss.netty.handler.codec.http.multipart.HttpPostRequestDecoder;
+import org.jboss.netty.handler.codec.http.multipart.HttpPostRequestDecoder.ErrorDataDecoderException;
+import org.jboss.netty.handler.execution.ExecutionHandler;
+import org.restexpress.Flags;
+import org.restexpress.http.BadRequestException;
+import org.restexpress.http.HttpRuntimeException;
+import org.restexpress.http.RequestEntityTooLargeException;
+import org.restexpress.route.Action;
+import org.restexpress.route.Route;
+import org.restexpress.route.trie.TrieRouteResolver;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.MoreExecutors;
+
+/**
+ * {@link StreamingUploadHandler} takes place before the
+ * {@link RequestContentAggregator}: a chunked multipart request to a route flagged
+ * with {@link Flags#STREAMING_MULTIPART_UPLOAD} is not aggregated in memory,
+ * but decoded chunk by chunk as it arrives with a {@link HttpPostRequestDecoder}
+ * which spill parts to temporary files above the threshold of its
+ * {@link HttpDataFactory}.
+ * <p>
+ * Once the last chunk is decoded, a {@link StreamingUploadRequest} is sent
+ * upstream in place of the request. Any other message goes through the
+ * aggregator, with its size limit. A malformed body, or a body larger than the
+ * route {@link Route#maxContentLength()} if set, is replaced by a
+ * {@link RejectedHttpRequest}.
+ * </p>
+ * <p>
+ * Chunks are decoded, and parts written to disk, by the executor of the route
+ * (see {@link RouteExecutionHandler#executorOf(Route)}) rather than on the
+ * I/O thread. Until they are, next messages of the channel are queued behind
+ * them so that order is preserved, and channel reads are suspended while too
+ * many are waiting.
+ * </p>
+ * <p>
+ * This handler is stateful: one instance per channel.
+ * </p>
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public final class StreamingUploadHandler extends SimpleChannelUpstreamHandler {
+
+	/**
+	 * Number of messages waiting for their decoding beyond which channel reads
+	 * are suspended.
+	 */
+	private static final int MAX_QUEUED_MESSAGES = 16;
+
+	private final TrieRouteResolver routeResolver;
+	private final HttpDataFactory dataFactory;
+
+	private HttpRequest request;
+	private HttpPostRequestDecoder decoder;
+	private int maxContentLength;
+	private long received;
+	private boolean discarding;
+	private Executor executor;
+
+	/**
+	 * Messages waiting for their decoding, guarded by itself.
+	 */
+	private final Queue<MessageEvent> queued = new ArrayDeque<MessageEvent>();
+	private boolean draining;
+	private boolean suspended;
+	private boolean closed;
+
+	/**
+	 * Build a new instance of {@link StreamingUploadHandler}.
+	 * 
+	 * @param routeResolver
+	 *            {@link TrieRouteResolver} used to find flagged routes
+	 * @param dataFactory
+	 *            {@link HttpDataFactory} of decoded parts
+	 */
+	public StreamingUploadHandler(final TrieRouteResolver routeResolver, final HttpDataFactory dataFactory) {
+		super();
+		this.routeResolver = Preconditions.checkNotNull(routeResolver);
+		this.dataFactory = Preconditions.checkNotNull(dataFactory);
+	}
+
+	@Override
+	public void messageReceived(final ChannelHandlerContext ctx, final MessageEvent e) throws Exception {
+		if (!enqueue(ctx, e)) {
+			handle(ctx, e);
+		}
+	}
+
+	@Override
+	public void channelClosed(final ChannelHandlerContext ctx, final ChannelStateEvent e) throws Exception {
+		final boolean release;
+		synchronized (queued) {
+			closed = true;
+			queued.clear();
+			// decoder is released by drain() otherwise
+			release = !draining;
+		}
+		if (release) {
+			// upload interrupted
+			release();
+		}
+		super.channelClosed(ctx, e);
+	}
+
+	/**
+	 * Queue specified message if an upload is being decoded, and start its
+	 * decoding by executor if needed.
+	 * 
+	 * @param ctx
+	 * @param e
+	 * @return true if message has been queued, false if it must be handled
+	 *         right now.
+	 */
+	private boolean enqueue(final ChannelHandlerContext ctx, final MessageEvent e) {
+		final boolean start;
+		synchronized (queued) {
+			if (!draining && (decoder == null)) {
+				return false;
+			}
+			queued.add(e);
+			if (!suspended && (queued.size() >= MAX_QUEUED_MESSAGES)) {
+				suspended = true;
+				ReadSuspension.suspend(ctx.getChannel());
+			}
+			start = !draining;
+			draining = true;
+		}
+		if (start) {
+			try {
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						drain(ctx);
+					}
+				});
+			} catch (final RejectedExecutionException rejected) {
+				// server is shutting down: decoder is released on close
+				synchronized (queued) {
+					queued.clear();
+					draining = false;
+				}
+				ctx.getChannel().close();
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Handle queued messages until none remains.
+	 * 
+	 * @param ctx
+	 */
+	private void drain(final ChannelHandlerContext ctx) {
+		for (;;) {
+			final MessageEvent e;
+			synchronized (queued) {
+				e = queued.poll();
+				if (suspended && (queued.size() <= (MAX_QUEUED_MESSAGES / 2))) {
+					suspended = false;
+					ReadSuspension.resume(ctx.getChannel());
+				}
+				if (e == null) {
+					draining = false;
+					if (closed) {
+						release();
+					}
+					return;
+				}
+			}
+			try {
+				handle(ctx, e);
+			} catch (final Exception cause) {
+				Channels.fireExceptionCaught(ctx, cause);
+			}
+		}
+	}
+
+	@SuppressWarnings("deprecation")
+	private void handle(final ChannelHandlerContext ctx, final MessageEvent e) throws Exception {
+		final Object message = e.getMessage();
+		if (discarding) {
+			// remaining chunks of a rejected upload
+			if (message instanceof HttpChunk) {
+				discarding = !((HttpChunk) message).isLast();
+				return;
+			}
+			discarding = false;
+		}
+		if (decoder == null) {
+			final Route route = (message instanceof HttpRequest) ? streamingUploadRoute((HttpRequest) message) : null;
+			if (route == null) {
+				ctx.sendUpstream(e);
+				return;
+			}
+			final HttpRequest httpRequest = (HttpRequest) message;
+			maxContentLength = route.maxContentLength();
+			if ((maxContentLength > 0) && (HttpHeaders.getContentLength(httpRequest, 0) > maxContentLength)) {
+				// rejected by aggregator
+				ctx.sendUpstream(e);
+				return;
+			}
+			try {
+				decoder = new HttpPostRequestDecoder(dataFactory, httpRequest);
+			} catch (final HttpPostRequestDecoder.IncompatibleDataDecoderException ex) {
+				ctx.sendUpstream(e);
+				return;
+			} catch (final ErrorDataDecoderException ex) {
+				reject(ctx, e, httpRequest, new BadRequestException(ex), HttpHeaders.is100ContinueExpected(httpRequest));
+				return;
+			}
+			request = httpRequest;
+			received = 0;
+			executor = executorOf(ctx, route);
+			if (HttpHeaders.is100ContinueExpected(request)) {
+				ctx.getChannel().write(new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.CONTINUE));
+			}
+			return;
+		}
+		final HttpChunk chunk = (HttpChunk) message;
+		received += chunk.getContent().readableBytes();
+		if ((maxContentLength > 0) && (received > maxContentLength)) {
+			final HttpRequest httpRequest = request;
+			release();
+			reject(ctx, e, httpRequest, new RequestEntityTooLargeException("Request content exceeds " + maxContentLength + " bytes"), false);
+			discarding = !chunk.isLast();
+			return;
+		}
+		try {
+			decoder.offer(chunk);
+		} catch (final ErrorDataDecoderException ex) {
+			final HttpRequest httpRequest = request;
+			release();
+			reject(ctx, e, httpRequest, new BadRequestException(ex), false);
+			discarding = !chunk.isLast();
+			return;
+		}
+		if (chunk.isLast()) {
+			final StreamingUploadRequest uploadRequest = new StreamingUploadRequest(request, decoder);
+			request = null;
+			decoder = null;
+			Channels.fireMessageReceived(ctx, uploadRequest, e.getRemoteAddress());
+		}
+	}
+
+	/**
+	 * @param httpRequest
+	 * @return the route flagged with {@link Flags#STREAMING_MULTIPART_UPLOAD}
+	 *         of a chunked multipart request, null otherwise.
+	 */
+	private Route streamingUploadRoute(final HttpRequest httpRequest) {
+		if (!httpRequest.isChunked()) {
+			return null;
+		}
+		try {
+			if (!HttpPostRequestDecoder.isMultipart(httpRequest)) {
+				return null;
+			}
+		} catch (final ErrorDataDecoderException e) {
+			return null;
+		}
+		final Action action = RoutedHttpRequest.actionOf(httpRequest, routeResolver);
+		return ((action != null) && action.resolvedRoute().isFlagged(Flags.STREAMING_MULTIPART_UPLOAD)) ? action.resolvedRoute() : null;
+	}
+
+	/**
+	 * @param ctx
+	 * @param route
+	 * @return {@link Executor} of specified route (see
+	 *         {@link RouteExecutionHandler#executorOf(Route)}), {@link Executor}
+	 *         of {@link ExecutionHandler} in pipeline, or a same thread
+	 *         {@link Executor}.
+	 */
+	private static Executor executorOf(final ChannelHandlerContext ctx, final Route route) {
+		final ExecutionHandler executionHandler = ctx.getPipeline().get(ExecutionHandler.class);
+		if (executionHandler instanceof RouteExecutionHandler) {
+			return ((RouteExecutionHandler) executionHandler).executorOf(route);
+		}
+		return (executionHandler != null) ? executionHandler.getExecutor() : MoreExecutors.sameThreadExecutor();
+	}
+
+	private void release() {
+		if (decoder != null) {
+			decoder.cleanFiles();
+			decoder = null;
+			request = null;
+		}
+	}
+
+	private void reject(final ChannelHandlerContext ctx, final MessageEvent e, final HttpRequest httpRequest, final HttpRuntimeException cause, final boolean awaitingContinue) {
+		discarding = true;
+		Channels.fireMessageReceived(ctx, new RejectedHttpRequest(httpRequest, cause, awaitingContinue), e.getRemoteAddress());
+	}
+}
@@ -0,0 +1,62 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.pipeline.handler;
+
+import org.jboss.netty.handler.codec.http.HttpHeaders;
+import org.jboss.netty.handler.codec.http.HttpRequest;
+import org.jboss.netty.handler.codec.http.multipart.HttpPostRequestDecoder;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * {@link StreamingUploadRequest} is the {@link HttpRequest} sent by
+ * {@link StreamingUploadHandler} once a multipart body is fully received: its
+ * content is empty, parts are held by a {@link HttpPostRequestDecoder}.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public final class StreamingUploadRequest extends RoutedHttpRequest {
+
+	private final HttpPostRequestDecoder decoder;
+
+	/**
+	 * Build a new instance of {@link StreamingUploadRequest}.
+	 * 
+	 * @param request
+	 *            received {@link HttpRequest}, headers are copied
+	 * @param decoder
+	 *            {@link HttpPostRequestDecoder} which decoded the body
+	 */
+	public StreamingUploadRequest(final HttpRequest request, final HttpPostRequestDecoder decoder) {
+		super(request.getProtocolVersion(), request.getMethod(), request.getUri(), actionOf(request, null));
+		this.decoder = Preconditions.checkNotNull(decoder);
+		headers().set(request.headers());
+		// body is consumed by decoder
+		headers().remove(HttpHeaders.Names.TRANSFER_ENCODING);
+		headers().remove(HttpHeaders.Names.CONTENT_LENGTH);
+	}
+
+	/**
+	 * @return {@link HttpPostRequestDecoder} which hold decoded parts.
+	 */
+	public HttpPostRequestDecoder decoder() {
+		return decoder;
+	}
+}
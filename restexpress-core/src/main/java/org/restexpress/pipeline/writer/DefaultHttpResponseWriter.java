@@ -21,25 +21,46 @@ package org.restexpress.pipeline.writer;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelFuture;
 import org.jboss.netty.channel.ChannelFutureListener;
 import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.DefaultFileRegion;
+import org.jboss.netty.channel.FileRegion;
+import org.jboss.netty.handler.codec.http.DefaultHttpChunk;
 import org.jboss.netty.handler.codec.http.DefaultHttpResponse;
+import org.jboss.netty.handler.codec.http.HttpChunk;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
 import org.jboss.netty.handler.codec.http.HttpResponse;
 import org.jboss.netty.handler.codec.http.HttpResponseStatus;
+import org.jboss.netty.handler.execution.ExecutionHandler;
+import org.jboss.netty.handler.ssl.SslHandler;
+import org.jboss.netty.handler.stream.ChunkedNioFile;
+import org.jboss.netty.util.CharsetUtil;
 import org.restexpress.HttpSpecification;
 import org.restexpress.Request;
 import org.restexpress.Response;
 import org.restexpress.domain.CharacterSet;
+import org.restexpress.http.ByteRange;
 import org.restexpress.http.HttpHeader;
 import org.restexpress.http.HttpRuntimeException;
 import org.restexpress.http.HttpStatus;
 import org.restexpress.pipeline.HttpResponseWriter;
+import org.restexpress.response.StreamingContent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.MoreExecutors;
 
 /**
  * {@link DefaultHttpResponseWriter} implements an {@link HttpResponseWriter}.
@@ -47,10 +68,20 @@ import org.restexpress.pipeline.HttpResponseWriter;
  * 
  * <ul>
  * <li>If response.getBody() return a {@link ChannelBuffer} then we used it</li>
- * <li>if response.getBody() return a {@link File} the we use a special code to
- * transfer it</li>
+ * <li>if response.getBody() return a {@link File} then we send it after
+ * response header, with its length as 'Content-Length': a zero copy
+ * {@link DefaultFileRegion} (<code>FileChannel.transferTo</code>) on plain
+ * channel, or a {@link ChunkedNioFile} when an {@link SslHandler} must encrypt
+ * content</li>
+ * <li>if response.getBody() return a {@link StreamingContent} then we send it
+ * in {@link HttpChunk}, serialized as the client read them</li>
  * <li>else we assume that object is a string</li>
  * </ul>
+ * A 'Range' request on a {@link ChannelBuffer} or {@link File} entity is
+ * answered with a 206 (Partial Content): a single range as a slice or a
+ * positioned file segment, several ranges as a 'multipart/byteranges' body. An
+ * 'If-Range' validator must match the 'ETag' or 'Last-Modified' header of the
+ * response, else the full representation is sent.
  * 
  * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
  * @author toddf
@@ -58,6 +89,25 @@ import org.restexpress.pipeline.HttpResponseWriter;
  */
 public final class DefaultHttpResponseWriter implements HttpResponseWriter {
 
+	/**
+	 * Size of chunk read from a file to send through an {@link SslHandler}.
+	 */
+	private static final int CHUNK_SIZE = 64 * 1024;
+
+	/**
+	 * Minimal size of a {@link HttpChunk} of a {@link StreamingContent}.
+	 */
+	private static final int STREAM_CHUNK_SIZE = 16 * 1024;
+
+	/**
+	 * Content type of a response with several ranges, boundary follows.
+	 */
+	private static final String MULTIPART_BYTERANGES = "multipart/byteranges; boundary=";
+
+	private static final String CRLF = "\r\n";
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(DefaultHttpResponseWriter.class);
+
 	/**
 	 * Build a new instance of {@link DefaultHttpResponseWriter}.
 	 */
@@ -67,12 +117,12 @@ public final class DefaultHttpResponseWriter implements HttpResponseWriter {
 
 	@Override
 	public void write(final ChannelHandlerContext ctx, final Request request, final Response response) {
-		final HttpResponse httpResponse = new DefaultHttpResponse(request.getHttpVersion(), HttpResponseStatus.valueOf(response.getStatus()));
-
-		// add all header
-		addHeaders(response, httpResponse);
 		// manage content
-		File resource = null;
+		RandomAccessFile resource = null;
+		ChannelBuffer content = null;
+		StreamingContent streaming = null;
+		List<ByteRange> ranges = null;
+		long length = 0;
 		try {
 			// set content
 			if (response.hasEntity() && HttpSpecification.isContentAllowed(response)) {
@@ -80,37 +130,336 @@ public final class DefaultHttpResponseWriter implements HttpResponseWriter {
 				// it.
 				Class<?> bodyClass = response.getEntity().getClass();
 				if (ChannelBuffer.class.isAssignableFrom(bodyClass)) {
-					// httpResponse.setContent(ChannelBuffers.wrappedBuffer((ChannelBuffer)
-					// response.getBody()));
-					httpResponse.setContent((ChannelBuffer) response.getEntity());
+					content = (ChannelBuffer) response.getEntity();
+					length = content.readableBytes();
+					ranges = byteRanges(request, response, length);
 				} else if (File.class.isAssignableFrom(bodyClass)) {
-					resource = (File) response.getEntity();
+					resource = new RandomAccessFile((File) response.getEntity(), "r");
+					length = resource.length();
+					ranges = byteRanges(request, response, length);
+				} else if (StreamingContent.class.isAssignableFrom(bodyClass)) {
+					streaming = (StreamingContent) response.getEntity();
 				} else { // response body is assumed to be a string
-					httpResponse.setContent(ChannelBuffers.copiedBuffer(response.getEntity().toString(), CharacterSet.UTF_8.getCharset()));
+					content = ChannelBuffers.copiedBuffer(response.getEntity().toString(), CharacterSet.UTF_8.getCharset());
 				}
+			} else if (response.getEntity() instanceof StreamingContent) {
+				// nothing to write (HEAD, 304...)
+				((StreamingContent) response.getEntity()).setWritten();
+			}
+
+			String boundary = null;
+			String contentType = null;
+			if (ranges != null && ranges.size() > 1) {
+				boundary = newBoundary();
+				contentType = response.getContentType();
+				response.setContentType(MULTIPART_BYTERANGES + boundary);
+			}
+
+			final HttpResponse httpResponse = new DefaultHttpResponse(request.getHttpVersion(), HttpResponseStatus.valueOf(response.getStatus()));
+			// add all header
+			addHeaders(response, httpResponse);
+
+			if (streaming != null) {
+				// length is unknown: chunked encoding, or end of content
+				// marked by connection close for HTTP 1.0
+				httpResponse.headers().remove(HttpHeader.CONTENT_LENGTH.toString());
+				if (!request.isHttpVersion1_0()) {
+					httpResponse.setChunked(true);
+					HttpHeaders.setTransferEncodingChunked(httpResponse);
+				}
+			} else if (ranges == null) {
+				// full representation
+				if (resource != null) {
+					httpResponse.headers().set(HttpHeader.CONTENT_LENGTH.toString(), String.valueOf(length));
+				} else if (content != null) {
+					httpResponse.setContent(content);
+				}
+			} else if (ranges.isEmpty()) {
+				// 416: nothing to send
+				closeQuietly(resource);
+				resource = null;
+				httpResponse.headers().set(HttpHeader.CONTENT_LENGTH.toString(), "0");
+			} else if (boundary == null) {
+				httpResponse.headers().set(HttpHeader.CONTENT_LENGTH.toString(), String.valueOf(ranges.get(0).getLength()));
+			} else {
+				httpResponse.headers().set(HttpHeader.CONTENT_LENGTH.toString(), String.valueOf(multipartLength(ranges, boundary, contentType, length)));
 			}
 
 			// find witch ChannelFutureListener to use
-			final ChannelFutureListener channelFutureListener = keepAlive(request, response, httpResponse);
+			final ChannelFutureListener channelFutureListener = keepAlive(request, response, httpResponse, streaming != null);
 
 			// write the content
-			writeContent(ctx, httpResponse, resource, channelFutureListener);
+			if (streaming != null) {
+				writeStream(ctx.getChannel(), ctx.getChannel().write(httpResponse), streaming, httpResponse.isChunked(), executorOf(ctx), channelFutureListener);
+			} else if (ranges == null || ranges.isEmpty()) {
+				writeContent(ctx, httpResponse, resource, channelFutureListener);
+			} else if (boundary == null) {
+				writeRange(ctx, httpResponse, resource, content, ranges.get(0), channelFutureListener);
+			} else {
+				writeRanges(ctx, httpResponse, resource, content, ranges, boundary, contentType, length, channelFutureListener);
+			}
 
 		} catch (FileNotFoundException e) {
 			throw new HttpRuntimeException(HttpStatus.NOT_FOUND, e);
+		} catch (IOException e) {
+			closeQuietly(resource);
+			throw new HttpRuntimeException(HttpStatus.INTERNAL_SERVER_ERROR, e);
 		}
 	}
 
-	private static void writeContent(final ChannelHandlerContext ctx, final HttpResponse httpResponse, final File resource, final ChannelFutureListener channelFutureListener) throws FileNotFoundException {
-		final ChannelFuture contentFuture;
-		if (resource == null) {
-			contentFuture = ctx.getChannel().write(httpResponse);
-			// add final listener
-			if (channelFutureListener != null)
-				contentFuture.addListener(channelFutureListener);
-		} else {
-			ChannelFuture writeFuture = ctx.getChannel().write(httpResponse);
-			writeFuture.addListener(new FileWritingChannelFutureListener(resource, channelFutureListener));
+	/**
+	 * Evaluate 'Range' and 'If-Range' request headers against a
+	 * {@link ChannelBuffer} or {@link File} representation of the specified
+	 * length, and update status and headers of response accordingly.
+	 * 
+	 * @return <code>null</code> if the full representation must be sent, an
+	 *         empty list if no range is satisfiable, else ranges to send.
+	 */
+	private static List<ByteRange> byteRanges(final Request request, final Response response, final long length) {
+		if (response.getStatus() != HttpStatus.OK.getStatusCode()) {
+			return null;
+		}
+		if (!response.hasHeader(HttpHeader.ACCEPT_RANGES)) {
+			response.addHeader(HttpHeader.ACCEPT_RANGES, ByteRange.BYTES_UNIT);
+		}
+		if (!request.isMethodGet() || !isRangeApplicable(request.getHeader(HttpHeader.IF_RANGE), response)) {
+			return null;
+		}
+		final List<ByteRange> ranges = ByteRange.parse(request.getHeader(HttpHeader.RANGE), length);
+		if (ranges != null) {
+			if (ranges.isEmpty()) {
+				response.setStatusInfo(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+				response.addHeader(HttpHeader.CONTENT_RANGE, ByteRange.asUnsatisfiedContentRange(length));
+			} else {
+				response.setStatusInfo(HttpStatus.PARTIAL_CONTENT);
+				if (ranges.size() == 1) {
+					response.addRangeHeader(ranges.get(0), length);
+				}
+			}
+		}
+		return ranges;
+	}
+
+	/**
+	 * 'If-Range' holds either an entity tag or a date: range is applicable only
+	 * if it matches exactly the strong 'ETag' or the 'Last-Modified' of the
+	 * response.
+	 */
+	private static boolean isRangeApplicable(final String ifRange, final Response response) {
+		if (ifRange == null) {
+			return true;
+		}
+		final String validator = ifRange.trim();
+		if (validator.startsWith("W/")) {
+			return false;
+		}
+		final String current = response.getHeader(validator.startsWith("\"") ? HttpHeader.ETAG : HttpHeader.LAST_MODIFIED);
+		return validator.equals(current);
+	}
+
+	private static void writeContent(final ChannelHandlerContext ctx, final HttpResponse httpResponse, final RandomAccessFile resource, final ChannelFutureListener channelFutureListener) throws IOException {
+		ChannelFuture contentFuture = ctx.getChannel().write(httpResponse);
+		if (resource != null) {
+			final long length = resource.length();
+			if (length == 0) {
+				closeQuietly(resource);
+			} else {
+				contentFuture = writeSegment(ctx, resource, 0, length, true);
+			}
+		}
+		// add final listener
+		if (channelFutureListener != null)
+			contentFuture.addListener(channelFutureListener);
+	}
+
+	private static void writeRange(final ChannelHandlerContext ctx, final HttpResponse httpResponse, final RandomAccessFile resource, final ChannelBuffer content, final ByteRange range, final ChannelFutureListener channelFutureListener) throws IOException {
+		ctx.getChannel().write(httpResponse);
+		final ChannelFuture contentFuture = resource != null ? writeSegment(ctx, resource, range.getStart(), range.getLength(), true) : ctx.getChannel().write(slice(content, range));
+		if (channelFutureListener != null)
+			contentFuture.addListener(channelFutureListener);
+	}
+
+	/**
+	 * Write a 'multipart/byteranges' body. File segments share the same file
+	 * channel, which is closed once the last part is sent.
+	 */
+	private static void writeRanges(final ChannelHandlerContext ctx, final HttpResponse httpResponse, final RandomAccessFile resource, final ChannelBuffer content, final List<ByteRange> ranges, final String boundary, final String contentType, final long length, final ChannelFutureListener channelFutureListener) throws IOException {
+		ctx.getChannel().write(httpResponse);
+		for (final ByteRange range : ranges) {
+			ctx.getChannel().write(ChannelBuffers.copiedBuffer(partHeader(boundary, contentType, range, length), CharsetUtil.US_ASCII));
+			if (resource != null) {
+				writeSegment(ctx, resource, range.getStart(), range.getLength(), false);
+			} else {
+				ctx.getChannel().write(slice(content, range));
+			}
+		}
+		final ChannelFuture contentFuture = ctx.getChannel().write(ChannelBuffers.copiedBuffer(partTrailer(boundary), CharsetUtil.US_ASCII));
+		if (resource != null) {
+			contentFuture.addListener(new ChannelFutureListener() {
+				@Override
+				public void operationComplete(final ChannelFuture future) throws Exception {
+					closeQuietly(resource);
+				}
+			});
+		}
+		if (channelFutureListener != null)
+			contentFuture.addListener(channelFutureListener);
+	}
+
+	/**
+	 * Write a segment of file: a zero copy {@link DefaultFileRegion} on plain
+	 * channel, or a {@link ChunkedNioFile} when an {@link SslHandler} must
+	 * encrypt content.
+	 * 
+	 * @param release
+	 *            if <code>true</code> file is closed once segment is sent
+	 */
+	private static ChannelFuture writeSegment(final ChannelHandlerContext ctx, final RandomAccessFile resource, final long position, final long count, final boolean release) throws IOException {
+		if (ctx.getPipeline().get(SslHandler.class) != null) {
+			// content must be encrypted: chunks read by ChunkedWriteHandler, which close file at end
+			final ChunkedNioFile chunkedFile = release ? new ChunkedNioFile(resource.getChannel(), position, count, CHUNK_SIZE) : new ChunkedNioFile(resource.getChannel(), position, count, CHUNK_SIZE) {
+				@Override
+				public void close() throws Exception {
+					// file is shared with next segments
+				}
+			};
+			return ctx.getChannel().write(chunkedFile);
+		}
+		final FileRegion region = new DefaultFileRegion(resource.getChannel(), position, count, release);
+		final ChannelFuture contentFuture = ctx.getChannel().write(region);
+		if (release) {
+			contentFuture.addListener(new ChannelFutureListener() {
+				@Override
+				public void operationComplete(final ChannelFuture future) throws Exception {
+					// on success, region is released after transfer
+					if (!future.isSuccess()) {
+						region.releaseExternalResources();
+					}
+				}
+			});
+		}
+		return contentFuture;
+	}
+
+	/**
+	 * Write serialized chunks of content while channel is writable. Once the
+	 * channel is saturated, writing resumes when the last write is complete, so
+	 * no more than a few chunks are held in memory whatever the size of
+	 * content. As write completion is notified on an I/O thread, writing
+	 * resumes on specified executor: elements may be slow to produce.
+	 * Content is notified written (see {@link StreamingContent#written()}) once
+	 * the last chunk is written, or writing is aborted.
+	 * 
+	 * @param channel
+	 *            {@link Channel}
+	 * @param previousFuture
+	 *            future of previous write
+	 * @param content
+	 *            {@link StreamingContent}
+	 * @param chunked
+	 *            if true write {@link HttpChunk}, else raw buffers
+	 * @param executor
+	 *            {@link Executor} which resumes writing
+	 * @param channelFutureListener
+	 *            final listener, can be null
+	 */
+	private static void writeStream(final Channel channel, final ChannelFuture previousFuture, final StreamingContent content, final boolean chunked, final Executor executor, final ChannelFutureListener channelFutureListener) {
+		ChannelFuture lastFuture = previousFuture;
+		try {
+			while (content.hasNext()) {
+				if (!channel.isConnected()) {
+					content.setWritten();
+					return;
+				}
+				final ChannelBuffer buffer = content.next(STREAM_CHUNK_SIZE);
+				lastFuture = channel.write(chunked ? new DefaultHttpChunk(buffer) : buffer);
+				if (!channel.isWritable() && content.hasNext()) {
+					lastFuture.addListener(new ChannelFutureListener() {
+						@Override
+						public void operationComplete(final ChannelFuture future) throws Exception {
+							if (!future.isSuccess()) {
+								content.setWritten();
+								return;
+							}
+							try {
+								executor.execute(new Runnable() {
+									@Override
+									public void run() {
+										writeStream(channel, future, content, chunked, executor, channelFutureListener);
+									}
+								});
+							} catch (final RejectedExecutionException e) {
+								content.setWritten();
+								channel.close();
+							}
+						}
+					});
+					return;
+				}
+			}
+		} catch (final RuntimeException e) {
+			// status is sent: abort response
+			LOGGER.error("streamed content failed after " + content.count() + " elements", e);
+			content.setWritten();
+			channel.close();
+			return;
+		}
+		final ChannelFuture contentFuture = chunked ? channel.write(HttpChunk.LAST_CHUNK) : lastFuture;
+		if (channelFutureListener != null)
+			contentFuture.addListener(channelFutureListener);
+		contentFuture.addListener(new ChannelFutureListener() {
+			@Override
+			public void operationComplete(final ChannelFuture future) throws Exception {
+				content.setWritten();
+			}
+		});
+	}
+
+	/**
+	 * @param ctx
+	 * @return {@link Executor} of {@link ExecutionHandler} in pipeline, or a
+	 *         same thread {@link Executor}.
+	 */
+	private static Executor executorOf(final ChannelHandlerContext ctx) {
+		final ExecutionHandler executionHandler = ctx.getPipeline().get(ExecutionHandler.class);
+		return (executionHandler != null) ? executionHandler.getExecutor() : MoreExecutors.sameThreadExecutor();
+	}
+
+	private static ChannelBuffer slice(final ChannelBuffer content, final ByteRange range) {
+		return content.slice(content.readerIndex() + (int) range.getStart(), (int) range.getLength());
+	}
+
+	private static String newBoundary() {
+		return Long.toHexString(ThreadLocalRandom.current().nextLong() | Long.MIN_VALUE);
+	}
+
+	private static String partHeader(final String boundary, final String contentType, final ByteRange range, final long length) {
+		final StringBuilder builder = new StringBuilder(128).append(CRLF).append("--").append(boundary).append(CRLF);
+		if (contentType != null) {
+			builder.append(HttpHeader.CONTENT_TYPE.toString()).append(": ").append(contentType).append(CRLF);
+		}
+		return builder.append(HttpHeader.CONTENT_RANGE.toString()).append(": ").append(range.asContentRange(length)).append(CRLF).append(CRLF).toString();
+	}
+
+	private static String partTrailer(final String boundary) {
+		return CRLF + "--" + boundary + "--" + CRLF;
+	}
+
+	private static long multipartLength(final List<ByteRange> ranges, final String boundary, final String contentType, final long length) {
+		long result = partTrailer(boundary).length();
+		for (final ByteRange range : ranges) {
+			result += partHeader(boundary, contentType, range, length).length() + range.getLength();
+		}
+		return result;
+	}
+
+	private static void closeQuietly(final RandomAccessFile resource) {
+		if (resource != null) {
+			try {
+				resource.close();
+			} catch (IOException e) {
+				// nothing to do
+			}
 		}
 	}
 
@@ -121,13 +470,15 @@ public final class DefaultHttpResponseWriter implements HttpResponseWriter {
 	 *            {@link Response}
 	 * @param httpResponse
 	 *            {@link HttpResponse}
+	 * @param streamed
+	 *            true if content length is unknown
 	 * @return instance of {@link ChannelFutureListener} to use.
 	 */
-	private static ChannelFutureListener keepAlive(final Request request, final Response response, final HttpResponse httpResponse) {
+	private static ChannelFutureListener keepAlive(final Request request, final Response response, final HttpResponse httpResponse, final boolean streamed) {
 		ChannelFutureListener channelFutureListener;
-		if (request.isKeepAlive()) {
+		if (request.isKeepAlive() && (!streamed || httpResponse.isChunked())) {
 			// Add 'Content-Length' header only for a keep-alive connection.
-			if (HttpSpecification.isContentLengthAllowed(response) && !httpResponse.headers().contains(HttpHeader.CONTENT_LENGTH.toString())) {
+			if (!streamed && HttpSpecification.isContentLengthAllowed(response) && !httpResponse.headers().contains(HttpHeader.CONTENT_LENGTH.toString())) {
 				httpResponse.headers().set(HttpHeader.CONTENT_LENGTH.toString(), String.valueOf(httpResponse.getContent().readableBytes()));
 			}
 			// Support "Connection: Keep-Alive" for HTTP 1.0 requests.
@@ -37,8 +37,14 @@ import com.google.common.io.Closeables;
 /**
  * {@link FileWritingChannelFutureListener} send a file with {@link HttpChunk}.
  * 
+ * @deprecated {@link DefaultHttpResponseWriter} send file with a zero copy
+ *             {@link org.jboss.netty.channel.FileRegion}, or a
+ *             {@link org.jboss.netty.handler.stream.ChunkedNioFile} on SSL
+ *             channel.
+ * 
  * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
  */
+@Deprecated
 public final class FileWritingChannelFutureListener implements ChannelFutureListener {
 
     private final static Logger LOGGER = LoggerFactory.getLogger(FileWritingChannelFutureListener.class);
@@ -21,13 +21,16 @@ package org.restexpress.plugin;
 
 import org.restexpress.RestExpress;
 import org.restexpress.processor.CacheHeaderPostprocessor;
+import org.restexpress.processor.ConditionalGetPreprocessor;
 import org.restexpress.processor.DateHeaderPostprocessor;
 import org.restexpress.processor.EtagHeaderPostprocessor;
 import org.restexpress.processor.LastModifiedHeaderPostprocessor;
 
 /**
  * {@link CacheControlPlugin} adds caching-related headers to GET and HEAD
- * responses.
+ * responses, and responds 304 (Not Modified) when 'If-None-Match' matches the
+ * ETag of serialized content, or before invoking the controller of routes
+ * declaring a {@link org.restexpress.route.VersionProvider}.
  * 
  * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
  * @author toddf
@@ -53,10 +56,13 @@ public class CacheControlPlugin extends AbstractPlugin {
 
 	@Override
 	public void initialize(RestExpress server) {
+		// conditional GET of versioned routes
+		server.addPreprocessor(new ConditionalGetPreprocessor());
 		server.addPostprocessor(new DateHeaderPostprocessor())//
 				.addPostprocessor(new CacheHeaderPostprocessor())//
-				.addPostprocessor(new EtagHeaderPostprocessor())//
-				.addPostprocessor(new LastModifiedHeaderPostprocessor());
+				.addPostprocessor(new LastModifiedHeaderPostprocessor())//
+				// ETag of serialized content
+				.addFinallyProcessor(new EtagHeaderPostprocessor());
 	}
 
 }
@@ -0,0 +1,218 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.plugin;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.restexpress.Flags;
+import org.restexpress.Parameters;
+import org.restexpress.Request;
+import org.restexpress.Response;
+import org.restexpress.RestExpress;
+import org.restexpress.cache.CacheKey;
+import org.restexpress.cache.CacheStore;
+import org.restexpress.cache.CachedResponse;
+import org.restexpress.cache.MemoryCacheStore;
+import org.restexpress.http.HttpDateTimeFormat;
+import org.restexpress.http.HttpHeader;
+import org.restexpress.http.HttpStatus;
+import org.restexpress.pipeline.MessageContext;
+import org.restexpress.pipeline.ResponseCache;
+import org.restexpress.route.Route;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * {@link ResponseCachePlugin} keeps serialized responses (status, headers and
+ * content) of GET requests on routes flagged with {@link Flags#CACHEABLE} in a
+ * server side {@link CacheStore}. A response found in cache is sent without
+ * invoking preprocessors, controller, postprocessors and serialization, with an
+ * 'Age' header.
+ * <p>
+ * Responses are keyed by route, path parameters, query parameters and
+ * negotiated media type (see {@link CacheKey}): they must not depend on the
+ * caller (authentication, cookies...). Only 200 (OK) responses without
+ * 'Set-Cookie' header are stored, for the time to live given by the
+ * {@link Parameters.Cache#MAX_AGE} attachment of request or parameter of
+ * route, in seconds, or else the default time to live of this plugin.
+ * </p>
+ * <p>
+ * To use: <code>server.register(new ResponseCachePlugin(64 * 1024 * 1024));</code>
+ * and flag cacheable routes: <code>server.uri("/items/{id}", controller).cacheable();</code>
+ * </p>
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public class ResponseCachePlugin extends AbstractPlugin implements ResponseCache {
+	/**
+	 * Request attachment holding the key computed on lookup.
+	 */
+	private static final String KEY_ATTACHMENT = "response.cache.key";
+
+	private final CacheStore store;
+
+	private int defaultTimeToLive = 60;
+
+	/**
+	 * Build a new instance of {@link ResponseCachePlugin} with a
+	 * {@link MemoryCacheStore}.
+	 * 
+	 * @param maximumWeight
+	 *            maximum total weight of responses, in bytes
+	 */
+	public ResponseCachePlugin(final long maximumWeight) {
+		this(new MemoryCacheStore(maximumWeight));
+	}
+
+	/**
+	 * Build a new instance of {@link ResponseCachePlugin}, with a
+	 * {@link MemoryCacheStore}, or a {@link org.restexpress.cache.MappedCacheStore}
+	 * to keep responses off heap and across restarts.
+	 * 
+	 * @param store
+	 *            {@link CacheStore} instance
+	 * @throws NullPointerException
+	 *             if store is null
+	 */
+	public ResponseCachePlugin(final CacheStore store) throws NullPointerException {
+		super();
+		this.store = Preconditions.checkNotNull(store);
+	}
+
+	/**
+	 * @param seconds
+	 *            time to live of responses of routes without
+	 *            {@link Parameters.Cache#MAX_AGE} parameter, 0 to not cache
+	 *            them.
+	 * @return this instance.
+	 * @throws IllegalArgumentException
+	 *             if seconds is negative
+	 */
+	public ResponseCachePlugin defaultTimeToLive(final int seconds) throws IllegalArgumentException {
+		Preconditions.checkArgument(seconds >= 0, "defaultTimeToLive must be positive");
+		this.defaultTimeToLive = seconds;
+		return this;
+	}
+
+	@Override
+	public void initialize(final RestExpress server) {
+		server.setResponseCache(this);
+	}
+
+	@Override
+	public void destroy(final RestExpress server) {
+		store.close();
+	}
+
+	/**
+	 * Remove all cached responses of named route.
+	 * 
+	 * @param routeName
+	 *            name of route (see
+	 *            {@link org.restexpress.route.RouteBuilder#name(String)})
+	 */
+	public void invalidate(final String routeName) {
+		store.invalidate(routeName);
+	}
+
+	/**
+	 * Remove all cached responses.
+	 */
+	public void invalidateAll() {
+		store.invalidateAll();
+	}
+
+	/**
+	 * @return underlying {@link CacheStore}.
+	 */
+	public CacheStore store() {
+		return store;
+	}
+
+	@Override
+	public boolean lookup(final MessageContext context) {
+		final Request request = context.getRequest();
+		if (!isCacheable(request))
+			return false;
+
+		final String key = CacheKey.of(context);
+		final CachedResponse cached = store.get(key);
+		if (cached == null) {
+			request.putAttachment(KEY_ATTACHMENT, key);
+			return false;
+		}
+
+		final Response response = context.getResponse();
+		response.setStatus(cached.status());
+		for (final Entry<String, List<String>> header : cached.headers().entrySet()) {
+			for (final String value : header.getValue()) {
+				response.addHeader(header.getKey(), value);
+			}
+		}
+		final long now = System.currentTimeMillis();
+		if (response.hasHeader(HttpHeader.DATE)) {
+			response.headers().remove(HttpHeader.DATE.toString());
+			response.addHeader(HttpHeader.DATE, HttpDateTimeFormat.RFC_1123.format(new Date(now)));
+		}
+		response.addHeader(HttpHeader.AGE, String.valueOf(Math.max(0, (now - cached.storedAt()) / 1000)));
+		response.setEntity(cached.content());
+		return true;
+	}
+
+	@Override
+	public void store(final MessageContext context) {
+		final Request request = context.getRequest();
+		final Object key = request.getAttachment(KEY_ATTACHMENT);
+		if (key == null)
+			return;
+
+		final Response response = context.getResponse();
+		if ((response.getStatus() != HttpStatus.OK.getStatusCode()) || response.hasException() || !(response.getEntity() instanceof ChannelBuffer)
+				|| response.hasHeader(HttpHeader.SET_COOKIE))
+			return;
+
+		final int timeToLive = timeToLive(request);
+		if (timeToLive <= 0)
+			return;
+
+		final long now = System.currentTimeMillis();
+		store.put((String) key, new CachedResponse(response.getStatus(), response.headers(), (ChannelBuffer) response.getEntity(), request.getResolvedRoute().getName(), now,
+				now + (timeToLive * 1000L)));
+	}
+
+	private static boolean isCacheable(final Request request) {
+		final Route route = request.getResolvedRoute();
+		return request.isMethodGet() && (route != null) && route.isFlagged(Flags.CACHEABLE);
+	}
+
+	/**
+	 * @return time to live of response of specified request, in seconds.
+	 */
+	private int timeToLive(final Request request) {
+		Object maxAge = request.getAttachment(Parameters.Cache.MAX_AGE);
+		if (maxAge == null) {
+			maxAge = request.getParameter(Parameters.Cache.MAX_AGE);
+		}
+		return (maxAge instanceof Number) ? ((Number) maxAge).intValue() : defaultTimeToLive;
+	}
+}
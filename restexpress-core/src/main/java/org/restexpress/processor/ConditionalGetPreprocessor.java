@@ -0,0 +1,108 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.processor;
+
+import java.text.ParseException;
+import java.util.Date;
+
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.restexpress.Request;
+import org.restexpress.Response;
+import org.restexpress.domain.TimeStamped;
+import org.restexpress.http.HttpDateTimeFormat;
+import org.restexpress.http.HttpHeader;
+import org.restexpress.http.HttpStatus;
+import org.restexpress.pipeline.MessageContext;
+import org.restexpress.pipeline.Preprocessor;
+import org.restexpress.route.Route;
+import org.restexpress.route.VersionProvider;
+
+/**
+ * {@link ConditionalGetPreprocessor} evaluates conditional GET and HEAD requests before the controller is invoked,
+ * with the {@link VersionProvider} of the resolved route (see
+ * {@link org.restexpress.route.RouteBuilder#versionedBy(VersionProvider)}):
+ * <ul>
+ * <li>a {@link Date} or a {@link TimeStamped} version adds a {@link HttpHeader#LAST_MODIFIED} header (kept by
+ * {@link LastModifiedHeaderPostprocessor}), compared with 'If-Modified-Since',</li>
+ * <li>any other version adds a weak {@link HttpHeader#ETAG} header (kept by {@link EtagHeaderPostprocessor}), compared
+ * with 'If-None-Match'.</li>
+ * </ul>
+ * When the resource is not modified, the response status is set to 304 (Not Modified) and the controller is not
+ * invoked.
+ * <p>
+ * This preprocessor is registered by {@link org.restexpress.plugin.CacheControlPlugin}.
+ * </p>
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public class ConditionalGetPreprocessor implements Preprocessor {
+
+    @Override
+    public void process(final MessageContext context) {
+        final Request request = context.getRequest();
+        if (!request.isMethodGet() && !HttpMethod.HEAD.equals(request.getHttpMethod()))
+            return;
+
+        final Route route = request.getResolvedRoute();
+        if ((route == null) || (route.versionProvider() == null))
+            return;
+
+        final Object version = route.versionProvider().versionOf(request);
+        if (version == null)
+            return;
+
+        final Response response = context.getResponse();
+        final boolean notModified;
+        if ((version instanceof Date) || (version instanceof TimeStamped)) {
+            final Date lastModified = (version instanceof Date) ? (Date) version : ((TimeStamped) version).updateAt();
+            response.addHeader(HttpHeader.LAST_MODIFIED, HttpDateTimeFormat.RFC_1123.format(lastModified));
+            // If-None-Match takes precedence over If-Modified-Since
+            notModified = notModifiedSince(request, lastModified);
+        } else {
+            final String etag = "W/\"" + version.toString().replace("\"", "") + "\"";
+            response.addHeader(HttpHeader.ETAG, etag);
+            notModified = EtagHeaderPostprocessor.matches(request.getHeader(HttpHeader.IF_NONE_MATCH), etag);
+        }
+
+        if (notModified) {
+            response.setStatusInfo(HttpStatus.NOT_MODIFIED);
+        }
+    }
+
+    /**
+     * @param request
+     *            {@link Request} instance
+     * @param lastModified
+     *            last modification time
+     * @return true if resource has not been modified since 'If-Modified-Since' request header, at second precision.
+     *         'If-Modified-Since' is ignored when 'If-None-Match' is present.
+     */
+    static boolean notModifiedSince(final Request request, final Date lastModified) {
+        final String ifModifiedSince = request.getHeader(HttpHeader.IF_MODIFIED_SINCE);
+        if ((ifModifiedSince == null) || (request.getHeader(HttpHeader.IF_NONE_MATCH) != null))
+            return false;
+        try {
+            return (lastModified.getTime() / 1000) <= (HttpDateTimeFormat.parseAny(ifModifiedSince).getTime() / 1000);
+        } catch (final ParseException e) {
+            // invalid date is ignored
+            return false;
+        }
+    }
+}
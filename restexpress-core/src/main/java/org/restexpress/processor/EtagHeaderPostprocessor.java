@@ -19,15 +19,39 @@
  */
 package org.restexpress.processor;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
 import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.restexpress.Flags;
 import org.restexpress.Request;
 import org.restexpress.Response;
+import org.restexpress.domain.CharacterSet;
 import org.restexpress.http.HttpHeader;
+import org.restexpress.http.HttpStatus;
 import org.restexpress.pipeline.MessageContext;
 import org.restexpress.pipeline.Postprocessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 
 /**
- * If the response body is non-null, adds an ETag header. ETag is computed from the body object's hash code .
+ * If the serialized response body is non-null, adds a strong ETag header, computed from a 128 bits murmur3 hash of the
+ * serialized bytes. When the request 'If-None-Match' header matches the ETag, the response is turned into a 304 (Not
+ * Modified) without content, before it is written.
+ * <p>
+ * This processor must be added as a finally processor (see
+ * {@link org.restexpress.RestExpress#addFinallyProcessor(Postprocessor)}), which run once the response is serialized.
+ * Entities which are not serialized bytes or text (files, streamed content...) have no computed ETag.
+ * </p>
+ * <p>
+ * Added as a postprocessor, it runs before serialization: the ETag is then computed from the entity hash code, like
+ * previous releases did, and a warning is logged once.
+ * </p>
  * 
  * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
  * @author toddf
@@ -35,6 +59,12 @@ import org.restexpress.pipeline.Postprocessor;
  */
 public class EtagHeaderPostprocessor implements Postprocessor {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(EtagHeaderPostprocessor.class);
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+    private static final int COPY_SIZE = 8192;
+
+    private final AtomicBoolean warned = new AtomicBoolean();
+
     @Override
     public void process(final MessageContext context) {
         final Request request = context.getRequest();
@@ -42,12 +72,91 @@ public class EtagHeaderPostprocessor implements Postprocessor {
         if (!request.isMethodGet() && !HttpMethod.HEAD.equals(request.getHttpMethod()))
             return;
 
-        if (!response.hasEntity())
+        if (response.getStatus() != HttpStatus.OK.getStatusCode())
             return;
 
         if (!response.hasHeader(HttpHeader.ETAG)) {
-            final Object body = response.getEntity();
-            response.addHeader(HttpHeader.ETAG, String.format("\"%d\"", body.hashCode()));
+            String etag = etagOf(response.getEntity());
+            if ((etag == null) && isSerializationPending(context)) {
+                if (warned.compareAndSet(false, true))
+                    LOGGER.warn("EtagHeaderPostprocessor runs before serialization, ETag is computed from entity hash code: add it as a finally processor");
+                etag = String.format("\"%d\"", response.getEntity().hashCode());
+            }
+            if (etag == null)
+                return;
+            response.addHeader(HttpHeader.ETAG, etag);
+        }
+
+        if (matches(request.getHeader(HttpHeader.IF_NONE_MATCH), response.getHeader(HttpHeader.ETAG))) {
+            response.setStatusInfo(HttpStatus.NOT_MODIFIED);
+            response.setEntity(null);
+            response.headers().remove(HttpHeaders.Names.CONTENT_TYPE);
+        }
+    }
+
+    /**
+     * @param entity
+     *            serialized entity
+     * @return a strong ETag of specified serialized entity, or null if entity is neither a {@link ChannelBuffer} nor a
+     *         {@link CharSequence}.
+     */
+    public static String etagOf(final Object entity) {
+        final Hasher hasher = HASH_FUNCTION.newHasher();
+        if (entity instanceof ChannelBuffer) {
+            final ChannelBuffer buffer = (ChannelBuffer) entity;
+            if (buffer.hasArray()) {
+                hasher.putBytes(buffer.array(), buffer.arrayOffset() + buffer.readerIndex(), buffer.readableBytes());
+            } else {
+                final byte[] copy = new byte[Math.min(COPY_SIZE, buffer.readableBytes())];
+                for (int index = buffer.readerIndex(); index < buffer.writerIndex(); index += copy.length) {
+                    final int length = Math.min(copy.length, buffer.writerIndex() - index);
+                    buffer.getBytes(index, copy, 0, length);
+                    hasher.putBytes(copy, 0, length);
+                }
+            }
+        } else if (entity instanceof CharSequence) {
+            hasher.putString((CharSequence) entity, CharacterSet.UTF_8.getCharset());
+        } else {
+            return null;
         }
+        return "\"" + hasher.hash().toString() + "\"";
+    }
+
+    /**
+     * @param context
+     * @return true if response entity has not been serialized yet, which is the case when this processor has been added
+     *         as a postprocessor.
+     */
+    private static boolean isSerializationPending(final MessageContext context) {
+        final Response response = context.getResponse();
+        if (!response.hasEntity() || !response.isSerialized() || (context.getResponseProcessorSetting() == null))
+            return false;
+        // streamed content is serialized by response writer
+        return !context.hasAction() || !context.getAction().resolvedRoute().isFlagged(Flags.STREAMING_DOWNLOAD);
+    }
+
+    /**
+     * Weak comparison of an 'If-None-Match' header value with an ETag.
+     * 
+     * @param ifNoneMatch
+     *            'If-None-Match' header value, list of entity tags or '*'
+     * @param etag
+     *            current ETag
+     * @return true if one of entity tags matches the ETag.
+     */
+    public static boolean matches(final String ifNoneMatch, final String etag) {
+        if ((ifNoneMatch == null) || (etag == null))
+            return false;
+        final String opaqueTag = opaqueTag(etag);
+        for (final String candidate : ifNoneMatch.split(",")) {
+            final String tag = candidate.trim();
+            if ("*".equals(tag) || opaqueTag.equals(opaqueTag(tag)))
+                return true;
+        }
+        return false;
+    }
+
+    private static String opaqueTag(final String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
     }
 }
@@ -19,17 +19,21 @@
  */
 package org.restexpress.processor;
 
+import java.util.Date;
+
 import org.jboss.netty.handler.codec.http.HttpMethod;
 import org.restexpress.Response;
 import org.restexpress.domain.TimeStamped;
 import org.restexpress.http.HttpDateTimeFormat;
 import org.restexpress.http.HttpHeader;
+import org.restexpress.http.HttpStatus;
 import org.restexpress.pipeline.MessageContext;
 import org.restexpress.pipeline.Postprocessor;
 
 /**
  * {@link LastModifiedHeaderPostprocessor} add header {@link ResponseHeader#LAST_MODIFIED} for {@link HttpMethod#GET} if not present.
- * Time come from {@link Response#getEntity()} if the {@link Object} implement {@link TimeStamped}.
+ * Time come from {@link Response#getEntity()} if the {@link Object} implement {@link TimeStamped}. When the entity has not
+ * been modified since request 'If-Modified-Since' header, the response is turned into a 304 (Not Modified) without content.
  * 
  * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
  */
@@ -46,8 +50,14 @@ public class LastModifiedHeaderPostprocessor implements Postprocessor {
         if (!response.hasHeader(HttpHeader.LAST_MODIFIED)) {
             Object body = response.getEntity();
             if (TimeStamped.class.isAssignableFrom(body.getClass())) {
-                response.addHeader(HttpHeader.LAST_MODIFIED,
-                        HttpDateTimeFormat.RFC_1123.format(((TimeStamped) body).updateAt()));
+                Date lastModified = ((TimeStamped) body).updateAt();
+                response.addHeader(HttpHeader.LAST_MODIFIED, HttpDateTimeFormat.RFC_1123.format(lastModified));
+                // avoid serialization of an unmodified entity
+                if ((response.getStatus() == HttpStatus.OK.getStatusCode())
+                        && ConditionalGetPreprocessor.notModifiedSince(context.getRequest(), lastModified)) {
+                    response.setStatusInfo(HttpStatus.NOT_MODIFIED);
+                    response.setEntity(null);
+                }
             }
         }
 
@@ -107,8 +107,8 @@ public enum JaxRsReader {
 					builder = routes.get(actionPath);
 				}
 				// create invoker
-				Invoker invoker = Invokers.newInvoker(restExpress.paramConverterProvider(), controller, method);
 				method.setAccessible(true);
+				Invoker invoker = Invokers.newInvoker(restExpress.paramConverterProvider(), controller, method);
 				// add HTTP method
 				for (HttpMethod httpMethod : httpMethods) {
 					builder.action(invoker, httpMethod);
@@ -0,0 +1,92 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.response;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+
+/**
+ * {@link ContentSizeEstimator} keeps a running estimate of serialized response
+ * size (an exponential moving average over about the last eight responses),
+ * in order to allocate a {@link ChannelBuffer} which can hold the whole
+ * content without being grown, and copied, while serializing.
+ * <p>
+ * Updates are not synchronized: a lost update only makes the estimate a
+ * little less accurate.
+ * </p>
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public final class ContentSizeEstimator {
+
+	/**
+	 * Minimal capacity, same as {@link ChannelBuffers#dynamicBuffer()}.
+	 */
+	public static final int MIN_CAPACITY = 256;
+
+	/**
+	 * Maximal initial capacity: larger content will be grown.
+	 */
+	public static final int MAX_CAPACITY = 4 * 1024 * 1024;
+
+	/**
+	 * Moving average of content size.
+	 */
+	private volatile int average;
+
+	/**
+	 * Build a new instance of {@link ContentSizeEstimator}.
+	 */
+	public ContentSizeEstimator() {
+		super();
+	}
+
+	/**
+	 * @return capacity to allocate for next content: average size plus an
+	 *         eighth, between {@link #MIN_CAPACITY} and {@link #MAX_CAPACITY}.
+	 */
+	public int estimate() {
+		final int size = average;
+		return Math.max(MIN_CAPACITY, Math.min(MAX_CAPACITY, size + (size >>> 3)));
+	}
+
+	/**
+	 * Record size of a serialized content.
+	 * 
+	 * @param size
+	 *            content size in bytes
+	 */
+	public void record(final int size) {
+		final int current = average;
+		average = current == 0 ? size : current + ((size - current) >> 3);
+	}
+
+	/**
+	 * @return a new dynamic {@link ChannelBuffer} with estimated capacity.
+	 */
+	public ChannelBuffer newBuffer() {
+		return ChannelBuffers.dynamicBuffer(estimate());
+	}
+
+	@Override
+	public String toString() {
+		return "ContentSizeEstimator [average=" + average + "]";
+	}
+}
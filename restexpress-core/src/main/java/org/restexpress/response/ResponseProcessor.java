@@ -92,9 +92,24 @@ public final class ResponseProcessor implements Serializer {
 	 */
 	@Override
 	public void serialize(final Response response) throws SerializationException {
+		serialize(response, null);
+	}
+
+	/**
+	 * Serialize response body if response is serialized, into a buffer sized
+	 * from estimator.
+	 * 
+	 * @see org.restexpress.response.Serializer#serialize(org.restexpress.Response,
+	 *      org.restexpress.response.ContentSizeEstimator)
+	 */
+	@Override
+	public void serialize(final Response response, final ContentSizeEstimator estimator) throws SerializationException {
 		if (response.isSerialized()) {
-			ChannelBuffer content = ChannelBuffers.dynamicBuffer();
+			final ChannelBuffer content = estimator != null ? estimator.newBuffer() : ChannelBuffers.dynamicBuffer();
 			processor.write(response.getEntity(), content);
+			if (estimator != null) {
+				estimator.record(content.readableBytes());
+			}
 			response.setEntity(content);
 		}
 	}
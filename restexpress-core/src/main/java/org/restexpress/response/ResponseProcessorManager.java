@@ -37,14 +37,35 @@ import org.restexpress.http.BadRequestException;
 import org.restexpress.http.NotAcceptableException;
 import org.restexpress.serialization.Processor;
 
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
 /**
  * ResponseProcessorManager manager {@link ResponseProcessor}. This class implements a {@link SerializationProvider} and a
  * {@link ResponseProcessorSettingResolver}.
+ * <p>
+ * Content negotiation results are cached: clients send a handful of distinct <code>Accept</code>, <code>Content-Type</code> and
+ * format values over and over, so each raw value is parsed and matched once, then mapped to a shared immutable
+ * {@link ResponseProcessorSetting}. Both caches are bounded (see {@link #DEFAULT_NEGOTIATION_CACHE_SIZE}) and are cleared each
+ * time a {@link Processor} is added. Hit and miss counters are available with {@link #negotiationCacheStats()}.
+ * </p>
  * 
  * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
  */
 public class ResponseProcessorManager implements ResponseProcessorSettingResolver, SerializationProvider {
 
+    /**
+     * Default maximum number of entries of each negotiation cache.
+     */
+    public static final int DEFAULT_NEGOTIATION_CACHE_SIZE = 256;
+
+    /**
+     * Marker of a value which match none of our supported media ranges (caches cannot hold null).
+     */
+    private static final ResponseProcessorSetting NO_MATCH = new ResponseProcessorSetting(null, null);
+
     /**
      * {@link List} of {@link MediaRange}.
      */
@@ -60,50 +81,67 @@ public class ResponseProcessorManager implements ResponseProcessorSettingResolve
      */
     private ResponseProcessor defaultResponseProcessor;
 
+    /**
+     * Shared {@link ResponseProcessorSetting} of default {@link ResponseProcessor}.
+     */
+    private ResponseProcessorSetting defaultSetting;
+
     /**
      * A {@link Map} of extension and list of {@link MediaRange} used to resolve format.
      */
     private final Map<String, List<MediaRange>> mediaTypePerFormat;
 
+    /**
+     * Resolved {@link ResponseProcessorSetting} per raw <code>Accept</code> or <code>Content-Type</code> value.
+     */
+    private final Cache<String, ResponseProcessorSetting> settingsByMediaType;
+
+    /**
+     * Resolved {@link ResponseProcessorSetting} per format.
+     */
+    private final Cache<String, ResponseProcessorSetting> settingsByFormat;
+
     /**
      * Build a new instance of ResponseProcessorManager.
      */
     public ResponseProcessorManager() {
+        this(DEFAULT_NEGOTIATION_CACHE_SIZE);
+    }
+
+    /**
+     * Build a new instance of ResponseProcessorManager.
+     * 
+     * @param negotiationCacheSize maximum number of entries of each negotiation cache (0 disable caching)
+     * @throws IllegalArgumentException if negotiationCacheSize is negative
+     */
+    public ResponseProcessorManager(final int negotiationCacheSize) throws IllegalArgumentException {
         super();
+        Preconditions.checkArgument(negotiationCacheSize >= 0, "negotiationCacheSize must be positive");
         mediaTypePerFormat = new HashMap<>();
         // compute media range
         for (Entry<String, String> entry : Format.asMap().entrySet()) {
             mediaTypePerFormat.put(entry.getKey(), MediaRanges.parse(entry.getValue()));
         }
+        settingsByMediaType = CacheBuilder.newBuilder().maximumSize(negotiationCacheSize).recordStats().build();
+        settingsByFormat = CacheBuilder.newBuilder().maximumSize(negotiationCacheSize).recordStats().build();
     }
 
     @Override
     public ResponseProcessorSetting resolve(final Request request) {
-        ResponseProcessor responseProcessor = null;
         final String format = request.getFormat();
         if (format != null) {
-            responseProcessor = getProcessorsByFormat(format);
-            if (responseProcessor == null) {
+            final ResponseProcessorSetting setting = resolveFormat(format);
+            if (setting == NO_MATCH) {
                 throw new BadRequestException(format);
             }
+            return setting;
         }
-        if (responseProcessor == null) {
-            final List<MediaRange> requestedMediaRanges = MediaRanges.parse(request.getHeader(HttpHeaders.Names.CONTENT_TYPE));
-            final String bestMatch = MediaRanges.getBestMatch(supportedMediaRanges, requestedMediaRanges);
-            if (bestMatch != null) {
-                responseProcessor = processorsByMediaType.get(bestMatch);
-            }
-        }
-        if (responseProcessor == null) {
-            responseProcessor = defaultResponseProcessor;
-        }
-        return new ResponseProcessorSetting(request.getHeader(HttpHeaders.Names.CONTENT_TYPE), responseProcessor);
+        final ResponseProcessorSetting setting = resolveMediaType(request.getHeader(HttpHeaders.Names.CONTENT_TYPE));
+        return setting != NO_MATCH ? setting : defaultSetting;
     }
 
     @Override
     public ResponseProcessorSetting resolve(final Request request, final Response response, final boolean shouldForce) {
-        String bestMatch = null;
-        ResponseProcessor processor = null;
         String format = request.getFormat();
         // if we have no header format and exception, try to find format
         if ((format == null) && response.hasException()) {
@@ -112,28 +150,68 @@ public class ResponseProcessorManager implements ResponseProcessorSettingResolve
         }
         // if format is set, lookup for associated ResponseProcessor
         if (format != null) {
-            processor = getProcessorsByFormat(format);
-            if (processor != null) {
-                bestMatch = processor.processor().mediaType();
+            final ResponseProcessorSetting setting = resolveFormat(format);
+            if (setting != NO_MATCH) {
+                return setting;
             } else if (!shouldForce) {
                 throw new BadRequestException("Requested representation format not supported: " + format + ". Supported Media Types: "
                 		+ Exceptions.join(", ", supportedMediaRanges));
             }
         }
-        if (processor == null) {
-            final List<MediaRange> requestedMediaRanges = MediaRanges.parse(request.getHeader(HttpHeaders.Names.ACCEPT));
-            bestMatch = MediaRanges.getBestMatch(supportedMediaRanges, requestedMediaRanges);
-            if (bestMatch != null) {
-                processor = processorsByMediaType.get(bestMatch);
-            } else if (!shouldForce && !requestedMediaRanges.isEmpty()) {
-                throw new NotAcceptableException("Supported Media Types: " + Exceptions.join(", ", supportedMediaRanges));
-            }
+        final ResponseProcessorSetting setting = resolveMediaType(request.getHeader(HttpHeaders.Names.ACCEPT));
+        if (setting != NO_MATCH) {
+            return setting;
+        } else if (!shouldForce) {
+            throw new NotAcceptableException("Supported Media Types: " + Exceptions.join(", ", supportedMediaRanges));
         }
-        if (processor == null) {
-            processor = defaultResponseProcessor;
-            bestMatch = processor.processor().mediaType();
+        return defaultSetting;
+    }
+
+    /**
+     * @return hit and miss counters of content negotiation caches.
+     */
+    public CacheStats negotiationCacheStats() {
+        return settingsByMediaType.stats().plus(settingsByFormat.stats());
+    }
+
+    /**
+     * Resolve a format parameter.
+     * 
+     * @param format format parameter
+     * @return a shared {@link ResponseProcessorSetting} or {@link #NO_MATCH}.
+     */
+    private ResponseProcessorSetting resolveFormat(final String format) {
+        ResponseProcessorSetting setting = settingsByFormat.getIfPresent(format);
+        if (setting == null) {
+            final ResponseProcessor processor = getProcessorsByFormat(format);
+            setting = processor != null ? new ResponseProcessorSetting(processor.processor().mediaType(), processor) : NO_MATCH;
+            settingsByFormat.put(format, setting);
         }
-        return new ResponseProcessorSetting(bestMatch, processor);
+        return setting;
+    }
+
+    /**
+     * Resolve a raw <code>Accept</code> or <code>Content-Type</code> value against supported media ranges.
+     * 
+     * @param mediaType raw header value (can be null)
+     * @return a shared {@link ResponseProcessorSetting}, default one if mediaType is null, or {@link #NO_MATCH}.
+     */
+    private ResponseProcessorSetting resolveMediaType(final String mediaType) {
+        if (mediaType == null) {
+            return defaultSetting;
+        }
+        ResponseProcessorSetting setting = settingsByMediaType.getIfPresent(mediaType);
+        if (setting == null) {
+            final String bestMatch = MediaRanges.getBestMatch(supportedMediaRanges, MediaRanges.parse(mediaType));
+            if (bestMatch == null) {
+                setting = NO_MATCH;
+            } else {
+                final ResponseProcessor processor = processorsByMediaType.get(bestMatch);
+                setting = processor != null ? new ResponseProcessorSetting(bestMatch, processor) : defaultSetting;
+            }
+            settingsByMediaType.put(mediaType, setting);
+        }
+        return setting;
     }
 
     @Override
@@ -158,7 +236,9 @@ public class ResponseProcessorManager implements ResponseProcessorSettingResolve
         // register default
         if (isDefault || defaultResponseProcessor == null) {
             defaultResponseProcessor = responseProcessor;
+            defaultSetting = new ResponseProcessorSetting(processor.mediaType(), responseProcessor);
         }
+        invalidateNegotiationCaches();
         return this;
     }
 
@@ -185,13 +265,11 @@ public class ResponseProcessorManager implements ResponseProcessorSettingResolve
 
     @Override
     public Processor processor(String mimeType) {
-        List<MediaRange> requested = MediaRanges.parse(mimeType);
-        final String bestMatch = MediaRanges.getBestMatch(supportedMediaRanges, requested);
-        if (bestMatch != null) {
-            ResponseProcessor responseProcessor = processorsByMediaType.get(bestMatch);
-            return responseProcessor != null ? responseProcessor.processor() : null;
+        if (mimeType == null) {
+            return null;
         }
-        return null;
+        final ResponseProcessorSetting setting = resolveMediaType(mimeType);
+        return setting != NO_MATCH ? setting.responseProcessor().processor() : null;
     }
 
     @Override
@@ -210,9 +288,18 @@ public class ResponseProcessorManager implements ResponseProcessorSettingResolve
                 if (!supportedMediaRanges.contains(mediaRange))
                     supportedMediaRanges.add(mediaRange);
             }
+            invalidateNegotiationCaches();
         }
     }
 
+    /**
+     * Clear all negotiation results, as supported media ranges or processors have changed.
+     */
+    protected void invalidateNegotiationCaches() {
+        settingsByMediaType.invalidateAll();
+        settingsByFormat.invalidateAll();
+    }
+
     /**
      * Utility to obtain extension of an url.
      * 
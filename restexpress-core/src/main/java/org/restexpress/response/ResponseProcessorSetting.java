@@ -31,18 +31,26 @@
  */
 package org.restexpress.response;
 
+import java.util.Collection;
+
 import org.restexpress.DeserializationException;
 import org.restexpress.Request;
 import org.restexpress.Response;
 import org.restexpress.SerializationException;
 import org.restexpress.http.HttpHeader;
+import org.restexpress.serialization.Processor;
+import org.restexpress.serialization.StreamingProcessor;
+
+import com.google.common.collect.Lists;
 
 /**
  * {@link ResponseProcessorSetting} represent a selection of a specific media
  * Type with his {@link ResponseProcessor} in order to deal with serialization
  * for a {@link Request} or a {@link Response}.
- * 
- * 
+ * <p>
+ * Instances are immutable and shared between requests by
+ * {@link ResponseProcessorManager}, which cache them per negotiated value.
+ * </p>
  * 
  * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
  */
@@ -106,12 +114,24 @@ public final class ResponseProcessorSetting implements Serializer {
 	 */
 	@Override
 	public void serialize(Response response) throws SerializationException {
+		serialize(response, null);
+	}
+
+	/**
+	 * Same as {@link #serialize(Response)}, content buffer is sized from
+	 * specified {@link ContentSizeEstimator}.
+	 * 
+	 * @see org.restexpress.response.Serializer#serialize(org.restexpress.Response,
+	 *      org.restexpress.response.ContentSizeEstimator)
+	 */
+	@Override
+	public void serialize(Response response, ContentSizeEstimator estimator) throws SerializationException {
 		if (response.hasException() || response.isSerialized()) {
 			// serialization configuration can change
 			final Object wrapped = responseProcessor.wrapper().wrap(response);
 			response.setEntity(wrapped);
 		}
-		responseProcessor.serialize(response);
+		responseProcessor.serialize(response, estimator);
 		// serialized way: don't override
 		if (response.isSerialized() && !response.hasHeader(HttpHeader.CONTENT_TYPE)) {
 			response.setContentType(mediaType);
@@ -121,4 +141,50 @@ public final class ResponseProcessorSetting implements Serializer {
 		}
 	}
 
+	/**
+	 * Prepare a streamed serialization of response: if entity is a sequence
+	 * (see {@link StreamingContent#isStreamable(Object)}), the
+	 * {@link Processor} a {@link StreamingProcessor}, and the
+	 * {@link ResponseWrapper} leaves entity alone, entity is replaced by a
+	 * {@link StreamingContent}. Otherwise a sequence which is not a
+	 * {@link Collection} is collected in a {@link java.util.List}, to be
+	 * serialized by
+	 * {@link #serialize(Response, ContentSizeEstimator)}.
+	 * 
+	 * @param response
+	 * @return true if response content will be streamed.
+	 */
+	public boolean stream(final Response response) {
+		if (response.hasException() || !response.isSerialized()) {
+			return false;
+		}
+		final Object entity = response.getEntity();
+		if (!StreamingContent.isStreamable(entity)) {
+			return false;
+		}
+		final Processor processor = responseProcessor.processor();
+		if (processor instanceof StreamingProcessor && responseProcessor.wrapper().wrap(response) == entity) {
+			response.setEntity(new StreamingContent(StreamingContent.iterator(entity), (StreamingProcessor) processor, StreamingContent.resource(entity)));
+			if (!response.hasHeader(HttpHeader.CONTENT_TYPE)) {
+				response.setContentType(mediaType);
+			}
+			return true;
+		}
+		if (!(entity instanceof Collection)) {
+			final AutoCloseable resource = StreamingContent.resource(entity);
+			try {
+				response.setEntity(Lists.newArrayList(StreamingContent.iterator(entity)));
+			} finally {
+				if (resource != null) {
+					try {
+						resource.close();
+					} catch (final Exception e) {
+						// nothing to do
+					}
+				}
+			}
+		}
+		return false;
+	}
+
 }
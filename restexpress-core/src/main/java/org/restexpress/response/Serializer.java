@@ -55,4 +55,17 @@ public interface Serializer {
 	 *             if an error occurs
 	 */
 	public void serialize(final Response response) throws SerializationException;
+
+	/**
+	 * Serialize {@link Response} into a buffer sized from specified
+	 * {@link ContentSizeEstimator}, which is updated with serialized size.
+	 * 
+	 * @param response
+	 *            {@link Response} instance.
+	 * @param estimator
+	 *            {@link ContentSizeEstimator} instance (can be null)
+	 * @throws SerializationException
+	 *             if an error occurs
+	 */
+	public void serialize(final Response response, final ContentSizeEstimator estimator) throws SerializationException;
 }
@@ -0,0 +1,224 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.response;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Iterator;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.restexpress.SerializationException;
+import org.restexpress.serialization.StreamingProcessor;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * {@link StreamingContent} is a response entity which serialize elements of an
+ * {@link Iterator} on demand, with a {@link StreamingProcessor}, in buffers of
+ * bounded size.
+ * <p>
+ * A buffer is filled until it reach requested size: an element is never split,
+ * so a buffer can exceed this size by the length of one element.
+ * </p>
+ * <p>
+ * This instance is not thread safe: it is consumed by one writer at a time.
+ * </p>
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public final class StreamingContent {
+
+	/**
+	 * <code>java.util.stream.BaseStream</code>, null before Java 8.
+	 */
+	private static final Class<?> BASE_STREAM = loadClass("java.util.stream.BaseStream");
+
+	private final Iterator<?> iterator;
+	private final StreamingProcessor processor;
+	private final AutoCloseable resource;
+	private final SettableFuture<Void> written = SettableFuture.create();
+	private long index;
+	private boolean started;
+	private boolean ended;
+
+	/**
+	 * Build a new instance of {@link StreamingContent}.
+	 * 
+	 * @param iterator
+	 *            elements to serialize
+	 * @param processor
+	 *            {@link StreamingProcessor} instance
+	 * @param resource
+	 *            resource to close once elements are consumed (or on failure),
+	 *            can be null
+	 */
+	public StreamingContent(final Iterator<?> iterator, final StreamingProcessor processor, final AutoCloseable resource) {
+		super();
+		this.iterator = Preconditions.checkNotNull(iterator);
+		this.processor = Preconditions.checkNotNull(processor);
+		this.resource = resource;
+	}
+
+	/**
+	 * @return true if some content remains to be written.
+	 */
+	public boolean hasNext() {
+		return !ended;
+	}
+
+	/**
+	 * Serialize next elements.
+	 * 
+	 * @param size
+	 *            minimal size of returned buffer, unless elements are
+	 *            exhausted
+	 * @return a {@link ChannelBuffer}
+	 * @throws SerializationException
+	 *             if an error occurs, resource is closed
+	 */
+	public ChannelBuffer next(final int size) throws SerializationException {
+		final ChannelBuffer buffer = ChannelBuffers.dynamicBuffer(size + (size >> 2));
+		try {
+			if (!started) {
+				processor.writeSequenceStart(buffer);
+				started = true;
+			}
+			while (buffer.readableBytes() < size && iterator.hasNext()) {
+				processor.writeSequenceElement(iterator.next(), index++, buffer);
+			}
+			if (!iterator.hasNext()) {
+				processor.writeSequenceEnd(buffer);
+				close();
+			}
+		} catch (final RuntimeException e) {
+			close();
+			throw e instanceof SerializationException ? (SerializationException) e : new SerializationException(e);
+		}
+		return buffer;
+	}
+
+	/**
+	 * Release resources, no more content will be written. Can be called
+	 * several times.
+	 */
+	public void close() {
+		if (!ended) {
+			ended = true;
+			if (resource != null) {
+				try {
+					resource.close();
+				} catch (final Exception e) {
+					// nothing to do
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return true if writing has started.
+	 */
+	public boolean isStarted() {
+		return started;
+	}
+
+	/**
+	 * @return a future completed once writing is over: content written, or
+	 *         writing aborted.
+	 */
+	public ListenableFuture<Void> written() {
+		return written;
+	}
+
+	/**
+	 * Notify that writing is over, release resources. Called by response
+	 * writer.
+	 */
+	public void setWritten() {
+		close();
+		written.set(null);
+	}
+
+	/**
+	 * @return number of elements serialized.
+	 */
+	public long count() {
+		return index;
+	}
+
+	/**
+	 * @param entity
+	 * @return true if entity is an {@link Iterable}, an {@link Iterator} or a
+	 *         <code>java.util.stream.BaseStream</code>.
+	 */
+	public static boolean isStreamable(final Object entity) {
+		return entity instanceof Iterable || entity instanceof Iterator || (BASE_STREAM != null && BASE_STREAM.isInstance(entity));
+	}
+
+	/**
+	 * @param entity
+	 *            a streamable entity
+	 * @return an {@link Iterator} on elements of entity.
+	 * @throws IllegalArgumentException
+	 *             if entity is not streamable
+	 * @see #isStreamable(Object)
+	 */
+	public static Iterator<?> iterator(final Object entity) throws IllegalArgumentException {
+		if (entity instanceof Iterable) {
+			return ((Iterable<?>) entity).iterator();
+		}
+		if (entity instanceof Iterator) {
+			return (Iterator<?>) entity;
+		}
+		if (BASE_STREAM != null && BASE_STREAM.isInstance(entity)) {
+			try {
+				final Method method = BASE_STREAM.getMethod("iterator");
+				return (Iterator<?>) method.invoke(entity);
+			} catch (final NoSuchMethodException e) {
+				throw new IllegalStateException(e);
+			} catch (final IllegalAccessException e) {
+				throw new IllegalStateException(e);
+			} catch (final InvocationTargetException e) {
+				throw new SerializationException(e.getCause());
+			}
+		}
+		throw new IllegalArgumentException("not a streamable entity: " + entity);
+	}
+
+	/**
+	 * @param entity
+	 *            a streamable entity
+	 * @return resource to close once elements are consumed: a stream or any
+	 *         {@link AutoCloseable} entity, else null.
+	 */
+	public static AutoCloseable resource(final Object entity) {
+		return entity instanceof AutoCloseable ? (AutoCloseable) entity : null;
+	}
+
+	private static Class<?> loadClass(final String name) {
+		try {
+			return Class.forName(name);
+		} catch (final ClassNotFoundException e) {
+			return null;
+		}
+	}
+}
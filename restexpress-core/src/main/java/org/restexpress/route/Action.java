@@ -68,6 +68,13 @@ public final class Action implements Invoker {
         return route;
     }
 
+    /**
+     * @return {@link UrlMatch} holding parameters parsed from the URL.
+     */
+    public UrlMatch urlMatch() {
+        return match;
+    }
+
     /**
      * Retrieves the parameters from the URL match. These are used as Request headers before invocation of the route.
      * 
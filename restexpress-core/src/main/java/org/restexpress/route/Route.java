@@ -42,6 +42,7 @@ import java.util.Set;
 import org.jboss.netty.handler.codec.http.HttpMethod;
 import org.restexpress.Flags;
 import org.restexpress.pipeline.MessageContext;
+import org.restexpress.response.ContentSizeEstimator;
 import org.restexpress.route.invoker.Invoker;
 import org.restexpress.url.UrlMatch;
 import org.restexpress.url.UrlMatcher;
@@ -65,6 +66,10 @@ public abstract class Route implements Invoker {
     private final String name;
     private final Set<String> flags = Sets.newHashSet();
     private final Map<String, Object> parameters = Maps.newHashMap();
+    private final ContentSizeEstimator contentSizeEstimator = new ContentSizeEstimator();
+    private int maxContentLength = 0;
+    private String executor = null;
+    private VersionProvider versionProvider = null;
 
     public Route(final UrlMatcher urlMatcher, final Invoker invoker, final HttpMethod method, final boolean shouldSerializeResponse,
             final String name, final Set<String> flags, final Map<String, Object> parameters) {
@@ -125,6 +130,58 @@ public abstract class Route implements Invoker {
         return name;
     }
 
+    /**
+     * @return {@link ContentSizeEstimator} of serialized responses of this route.
+     */
+    public final ContentSizeEstimator contentSizeEstimator() {
+        return contentSizeEstimator;
+    }
+
+    /**
+     * @return maximum length of request content of this route, 0 to use the server default.
+     */
+    public final int maxContentLength() {
+        return maxContentLength;
+    }
+
+    /**
+     * @param maxContentLength
+     *            maximum length of request content of this route, 0 to use the server default.
+     */
+    final void maxContentLength(final int maxContentLength) {
+        this.maxContentLength = maxContentLength;
+    }
+
+    /**
+     * @return name of executor processing requests of this route, null for the default one.
+     */
+    public final String executor() {
+        return executor;
+    }
+
+    /**
+     * @param executor
+     *            name of executor processing requests of this route, null for the default one.
+     */
+    final void executor(final String executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * @return {@link VersionProvider} of resources of this route, null if none.
+     */
+    public final VersionProvider versionProvider() {
+        return versionProvider;
+    }
+
+    /**
+     * @param versionProvider
+     *            {@link VersionProvider} of resources of this route, null if none.
+     */
+    final void versionProvider(final VersionProvider versionProvider) {
+        this.versionProvider = versionProvider;
+    }
+
     public final boolean hasName() {
         return ((getName() != null) && !getName().trim().isEmpty());
     }
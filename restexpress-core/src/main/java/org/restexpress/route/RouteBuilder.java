@@ -43,17 +43,21 @@ import java.util.Set;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.handler.codec.http.HttpMethod;
 import org.restexpress.ConfigurationException;
+import org.restexpress.Flags;
 import org.restexpress.Request;
 import org.restexpress.Response;
 import org.restexpress.RestExpress;
 import org.restexpress.domain.metadata.RouteMetadata;
 import org.restexpress.domain.metadata.UriMetadata;
+import org.restexpress.pipeline.handler.AsyncResults;
 import org.restexpress.route.invoker.Invoker;
 import org.restexpress.route.invoker.Invokers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Preconditions;
 import com.google.common.base.Predicates;
+import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
@@ -137,6 +141,18 @@ public abstract class RouteBuilder {
 	 * Set of parameter.
 	 */
 	private final Map<String, Object> parameters = new HashMap<String, Object>();
+	/**
+	 * Maximum length of request content, 0 for server default.
+	 */
+	private int maxContentLength = 0;
+	/**
+	 * Name of executor, null for default.
+	 */
+	private String executor = null;
+	/**
+	 * Version provider, null if none.
+	 */
+	private VersionProvider versionProvider = null;
 	/**
 	 * Aliases.
 	 */
@@ -312,16 +328,147 @@ public abstract class RouteBuilder {
 		return this;
 	}
 
-	public RouteBuilder useStreamingMultipartUpload() {
-		// TODO: complete supportMultipart()
+	/**
+	 * Set the maximum length of request content for this route, in place of
+	 * {@link org.restexpress.settings.ServerSettings#getMaxContentSize()}. A
+	 * request with a larger content is rejected with a
+	 * {@link org.restexpress.http.RequestEntityTooLargeException} (413) before
+	 * its content is read in memory.
+	 * 
+	 * @param maxContentLength
+	 *            the maximum size in bytes.
+	 * @return this RouteBuilder to facilitate method chaining.
+	 * @throws IllegalArgumentException
+	 *             if maxContentLength is not positive
+	 */
+	public RouteBuilder maxContentLength(final int maxContentLength) throws IllegalArgumentException {
+		Preconditions.checkArgument(maxContentLength > 0, "maxContentLength must be positive");
+		this.maxContentLength = maxContentLength;
 		return this;
 	}
 
-	public RouteBuilder useStreamingDownload() {
-		// TODO: complete useStreamingdownload()
+	/**
+	 * Process requests of this route with the named executor declared with
+	 * {@link org.restexpress.settings.ServerSettings#addExecutor(String, org.restexpress.settings.ExecutorSettings)}
+	 * , instead of the default one. A slow route isolated this way could not
+	 * starve others: when its executor is saturated, requests are rejected
+	 * with a {@link org.restexpress.http.ServiceUnavailableException} (503),
+	 * or processed by the default executor, according to its
+	 * {@link org.restexpress.settings.RejectionPolicy}. Asynchronous results
+	 * of this route are processed by the same executor.
+	 * 
+	 * @param name
+	 *            executor name.
+	 * @return this RouteBuilder to facilitate method chaining.
+	 * @throws IllegalArgumentException
+	 *             if name is null or empty
+	 */
+	public RouteBuilder executor(final String name) throws IllegalArgumentException {
+		Preconditions.checkArgument(!Strings.isNullOrEmpty(name), "executor name must be specified");
+		this.executor = name;
+		return this;
+	}
+
+	/**
+	 * Supply the current version of resources of this route, so that
+	 * conditional GET and HEAD requests ('If-None-Match',
+	 * 'If-Modified-Since') are answered with a 304 (Not Modified) before
+	 * invoking the controller, when
+	 * {@link org.restexpress.processor.ConditionalGetPreprocessor} is
+	 * registered (see {@link org.restexpress.plugin.CacheControlPlugin}).
+	 * 
+	 * @param versionProvider
+	 *            {@link VersionProvider} instance.
+	 * @return this RouteBuilder to facilitate method chaining.
+	 * @throws NullPointerException
+	 *             if versionProvider is null
+	 */
+	public RouteBuilder versionedBy(final VersionProvider versionProvider) throws NullPointerException {
+		this.versionProvider = Preconditions.checkNotNull(versionProvider, "versionProvider must be specified");
 		return this;
 	}
 
+	/**
+	 * Process requests of this route directly on the I/O thread, without
+	 * dispatching them to an executor. Only suitable for cheap and non
+	 * blocking routes, like health checks.
+	 * <p>
+	 * This sets the {@link Flags#INLINE_EXECUTION} flag.
+	 * </p>
+	 * 
+	 * @return this RouteBuilder to facilitate method chaining.
+	 */
+	public RouteBuilder inline() {
+		return flag(Flags.INLINE_EXECUTION.toString());
+	}
+
+	/**
+	 * Keep serialized responses of GET requests of this route in the server
+	 * side response cache (see
+	 * {@link org.restexpress.plugin.ResponseCachePlugin}), for the time given
+	 * by {@link org.restexpress.Parameters.Cache#MAX_AGE} parameter.
+	 * <p>
+	 * This sets the {@link Flags#CACHEABLE} flag.
+	 * </p>
+	 * 
+	 * @return this RouteBuilder to facilitate method chaining.
+	 */
+	public RouteBuilder cacheable() {
+		return flag(Flags.CACHEABLE.toString());
+	}
+
+	/**
+	 * Collapse concurrent identical GET requests of this route: they wait for
+	 * the first one in flight and share its serialized response (see
+	 * {@link org.restexpress.pipeline.RequestCoalescer}).
+	 * <p>
+	 * Responses of this route must not depend on the caller: identical
+	 * requests of other clients get the headers and content computed for the
+	 * first one. A response with a 'Set-Cookie' header is never shared.
+	 * </p>
+	 * <p>
+	 * This sets the {@link Flags#COALESCING} flag.
+	 * </p>
+	 * 
+	 * @return this RouteBuilder to facilitate method chaining.
+	 */
+	public RouteBuilder coalesce() {
+		return flag(Flags.COALESCING.toString());
+	}
+
+	/**
+	 * Stream multipart request body of this route: parts are decoded as HTTP
+	 * chunks arrive and spilled to temporary files above
+	 * {@link org.restexpress.settings.ServerSettings#getUploadSpillThreshold()},
+	 * instead of aggregating the whole body in memory. The body is no more
+	 * limited by the server max content length, only by
+	 * {@link #maxContentLength(int)} if set. Parts are read with
+	 * {@link org.restexpress.Request#getParts()}.
+	 * <p>
+	 * This sets the {@link Flags#STREAMING_MULTIPART_UPLOAD} flag.
+	 * </p>
+	 * 
+	 * @return this RouteBuilder to facilitate method chaining.
+	 */
+	public RouteBuilder useStreamingMultipartUpload() {
+		return flag(Flags.STREAMING_MULTIPART_UPLOAD.toString());
+	}
+
+	/**
+	 * Stream response of this route: when action return an {@link Iterable},
+	 * an {@link java.util.Iterator} or a <code>java.util.stream.Stream</code>,
+	 * elements are serialized one by one in HTTP chunks as long as the client
+	 * read them, instead of serializing the whole collection before writing.
+	 * <p>
+	 * This sets the {@link Flags#STREAMING_DOWNLOAD} flag.
+	 * </p>
+	 * 
+	 * @return this RouteBuilder to facilitate method chaining.
+	 */
+	public RouteBuilder useStreamingDownload() {
+		return flag(Flags.STREAMING_DOWNLOAD.toString());
+	}
+
 	/**
 	 * Build the Route instances. The last step in the Builder process.
 	 * 
@@ -382,6 +529,9 @@ public abstract class RouteBuilder {
 			if (invoker != null) {
 				// create route
 				Route route = newRoute(pattern, invoker, httpMethod, serializeResponse, name, flags, parameters);
+				route.maxContentLength(maxContentLength);
+				route.executor(executor);
+				route.versionProvider(versionProvider);
 				// add result
 				routes.add(route);
 			}
@@ -397,6 +547,7 @@ public abstract class RouteBuilder {
 	 * <ul>
 	 * <li>a {@link File}</li>
 	 * <li>a {@link ChannelBuffer}</li>
+	 * <li>an asynchronous result of {@link File} or {@link ChannelBuffer}</li>
 	 * <li>shouldSerializeResponse flag is false (from call on
 	 * {@link #noSerialization()})</li>
 	 * </ul>
@@ -408,6 +559,10 @@ public abstract class RouteBuilder {
 	private boolean shouldSerializeResponse(Method action) {
 		if (shouldSerializeResponse) {
 			Class<?> returnType = action.getReturnType();
+			if (AsyncResults.isAsyncType(returnType)) {
+				// depends on type of completed value
+				returnType = AsyncResults.valueType(action.getGenericReturnType());
+			}
 			return !(File.class.isAssignableFrom(returnType) || ChannelBuffer.class.isAssignableFrom(returnType));
 		}
 		return Boolean.FALSE;
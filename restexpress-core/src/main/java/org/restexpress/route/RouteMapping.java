@@ -179,6 +179,16 @@ public final class RouteMapping implements RouteResolver {
 		return methods;
 	}
 
+	/**
+	 * Return Route instances grouped by URL pattern (without any '.{format}'),
+	 * in declaration order. The returned map is immutable.
+	 * 
+	 * @return a {@link Map} of Route list by URL pattern.
+	 */
+	public Map<String, List<Route>> getRoutesByPattern() {
+		return Collections.unmodifiableMap(routesByPattern);
+	}
+
 	/**
 	 * Return a Route by the name and HttpMethod provided in DSL. Returns null
 	 * if no route found.
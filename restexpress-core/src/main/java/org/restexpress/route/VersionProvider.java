@@ -0,0 +1,41 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.route;
+
+import org.restexpress.Request;
+
+/**
+ * {@link VersionProvider} supplies the current version of the resource targeted by a request, from a cheap lookup
+ * (index, cache...), without invoking the controller. It is declared with {@link RouteBuilder#versionedBy(VersionProvider)}
+ * and used by {@link org.restexpress.processor.ConditionalGetPreprocessor} to answer conditional GET requests.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ * 
+ */
+public interface VersionProvider {
+    /**
+     * @param request
+     *            {@link Request} instance
+     * @return current version of targeted resource: a {@link java.util.Date} or a
+     *         {@link org.restexpress.domain.TimeStamped} for a last modification time, any other object for an
+     *         opaque entity version, or null if unknown.
+     */
+    public Object versionOf(Request request);
+}
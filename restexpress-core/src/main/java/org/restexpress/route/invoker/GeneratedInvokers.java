@@ -0,0 +1,376 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.route.invoker;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import org.restexpress.pipeline.MessageContext;
+import org.restexpress.route.invoker.Invokers.AbstractInvoker;
+import org.restexpress.route.invoker.ParamMappers.ArrayParamMapper;
+import org.restexpress.route.invoker.ParamMappers.ParamMapper;
+import org.restexpress.route.invoker.ParamMappers.PrimitiveParamMapper;
+
+import com.google.common.primitives.Primitives;
+
+/**
+ * {@link GeneratedInvokers} build {@link Invoker} which call controller method
+ * directly, through a class generated by {@link LambdaMetafactory} when the
+ * route is built, instead of {@link Method#invoke(Object, Object...)}. There is
+ * no argument array, no {@link java.lang.reflect.InvocationTargetException}
+ * wrapping, and call can be inlined by the JIT.
+ * <p/>
+ * Only public instance methods of a public class visible from RestExpress
+ * class loader, with at most {@link #MAX_ARITY} parameters, can be generated.
+ * {@link #newInvoker(Object, Method, ArrayParamMapper)} returns null for any
+ * other method (or if {@link LambdaMetafactory} is not available), and
+ * {@link Invokers} falls back to reflection.
+ * <p/>
+ * An action with int, long or boolean parameters bound by a
+ * {@link PrimitiveParamMapper} is called through a {@link PrimitiveInvoker}
+ * instead: primitive values are passed in long slots of a {@link MethodHandle}
+ * and are never boxed. A call interface for every combination of parameter
+ * types would not scale with {@link #MAX_ARITY}.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public enum GeneratedInvokers {
+	;
+
+	/**
+	 * Maximum number of parameters of a generated call.
+	 */
+	public static final int MAX_ARITY = 4;
+
+	private static final boolean SUPPORTED = isLambdaMetafactoryAvailable();
+
+	private static final Class<?>[] CALLS = { Call0.class, Call1.class, Call2.class, Call3.class, Call4.class };
+
+	private static final Class<?>[] VOID_CALLS = { VoidCall0.class, VoidCall1.class, VoidCall2.class, VoidCall3.class, VoidCall4.class };
+
+	/**
+	 * @return true if {@link LambdaMetafactory} is available on this JVM.
+	 */
+	public static boolean isSupported() {
+		return SUPPORTED;
+	}
+
+	/**
+	 * Build a generated {@link Invoker}.
+	 * 
+	 * @param controller
+	 *            controller object
+	 * @param action
+	 *            {@link Method} to call
+	 * @param arrayParamMapper
+	 *            {@link ArrayParamMapper} instance
+	 * @return {@link Invoker} instance for specified method, or null if this
+	 *         method cannot be called by a generated class.
+	 */
+	public static Invoker newInvoker(final Object controller, final Method action, final ArrayParamMapper arrayParamMapper) {
+		final int arity = arrayParamMapper.length();
+		if (!SUPPORTED || (arity > MAX_ARITY) || (controller == null) || !isGenerable(action)) {
+			return null;
+		}
+		try {
+			final ParamMapper[] paramMappers = new ParamMapper[arity];
+			boolean primitive = false;
+			for (int i = 0; i < arity; i++) {
+				paramMappers[i] = arrayParamMapper.get(i);
+				primitive |= paramMappers[i] instanceof PrimitiveParamMapper;
+			}
+			if (primitive) {
+				return new PrimitiveInvoker(controller, action, slotted(action, paramMappers), paramMappers);
+			}
+			final Object call = generate(action);
+			return new GeneratedInvoker(controller, action, call, paramMappers);
+		} catch (final Throwable e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Generate a call class for specified action.
+	 * 
+	 * @param action
+	 * @return an instance of CallN or VoidCallN according action profile.
+	 * @throws Throwable
+	 *             if call cannot be generated
+	 */
+	private static Object generate(final Method action) throws Throwable {
+		final Class<?>[] parameterTypes = action.getParameterTypes();
+		final boolean isVoid = void.class.equals(action.getReturnType());
+		final Class<?> callType = (isVoid ? VOID_CALLS : CALLS)[parameterTypes.length];
+		final Class<?> returnType = isVoid ? void.class : Object.class;
+
+		final Class<?>[] samParameterTypes = new Class<?>[parameterTypes.length + 1];
+		final Class<?>[] instantiatedParameterTypes = new Class<?>[parameterTypes.length + 1];
+		samParameterTypes[0] = Object.class;
+		instantiatedParameterTypes[0] = action.getDeclaringClass();
+		for (int i = 0; i < parameterTypes.length; i++) {
+			samParameterTypes[i + 1] = Object.class;
+			instantiatedParameterTypes[i + 1] = Primitives.wrap(parameterTypes[i]);
+		}
+
+		final MethodHandles.Lookup lookup = MethodHandles.lookup();
+		final MethodHandle target = lookup.unreflect(action);
+		final CallSite site = LambdaMetafactory.metafactory(lookup, "call", //
+				MethodType.methodType(callType), //
+				MethodType.methodType(returnType, samParameterTypes), //
+				target, //
+				MethodType.methodType(isVoid ? void.class : Primitives.wrap(action.getReturnType()), instantiatedParameterTypes));
+		return site.getTarget().invoke();
+	}
+
+	/**
+	 * Build a {@link MethodHandle} for specified action, of type
+	 * <code>(Object controller, Object o0..oN, long l0..lN)Object</code>.
+	 * Parameter i is read from li when its mapper is a
+	 * {@link PrimitiveParamMapper} (narrowed to its primitive type), from oi
+	 * otherwise. A void action returns null.
+	 * 
+	 * @param action
+	 * @param paramMappers
+	 * @return a {@link MethodHandle} instance.
+	 * @throws IllegalAccessException
+	 *             if action is not accessible
+	 */
+	private static MethodHandle slotted(final Method action, final ParamMapper[] paramMappers) throws IllegalAccessException {
+		final int arity = paramMappers.length;
+		final Class<?>[] slotTypes = new Class<?>[arity + 1];
+		final Class<?>[] wideTypes = new Class<?>[2 * arity + 1];
+		final int[] reorder = new int[arity + 1];
+		slotTypes[0] = Object.class;
+		wideTypes[0] = Object.class;
+		for (int i = 0; i < arity; i++) {
+			final boolean primitive = paramMappers[i] instanceof PrimitiveParamMapper;
+			slotTypes[i + 1] = primitive ? long.class : Object.class;
+			wideTypes[i + 1] = Object.class;
+			wideTypes[arity + i + 1] = long.class;
+			reorder[i + 1] = primitive ? arity + i + 1 : i + 1;
+		}
+		final MethodHandle target = MethodHandles.lookup().unreflect(action);
+		final MethodHandle slotted = MethodHandles.explicitCastArguments(target, MethodType.methodType(Object.class, slotTypes));
+		return MethodHandles.permuteArguments(slotted, MethodType.methodType(Object.class, wideTypes), reorder);
+	}
+
+	/**
+	 * @param action
+	 * @return true if a generated class can call this method directly.
+	 */
+	private static boolean isGenerable(final Method action) {
+		final Class<?> declaringClass = action.getDeclaringClass();
+		if (Modifier.isStatic(action.getModifiers()) || !Modifier.isPublic(action.getModifiers()) || !Modifier.isPublic(declaringClass.getModifiers())) {
+			return false;
+		}
+		// generated class resolves controller class from our class loader
+		try {
+			return Class.forName(declaringClass.getName(), false, GeneratedInvokers.class.getClassLoader()) == declaringClass;
+		} catch (final ClassNotFoundException e) {
+			return false;
+		}
+	}
+
+	private static boolean isLambdaMetafactoryAvailable() {
+		try {
+			Class.forName("java.lang.invoke.LambdaMetafactory");
+			return true;
+		} catch (final ClassNotFoundException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * {@link GeneratedInvoker} implements an {@link Invoker} using a generated
+	 * call. Parameters are mapped one by one, without any array.
+	 * 
+	 * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+	 */
+	public static final class GeneratedInvoker extends AbstractInvoker {
+
+		private final Object call;
+		private final ParamMapper[] paramMappers;
+		private final boolean isVoid;
+
+		GeneratedInvoker(final Object controller, final Method action, final Object call, final ParamMapper[] paramMappers) {
+			super(controller, action);
+			this.call = call;
+			this.paramMappers = paramMappers;
+			this.isVoid = void.class.equals(action.getReturnType());
+		}
+
+		@Override
+		public Object invoke(final MessageContext context) {
+			try {
+				return isVoid ? invokeVoid(context) : invokeObject(context);
+			} catch (final RuntimeException e) {
+				throw e;
+			} catch (final Throwable e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		private Object invokeObject(final MessageContext context) throws Throwable {
+			final ParamMapper[] mappers = paramMappers;
+			switch (mappers.length) {
+			case 0:
+				return ((Call0) call).call(controller);
+			case 1:
+				return ((Call1) call).call(controller, mappers[0].map(context));
+			case 2:
+				return ((Call2) call).call(controller, mappers[0].map(context), mappers[1].map(context));
+			case 3:
+				return ((Call3) call).call(controller, mappers[0].map(context), mappers[1].map(context), mappers[2].map(context));
+			default:
+				return ((Call4) call).call(controller, mappers[0].map(context), mappers[1].map(context), mappers[2].map(context), mappers[3].map(context));
+			}
+		}
+
+		private Object invokeVoid(final MessageContext context) throws Throwable {
+			final ParamMapper[] mappers = paramMappers;
+			switch (mappers.length) {
+			case 0:
+				((VoidCall0) call).call(controller);
+				break;
+			case 1:
+				((VoidCall1) call).call(controller, mappers[0].map(context));
+				break;
+			case 2:
+				((VoidCall2) call).call(controller, mappers[0].map(context), mappers[1].map(context));
+				break;
+			case 3:
+				((VoidCall3) call).call(controller, mappers[0].map(context), mappers[1].map(context), mappers[2].map(context));
+				break;
+			default:
+				((VoidCall4) call).call(controller, mappers[0].map(context), mappers[1].map(context), mappers[2].map(context), mappers[3].map(context));
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * {@link PrimitiveInvoker} implements an {@link Invoker} for an action
+	 * with primitive parameters. Each {@link PrimitiveParamMapper} value is
+	 * passed as a long, other parameters as objects, to a {@link MethodHandle}
+	 * built by {@link GeneratedInvokers#slotted(Method, ParamMapper[])}.
+	 * 
+	 * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+	 */
+	public static final class PrimitiveInvoker extends AbstractInvoker {
+
+		private final MethodHandle handle;
+		private final ParamMapper[] paramMappers;
+		private final PrimitiveParamMapper[] primitiveMappers;
+
+		PrimitiveInvoker(final Object controller, final Method action, final MethodHandle handle, final ParamMapper[] paramMappers) {
+			super(controller, action);
+			this.handle = handle;
+			this.paramMappers = new ParamMapper[paramMappers.length];
+			this.primitiveMappers = new PrimitiveParamMapper[paramMappers.length];
+			for (int i = 0; i < paramMappers.length; i++) {
+				if (paramMappers[i] instanceof PrimitiveParamMapper) {
+					primitiveMappers[i] = (PrimitiveParamMapper) paramMappers[i];
+				} else {
+					this.paramMappers[i] = paramMappers[i];
+				}
+			}
+		}
+
+		@Override
+		public Object invoke(final MessageContext context) {
+			try {
+				switch (paramMappers.length) {
+				case 1:
+					return (Object) handle.invokeExact(controller, map(0, context), mapPrimitive(0, context));
+				case 2:
+					return (Object) handle.invokeExact(controller, map(0, context), map(1, context), mapPrimitive(0, context), mapPrimitive(1, context));
+				case 3:
+					return (Object) handle.invokeExact(controller, map(0, context), map(1, context), map(2, context), mapPrimitive(0, context), mapPrimitive(1, context), mapPrimitive(2, context));
+				default:
+					return (Object) handle.invokeExact(controller, map(0, context), map(1, context), map(2, context), map(3, context), mapPrimitive(0, context), mapPrimitive(1, context), mapPrimitive(2, context), mapPrimitive(3, context));
+				}
+			} catch (final RuntimeException e) {
+				throw e;
+			} catch (final Throwable e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		private Object map(final int i, final MessageContext context) {
+			final ParamMapper mapper = paramMappers[i];
+			return mapper != null ? mapper.map(context) : null;
+		}
+
+		private long mapPrimitive(final int i, final MessageContext context) {
+			final PrimitiveParamMapper mapper = primitiveMappers[i];
+			return mapper != null ? mapper.mapPrimitive(context) : 0L;
+		}
+	}
+
+	/*
+	 * Functional interfaces implemented by generated classes, by arity and
+	 * return type.
+	 */
+
+	interface Call0 {
+		Object call(Object controller) throws Throwable;
+	}
+
+	interface Call1 {
+		Object call(Object controller, Object p0) throws Throwable;
+	}
+
+	interface Call2 {
+		Object call(Object controller, Object p0, Object p1) throws Throwable;
+	}
+
+	interface Call3 {
+		Object call(Object controller, Object p0, Object p1, Object p2) throws Throwable;
+	}
+
+	interface Call4 {
+		Object call(Object controller, Object p0, Object p1, Object p2, Object p3) throws Throwable;
+	}
+
+	interface VoidCall0 {
+		void call(Object controller) throws Throwable;
+	}
+
+	interface VoidCall1 {
+		void call(Object controller, Object p0) throws Throwable;
+	}
+
+	interface VoidCall2 {
+		void call(Object controller, Object p0, Object p1) throws Throwable;
+	}
+
+	interface VoidCall3 {
+		void call(Object controller, Object p0, Object p1, Object p2) throws Throwable;
+	}
+
+	interface VoidCall4 {
+		void call(Object controller, Object p0, Object p1, Object p2, Object p3) throws Throwable;
+	}
+}
@@ -37,8 +37,12 @@ import org.restexpress.Response;
 import org.restexpress.http.HttpRuntimeException;
 import org.restexpress.pipeline.MessageContext;
 import org.restexpress.route.invoker.ParamMappers.ArrayParamMapper;
-import org.restexpress.route.invoker.ParamMappers.HeaderParamMapper;
+import org.restexpress.route.invoker.ParamMappers.BooleanParamMapper;
+import org.restexpress.route.invoker.ParamMappers.ConverterParamMapper;
+import org.restexpress.route.invoker.ParamMappers.IntParamMapper;
+import org.restexpress.route.invoker.ParamMappers.LongParamMapper;
 import org.restexpress.route.invoker.ParamMappers.ParamMapper;
+import org.restexpress.route.invoker.ParamMappers.ParamSource;
 import org.restexpress.route.invoker.ParamMappers.RequestParamMapper;
 import org.restexpress.route.invoker.ParamMappers.ResponseParamMapper;
 
@@ -46,12 +50,21 @@ import com.google.common.collect.Lists;
 
 /**
  * {@link Invokers} build {@link Invoker} according {@link Method} profile.
+ * <p/>
+ * A generated invoker (see {@link GeneratedInvokers}) is used whenever
+ * possible, reflection invokers ({@link NoArgInvoker}, {@link StandardInvoker}
+ * and {@link FieldMapInvoker}) are kept as fallback.
  * 
  * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
  */
 public enum Invokers {
 	;
 
+	/**
+	 * {@link ArrayParamMapper} of standard RestExpress profile.
+	 */
+	private static final ArrayParamMapper STANDARD_PARAM_MAPPER = new ArrayParamMapper(new ParamMapper[] { new RequestParamMapper(), new ResponseParamMapper() });
+
 	/**
 	 * Build an Field Map Invoker.
 	 * 
@@ -67,12 +80,13 @@ public enum Invokers {
 		Class<?>[] parameterTypes = action.getParameterTypes();
 		// no argument case
 		if (parameterTypes.length == 0) {
-			return new NoArgInvoker(controller, action);
+			return newInvoker(controller, action, new ArrayParamMapper(new ParamMapper[0]));
 		}
 		// standard case
 		if (parameterTypes.length == 2) {
 			if (parameterTypes[0].isAssignableFrom(Request.class) && parameterTypes[1].isAssignableFrom(Response.class)) {
-				return new StandardInvoker(controller, action);
+				final Invoker invoker = GeneratedInvokers.newInvoker(controller, action, STANDARD_PARAM_MAPPER);
+				return invoker != null ? invoker : new StandardInvoker(controller, action);
 			}
 		}
 		// more complex case
@@ -85,15 +99,18 @@ public enum Invokers {
 			} else if (Response.class.isAssignableFrom(parameterTypes[i])) {
 				paramMappers.add(new ResponseParamMapper());
 			} else {
-				// extract name and default value
+				// extract name, source and default value
 				String name = null;
+				ParamSource source = null;
 				String defaultValueParameter = null;
 				for (int j = 0; j < annotations[i].length; j++) {
 					if (PathParam.class.isAssignableFrom(annotations[i][j].getClass())) {
 						name = ((PathParam) annotations[i][j]).value();
+						source = ParamSource.PATH;
 					}
 					if (QueryParam.class.isAssignableFrom(annotations[i][j].getClass())) {
 						name = ((QueryParam) annotations[i][j]).value();
+						source = ParamSource.QUERY;
 					}
 					if (DefaultValue.class.isAssignableFrom(annotations[i][j].getClass())) {
 						defaultValueParameter = ((DefaultValue) annotations[i][j]).value();
@@ -102,27 +119,59 @@ public enum Invokers {
 				if (name == null) {
 					throw new ConfigurationException("No annotation found for parameter " + i + " of method " + action.getName());
 				}
-				final ParamConverter<?> paramConverter = paramConverterProvider.getConverter(parameterTypes[i], genericParameterTypes[i], annotations[i]);
-				if (paramConverter == null) {
-					throw new ConfigurationException("parameter " + name + " of type " + parameterTypes[i].getSimpleName() + " is not supported");
-				}
-				// compute default value
-				Object defaultValue = null;
-				if (defaultValueParameter != null) {
-					defaultValue = paramConverter.fromString(defaultValueParameter);
-				} else if (parameterTypes[i].isPrimitive()) {
-					defaultValue = paramConverter.fromString(null);
-				}
-				paramMappers.add(new HeaderParamMapper(name, paramConverter, defaultValue));
+				paramMappers.add(newParamMapper(paramConverterProvider, name, source, defaultValueParameter, parameterTypes[i], genericParameterTypes[i], annotations[i]));
 			}
 		}
 		return Invokers.newInvoker(controller, action, new ArrayParamMapper(paramMappers.toArray(new ParamMapper[paramMappers.size()])));
 	}
 
 	/**
+	 * Build a {@link ParamMapper} for an annotated parameter. Parameters of
+	 * type int, long and boolean are parsed directly, any other type is
+	 * converted with a {@link ParamConverter}.
 	 * 
-	 * If arrayParamMapper as no field, this return an {@link NoArgInvoker}
-	 * instance.
+	 * @param paramConverterProvider
+	 * @param name
+	 *            parameter name
+	 * @param source
+	 *            {@link ParamSource} of value
+	 * @param defaultValueParameter
+	 *            default value (from {@link DefaultValue}), null if none
+	 * @param parameterType
+	 * @param genericParameterType
+	 * @param annotations
+	 * @return a {@link ParamMapper} instance.
+	 * @throws ConfigurationException
+	 *             if parameter type is not supported.
+	 */
+	private static ParamMapper newParamMapper(ParamConverterProvider paramConverterProvider, String name, ParamSource source, String defaultValueParameter, Class<?> parameterType, Type genericParameterType, Annotation[] annotations) throws ConfigurationException {
+		if (int.class.equals(parameterType)) {
+			return new IntParamMapper(name, source, defaultValueParameter != null ? Integer.parseInt(defaultValueParameter) : 0);
+		}
+		if (long.class.equals(parameterType)) {
+			return new LongParamMapper(name, source, defaultValueParameter != null ? Long.parseLong(defaultValueParameter) : 0L);
+		}
+		if (boolean.class.equals(parameterType)) {
+			return new BooleanParamMapper(name, source, Boolean.parseBoolean(defaultValueParameter));
+		}
+		final ParamConverter<?> paramConverter = paramConverterProvider.getConverter(parameterType, genericParameterType, annotations);
+		if (paramConverter == null) {
+			throw new ConfigurationException("parameter " + name + " of type " + parameterType.getSimpleName() + " is not supported");
+		}
+		// compute default value
+		Object defaultValue = null;
+		if (defaultValueParameter != null) {
+			defaultValue = paramConverter.fromString(defaultValueParameter);
+		} else if (parameterType.isPrimitive()) {
+			defaultValue = paramConverter.fromString(null);
+		}
+		return new ConverterParamMapper(name, source, paramConverter, defaultValue);
+	}
+
+	/**
+	 * 
+	 * Return a generated invoker if possible, else if arrayParamMapper as no
+	 * field, this return an {@link NoArgInvoker} instance.
 	 * 
 	 * @param controller
 	 *            controller object
@@ -133,6 +182,10 @@ public enum Invokers {
 	 * @return {@link Invoker} instance for specified method.
 	 */
 	public static Invoker newInvoker(Object controller, Method action, ArrayParamMapper arrayParamMapper) {
+		final Invoker invoker = GeneratedInvokers.newInvoker(controller, action, arrayParamMapper);
+		if (invoker != null) {
+			return invoker;
+		}
 		return arrayParamMapper.length() == 0 ? new NoArgInvoker(controller, action) : new FieldMapInvoker(controller, action, arrayParamMapper);
 	}
 
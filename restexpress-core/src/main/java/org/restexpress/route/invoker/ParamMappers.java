@@ -24,6 +24,7 @@ import javax.ws.rs.ext.ParamConverter;
 import org.restexpress.Request;
 import org.restexpress.Response;
 import org.restexpress.pipeline.MessageContext;
+import org.restexpress.url.UrlMatch;
 
 /**
  * {@link ParamMappers} declare stuff related to parameter mapping and type
@@ -151,4 +152,220 @@ public enum ParamMappers {
 		}
 	}
 
-}
\ No newline at end of file
+	/**
+	 * {@link ParamSource} define where a parameter value is read from: URL
+	 * parameters and query string are read directly from the parsed URI,
+	 * without going through request headers.
+	 *
+	 * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+	 *
+	 */
+	public static enum ParamSource {
+		/**
+		 * URL parameter of the resolved route ({@link javax.ws.rs.PathParam}).
+		 */
+		PATH {
+			@Override
+			public String read(final MessageContext context, final String name) {
+				final UrlMatch match = context.getRequest().getUrlMatch();
+				return match != null ? match.getDecoded(name) : null;
+			}
+		},
+		/**
+		 * Query string parameter ({@link javax.ws.rs.QueryParam}).
+		 */
+		QUERY {
+			@Override
+			public String read(final MessageContext context, final String name) {
+				return context.getRequest().getQueryParameter(name);
+			}
+		};
+
+		/**
+		 * @param context
+		 *            {@link MessageContext} instance
+		 * @param name
+		 *            parameter name
+		 * @return URL decoded value, or null if not present.
+		 */
+		public abstract String read(MessageContext context, String name);
+	}
+
+	/**
+	 * {@link SourceParamMapper} map a parameter read from a
+	 * {@link ParamSource}.
+	 *
+	 * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+	 *
+	 */
+	public static abstract class SourceParamMapper implements ParamMapper {
+
+		protected final String name;
+		protected final ParamSource source;
+
+		public SourceParamMapper(final String name, final ParamSource source) {
+			super();
+			this.name = name;
+			this.source = source;
+		}
+
+		public String name() {
+			return name;
+		}
+
+		public ParamSource source() {
+			return source;
+		}
+	}
+
+	/**
+	 * {@link ConverterParamMapper} map a parameter into a specific type with
+	 * a {@link ParamConverter}.
+	 *
+	 * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+	 *
+	 */
+	public static class ConverterParamMapper extends SourceParamMapper {
+
+		private final Object defaultValue;
+		private final ParamConverter<?> paramConverter;
+
+		public ConverterParamMapper(final String name, final ParamSource source, final ParamConverter<?> paramConverter, final Object defaultValue) {
+			super(name, source);
+			this.paramConverter = paramConverter;
+			this.defaultValue = defaultValue;
+		}
+
+		@Override
+		public Object map(final MessageContext context) {
+			final String value = source.read(context, name);
+			Object result = null;
+			if (value != null)
+				result = paramConverter.fromString(value);
+			return result != null ? result : defaultValue;
+		}
+
+		public Object defaultValue() {
+			return defaultValue;
+		}
+
+		public ParamConverter<?> paramConverter() {
+			return paramConverter;
+		}
+	}
+
+	/**
+	 * {@link PrimitiveParamMapper} map a parameter into a primitive value,
+	 * without {@link ParamConverter} nor boxing. Generated invokers pass this
+	 * value to the action as a primitive argument.
+	 *
+	 * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+	 *
+	 */
+	public static abstract class PrimitiveParamMapper extends SourceParamMapper {
+
+		public PrimitiveParamMapper(final String name, final ParamSource source) {
+			super(name, source);
+		}
+
+		/**
+		 * @param context
+		 *            {@link MessageContext} instance
+		 * @return parsed value widened to a long (a boolean is 1 or 0).
+		 */
+		public abstract long mapPrimitive(MessageContext context);
+	}
+
+	/**
+	 * {@link IntParamMapper} map a parameter into an int.
+	 *
+	 * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+	 *
+	 */
+	public static final class IntParamMapper extends PrimitiveParamMapper {
+
+		private final int defaultValue;
+
+		public IntParamMapper(final String name, final ParamSource source, final int defaultValue) {
+			super(name, source);
+			this.defaultValue = defaultValue;
+		}
+
+		public int mapInt(final MessageContext context) {
+			final String value = source.read(context, name);
+			return value != null ? Integer.parseInt(value) : defaultValue;
+		}
+
+		@Override
+		public long mapPrimitive(final MessageContext context) {
+			return mapInt(context);
+		}
+
+		@Override
+		public Object map(final MessageContext context) {
+			return Integer.valueOf(mapInt(context));
+		}
+	}
+
+	/**
+	 * {@link LongParamMapper} map a parameter into a long.
+	 *
+	 * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+	 *
+	 */
+	public static final class LongParamMapper extends PrimitiveParamMapper {
+
+		private final long defaultValue;
+
+		public LongParamMapper(final String name, final ParamSource source, final long defaultValue) {
+			super(name, source);
+			this.defaultValue = defaultValue;
+		}
+
+		public long mapLong(final MessageContext context) {
+			final String value = source.read(context, name);
+			return value != null ? Long.parseLong(value) : defaultValue;
+		}
+
+		@Override
+		public long mapPrimitive(final MessageContext context) {
+			return mapLong(context);
+		}
+
+		@Override
+		public Object map(final MessageContext context) {
+			return Long.valueOf(mapLong(context));
+		}
+	}
+
+	/**
+	 * {@link BooleanParamMapper} map a parameter into a boolean.
+	 *
+	 * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+	 *
+	 */
+	public static final class BooleanParamMapper extends PrimitiveParamMapper {
+
+		private final boolean defaultValue;
+
+		public BooleanParamMapper(final String name, final ParamSource source, final boolean defaultValue) {
+			super(name, source);
+			this.defaultValue = defaultValue;
+		}
+
+		public boolean mapBoolean(final MessageContext context) {
+			final String value = source.read(context, name);
+			return value != null ? Boolean.parseBoolean(value) : defaultValue;
+		}
+
+		@Override
+		public long mapPrimitive(final MessageContext context) {
+			return mapBoolean(context) ? 1L : 0L;
+		}
+
+		@Override
+		public Object map(final MessageContext context) {
+			return Boolean.valueOf(mapBoolean(context));
+		}
+	}
+}
@@ -31,7 +31,7 @@ public class ByteParamConverter implements ParamConverter<Byte> {
 
 	@Override
 	public Byte fromString(String value) {
-		return value != null ? Byte.valueOf(value) : Byte.valueOf("O");
+		return value != null ? Byte.valueOf(value) : Byte.valueOf("0");
 	}
 
 	@Override
@@ -31,7 +31,7 @@ public class DoubleParamConverter implements ParamConverter<Double> {
 
 	@Override
 	public Double fromString(String value) {
-		return value != null ? Double.valueOf(value) : Double.valueOf("O");
+		return value != null ? Double.valueOf(value) : Double.valueOf("0");
 	}
 
 	@Override
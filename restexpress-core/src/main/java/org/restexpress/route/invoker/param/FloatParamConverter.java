@@ -31,7 +31,7 @@ public class FloatParamConverter implements ParamConverter<Float> {
 
 	@Override
 	public Float fromString(String value) {
-		return value != null ? Float.valueOf(value) : Float.valueOf("O");
+		return value != null ? Float.valueOf(value) : Float.valueOf("0");
 	}
 
 	@Override
@@ -31,7 +31,7 @@ public class IntegerParamConverter implements ParamConverter<Integer> {
 
 	@Override
 	public Integer fromString(String value) {
-		return value != null ? Integer.valueOf(value) : Integer.valueOf("O");
+		return value != null ? Integer.valueOf(value) : Integer.valueOf("0");
 	}
 
 	@Override
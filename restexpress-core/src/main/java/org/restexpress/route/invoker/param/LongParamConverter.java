@@ -31,7 +31,7 @@ public class LongParamConverter implements ParamConverter<Long> {
 
 	@Override
 	public Long fromString(String value) {
-		return value != null ? Long.valueOf(value) : Long.valueOf("O");
+		return value != null ? Long.valueOf(value) : Long.valueOf("0");
 	}
 
 	@Override
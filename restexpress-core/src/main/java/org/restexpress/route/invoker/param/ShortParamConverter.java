@@ -31,7 +31,7 @@ public class ShortParamConverter implements ParamConverter<Short> {
 
 	@Override
 	public Short fromString(String value) {
-		return value != null ? Short.valueOf(value) : Short.valueOf("O");
+		return value != null ? Short.valueOf(value) : Short.valueOf("0");
 	}
 
 	@Override
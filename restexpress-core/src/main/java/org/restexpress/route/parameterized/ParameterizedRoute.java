@@ -19,6 +19,7 @@
  */
 package org.restexpress.route.parameterized;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -36,11 +37,13 @@ import org.restexpress.url.UrlPattern;
  * @since Jan 7, 2011
  */
 public final class ParameterizedRoute extends Route {
+    private final UrlPattern urlPattern;
     private UrlPattern[] aliases;
 
     public ParameterizedRoute(final UrlPattern urlMatcher, final Invoker invoker, final HttpMethod method,
             final boolean shouldSerializeResponse, final String name, final Set<String> flags, final Map<String, Object> parameters) {
         super(urlMatcher, invoker, method, shouldSerializeResponse, name, flags, parameters);
+        this.urlPattern = urlMatcher;
     }
 
     public ParameterizedRoute(final String urlPattern, final Invoker invoker, final HttpMethod method,
@@ -61,6 +64,20 @@ public final class ParameterizedRoute extends Route {
         }
     }
 
+    /**
+     * @return raw URL patterns of this route, main pattern first followed by aliases in declaration order.
+     */
+    public List<String> getUrlPatterns() {
+        final List<String> patterns = new ArrayList<String>(aliases != null ? aliases.length + 1 : 1);
+        patterns.add(urlPattern.getUrlPattern());
+        if (aliases != null) {
+            for (final UrlPattern alias : aliases) {
+                patterns.add(alias.getUrlPattern());
+            }
+        }
+        return patterns;
+    }
+
     @Override
     public UrlMatch match(final String url) {
         UrlMatch match = super.match(url);
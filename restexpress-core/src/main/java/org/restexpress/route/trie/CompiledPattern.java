@@ -0,0 +1,135 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.route.trie;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link CompiledPattern} is the segment form of a parameterized URL pattern
+ * (see {@link org.restexpress.url.UrlPattern}), as stored in a
+ * {@link SegmentNode} trie.
+ * <p/>
+ * Only patterns made of plain static segments and whole '{param}' segments,
+ * optionally ended by '.{format}', can be compiled. Any other pattern (regex
+ * meta characters in a static segment, parameter mixed with text in a same
+ * segment, ...) keeps its regular expression matching.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+final class CompiledPattern {
+
+	private static final String FORMAT_SUFFIX = ".{format}";
+
+	private static final String FORMAT_NAME = "format";
+
+	/**
+	 * Characters having a special meaning in a {@link java.util.regex.Pattern}.
+	 */
+	private static final String REGEX_META_CHARACTERS = "\\^$.|?*+()[]{}";
+
+	/**
+	 * Segment values, null for a parameter segment.
+	 */
+	final String[] segments;
+
+	/**
+	 * Parameter names in declaration order.
+	 */
+	final String[] parameterNames;
+
+	/**
+	 * True if pattern ends with '.{format}'.
+	 */
+	final boolean format;
+
+	private CompiledPattern(final String[] segments, final String[] parameterNames, final boolean format) {
+		super();
+		this.segments = segments;
+		this.parameterNames = parameterNames;
+		this.format = format;
+	}
+
+	/**
+	 * Compile specified URL pattern.
+	 * 
+	 * @param pattern
+	 *            raw URL pattern (with its '.{format}' if any)
+	 * @return a {@link CompiledPattern} instance, or null if pattern cannot be
+	 *         handled without regular expression.
+	 */
+	static CompiledPattern compile(final String pattern) {
+		if ((pattern == null) || !pattern.startsWith("/")) {
+			return null;
+		}
+		String path = pattern;
+		final boolean format = path.endsWith(FORMAT_SUFFIX);
+		if (format) {
+			path = path.substring(0, path.length() - FORMAT_SUFFIX.length());
+		}
+		final String[] segments = path.substring(1).split("/", -1);
+		final List<String> names = new ArrayList<String>();
+		for (int i = 0; i < segments.length; i++) {
+			final String segment = segments[i];
+			if (isParameter(segment)) {
+				names.add(segment.substring(1, segment.length() - 1));
+				segments[i] = null;
+			} else if (!isStatic(segment)) {
+				return null;
+			}
+		}
+		if (format) {
+			names.add(FORMAT_NAME);
+		}
+		return new CompiledPattern(segments, names.toArray(new String[names.size()]), format);
+	}
+
+	/**
+	 * @return number of parameter segments.
+	 */
+	int parameterSegmentCount() {
+		return format ? parameterNames.length - 1 : parameterNames.length;
+	}
+
+	private static boolean isParameter(final String segment) {
+		if ((segment.length() < 3) || (segment.charAt(0) != '{') || (segment.charAt(segment.length() - 1) != '}')) {
+			return false;
+		}
+		for (int i = 1; i < segment.length() - 1; i++) {
+			if (!isWordCharacter(segment.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isStatic(final String segment) {
+		for (int i = 0; i < segment.length(); i++) {
+			if (REGEX_META_CHARACTERS.indexOf(segment.charAt(i)) >= 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	static boolean isWordCharacter(final char c) {
+		return ((c >= 'a') && (c <= 'z')) || ((c >= 'A') && (c <= 'Z')) || ((c >= '0') && (c <= '9')) || (c == '_');
+	}
+}
@@ -0,0 +1,76 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.route.trie;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.restexpress.route.Route;
+
+/**
+ * {@link PatternGroup} holds routes sharing a same URL pattern, and the
+ * precomputed value of the 'Allow' header returned when a path matches this
+ * pattern with an unsupported method.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+final class PatternGroup {
+
+	/**
+	 * Declaration rank: the first declared pattern matching a path wins.
+	 */
+	final long rank;
+
+	/**
+	 * First route of this group, used to match a path.
+	 */
+	final Route route;
+
+	/**
+	 * Allowed {@link HttpMethod} (immutable).
+	 */
+	final List<HttpMethod> methods;
+
+	/**
+	 * 'Allow' header value.
+	 */
+	final String allow;
+
+	PatternGroup(final long rank, final List<Route> routes) {
+		super();
+		this.rank = rank;
+		this.route = routes.get(0);
+		final List<HttpMethod> methods = new ArrayList<HttpMethod>(routes.size());
+		final StringBuilder allow = new StringBuilder();
+		for (final Route route : routes) {
+			if (!methods.contains(route.getMethod())) {
+				if (!methods.isEmpty()) {
+					allow.append(", ");
+				}
+				methods.add(route.getMethod());
+				allow.append(route.getMethod().getName());
+			}
+		}
+		this.methods = Collections.unmodifiableList(methods);
+		this.allow = allow.toString();
+	}
+}
@@ -0,0 +1,265 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.route.trie;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.restexpress.route.Route;
+
+/**
+ * {@link SegmentNode} is a node of the route trie: one level per path segment.
+ * Static children are found by hash lookup directly on the requested URL
+ * (without any substring), a single parameter child captures any segment
+ * value.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+final class SegmentNode {
+
+	/**
+	 * Static children by segment value.
+	 */
+	private Map<String, SegmentNode> statics;
+
+	/**
+	 * Open addressing table of static segment values (power of two length),
+	 * rebuilt when a static child is added.
+	 */
+	private String[] staticKeys;
+
+	/**
+	 * Static children, at same index as their segment value in staticKeys.
+	 */
+	private SegmentNode[] staticNodes;
+
+	/**
+	 * Parameter child.
+	 */
+	private SegmentNode parameter;
+
+	/**
+	 * Routes ending on this node without '.{format}', by HTTP method.
+	 */
+	private Map<HttpMethod, Entry> exact;
+
+	/**
+	 * Routes ending on this node with '.{format}', by HTTP method.
+	 */
+	private Map<HttpMethod, Entry> formatted;
+
+	/**
+	 * First pattern group ending on this node without '.{format}'.
+	 */
+	private PatternGroup exactGroup;
+
+	/**
+	 * First pattern group ending on this node with '.{format}'.
+	 */
+	private PatternGroup formattedGroup;
+
+	SegmentNode() {
+		super();
+	}
+
+	/**
+	 * Add specified entry for its compiled pattern. If an entry is ever
+	 * registered for the same node, method and format, the first one is kept
+	 * (as {@link Route} are matched in declaration order).
+	 * 
+	 * @param entry
+	 *            {@link Entry} to add
+	 */
+	void add(final Entry entry) {
+		final SegmentNode node = terminal(entry.pattern);
+		if (entry.pattern.format) {
+			if (node.formatted == null) {
+				node.formatted = new HashMap<HttpMethod, Entry>();
+			}
+			add(node.formatted, entry);
+		} else {
+			if (node.exact == null) {
+				node.exact = new HashMap<HttpMethod, Entry>();
+			}
+			add(node.exact, entry);
+		}
+	}
+
+	/**
+	 * Add specified {@link PatternGroup} for one of its compiled pattern. If a
+	 * group is ever registered for the same node and format, the first one is
+	 * kept.
+	 * 
+	 * @param group
+	 *            {@link PatternGroup} to add
+	 * @param pattern
+	 *            {@link CompiledPattern} of the first route of this group
+	 */
+	void add(final PatternGroup group, final CompiledPattern pattern) {
+		final SegmentNode node = terminal(pattern);
+		if (pattern.format) {
+			if (node.formattedGroup == null) {
+				node.formattedGroup = group;
+			}
+		} else if (node.exactGroup == null) {
+			node.exactGroup = group;
+		}
+	}
+
+	/**
+	 * @param url
+	 *            requested URL
+	 * @param start
+	 *            segment start index
+	 * @param end
+	 *            segment end index
+	 * @return static child for segment value url[start, end[, or null if
+	 *         none.
+	 */
+	SegmentNode getStatic(final String url, final int start, final int end) {
+		final String[] keys = staticKeys;
+		if (keys == null) {
+			return null;
+		}
+		final int length = end - start;
+		final int mask = keys.length - 1;
+		int index = hash(url, start, end) & mask;
+		String key;
+		while ((key = keys[index]) != null) {
+			if ((key.length() == length) && url.regionMatches(start, key, 0, length)) {
+				return staticNodes[index];
+			}
+			index = (index + 1) & mask;
+		}
+		return null;
+	}
+
+	SegmentNode getParameter() {
+		return parameter;
+	}
+
+	Entry getExact(final HttpMethod method) {
+		return exact != null ? exact.get(method) : null;
+	}
+
+	Entry getFormatted(final HttpMethod method) {
+		return formatted != null ? formatted.get(method) : null;
+	}
+
+	PatternGroup getExactGroup() {
+		return exactGroup;
+	}
+
+	PatternGroup getFormattedGroup() {
+		return formattedGroup;
+	}
+
+	private SegmentNode terminal(final CompiledPattern pattern) {
+		SegmentNode node = this;
+		for (final String segment : pattern.segments) {
+			node = segment == null ? node.parameterChild() : node.staticChild(segment);
+		}
+		return node;
+	}
+
+	private SegmentNode staticChild(final String segment) {
+		if (statics == null) {
+			statics = new HashMap<String, SegmentNode>();
+		}
+		SegmentNode child = statics.get(segment);
+		if (child == null) {
+			child = new SegmentNode();
+			statics.put(segment, child);
+			rehash();
+		}
+		return child;
+	}
+
+	private void rehash() {
+		int capacity = 2;
+		while (capacity < statics.size() * 2) {
+			capacity <<= 1;
+		}
+		final String[] keys = new String[capacity];
+		final SegmentNode[] nodes = new SegmentNode[capacity];
+		for (final Map.Entry<String, SegmentNode> entry : statics.entrySet()) {
+			final String key = entry.getKey();
+			int index = hash(key, 0, key.length()) & (capacity - 1);
+			while (keys[index] != null) {
+				index = (index + 1) & (capacity - 1);
+			}
+			keys[index] = key;
+			nodes[index] = entry.getValue();
+		}
+		staticKeys = keys;
+		staticNodes = nodes;
+	}
+
+	/**
+	 * @return hash of value[start, end[, same as {@link String#hashCode()}
+	 *         of this substring, spread.
+	 */
+	private static int hash(final String value, final int start, final int end) {
+		int h = 0;
+		for (int i = start; i < end; i++) {
+			h = 31 * h + value.charAt(i);
+		}
+		return h ^ (h >>> 16);
+	}
+
+	private SegmentNode parameterChild() {
+		if (parameter == null) {
+			parameter = new SegmentNode();
+		}
+		return parameter;
+	}
+
+	private static void add(final Map<HttpMethod, Entry> entries, final Entry entry) {
+		if (!entries.containsKey(entry.route.getMethod())) {
+			entries.put(entry.route.getMethod(), entry);
+		}
+	}
+
+	/**
+	 * {@link Entry} associate a {@link Route} with one of its compiled pattern.
+	 */
+	static final class Entry {
+		/**
+		 * {@link Route} instance.
+		 */
+		final Route route;
+		/**
+		 * Compiled pattern (main pattern or alias).
+		 */
+		final CompiledPattern pattern;
+		/**
+		 * Declaration rank: lowest rank wins when several routes match.
+		 */
+		final long rank;
+
+		Entry(final Route route, final CompiledPattern pattern, final long rank) {
+			super();
+			this.route = route;
+			this.pattern = pattern;
+			this.rank = rank;
+		}
+	}
+}
@@ -0,0 +1,468 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.route.trie;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.restexpress.Request;
+import org.restexpress.http.HttpHeader;
+import org.restexpress.http.MethodNotAllowedException;
+import org.restexpress.http.NotFoundException;
+import org.restexpress.pipeline.MessageContext;
+import org.restexpress.route.Action;
+import org.restexpress.route.Route;
+import org.restexpress.route.RouteMapping;
+import org.restexpress.route.RouteResolver;
+import org.restexpress.route.parameterized.ParameterizedRoute;
+import org.restexpress.route.trie.SegmentNode.Entry;
+import org.restexpress.url.UrlMatch;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * {@link TrieRouteResolver} implements a {@link RouteResolver} which compiles
+ * {@link ParameterizedRoute} patterns of a {@link RouteMapping} into a segment
+ * trie. Static segments are resolved by hash lookup and '{param}' segments are
+ * captured without any regular expression, so resolution cost depends on path
+ * depth, not on route count.
+ * <p/>
+ * Routes which cannot be compiled (like {@link org.restexpress.route.regex.RegexRoute}) are
+ * matched with their own regular expression, and declaration order is kept:
+ * the first declared route matching a path wins, as with
+ * {@link RouteMapping#getActionFor(HttpMethod, String)}.
+ * <p/>
+ * The same traversal also resolves the allowed methods of an unmatched path:
+ * the 'Allow' header value of each URL pattern is computed once, when this
+ * resolver is built.
+ * <p/>
+ * URL parameters are captured as offsets into the requested URL: a resolved
+ * {@link Action} holds a single {@link UrlMatch} sharing parameter names with
+ * the compiled pattern, and values are extracted only when read.
+ * <p/>
+ * Routes are compiled at construction time, so all routes must be declared
+ * before.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public final class TrieRouteResolver implements RouteResolver {
+
+	private final RouteMapping routeMapping;
+
+	private final SegmentNode root = new SegmentNode();
+
+	/**
+	 * Routes matched with regular expression, by HTTP method, in declaration
+	 * order.
+	 */
+	private final Map<HttpMethod, List<Entry>> fallbacks = new HashMap<HttpMethod, List<Entry>>();
+
+	/**
+	 * Pattern groups matched with regular expression, in declaration order.
+	 */
+	private final List<PatternGroup> fallbackGroups = new ArrayList<PatternGroup>();
+
+	/**
+	 * Maximum number of parameter segments of a compiled pattern.
+	 */
+	private int maxParameters = 0;
+
+	/**
+	 * {@link Lookup} state, reused by each I/O thread.
+	 */
+	private final ThreadLocal<Lookup> lookups = new ThreadLocal<Lookup>() {
+		@Override
+		protected Lookup initialValue() {
+			return new Lookup(maxParameters);
+		}
+	};
+
+	/**
+	 * Build a new instance of {@link TrieRouteResolver}.
+	 * 
+	 * @param routeMapping
+	 *            {@link RouteMapping} to compile
+	 * @throws NullPointerException
+	 *             if routeMapping is null
+	 */
+	public TrieRouteResolver(final RouteMapping routeMapping) throws NullPointerException {
+		super();
+		this.routeMapping = Preconditions.checkNotNull(routeMapping);
+		for (final HttpMethod method : new HttpMethod[] { HttpMethod.DELETE, HttpMethod.GET, HttpMethod.POST, HttpMethod.PUT, HttpMethod.HEAD, HttpMethod.OPTIONS }) {
+			final List<Route> routes = routeMapping.getRoutesFor(method);
+			for (int index = 0; index < routes.size(); index++) {
+				compile(routes.get(index), ((long) index) << 16);
+			}
+		}
+		long rank = 0;
+		for (final List<Route> routes : routeMapping.getRoutesByPattern().values()) {
+			compile(new PatternGroup(rank++, routes));
+		}
+	}
+
+	/**
+	 * @return compiled {@link RouteMapping}.
+	 */
+	public RouteMapping routeMapping() {
+		return routeMapping;
+	}
+
+	@Override
+	public Route getNamedRoute(final String name, final HttpMethod method) {
+		return routeMapping.getNamedRoute(name, method);
+	}
+
+	@Override
+	public String getNamedUrl(final String name, final HttpMethod method) {
+		return routeMapping.getNamedUrl(name, method);
+	}
+
+	/**
+	 * Finds which action is appropriate for the given request. Matched route,
+	 * allowed methods of the path or no match are all resolved by a single trie
+	 * traversal.
+	 * 
+	 * @param context
+	 *            {@link MessageContext} instance
+	 * @return {@link Action}
+	 */
+	@Override
+	public Action resolve(final MessageContext context) throws MethodNotAllowedException, NotFoundException {
+		final Request request = context.getRequest();
+		final Lookup lookup = lookup(request.getEffectiveHttpMethod(), request.getPath());
+		final Action action = toAction(lookup);
+
+		if (action != null)
+			return action;
+
+		final PatternGroup group = toPatternGroup(lookup);
+		if (group != null) {
+			context.getResponse().addHeader(HttpHeader.ALLOW, group.allow);
+			throw new MethodNotAllowedException(request.getUrl());
+		}
+
+		throw new NotFoundException("Unresolvable URL: " + request.getUrl());
+	}
+
+	/**
+	 * Attempts to match the path and method to an appropriate Route, returning
+	 * an Action instance if a match is found. Returns null if no match is
+	 * found.
+	 * 
+	 * @param method
+	 *            the HTTP method
+	 * @param url
+	 *            the path portion of the url to match (with or without query
+	 *            string).
+	 * @return a new Action or null, if the path/method combination don't match.
+	 */
+	public Action getActionFor(final HttpMethod method, final String url) {
+		return toAction(lookup(method, url));
+	}
+
+	/**
+	 * Returns the supported HTTP methods for the given URL path.
+	 * 
+	 * @param url
+	 *            the path portion of the URL (e.g. after the domain and port).
+	 * @return An immutable list of appropriate HTTP methods for the given
+	 *         path. Never null.
+	 */
+	public List<HttpMethod> getAllowedMethods(final String url) {
+		final PatternGroup group = toPatternGroup(lookup(null, url));
+		return group != null ? group.methods : Collections.<HttpMethod> emptyList();
+	}
+
+	private Lookup lookup(final HttpMethod method, final String url) {
+		final Lookup lookup = lookups.get().reset(method, url);
+		if ((url.length() > 0) && (url.charAt(0) == '/')) {
+			lookup.visit(root, 1, 0);
+		}
+		return lookup;
+	}
+
+	private Action toAction(final Lookup lookup) {
+		final List<Entry> entries = fallbacks.get(lookup.method);
+		if (entries != null) {
+			for (final Entry entry : entries) {
+				if (entry.rank >= lookup.bestRank)
+					break;
+				final UrlMatch match = entry.route.match(lookup.url);
+				if (match != null)
+					return new Action(entry.route, match);
+			}
+		}
+		return lookup.best != null ? new Action(lookup.best.route, lookup.toUrlMatch()) : null;
+	}
+
+	private PatternGroup toPatternGroup(final Lookup lookup) {
+		for (final PatternGroup group : fallbackGroups) {
+			if (group.rank >= lookup.bestGroupRank)
+				break;
+			if (group.route.match(lookup.url) != null)
+				return group;
+		}
+		return lookup.bestGroup;
+	}
+
+	private void compile(final PatternGroup group) {
+		final List<CompiledPattern> patterns = compile(group.route);
+		if (patterns == null) {
+			fallbackGroups.add(group);
+			return;
+		}
+		for (final CompiledPattern pattern : patterns) {
+			root.add(group, pattern);
+		}
+	}
+
+	private void compile(final Route route, final long rank) {
+		final List<CompiledPattern> patterns = compile(route);
+		if (patterns == null) {
+			List<Entry> entries = fallbacks.get(route.getMethod());
+			if (entries == null) {
+				entries = new ArrayList<Entry>();
+				fallbacks.put(route.getMethod(), entries);
+			}
+			entries.add(new Entry(route, null, rank));
+			return;
+		}
+		for (int i = 0; i < patterns.size(); i++) {
+			final CompiledPattern pattern = patterns.get(i);
+			root.add(new Entry(route, pattern, rank + i));
+			maxParameters = Math.max(maxParameters, pattern.parameterSegmentCount());
+		}
+	}
+
+	/**
+	 * @param route
+	 * @return a {@link List} of {@link CompiledPattern} (main pattern and
+	 *         aliases), or null if at least one of them cannot be compiled.
+	 */
+	private static List<CompiledPattern> compile(final Route route) {
+		if (!(route instanceof ParameterizedRoute))
+			return null;
+		final List<String> urlPatterns = ((ParameterizedRoute) route).getUrlPatterns();
+		final List<CompiledPattern> patterns = new ArrayList<CompiledPattern>(urlPatterns.size());
+		for (final String urlPattern : urlPatterns) {
+			final CompiledPattern pattern = CompiledPattern.compile(urlPattern);
+			if (pattern == null)
+				return null;
+			patterns.add(pattern);
+		}
+		return patterns;
+	}
+
+	/**
+	 * @param c
+	 * @return true if c is accepted in a parameter segment (same characters as
+	 *         {@link org.restexpress.url.UrlPattern}).
+	 */
+	static boolean isParameterCharacter(final char c) {
+		return CompiledPattern.isWordCharacter(c) || ("%-.~!$&'()*+,;=:[]@".indexOf(c) >= 0);
+	}
+
+	/**
+	 * @param c
+	 * @return true if c is accepted in a format specifier.
+	 */
+	static boolean isFormatCharacter(final char c) {
+		return CompiledPattern.isWordCharacter(c) || (c == '%');
+	}
+
+	/**
+	 * {@link Lookup} holds the state of a single trie traversal. An instance
+	 * is reused for each traversal of a same thread.
+	 */
+	private static final class Lookup {
+		private final int[] captures;
+		private final int[] bestCaptures;
+		private HttpMethod method;
+		private String url;
+		private int pathEnd;
+		private Entry best;
+		private long bestRank;
+		private int bestFormatStart;
+		private int bestFormatEnd;
+		private PatternGroup bestGroup;
+		private long bestGroupRank;
+
+		Lookup(final int maxParameters) {
+			super();
+			this.captures = new int[maxParameters * 2];
+			this.bestCaptures = new int[maxParameters * 2];
+		}
+
+		/**
+		 * Reset this instance for a new traversal.
+		 * 
+		 * @param method
+		 *            HTTP method, null to resolve pattern group only
+		 * @param url
+		 *            requested URL
+		 * @return this instance
+		 */
+		Lookup reset(final HttpMethod method, final String url) {
+			this.method = method;
+			this.url = url;
+			final int query = url.indexOf('?');
+			this.pathEnd = query < 0 ? url.length() : query;
+			best = null;
+			bestRank = Long.MAX_VALUE;
+			bestFormatStart = -1;
+			bestFormatEnd = -1;
+			bestGroup = null;
+			bestGroupRank = Long.MAX_VALUE;
+			return this;
+		}
+
+		/**
+		 * Visit node for segment starting at specified index.
+		 * 
+		 * @param node
+		 *            current node
+		 * @param start
+		 *            segment start index
+		 * @param depth
+		 *            number of captured parameters
+		 */
+		void visit(final SegmentNode node, final int start, final int depth) {
+			int end = url.indexOf('/', start);
+			if ((end < 0) || (end > pathEnd)) {
+				visitLast(node, start, depth);
+				return;
+			}
+			final SegmentNode child = node.getStatic(url, start, end);
+			if (child != null) {
+				visit(child, end + 1, depth);
+			}
+			final SegmentNode parameter = node.getParameter();
+			if ((parameter != null) && (depth * 2 < captures.length) && isParameter(start, end)) {
+				captures[depth * 2] = start;
+				captures[depth * 2 + 1] = end;
+				visit(parameter, end + 1, depth + 1);
+			}
+		}
+
+		private void visitLast(final SegmentNode node, final int start, final int depth) {
+			final int end = pathEnd;
+			final int dot = formatSeparator(start, end);
+			SegmentNode child = node.getStatic(url, start, end);
+			if (child != null) {
+				offer(child, false, depth, -1, -1);
+				offer(child, true, depth, -1, -1);
+			}
+			if (dot >= 0) {
+				child = node.getStatic(url, start, dot);
+				if (child != null) {
+					offer(child, true, depth, dot + 1, end);
+				}
+			}
+			final SegmentNode parameter = node.getParameter();
+			if ((parameter != null) && (depth * 2 < captures.length) && isParameter(start, end)) {
+				captures[depth * 2] = start;
+				captures[depth * 2 + 1] = end;
+				offer(parameter, false, depth + 1, -1, -1);
+				if (dot > start) {
+					captures[depth * 2 + 1] = dot;
+					offer(parameter, true, depth + 1, dot + 1, end);
+				} else {
+					offer(parameter, true, depth + 1, -1, -1);
+				}
+			}
+		}
+
+		/**
+		 * Offer route and pattern group of a terminal node.
+		 * 
+		 * @param node
+		 *            terminal node
+		 * @param formatted
+		 *            true for patterns ending with '.{format}'
+		 * @param depth
+		 *            number of captured parameters
+		 * @param formatStart
+		 *            format start index, -1 if none
+		 * @param formatEnd
+		 *            format end index, -1 if none
+		 */
+		private void offer(final SegmentNode node, final boolean formatted, final int depth, final int formatStart, final int formatEnd) {
+			final PatternGroup group = formatted ? node.getFormattedGroup() : node.getExactGroup();
+			if ((group != null) && (group.rank < bestGroupRank)) {
+				bestGroup = group;
+				bestGroupRank = group.rank;
+			}
+			if (method == null)
+				return;
+			final Entry entry = formatted ? node.getFormatted(method) : node.getExact(method);
+			if ((entry != null) && (entry.rank < bestRank)) {
+				best = entry;
+				bestRank = entry.rank;
+				System.arraycopy(captures, 0, bestCaptures, 0, depth * 2);
+				bestFormatStart = formatStart;
+				bestFormatEnd = formatEnd;
+			}
+		}
+
+		/**
+		 * @return true if segment is a non empty parameter value.
+		 */
+		private boolean isParameter(final int start, final int end) {
+			if (start >= end)
+				return false;
+			for (int i = start; i < end; i++) {
+				if (!isParameterCharacter(url.charAt(i)))
+					return false;
+			}
+			return true;
+		}
+
+		/**
+		 * @return index of the '.' preceding a format specifier in the last
+		 *         segment, or -1 if none.
+		 */
+		private int formatSeparator(final int start, final int end) {
+			final int dot = url.lastIndexOf('.', end - 1);
+			if ((dot < start) || (dot == end - 1))
+				return -1;
+			for (int i = dot + 1; i < end; i++) {
+				if (!isFormatCharacter(url.charAt(i)))
+					return -1;
+			}
+			return dot;
+		}
+
+		UrlMatch toUrlMatch() {
+			final String[] names = best.pattern.parameterNames;
+			final int[] offsets = new int[names.length * 2];
+			final int count = best.pattern.parameterSegmentCount();
+			System.arraycopy(bestCaptures, 0, offsets, 0, count * 2);
+			if (best.pattern.format) {
+				offsets[count * 2] = bestFormatStart;
+				offsets[count * 2 + 1] = bestFormatEnd;
+			}
+			return new UrlMatch(url, names, offsets);
+		}
+	}
+}
@@ -20,6 +20,7 @@
 package org.restexpress.serialization;
 
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
@@ -36,8 +37,9 @@ import org.restexpress.domain.MediaType;
  * :
  * <ul>
  * <li>manage supported media type</li>
- * <li>define utility methods to obtain {@link OutputStreamWriter} and
- * {@link InputStreamReader} from {@link ChannelBuffer}</li>
+ * <li>define utility methods to obtain {@link OutputStream},
+ * {@link OutputStreamWriter} and {@link InputStreamReader} from
+ * {@link ChannelBuffer}</li>
  * </ul>
  * 
  * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
@@ -148,6 +150,23 @@ public abstract class AbstractProcessor implements Processor {
 		return new OutputStreamWriter(new ChannelBufferOutputStream(buffer), charset);
 	}
 
+	/**
+	 * @param buffer
+	 * @return an {@link OutputStream} which write bytes straight into buffer,
+	 *         for encoders which produce bytes themselves.
+	 */
+	protected OutputStream getOutputStream(ChannelBuffer buffer) {
+		return new ChannelBufferOutputStream(buffer);
+	}
+
+	/**
+	 * @return true if {@link #charset} is UTF-8, the encoding of byte
+	 *         oriented Jackson generators.
+	 */
+	protected boolean isUtf8() {
+		return CharacterSet.UTF_8.getCharset().equals(charset);
+	}
+
 	/**
 	 * @param buffer
 	 * @return an {@link InputStreamReader} with specified {@link Charset}.
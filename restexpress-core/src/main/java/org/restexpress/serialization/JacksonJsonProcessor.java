@@ -90,7 +90,12 @@ public class JacksonJsonProcessor extends JsonProcessor {
 	public void write(Object value, ChannelBuffer buffer) throws SerializationException {
 		try {
 			if (value != null) {
-				objectMapper.writeValue(getOutputStreamWriter(buffer), value);
+				// byte oriented generator: no char to byte layer
+				if (isUtf8()) {
+					objectMapper.writeValue(getOutputStream(buffer), value);
+				} else {
+					objectMapper.writeValue(getOutputStreamWriter(buffer), value);
+				}
 			}
 		} catch (final JsonProcessingException e) {
 			throw new SerializationException(e);
@@ -21,6 +21,8 @@ package org.restexpress.serialization;
 
 import java.util.List;
 
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.restexpress.SerializationException;
 import org.restexpress.domain.CharacterSet;
 import org.restexpress.domain.MediaType;
 
@@ -34,11 +36,13 @@ import org.restexpress.domain.MediaType;
  * <li>MediaType.TEXT_JAVASCRIPT with CharacterSet.UTF_8</li>
  * <li>MediaType.APPLICATION_HAL_JSON with CharacterSet.UTF_8</li>
  * </ul>
+ * A sequence is streamed as a JSON array, each element being written with
+ * {@link #write(Object, ChannelBuffer)}.
  * 
  * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
  * 
  */
-public abstract class JsonProcessor extends AbstractProcessor {
+public abstract class JsonProcessor extends AbstractProcessor implements StreamingProcessor {
 	/**
 	 * Build a new instance of {@link JsonProcessor} with default
 	 * {@link MediaType}.
@@ -63,4 +67,26 @@ public abstract class JsonProcessor extends AbstractProcessor {
 		super(mediaTypes);
 	}
 
+
+	@Override
+	public void writeSequenceStart(ChannelBuffer buffer) throws SerializationException {
+		buffer.writeBytes("[".getBytes(charset));
+	}
+
+	@Override
+	public void writeSequenceElement(Object value, long index, ChannelBuffer buffer) throws SerializationException {
+		if (index > 0) {
+			buffer.writeBytes(",".getBytes(charset));
+		}
+		if (value == null) {
+			buffer.writeBytes("null".getBytes(charset));
+		} else {
+			write(value, buffer);
+		}
+	}
+
+	@Override
+	public void writeSequenceEnd(ChannelBuffer buffer) throws SerializationException {
+		buffer.writeBytes("]".getBytes(charset));
+	}
 }
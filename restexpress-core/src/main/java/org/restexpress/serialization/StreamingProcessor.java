@@ -0,0 +1,64 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.serialization;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.restexpress.SerializationException;
+
+/**
+ * {@link StreamingProcessor} is a {@link Processor} which can serialize a
+ * sequence element by element, in several buffers, with the same result as
+ * {@link Processor#write(Object, ChannelBuffer)} on the whole collection.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public interface StreamingProcessor extends Processor {
+
+	/**
+	 * Write beginning of a sequence.
+	 * 
+	 * @param buffer
+	 * @throws SerializationException
+	 *             if error occurs
+	 */
+	public void writeSequenceStart(ChannelBuffer buffer) throws SerializationException;
+
+	/**
+	 * Write an element of a sequence.
+	 * 
+	 * @param value
+	 *            element, can be null
+	 * @param index
+	 *            position of element in sequence, starting from 0
+	 * @param buffer
+	 * @throws SerializationException
+	 *             if error occurs
+	 */
+	public void writeSequenceElement(Object value, long index, ChannelBuffer buffer) throws SerializationException;
+
+	/**
+	 * Write end of a sequence.
+	 * 
+	 * @param buffer
+	 * @throws SerializationException
+	 *             if error occurs
+	 */
+	public void writeSequenceEnd(ChannelBuffer buffer) throws SerializationException;
+}
@@ -0,0 +1,175 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.settings;
+
+import java.io.Serializable;
+
+/**
+ * {@link AdmissionSettings} group settings of admission control (see
+ * {@link ServerSettings#setAdmissionControl(AdmissionSettings)}): the number
+ * of requests processed or waiting for an executor is limited, and this limit
+ * adapts to the service time of recent requests.
+ * <p>
+ * The limit grows by one per window of limit completed requests while their
+ * average latency stays under target latency (additive increase), and shrinks
+ * by 10% once per target latency interval while it stays above (multiplicative
+ * decrease).
+ * </p>
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public class AdmissionSettings implements Serializable {
+
+	private static final long serialVersionUID = 4150933460785472193L;
+	private int initialLimit = 20;
+	private int minLimit = 1;
+	private int maxLimit = 1000;
+	private long targetLatency = 100;
+	private long retryAfter = 1;
+
+	/**
+	 * Build a new instance.
+	 */
+	public AdmissionSettings() {
+		super();
+	}
+
+	public int getInitialLimit() {
+		return initialLimit;
+	}
+
+	/**
+	 * Default value: 20.
+	 * 
+	 * @param initialLimit
+	 *            initial number of concurrent requests.
+	 * @return this AdmissionSettings instance.
+	 */
+	public AdmissionSettings setInitialLimit(final int initialLimit) {
+		this.initialLimit = initialLimit;
+		return this;
+	}
+
+	public int getMinLimit() {
+		return minLimit;
+	}
+
+	/**
+	 * Default value: 1.
+	 * 
+	 * @param minLimit
+	 *            minimal number of concurrent requests.
+	 * @return this AdmissionSettings instance.
+	 */
+	public AdmissionSettings setMinLimit(final int minLimit) {
+		this.minLimit = minLimit;
+		return this;
+	}
+
+	public int getMaxLimit() {
+		return maxLimit;
+	}
+
+	/**
+	 * Default value: 1000.
+	 * 
+	 * @param maxLimit
+	 *            maximal number of concurrent requests.
+	 * @return this AdmissionSettings instance.
+	 */
+	public AdmissionSettings setMaxLimit(final int maxLimit) {
+		this.maxLimit = maxLimit;
+		return this;
+	}
+
+	public long getTargetLatency() {
+		return targetLatency;
+	}
+
+	/**
+	 * Default value: 100 ms.
+	 * 
+	 * @param targetLatency
+	 *            latency in milliseconds, from request reception to response,
+	 *            above which the limit decrease.
+	 * @return this AdmissionSettings instance.
+	 */
+	public AdmissionSettings setTargetLatency(final long targetLatency) {
+		this.targetLatency = targetLatency;
+		return this;
+	}
+
+	public long getRetryAfter() {
+		return retryAfter;
+	}
+
+	/**
+	 * Default value: 1 s.
+	 * 
+	 * @param retryAfter
+	 *            delay in seconds of the Retry-After header of rejected
+	 *            requests.
+	 * @return this AdmissionSettings instance.
+	 */
+	public AdmissionSettings setRetryAfter(final long retryAfter) {
+		this.retryAfter = retryAfter;
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return "AdmissionSettings {initialLimit=\"" + initialLimit + "\", minLimit=\"" + minLimit + "\", maxLimit=\"" + maxLimit + "\", targetLatency=\"" + targetLatency + "\", retryAfter=\"" + retryAfter + "\"}";
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + initialLimit;
+		result = prime * result + minLimit;
+		result = prime * result + maxLimit;
+		result = prime * result + (int) (targetLatency ^ (targetLatency >>> 32));
+		result = prime * result + (int) (retryAfter ^ (retryAfter >>> 32));
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		AdmissionSettings other = (AdmissionSettings) obj;
+		if (initialLimit != other.initialLimit)
+			return false;
+		if (minLimit != other.minLimit)
+			return false;
+		if (maxLimit != other.maxLimit)
+			return false;
+		if (targetLatency != other.targetLatency)
+			return false;
+		if (retryAfter != other.retryAfter)
+			return false;
+		return true;
+	}
+
+}
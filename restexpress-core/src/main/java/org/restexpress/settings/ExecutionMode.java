@@ -0,0 +1,40 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.settings;
+
+/**
+ * {@link ExecutionMode} define how requests are dispatched out of I/O threads
+ * (see {@link ServerSettings#setExecutionMode(ExecutionMode)}).
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public enum ExecutionMode {
+	/**
+	 * A fixed pool of {@link ServerSettings#getExecutorThreadPoolSize()}
+	 * threads (the default).
+	 */
+	THREAD_POOL,
+	/**
+	 * A virtual thread per channel activity, when running on a JVM which
+	 * support them (Java 21 and later), otherwise fallback to
+	 * {@link #THREAD_POOL}.
+	 */
+	VIRTUAL_THREAD;
+}
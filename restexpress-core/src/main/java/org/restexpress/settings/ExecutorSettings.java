@@ -0,0 +1,135 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.settings;
+
+import java.io.Serializable;
+
+/**
+ * {@link ExecutorSettings} group settings of a named executor (see
+ * {@link ServerSettings#addExecutor(String, ExecutorSettings)}), used as a
+ * bulkhead for routes declared with
+ * {@link org.restexpress.route.RouteBuilder#executor(String)}.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public class ExecutorSettings implements Serializable {
+
+	private static final long serialVersionUID = -3937581284012717702L;
+	private int poolSize = 10;
+	private int queueSize = 100;
+	private RejectionPolicy rejectionPolicy = RejectionPolicy.ABORT;
+
+	/**
+	 * Build a new instance.
+	 */
+	public ExecutorSettings() {
+		super();
+	}
+
+	public int getPoolSize() {
+		return poolSize;
+	}
+
+	/**
+	 * Set the number of threads of this executor.
+	 * 
+	 * Default value: 10.
+	 * 
+	 * @param poolSize
+	 *            the number of threads, must be positive.
+	 * @return this ExecutorSettings instance.
+	 */
+	public ExecutorSettings setPoolSize(final int poolSize) {
+		this.poolSize = poolSize;
+		return this;
+	}
+
+	public int getQueueSize() {
+		return queueSize;
+	}
+
+	/**
+	 * Set the maximum number of requests waiting for a thread of this
+	 * executor. Beyond, requests are handled according to the
+	 * {@link RejectionPolicy}. A value of zero reject requests as soon as all
+	 * threads are busy.
+	 * 
+	 * Default value: 100.
+	 * 
+	 * @param queueSize
+	 *            the maximum number of waiting requests.
+	 * @return this ExecutorSettings instance.
+	 */
+	public ExecutorSettings setQueueSize(final int queueSize) {
+		this.queueSize = queueSize;
+		return this;
+	}
+
+	public RejectionPolicy getRejectionPolicy() {
+		return rejectionPolicy;
+	}
+
+	/**
+	 * Default value: {@link RejectionPolicy#ABORT}.
+	 * 
+	 * @param rejectionPolicy
+	 *            the {@link RejectionPolicy} of requests when this executor is
+	 *            saturated.
+	 * @return this ExecutorSettings instance.
+	 */
+	public ExecutorSettings setRejectionPolicy(final RejectionPolicy rejectionPolicy) {
+		this.rejectionPolicy = rejectionPolicy;
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return "ExecutorSettings {poolSize=\"" + poolSize + "\", queueSize=\"" + queueSize + "\", rejectionPolicy=\"" + rejectionPolicy + "\"}";
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + poolSize;
+		result = prime * result + queueSize;
+		result = prime * result + ((rejectionPolicy == null) ? 0 : rejectionPolicy.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		ExecutorSettings other = (ExecutorSettings) obj;
+		if (poolSize != other.poolSize)
+			return false;
+		if (queueSize != other.queueSize)
+			return false;
+		if (rejectionPolicy != other.rejectionPolicy)
+			return false;
+		return true;
+	}
+
+}
@@ -0,0 +1,41 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.settings;
+
+/**
+ * {@link RejectionPolicy} define what happens to a request when its executor
+ * is saturated (see {@link ExecutorSettings#setRejectionPolicy(RejectionPolicy)}
+ * ).
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public enum RejectionPolicy {
+	/**
+	 * Reject request with a
+	 * {@link org.restexpress.http.ServiceUnavailableException} (503), the
+	 * default.
+	 */
+	ABORT,
+	/**
+	 * Process request with the default executor of the server, losing the
+	 * isolation of its route while this executor is saturated.
+	 */
+	DEFAULT_EXECUTOR;
+}
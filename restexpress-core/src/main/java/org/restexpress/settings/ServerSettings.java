@@ -36,7 +36,11 @@
 package org.restexpress.settings;
 
 import java.io.Serializable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
+import org.jboss.netty.handler.codec.http.multipart.DefaultHttpDataFactory;
 import org.restexpress.domain.CharacterSet;
 import org.restexpress.domain.MediaType;
 import org.restexpress.pipeline.RestExpressPipelineFactory;
@@ -66,6 +70,7 @@ public class ServerSettings implements Serializable {
 	private boolean keepAlive = Boolean.TRUE;
 	private boolean reuseAddress = Boolean.TRUE;
 	private int maxContentSize = RestExpressPipelineFactory.DEFAULT_MAX_CONTENT_LENGTH;
+	private long uploadSpillThreshold = DefaultHttpDataFactory.MINSIZE;
 
 	/**
 	 * This controls the number of concurrent connections the application can
@@ -81,6 +86,19 @@ public class ServerSettings implements Serializable {
 	 */
 	private int executorThreadPoolSize = 10;
 
+	/**
+	 * This controls how requests are dispatched out of I/O threads.
+	 */
+	private ExecutionMode executionMode = ExecutionMode.THREAD_POOL;
+	/**
+	 * Named executors, see {@link #addExecutor(String, ExecutorSettings)}.
+	 */
+	private final LinkedHashMap<String, ExecutorSettings> executors = new LinkedHashMap<String, ExecutorSettings>();
+	/**
+	 * Admission control, disabled if null.
+	 */
+	private AdmissionSettings admissionControl = null;
+
 	/***
 	 * Default format serialization (Application JSON UTF-8 per default).
 	 */
@@ -213,6 +231,85 @@ public class ServerSettings implements Serializable {
 		return this;
 	}
 
+	/**
+	 * @see #setExecutionMode(ExecutionMode).
+	 * @return
+	 */
+	public ExecutionMode getExecutionMode() {
+		return executionMode;
+	}
+
+	/**
+	 * Set how requests are dispatched out of I/O threads. With
+	 * {@link ExecutionMode#VIRTUAL_THREAD}, requests of a channel are processed
+	 * in order on a virtual thread, so blocking controllers did not need a
+	 * larger executor pool. An executor thread pool size of zero still process
+	 * requests on I/O threads.
+	 * 
+	 * Default value: {@link ExecutionMode#THREAD_POOL}.
+	 * 
+	 * @param executionMode
+	 *            the {@link ExecutionMode}.
+	 * @return the RestExpress instance.
+	 */
+	public ServerSettings setExecutionMode(final ExecutionMode executionMode) {
+		this.executionMode = executionMode;
+		return this;
+	}
+
+	/**
+	 * @see #addExecutor(String, ExecutorSettings).
+	 * @return an unmodifiable {@link Map} of named executors settings.
+	 */
+	public Map<String, ExecutorSettings> getExecutors() {
+		return Collections.unmodifiableMap(executors);
+	}
+
+	/**
+	 * Declare a named executor, with its own threads and queue, processing
+	 * requests of routes declared with
+	 * {@link org.restexpress.route.RouteBuilder#executor(String)}. Others
+	 * routes are still processed by the default executor (see
+	 * {@link #setExecutorThreadPoolSize(int)}).
+	 * 
+	 * @param name
+	 *            executor name.
+	 * @param executorSettings
+	 *            the {@link ExecutorSettings}.
+	 * @return the RestExpress instance.
+	 */
+	public ServerSettings addExecutor(final String name, final ExecutorSettings executorSettings) {
+		this.executors.put(name, executorSettings);
+		return this;
+	}
+
+	/**
+	 * @see #setAdmissionControl(AdmissionSettings).
+	 * @return {@link AdmissionSettings}, or null if admission control is
+	 *         disabled.
+	 */
+	public AdmissionSettings getAdmissionControl() {
+		return admissionControl;
+	}
+
+	/**
+	 * Enable admission control: beyond an adaptive limit of concurrent
+	 * requests, requests are rejected early with a 503 (Service Unavailable)
+	 * and a Retry-After header, and reads of their channel are suspended until
+	 * the load decrease. Without it, requests wait in executor queue without
+	 * bound under overload.
+	 * 
+	 * Default value: null (disabled).
+	 * 
+	 * @param admissionControl
+	 *            the {@link AdmissionSettings}, null to disable.
+	 * @return the RestExpress instance.
+	 */
+	public ServerSettings setAdmissionControl(final AdmissionSettings admissionControl) {
+		this.admissionControl = admissionControl;
+		return this;
+	}
+
 	public int getPort() {
 		return port;
 	}
@@ -231,9 +328,13 @@ public class ServerSettings implements Serializable {
 	}
 
 	/**
-	 * Set the maximum length of the content in a request. If the length of the
-	 * content exceeds this value, the server closes the connection immediately
-	 * without sending a response.
+	 * Set the maximum length of the content in a request, for routes without
+	 * their own limit (see
+	 * {@link org.restexpress.route.RouteBuilder#maxContentLength(int)}). If the
+	 * length of the content exceeds this value, the server responds with a 413
+	 * status: the remaining content is read and discarded, so the connection
+	 * stays open, unless the client waits for a "100 Continue" before sending
+	 * the content, in which case the connection is closed after the response.
 	 * 
 	 * Default value:
 	 * {@link RestExpressPipelineFactory#DEFAULT_MAX_CONTENT_LENGTH}.
@@ -247,6 +348,30 @@ public class ServerSettings implements Serializable {
 		return this;
 	}
 
+	/**
+	 * @see #setUploadSpillThreshold(long).
+	 * @return
+	 */
+	public long getUploadSpillThreshold() {
+		return uploadSpillThreshold;
+	}
+
+	/**
+	 * Set the size above which a part of a streamed multipart upload is
+	 * written in a temporary file rather than kept in memory.
+	 * 
+	 * Default value: {@link DefaultHttpDataFactory#MINSIZE}.
+	 * 
+	 * @param uploadSpillThreshold
+	 *            the threshold in bytes.
+	 * @return the RestExpress instance.
+	 * @see org.restexpress.route.RouteBuilder#useStreamingMultipartUpload()
+	 */
+	public ServerSettings setUploadSpillThreshold(final long uploadSpillThreshold) {
+		this.uploadSpillThreshold = uploadSpillThreshold;
+		return this;
+	}
+
 	public String getBaseUrl() {
 		return baseUrl;
 	}
@@ -286,7 +411,7 @@ public class ServerSettings implements Serializable {
 	@Override
 	public String toString() {
 		return "ServerSettings {baseUrl=\"" + baseUrl + "\", useSystemOut=\"" + useSystemOut + "\", enforceHttpSpec=\"" + enforceHttpSpec + "\", name=\"" + name + "\", port=\"" + port + "\", keepAlive=\"" + keepAlive + "\", reuseAddress=\""
-				+ reuseAddress + "\", maxContentSize=\"" + maxContentSize + "\", ioThreadCount=\"" + ioThreadCount + "\", executorThreadPoolSize=\"" + executorThreadPoolSize + "\", defaultFormat=\"" + defaultFormat + "\"}";
+				+ reuseAddress + "\", maxContentSize=\"" + maxContentSize + "\", uploadSpillThreshold=\"" + uploadSpillThreshold + "\", ioThreadCount=\"" + ioThreadCount + "\", executorThreadPoolSize=\"" + executorThreadPoolSize + "\", executionMode=\"" + executionMode + "\", executors=\"" + executors + "\", admissionControl=\"" + admissionControl + "\", defaultFormat=\"" + defaultFormat + "\"}";
 	}
 
 	@Override
@@ -297,9 +422,13 @@ public class ServerSettings implements Serializable {
 		result = prime * result + ((defaultFormat == null) ? 0 : defaultFormat.hashCode());
 		result = prime * result + (enforceHttpSpec ? 1231 : 1237);
 		result = prime * result + executorThreadPoolSize;
+		result = prime * result + ((executionMode == null) ? 0 : executionMode.hashCode());
+		result = prime * result + executors.hashCode();
+		result = prime * result + ((admissionControl == null) ? 0 : admissionControl.hashCode());
 		result = prime * result + ioThreadCount;
 		result = prime * result + (keepAlive ? 1231 : 1237);
 		result = prime * result + maxContentSize;
+		result = prime * result + (int) (uploadSpillThreshold ^ (uploadSpillThreshold >>> 32));
 		result = prime * result + ((name == null) ? 0 : name.hashCode());
 		result = prime * result + port;
 		result = prime * result + (reuseAddress ? 1231 : 1237);
@@ -330,12 +459,23 @@ public class ServerSettings implements Serializable {
 			return false;
 		if (executorThreadPoolSize != other.executorThreadPoolSize)
 			return false;
+		if (executionMode != other.executionMode)
+			return false;
+		if (!executors.equals(other.executors))
+			return false;
+		if (admissionControl == null) {
+			if (other.admissionControl != null)
+				return false;
+		} else if (!admissionControl.equals(other.admissionControl))
+			return false;
 		if (ioThreadCount != other.ioThreadCount)
 			return false;
 		if (keepAlive != other.keepAlive)
 			return false;
 		if (maxContentSize != other.maxContentSize)
 			return false;
+		if (uploadSpillThreshold != other.uploadSpillThreshold)
+			return false;
 		if (name == null) {
 			if (other.name != null)
 				return false;
@@ -34,6 +34,10 @@ public class SocketSettings implements Serializable{
 	private int soLinger = -1; // disabled by default
 	private int receiveBufferSize = 262140; // Java default
 	private int connectTimeoutMillis = 10000; // netty default
+	private long idleTimeout = 60000;
+	private long readHeaderTimeout = 30000;
+	private long writeTimeout = 0; // disabled by default
+	private int maxConnections = 0; // unlimited by default
 
 	/**
 	 * Build a new instance.
@@ -78,9 +82,85 @@ public class SocketSettings implements Serializable{
 		return this;
 	}
 
+	public long getIdleTimeout() {
+		return idleTimeout;
+	}
+
+	/**
+	 * Set the time in milliseconds a keep-alive connection could wait for the
+	 * next request (until its header is read) once a response is written.
+	 * Beyond, connection is closed. A value of zero disable this timeout.
+	 * 
+	 * Default value: 60000 ms.
+	 * 
+	 * @param idleTimeout
+	 * @return this SocketSettings instance.
+	 */
+	public SocketSettings setIdleTimeout(final long idleTimeout) {
+		this.idleTimeout = idleTimeout;
+		return this;
+	}
+
+	public long getReadHeaderTimeout() {
+		return readHeaderTimeout;
+	}
+
+	/**
+	 * Set the time in milliseconds allowed to a new connection to send its
+	 * first request header. Beyond, connection is closed. A value of zero
+	 * disable this timeout.
+	 * 
+	 * Default value: 30000 ms.
+	 * 
+	 * @param readHeaderTimeout
+	 * @return this SocketSettings instance.
+	 */
+	public SocketSettings setReadHeaderTimeout(final long readHeaderTimeout) {
+		this.readHeaderTimeout = readHeaderTimeout;
+		return this;
+	}
+
+	public long getWriteTimeout() {
+		return writeTimeout;
+	}
+
+	/**
+	 * Set the time in milliseconds allowed to complete a write on a
+	 * connection, like a response to a client which does not read it. Beyond,
+	 * connection is closed. A value of zero disable this timeout.
+	 * 
+	 * Default value: 0 (disabled).
+	 * 
+	 * @param writeTimeout
+	 * @return this SocketSettings instance.
+	 */
+	public SocketSettings setWriteTimeout(final long writeTimeout) {
+		this.writeTimeout = writeTimeout;
+		return this;
+	}
+
+	public int getMaxConnections() {
+		return maxConnections;
+	}
+
+	/**
+	 * Set the maximum number of open connections. Beyond, accepted connections
+	 * are closed immediately. A value of zero disable this limit.
+	 * 
+	 * Default value: 0 (unlimited).
+	 * 
+	 * @param maxConnections
+	 * @return this SocketSettings instance.
+	 */
+	public SocketSettings setMaxConnections(final int maxConnections) {
+		this.maxConnections = maxConnections;
+		return this;
+	}
+
 	@Override
 	public String toString() {
-		return "SocketSettings {useTcpNoDelay=\"" + useTcpNoDelay + "\", soLinger=\"" + soLinger + "\", receiveBufferSize=\"" + receiveBufferSize + "\", connectTimeoutMillis=\"" + connectTimeoutMillis + "\"}";
+		return "SocketSettings {useTcpNoDelay=\"" + useTcpNoDelay + "\", soLinger=\"" + soLinger + "\", receiveBufferSize=\"" + receiveBufferSize + "\", connectTimeoutMillis=\"" + connectTimeoutMillis + "\", idleTimeout=\"" + idleTimeout + "\", readHeaderTimeout=\"" + readHeaderTimeout
+				+ "\", writeTimeout=\"" + writeTimeout + "\", maxConnections=\"" + maxConnections + "\"}";
 	}
 
 	@Override
@@ -91,6 +171,10 @@ public class SocketSettings implements Serializable{
 		result = (prime * result) + receiveBufferSize;
 		result = (prime * result) + soLinger;
 		result = (prime * result) + (useTcpNoDelay ? 1231 : 1237);
+		result = (prime * result) + (int) (idleTimeout ^ (idleTimeout >>> 32));
+		result = (prime * result) + (int) (readHeaderTimeout ^ (readHeaderTimeout >>> 32));
+		result = (prime * result) + (int) (writeTimeout ^ (writeTimeout >>> 32));
+		result = (prime * result) + maxConnections;
 		return result;
 	}
 
@@ -118,6 +202,18 @@ public class SocketSettings implements Serializable{
 		if (useTcpNoDelay != other.useTcpNoDelay) {
 			return false;
 		}
+		if (idleTimeout != other.idleTimeout) {
+			return false;
+		}
+		if (readHeaderTimeout != other.readHeaderTimeout) {
+			return false;
+		}
+		if (writeTimeout != other.writeTimeout) {
+			return false;
+		}
+		if (maxConnections != other.maxConnections) {
+			return false;
+		}
 		return true;
 	}
 
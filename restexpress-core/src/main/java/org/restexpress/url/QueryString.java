@@ -0,0 +1,269 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.url;
+
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.restexpress.domain.CharacterSet;
+
+/**
+ * {@link QueryString} is the compact, immutable form of an URI query string:
+ * the raw URI and start/end offsets of each parameter name and value. Names
+ * are compared in place, and values are URL decoded only when read (and
+ * cached).
+ * <p/>
+ * Parsing follows {@link QueryStringParser}: both '&' and ';' separate
+ * parameters, a parameter without '=' has an empty value, and at most
+ * {@link #MAX_PARAMS} parameters are kept (HashDOS workaround). Parameter
+ * names are not URL decoded.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public final class QueryString {
+
+	/**
+	 * Maximum number of parameters.
+	 */
+	public static final int MAX_PARAMS = 1024;
+
+	/**
+	 * Empty {@link QueryString}.
+	 */
+	public static final QueryString EMPTY = new QueryString("", new int[0], 0);
+
+	private final String uri;
+	/**
+	 * Name start, name end, value start and value end of each parameter.
+	 */
+	private final int[] offsets;
+	private final int size;
+	private String[] decoded;
+
+	private QueryString(final String uri, final int[] offsets, final int size) {
+		super();
+		this.uri = uri;
+		this.offsets = offsets;
+		this.size = size;
+	}
+
+	/**
+	 * Parse query string of specified URI.
+	 * 
+	 * @param uri
+	 *            request URI, with its path
+	 * @return a {@link QueryString} instance ({@link #EMPTY} if there is no
+	 *         query string).
+	 */
+	public static QueryString parse(final String uri) {
+		final int query = uri.indexOf('?');
+		if ((query < 0) || (query == uri.length() - 1)) {
+			return EMPTY;
+		}
+		int[] offsets = new int[16];
+		int size = 0;
+		int nameStart = -1;
+		int nameEnd = -1;
+		int pos = query + 1;
+		int i;
+		for (i = pos; (i < uri.length()) && (size < MAX_PARAMS); i++) {
+			final char c = uri.charAt(i);
+			if ((c == '=') && (nameStart < 0)) {
+				if (pos != i) {
+					nameStart = pos;
+					nameEnd = i;
+				}
+				pos = i + 1;
+			} else if ((c == '&') || (c == ';')) {
+				if ((nameStart < 0) && (pos != i)) {
+					offsets = add(offsets, size++, pos, i, i, i);
+				} else if (nameStart >= 0) {
+					offsets = add(offsets, size++, nameStart, nameEnd, pos, i);
+					nameStart = -1;
+				}
+				pos = i + 1;
+			}
+		}
+		if (size < MAX_PARAMS) {
+			if (pos != i) {
+				if (nameStart < 0) {
+					offsets = add(offsets, size++, pos, i, i, i);
+				} else {
+					offsets = add(offsets, size++, nameStart, nameEnd, pos, i);
+				}
+			} else if (nameStart >= 0) {
+				offsets = add(offsets, size++, nameStart, nameEnd, i, i);
+			}
+		}
+		return size == 0 ? EMPTY : new QueryString(uri, offsets, size);
+	}
+
+	private static int[] add(final int[] offsets, final int index, final int nameStart, final int nameEnd, final int valueStart, final int valueEnd) {
+		int[] result = offsets;
+		if ((index + 1) * 4 > offsets.length) {
+			result = new int[offsets.length * 2];
+			System.arraycopy(offsets, 0, result, 0, offsets.length);
+		}
+		result[index * 4] = nameStart;
+		result[index * 4 + 1] = nameEnd;
+		result[index * 4 + 2] = valueStart;
+		result[index * 4 + 3] = valueEnd;
+		return result;
+	}
+
+	/**
+	 * @return number of parameters (a name can be repeated).
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return true if there is no parameter.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @param name
+	 *            parameter name
+	 * @return first URL decoded value of named parameter, or null if not
+	 *         present.
+	 */
+	public String getFirst(final String name) {
+		final int index = indexOf(name, false);
+		return index >= 0 ? decoded(index) : null;
+	}
+
+	/**
+	 * Same as {@link #getFirst(String)}, but parameter name is not case
+	 * sensitive (like header names).
+	 * 
+	 * @param name
+	 *            parameter name
+	 * @return first URL decoded value of named parameter, or null if not
+	 *         present.
+	 */
+	public String getFirstIgnoreCase(final String name) {
+		int index = indexOf(name, false);
+		if (index < 0) {
+			index = indexOf(name, true);
+		}
+		return index >= 0 ? decoded(index) : null;
+	}
+
+	/**
+	 * @param name
+	 *            parameter name
+	 * @param ignoreCase
+	 *            true if parameter name is not case sensitive
+	 * @return all URL decoded values of named parameter, in query string
+	 *         order (empty if not present).
+	 */
+	public List<String> getAll(final String name, final boolean ignoreCase) {
+		List<String> values = null;
+		for (int i = 0; i < size; i++) {
+			if (isName(i, name, ignoreCase)) {
+				if (values == null) {
+					values = new ArrayList<String>(2);
+				}
+				values.add(decoded(i));
+			}
+		}
+		return values != null ? values : Collections.<String> emptyList();
+	}
+
+	/**
+	 * @return distinct parameter names, in query string order.
+	 */
+	public Set<String> names() {
+		final Set<String> result = new LinkedHashSet<String>(size * 2);
+		for (int i = 0; i < size; i++) {
+			result.add(name(i));
+		}
+		return result;
+	}
+
+	/**
+	 * @return a new {@link Map} of the first raw (not decoded) value of each
+	 *         parameter, in query string order.
+	 */
+	public Map<String, String> toMap() {
+		final Map<String, String> map = new LinkedHashMap<String, String>(size * 2);
+		for (int i = 0; i < size; i++) {
+			final String name = name(i);
+			if (!map.containsKey(name)) {
+				map.put(name, uri.substring(offsets[i * 4 + 2], offsets[i * 4 + 3]));
+			}
+		}
+		return map;
+	}
+
+	private String name(final int index) {
+		return uri.substring(offsets[index * 4], offsets[index * 4 + 1]);
+	}
+
+	private boolean isName(final int index, final String name, final boolean ignoreCase) {
+		final int start = offsets[index * 4];
+		final int length = offsets[index * 4 + 1] - start;
+		return (length == name.length()) && uri.regionMatches(ignoreCase, start, name, 0, length);
+	}
+
+	private int indexOf(final String name, final boolean ignoreCase) {
+		for (int i = 0; i < size; i++) {
+			if (isName(i, name, ignoreCase)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private String decoded(final int index) {
+		String[] values = decoded;
+		if (values == null) {
+			values = new String[size];
+			decoded = values;
+		}
+		String value = values[index];
+		if (value == null) {
+			value = decode(uri.substring(offsets[index * 4 + 2], offsets[index * 4 + 3]));
+			values[index] = value;
+		}
+		return value;
+	}
+
+	private static String decode(final String value) {
+		if ((value.indexOf('%') < 0) && (value.indexOf('+') < 0)) {
+			return value;
+		}
+		try {
+			return URLDecoder.decode(value, CharacterSet.UTF_8.getCharsetName());
+		} catch (final Exception e) {
+			return value;
+		}
+	}
+}
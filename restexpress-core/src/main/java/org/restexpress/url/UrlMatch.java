@@ -34,33 +34,88 @@
  */
 package org.restexpress.url;
 
+import java.net.URLDecoder;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
-import com.google.common.collect.Maps;
+import org.restexpress.domain.CharacterSet;
 
 /**
  * Contains the results of a UrlPattern.match() call, reflecting the match outcome and containing any parameter values, if applicable.
  * 
  * <p/>
- * UrlMatch is immutable.
+ * Parameter values are not copied: a {@link UrlMatch} holds start and end offsets into the matched URL, and a value is
+ * extracted (and URL decoded) only when it is read. Parameter names are shared with the pattern which produced the
+ * match.
+ * 
+ * <p/>
+ * UrlMatch is immutable (decoded values are cached, which is idempotent).
  * 
  * @author toddf
  * @since Apr 29, 2010
  */
 public final class UrlMatch {
     /**
-     * Parameter values parsed from the URL during the match.
+     * Matched URL.
+     */
+    private final String url;
+    /**
+     * Parameter names.
      */
-    private final Map<String, String> parameters = Maps.newHashMap();
+    private final String[] names;
+    /**
+     * Start and end offsets in url of each parameter value, -1 if not present.
+     */
+    private final int[] offsets;
+    /**
+     * Lazily decoded parameter values.
+     */
+    private String[] decoded;
 
     public UrlMatch(final Map<String, String> parameters) {
         super();
+        final int size = parameters != null ? parameters.size() : 0;
+        names = new String[size];
+        offsets = new int[size * 2];
+        final StringBuilder builder = new StringBuilder();
         if (parameters != null) {
-            this.parameters.putAll(parameters);
+            int i = 0;
+            for (final Entry<String, String> entry : parameters.entrySet()) {
+                names[i] = entry.getKey();
+                if (entry.getValue() != null) {
+                    offsets[i * 2] = builder.length();
+                    builder.append(entry.getValue());
+                    offsets[i * 2 + 1] = builder.length();
+                } else {
+                    offsets[i * 2] = -1;
+                    offsets[i * 2 + 1] = -1;
+                }
+                i++;
+            }
         }
+        url = builder.toString();
+    }
+
+    /**
+     * Build a new instance of {@link UrlMatch} without copying any value.
+     * 
+     * @param url matched URL
+     * @param names parameter names (not copied)
+     * @param offsets start and end offsets in url of each parameter value, -1 if not present (not copied)
+     * @throws IllegalArgumentException if offsets length is not twice names length
+     */
+    public UrlMatch(final String url, final String[] names, final int[] offsets) throws IllegalArgumentException {
+        super();
+        if (offsets.length != names.length * 2) {
+            throw new IllegalArgumentException("offsets length must be twice names length");
+        }
+        this.url = url;
+        this.names = names;
+        this.offsets = offsets;
     }
 
     /**
@@ -70,7 +125,48 @@ public final class UrlMatch {
      * @return the parameter value from the URL, or null if not present.
      */
     public String get(final String name) {
-        return parameters.get(name);
+        final int index = indexOf(name);
+        return index >= 0 ? url.substring(offsets[index * 2], offsets[index * 2 + 1]) : null;
+    }
+
+    /**
+     * Retrieves an URL decoded parameter value parsed from the URL during the match. Unlike {@link #get(String)},
+     * parameter name is not case sensitive (like header names).
+     * 
+     * @param name the name of a parameter for which to retrieve the value.
+     * @return the URL decoded parameter value, or null if not present.
+     */
+    public String getDecoded(final String name) {
+        int index = indexOf(name);
+        if (index < 0) {
+            index = indexOfIgnoreCase(name);
+        }
+        return index >= 0 ? decoded(index) : null;
+    }
+
+    /**
+     * @return true if no parameter value has been parsed from the URL.
+     */
+    public boolean isEmpty() {
+        for (int i = 0; i < names.length; i++) {
+            if (offsets[i * 2] >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return names of parameters parsed from the URL, in pattern order.
+     */
+    public Set<String> names() {
+        final Set<String> result = new LinkedHashSet<String>(names.length * 2);
+        for (int i = 0; i < names.length; i++) {
+            if (offsets[i * 2] >= 0) {
+                result.add(names[i]);
+            }
+        }
+        return result;
     }
 
     /**
@@ -79,6 +175,67 @@ public final class UrlMatch {
      * @return a Set of Map entries (by String, String).
      */
     public Set<Entry<String, String>> parameterSet() {
+        final Map<String, String> parameters = new LinkedHashMap<String, String>(names.length * 2);
+        for (int i = 0; i < names.length; i++) {
+            if (offsets[i * 2] >= 0) {
+                parameters.put(names[i], url.substring(offsets[i * 2], offsets[i * 2 + 1]));
+            }
+        }
         return Collections.unmodifiableSet(parameters.entrySet());
     }
+
+    private int indexOf(final String name) {
+        for (int i = 0; i < names.length; i++) {
+            if ((offsets[i * 2] >= 0) && names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int indexOfIgnoreCase(final String name) {
+        for (int i = 0; i < names.length; i++) {
+            if ((offsets[i * 2] >= 0) && names[i].equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private String decoded(final int index) {
+        String[] values = decoded;
+        if (values == null) {
+            values = new String[names.length];
+            decoded = values;
+        }
+        String value = values[index];
+        if (value == null) {
+            value = decode(url, offsets[index * 2], offsets[index * 2 + 1]);
+            values[index] = value;
+        }
+        return value;
+    }
+
+    /**
+     * URL decode specified range of value, URLDecoder is skipped if nothing has to be decoded.
+     * 
+     * @param value
+     * @param start start index
+     * @param end end index
+     * @return decoded value, or raw value if it cannot be decoded.
+     */
+    private static String decode(final String value, final int start, final int end) {
+        for (int i = start; i < end; i++) {
+            final char c = value.charAt(i);
+            if ((c == '%') || (c == '+')) {
+                final String raw = value.substring(start, end);
+                try {
+                    return URLDecoder.decode(raw, CharacterSet.UTF_8.getCharsetName());
+                } catch (final Exception e) {
+                    return raw;
+                }
+            }
+        }
+        return value.substring(start, end);
+    }
 }
@@ -36,9 +36,7 @@ package org.restexpress.url;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -129,6 +127,11 @@ public class UrlPattern implements UrlMatcher {
 	 */
 	private final List<String> parameterNames = new ArrayList<String>();
 
+	/**
+	 * Parameter names, shared by all {@link UrlMatch} of this pattern.
+	 */
+	private String[] parameterNameArray;
+
 	// SECTION: CONSTRUCTOR
 
 	/**
@@ -143,9 +146,9 @@ public class UrlPattern implements UrlMatcher {
 	// SECTION: ACCESSORS/MUTATORS - PRIVATE
 
 	/**
-	 * @return the pattern
+	 * @return the raw pattern, including any trailing '.{format}'.
 	 */
-	private String getUrlPattern() {
+	public String getUrlPattern() {
 		return urlPattern;
 	}
 
@@ -185,7 +188,7 @@ public class UrlPattern implements UrlMatcher {
 		final Matcher matcher = compiledUrl.matcher(url);
 
 		if (matcher.matches()) {
-			return new UrlMatch(extractParameters(matcher));
+			return new UrlMatch(url, parameterNameArray, extractOffsets(matcher));
 		}
 
 		return null;
@@ -213,6 +216,7 @@ public class UrlPattern implements UrlMatcher {
 	 */
 	public void compile() {
 		acquireParameterNames();
+		parameterNameArray = parameterNames.toArray(new String[parameterNames.size()]);
 		String parsedPattern = getUrlPattern().replaceFirst(URL_FORMAT_REGEX, URL_FORMAT_MATCH_REGEX);
 		parsedPattern = parsedPattern.replaceAll(URL_PARAM_REGEX, URL_PARAM_MATCH_REGEX);
 		this.compiledUrl = Pattern.compile(parsedPattern + URL_QUERY_STRING_REGEX);
@@ -231,24 +235,21 @@ public class UrlPattern implements UrlMatcher {
 	}
 
 	/**
-	 * Extracts parameter values from a Matcher instance using the regular
-	 * expression groupings.
+	 * Extracts parameter value offsets from a Matcher instance using the
+	 * regular expression groupings.
 	 * 
 	 * @param matcher
-	 * @return a Map containing parameter values indexed by their corresponding
-	 *         parameter name.
+	 * @return start and end offsets of each parameter value, -1 if not
+	 *         present.
 	 */
-	private Map<String, String> extractParameters(final Matcher matcher) {
-		final Map<String, String> values = new HashMap<String, String>();
-
-		for (int i = 0; i < matcher.groupCount(); i++) {
-			final String value = matcher.group(i + 1);
+	private int[] extractOffsets(final Matcher matcher) {
+		final int[] offsets = new int[parameterNameArray.length * 2];
 
-			if (value != null) {
-				values.put(parameterNames.get(i), value);
-			}
+		for (int i = 0; i < parameterNameArray.length; i++) {
+			offsets[i * 2] = matcher.start(i + 1);
+			offsets[i * 2 + 1] = matcher.end(i + 1);
 		}
 
-		return values;
+		return offsets;
 	}
 }
@@ -19,9 +19,7 @@
  */
 package org.restexpress.url;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -34,6 +32,11 @@ public class UrlRegex implements UrlMatcher {
 
 	private Pattern pattern;
 
+	/**
+	 * Group names, shared by all {@link UrlMatch} of this regex.
+	 */
+	private String[] groupNames;
+
 	public UrlRegex(final String regex) {
 		this(Pattern.compile(regex));
 	}
@@ -50,6 +53,10 @@ public class UrlRegex implements UrlMatcher {
 
 	private void setPattern(final Pattern pattern) {
 		this.pattern = pattern;
+		this.groupNames = new String[pattern.matcher("").groupCount()];
+		for (int i = 0; i < groupNames.length; i++) {
+			groupNames[i] = PARAMETER_PREFIX + i;
+		}
 	}
 
 	@Override
@@ -67,30 +74,26 @@ public class UrlRegex implements UrlMatcher {
 		final Matcher matcher = pattern.matcher(url);
 
 		if (matcher.matches()) {
-			return new UrlMatch(extractParameters(matcher));
+			return new UrlMatch(url, groupNames, extractOffsets(matcher));
 		}
 
 		return null;
 	}
 
 	/**
-	 * Extracts parameter values from a Matcher instance.
+	 * Extracts group offsets from a Matcher instance.
 	 * 
 	 * @param matcher
-	 * @return a Map containing parameter values indexed by their corresponding
-	 *         parameter name.
+	 * @return start and end offsets of each group, -1 if not present.
 	 */
-	private Map<String, String> extractParameters(final Matcher matcher) {
-		final Map<String, String> values = new HashMap<String, String>();
-
-		for (int i = 0; i < matcher.groupCount(); i++) {
-			final String value = matcher.group(i + 1);
+	private int[] extractOffsets(final Matcher matcher) {
+		final int[] offsets = new int[groupNames.length * 2];
 
-			if (value != null) {
-				values.put(PARAMETER_PREFIX + i, value);
-			}
+		for (int i = 0; i < groupNames.length; i++) {
+			offsets[i * 2] = matcher.start(i + 1);
+			offsets[i * 2 + 1] = matcher.end(i + 1);
 		}
 
-		return values;
+		return offsets;
 	}
 }
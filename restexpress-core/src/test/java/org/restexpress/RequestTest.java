@@ -21,9 +21,11 @@ package org.restexpress;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.net.URLEncoder;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -36,6 +38,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.restexpress.domain.CharacterSet;
 import org.restexpress.http.BadRequestException;
+import org.restexpress.url.UrlPattern;
 
 /**
  * @author toddf
@@ -79,6 +82,18 @@ public class RequestTest
 		assertEquals("", request.getHeader("yada"));
 	}
 	
+	@Test
+	public void shouldReadUrlParametersAsHeaders()
+	{
+		request.setUrlMatch(new UrlPattern("/foo/{id}/{param1}").match("/foo/a%2Fb/other"));
+		assertEquals("a/b", request.getHeader("id"));
+		assertEquals("bar", request.getHeader("param1"));
+		assertEquals(Arrays.asList("bar", "other"), request.getHeaders("param1"));
+		assertTrue(request.getHeaderNames().contains("id"));
+		request.clearHeaders();
+		assertNull(request.getHeader("id"));
+	}
+
 	@Test
 	public void shouldParseQueryStringIntoMap()
 	{
@@ -89,6 +104,15 @@ public class RequestTest
 		assertEquals("", m.get("yada"));
 	}
 
+	@Test
+	public void shouldKeepChangesOfQueryStringMap()
+	{
+		request.getQueryStringMap().put("added", "value");
+		request.getQueryStringMap().remove("param1");
+		assertEquals("value", request.getQueryStringMap().get("added"));
+		assertNull(request.getQueryStringMap().get("param1"));
+	}
+
 	@Test
 	public void shouldHandleNoQueryString()
 	{
@@ -198,9 +198,9 @@ public class RestExpressServiceTest {
         assertEquals(JSON, entity.getContentType().getValue());
         assertEquals("{\"httpStatus\":405,\"message\":\"" + URL3_PLAIN + "\",\"errorType\":\"MethodNotAllowedException\"}",
                 EntityUtils.toString(entity));
+        assertEquals(1, response.getHeaders(HttpHeaders.Names.ALLOW).length);
         String methods = response.getHeaders(HttpHeaders.Names.ALLOW)[0].getValue();
         assertTrue(methods.contains("GET"));
-        methods = response.getHeaders(HttpHeaders.Names.ALLOW)[1].getValue();
         assertTrue(methods.contains("POST"));
         request.releaseConnection();
     }
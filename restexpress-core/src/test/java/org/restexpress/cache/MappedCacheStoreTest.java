@@ -0,0 +1,171 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.restexpress.domain.CharacterSet;
+
+/**
+ * {@link MappedCacheStore} test case.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public class MappedCacheStoreTest {
+
+	private static final Map<String, List<String>> HEADERS = Collections.singletonMap("Content-Type", Collections.singletonList("application/json"));
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void shouldServeMappedContent() throws IOException {
+		final MappedCacheStore store = new MappedCacheStore(folder.getRoot(), 64 * 1024, 16 * 1024);
+		store.put("a", response("route", "{\"name\":\"value\"}", 60000));
+		final CachedResponse cached = store.get("a");
+		assertNotNull(cached);
+		assertFalse(cached.content().hasArray());
+		assertEquals("{\"name\":\"value\"}", cached.content().toString(CharacterSet.UTF_8.getCharset()));
+		assertEquals("application/json", cached.headers().get("Content-Type").get(0));
+		assertEquals("route", cached.route());
+		assertEquals(200, cached.status());
+		assertTrue(store.weight() > 0);
+	}
+
+	@Test
+	public void shouldReplaceResponse() throws IOException {
+		final MappedCacheStore store = new MappedCacheStore(folder.getRoot(), 64 * 1024, 16 * 1024);
+		store.put("a", response("route", "first", 60000));
+		final long weight = store.weight();
+		store.put("a", response("route", "second", 60000));
+		assertEquals("second", store.get("a").content().toString(CharacterSet.UTF_8.getCharset()));
+		assertEquals(weight + 1, store.weight());
+	}
+
+	@Test
+	public void shouldRebuildIndexOnRestart() throws IOException, InterruptedException {
+		MappedCacheStore store = new MappedCacheStore(folder.getRoot(), 64 * 1024, 16 * 1024);
+		store.put("a", response("first", "content a", 60000));
+		store.put("b", response("second", "content b", 60000));
+		store.put("c", response("first", "content c", 60000));
+		store.put("expired", response("first", "content", 10));
+		store.put("a", response("first", "content a2", 60000));
+		store.invalidate("second");
+		final long weight = store.weight();
+		store.close();
+		Thread.sleep(20);
+
+		store = new MappedCacheStore(folder.getRoot(), 64 * 1024, 16 * 1024);
+		assertEquals("content a2", store.get("a").content().toString(CharacterSet.UTF_8.getCharset()));
+		assertEquals("content c", store.get("c").content().toString(CharacterSet.UTF_8.getCharset()));
+		assertNull(store.get("b"));
+		assertNull(store.get("expired"));
+		assertTrue(store.weight() < weight);
+
+		// appends after existing records
+		store.put("d", response("first", "content d", 60000));
+		store.close();
+		store = new MappedCacheStore(folder.getRoot(), 64 * 1024, 16 * 1024);
+		assertEquals("content d", store.get("d").content().toString(CharacterSet.UTF_8.getCharset()));
+		assertEquals("content a2", store.get("a").content().toString(CharacterSet.UTF_8.getCharset()));
+	}
+
+	@Test
+	public void shouldCompactOldestSegment() throws IOException {
+		final MappedCacheStore store = new MappedCacheStore(folder.getRoot(), 3 * 4096, 4096);
+		final String content = new String(new char[500]).replace('\0', 'x');
+		store.put("hot", response("route", content, 60000));
+		assertNotNull(store.get("hot"));
+		for (int i = 0; i < 40; i++) {
+			store.put("cold" + i, response("route", content, 60000));
+			// popular response
+			assertNotNull(store.get("hot"));
+		}
+		assertEquals(3, store.segments());
+		assertEquals(3, folder.getRoot().list().length);
+		assertTrue(store.weight() <= 3 * 4096);
+		// read response has been rewritten by compactions, others evicted
+		assertNotNull(store.get("hot"));
+		assertEquals(content, store.get("hot").content().toString(CharacterSet.UTF_8.getCharset()));
+		assertNull(store.get("cold0"));
+		assertNotNull(store.get("cold39"));
+	}
+
+	@Test
+	public void shouldKeepRoomForIncomingResponseWhenCompacting() throws IOException {
+		final MappedCacheStore store = new MappedCacheStore(folder.getRoot(), 2 * 4096, 4096);
+		store.put("a", response("route", content(1500), 60000));
+		store.put("b", response("route", content(1500), 60000));
+		assertNotNull(store.get("a"));
+		assertNotNull(store.get("b"));
+		store.put("c", response("route", content(3000), 60000));
+		// compaction of first segment must leave room for this one
+		store.put("d", response("route", content(3500), 60000));
+		assertEquals(content(3500), store.get("d").content().toString(CharacterSet.UTF_8.getCharset()));
+		assertEquals(2, store.segments());
+		assertTrue(store.weight() <= 2 * 4096);
+	}
+
+	@Test
+	public void shouldIgnoreUncommittedRecord() throws IOException {
+		MappedCacheStore store = new MappedCacheStore(folder.getRoot(), 64 * 1024, 16 * 1024);
+		store.put("a", response("route", "content a", 60000));
+		store.close();
+		final File segment = folder.getRoot().listFiles()[0];
+		// garbage after last record, without marker
+		final RandomAccessFile file = new RandomAccessFile(segment, "rw");
+		try {
+			file.seek(8000);
+			file.writeInt(12345);
+		} finally {
+			file.close();
+		}
+		store = new MappedCacheStore(folder.getRoot(), 64 * 1024, 16 * 1024);
+		assertNotNull(store.get("a"));
+		store.put("b", response("route", "content b", 60000));
+		assertEquals("content b", store.get("b").content().toString(CharacterSet.UTF_8.getCharset()));
+	}
+
+	private static String content(final int length) {
+		return new String(new char[length]).replace('\0', 'x');
+	}
+
+	private static CachedResponse response(final String route, final String content, final long timeToLive) {
+		final long now = System.currentTimeMillis();
+		final ChannelBuffer buffer = ChannelBuffers.copiedBuffer(content, CharacterSet.UTF_8.getCharset());
+		return new CachedResponse(200, HEADERS, buffer, route, now, now + timeToLive);
+	}
+}
@@ -0,0 +1,151 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.junit.Test;
+
+/**
+ * {@link MemoryCacheStore} test case.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public class MemoryCacheStoreTest {
+
+	private static final Map<String, List<String>> HEADERS = Collections.singletonMap("Content-Type", Collections.singletonList("application/json"));
+
+	@Test
+	public void shouldCopyContent() {
+		final MemoryCacheStore store = new MemoryCacheStore(64 * 1024);
+		final ChannelBuffer content = ChannelBuffers.copiedBuffer(new byte[] { 1, 2, 3 });
+		store.put("a", response("route", content, 60000));
+		content.setByte(0, 9);
+		final CachedResponse cached = store.get("a");
+		assertNotNull(cached);
+		assertEquals(1, cached.content().getByte(0));
+		assertEquals(3, cached.content().readableBytes());
+		assertEquals("application/json", cached.headers().get("Content-Type").get(0));
+	}
+
+	@Test
+	public void shouldBeBoundedByWeight() {
+		final MemoryCacheStore store = new MemoryCacheStore(16 * 1024);
+		for (int i = 0; i < 100; i++) {
+			store.put("key" + i, response("route", ChannelBuffers.wrappedBuffer(new byte[1024]), 60000));
+		}
+		assertTrue(store.weight() <= 16 * 1024);
+		assertTrue(store.weight() > 0);
+	}
+
+	@Test
+	public void shouldKeepFrequentResponses() {
+		final MemoryCacheStore store = new MemoryCacheStore(16 * 1024);
+		for (int i = 0; i < 10; i++) {
+			store.put("hot" + i, response("route", ChannelBuffers.wrappedBuffer(new byte[1024]), 60000));
+			for (int j = 0; j < 5; j++) {
+				store.get("hot" + i);
+			}
+		}
+		// a scan of responses accessed once
+		for (int i = 0; i < 200; i++) {
+			store.get("cold" + i);
+			store.put("cold" + i, response("route", ChannelBuffers.wrappedBuffer(new byte[1024]), 60000));
+		}
+		for (int i = 0; i < 10; i++) {
+			assertNotNull("hot" + i, store.get("hot" + i));
+		}
+	}
+
+	@Test
+	public void shouldServeConcurrentLookups() throws Exception {
+		final MemoryCacheStore store = new MemoryCacheStore(16 * 1024);
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			final List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+			for (int t = 0; t < 4; t++) {
+				futures.add(executor.submit(new Callable<Integer>() {
+					@Override
+					public Integer call() {
+						int hits = 0;
+						for (int i = 0; i < 20000; i++) {
+							final String key = "key" + (i % 50);
+							final CachedResponse cached = store.get(key);
+							if (cached == null) {
+								store.put(key, response("route", ChannelBuffers.wrappedBuffer(new byte[256]), 60000));
+							} else {
+								assertEquals(256, cached.content().readableBytes());
+								hits++;
+							}
+						}
+						return hits;
+					}
+				}));
+			}
+			for (final Future<Integer> future : futures) {
+				assertTrue(future.get() > 0);
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertTrue(store.weight() <= 16 * 1024);
+	}
+
+	@Test
+	public void shouldExpire() throws InterruptedException {
+		final MemoryCacheStore store = new MemoryCacheStore(64 * 1024);
+		store.put("a", response("route", ChannelBuffers.wrappedBuffer(new byte[10]), 10));
+		Thread.sleep(20);
+		assertNull(store.get("a"));
+		assertEquals(0, store.weight());
+	}
+
+	@Test
+	public void shouldInvalidateRoute() {
+		final MemoryCacheStore store = new MemoryCacheStore(64 * 1024);
+		store.put("a", response("first", ChannelBuffers.wrappedBuffer(new byte[10]), 60000));
+		store.put("b", response("second", ChannelBuffers.wrappedBuffer(new byte[10]), 60000));
+		store.invalidate("first");
+		assertNull(store.get("a"));
+		assertNotNull(store.get("b"));
+		store.invalidateAll();
+		assertNull(store.get("b"));
+		assertEquals(0, store.weight());
+	}
+
+	private static CachedResponse response(final String route, final ChannelBuffer content, final long timeToLive) {
+		final long now = System.currentTimeMillis();
+		return new CachedResponse(200, HEADERS, content, route, now, now + timeToLive);
+	}
+}
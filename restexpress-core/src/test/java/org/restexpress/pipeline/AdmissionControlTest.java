@@ -0,0 +1,129 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.pipeline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.restexpress.Request;
+import org.restexpress.Response;
+import org.restexpress.RestExpressService;
+import org.restexpress.settings.AdmissionSettings;
+
+/**
+ * Admission control test case.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public class AdmissionControlTest {
+	private static final int TEST_PORT = 8908;
+	private static final String SERVER_HOST = "http://localhost:" + TEST_PORT;
+
+	private RestExpressService restExpress;
+	private SlowController slowController;
+
+	@Before
+	public void setup() {
+		slowController = new SlowController();
+		restExpress = RestExpressService.newBuilder();
+		restExpress.settings().serverSettings().setExecutorThreadPoolSize(4)//
+				.setAdmissionControl(new AdmissionSettings().setInitialLimit(1).setMaxLimit(1).setRetryAfter(2));
+		restExpress.uri("/slow.{format}", slowController);
+		restExpress.bind(TEST_PORT);
+	}
+
+	@After
+	public void teardown() {
+		slowController.release.countDown();
+		restExpress.shutdown();
+	}
+
+	@Test
+	public void shouldRejectBeyondLimit() throws Exception {
+		final ExecutorService clients = Executors.newSingleThreadExecutor();
+		try {
+			final Future<Integer> first = clients.submit(new Callable<Integer>() {
+				@Override
+				public Integer call() throws Exception {
+					return get().getStatusLine().getStatusCode();
+				}
+			});
+			assertTrue(slowController.started.await(5, TimeUnit.SECONDS));
+
+			final HttpResponse rejected = get();
+			assertEquals(503, rejected.getStatusLine().getStatusCode());
+			assertEquals("2", rejected.getFirstHeader("Retry-After").getValue());
+
+			slowController.release.countDown();
+			assertEquals(Integer.valueOf(200), first.get(5, TimeUnit.SECONDS));
+			assertEquals(200, get().getStatusLine().getStatusCode());
+
+			final AdmissionLimiter limiter = restExpress.admissionLimiter();
+			assertEquals(0, limiter.getInFlight());
+			assertEquals(2, limiter.getAdmittedCount());
+			assertEquals(1, limiter.getRejectedCount());
+		} finally {
+			clients.shutdown();
+		}
+	}
+
+	@Test
+	public void shouldExposeMetrics() throws Exception {
+		final ObjectName name = new ObjectName("org.restexpress:type=AdmissionLimiter,name=" + ObjectName.quote("RestExpress-" + TEST_PORT));
+		assertNotNull(ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Limit"));
+		assertEquals(1, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Limit"));
+	}
+
+	private static HttpResponse get() throws IOException {
+		final HttpResponse response = new DefaultHttpClient().execute(new HttpGet(SERVER_HOST + "/slow.json"));
+		EntityUtils.consume(response.getEntity());
+		return response;
+	}
+
+	public static class SlowController {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		public String read(Request request, Response response) throws InterruptedException {
+			started.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			return "done";
+		}
+	}
+}
@@ -0,0 +1,81 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.pipeline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.restexpress.settings.AdmissionSettings;
+
+/**
+ * {@link AdmissionLimiter} test case.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public class AdmissionLimiterTest {
+
+	@Test
+	public void shouldRejectBeyondLimit() {
+		final AdmissionLimiter limiter = new AdmissionLimiter(new AdmissionSettings().setInitialLimit(2));
+		assertTrue(limiter.tryAcquire());
+		assertTrue(limiter.tryAcquire());
+		assertFalse(limiter.hasCapacity());
+		assertFalse(limiter.tryAcquire());
+		assertEquals(2, limiter.getInFlight());
+		limiter.release();
+		assertTrue(limiter.tryAcquire());
+		assertEquals(3, limiter.getAdmittedCount());
+		assertEquals(1, limiter.getRejectedCount());
+	}
+
+	@Test
+	public void shouldIncreaseLimitUnderTargetLatency() {
+		final AdmissionLimiter limiter = new AdmissionLimiter(new AdmissionSettings().setInitialLimit(2).setMaxLimit(4));
+		for (int i = 0; i < 100; i++) {
+			while (limiter.tryAcquire()) {
+				// saturate
+			}
+			limiter.release(TimeUnit.MILLISECONDS.toNanos(1));
+		}
+		assertEquals(4, limiter.getLimit());
+		assertEquals(1, limiter.getLatency(), 0.01);
+	}
+
+	@Test
+	public void shouldDecreaseLimitAboveTargetLatency() throws InterruptedException {
+		final AdmissionLimiter limiter = new AdmissionLimiter(new AdmissionSettings().setInitialLimit(100).setMinLimit(50).setTargetLatency(1));
+		for (int i = 0; i < 20; i++) {
+			assertTrue(limiter.tryAcquire());
+			limiter.release(TimeUnit.MILLISECONDS.toNanos(10));
+			Thread.sleep(2);
+		}
+		assertEquals(50, limiter.getLimit());
+		assertEquals(0, limiter.getInFlight());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldCheckLimits() {
+		new AdmissionLimiter(new AdmissionSettings().setInitialLimit(10).setMaxLimit(5));
+	}
+}
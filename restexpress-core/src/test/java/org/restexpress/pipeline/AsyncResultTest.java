@@ -0,0 +1,209 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.pipeline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.jboss.netty.util.CharsetUtil;
+import org.junit.Test;
+import org.restexpress.Request;
+import org.restexpress.Response;
+import org.restexpress.RestExpressService;
+import org.restexpress.http.NotFoundException;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * Asynchronous action result test case.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public class AsyncResultTest {
+	private static final int TEST_PORT = 8905;
+	private static final String SERVER_HOST = "http://localhost:" + TEST_PORT;
+	private static final long DELAY = 300;
+
+	private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+	private RestExpressService restExpress;
+
+	@Before
+	public void setup() {
+		restExpress = RestExpressService.newBuilder();
+		restExpress.settings().serverSettings().setExecutorThreadPoolSize(1);
+		restExpress.uri("/slow.{format}", new SlowController());
+		restExpress.uri("/failed.{format}", new FailedController());
+		restExpress.uri("/stage.{format}", new StageController());
+		restExpress.uri("/fast.{format}", new FastController());
+		restExpress.bind(TEST_PORT);
+	}
+
+	@After
+	public void teardown() {
+		restExpress.shutdown();
+	}
+
+	@Test
+	public void shouldRespondWhenFutureCompletes() throws IOException {
+		assertGet("/slow.json", 200, "\"done\"");
+		assertGet("/failed.json", 404, "missing");
+	}
+
+	@Test
+	public void shouldNotHoldExecutorThread() throws Exception {
+		final int count = 10;
+		final ExecutorService clients = Executors.newFixedThreadPool(count);
+		try {
+			final List<Future<Void>> responses = Lists.newArrayList();
+			final long start = System.currentTimeMillis();
+			for (int i = 0; i < count; i++) {
+				responses.add(clients.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						assertGet("/slow.json", 200, "\"done\"");
+						return null;
+					}
+				}));
+			}
+			for (final Future<Void> response : responses) {
+				response.get();
+			}
+			// one executor thread: sequential processing would take count * DELAY
+			final long elapsed = System.currentTimeMillis() - start;
+			assertTrue("elapsed " + elapsed + " ms", elapsed < (count * DELAY) / 2);
+		} finally {
+			clients.shutdown();
+		}
+	}
+
+	@Test
+	public void shouldKeepPipelinedResponsesInOrder() throws IOException {
+		final Socket socket = new Socket("localhost", TEST_PORT);
+		try {
+			socket.setSoTimeout(5000);
+			// second request is decoded while first one is pending
+			socket.getOutputStream().write("GET /slow.json HTTP/1.1\r\nHost: localhost\r\n\r\nGET /fast.json HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(CharsetUtil.US_ASCII));
+			final InputStream input = socket.getInputStream();
+			final StringBuilder responses = new StringBuilder();
+			final byte[] buffer = new byte[1024];
+			int read;
+			while ((responses.indexOf("\"fast\"") < 0) && ((read = input.read(buffer)) > 0)) {
+				responses.append(new String(buffer, 0, read, CharsetUtil.US_ASCII));
+			}
+			assertTrue(responses.toString(), responses.indexOf("\"done\"") >= 0);
+			assertTrue(responses.toString(), responses.indexOf("\"done\"") < responses.indexOf("\"fast\""));
+		} finally {
+			socket.close();
+		}
+	}
+
+	@Test
+	public void shouldRespondWhenCompletionStageCompletes() throws IOException {
+		Assume.assumeTrue(StageController.COMPLETABLE_FUTURE != null);
+		assertGet("/stage.json", 200, "\"stage\"");
+	}
+
+	private static void assertGet(String path, int status, String content) throws IOException {
+		HttpGet get = new HttpGet(SERVER_HOST + path);
+		try {
+			HttpResponse response = new DefaultHttpClient().execute(get);
+			assertEquals(status, response.getStatusLine().getStatusCode());
+			assertTrue(EntityUtils.toString(response.getEntity()).contains(content));
+		} finally {
+			get.releaseConnection();
+		}
+	}
+
+	public static class SlowController {
+
+		public ListenableFuture<String> read(Request request, Response response) {
+			final SettableFuture<String> result = SettableFuture.create();
+			scheduler.schedule(new Runnable() {
+				@Override
+				public void run() {
+					result.set("done");
+				}
+			}, DELAY, TimeUnit.MILLISECONDS);
+			return result;
+		}
+	}
+
+	public static class FastController {
+
+		public String read(Request request, Response response) {
+			return "fast";
+		}
+	}
+
+	public static class FailedController {
+
+		public ListenableFuture<String> read(Request request, Response response) {
+			return Futures.immediateFailedFuture(new NotFoundException("missing"));
+		}
+	}
+
+	/**
+	 * Use java.util.concurrent.CompletableFuture when available.
+	 */
+	public static class StageController {
+		static final Class<?> COMPLETABLE_FUTURE = loadClass("java.util.concurrent.CompletableFuture");
+
+		public Object read(Request request, Response response) throws Exception {
+			final Object result = COMPLETABLE_FUTURE.newInstance();
+			scheduler.schedule(new Callable<Object>() {
+				@Override
+				public Object call() throws Exception {
+					return COMPLETABLE_FUTURE.getMethod("complete", Object.class).invoke(result, "stage");
+				}
+			}, DELAY, TimeUnit.MILLISECONDS);
+			return result;
+		}
+
+		private static Class<?> loadClass(String name) {
+			try {
+				return Class.forName(name);
+			} catch (ClassNotFoundException e) {
+				return null;
+			}
+		}
+	}
+}
@@ -0,0 +1,155 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.pipeline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.restexpress.Request;
+import org.restexpress.Response;
+import org.restexpress.RestExpressService;
+import org.restexpress.domain.TimeStamped;
+import org.restexpress.http.HttpDateTimeFormat;
+import org.restexpress.http.HttpHeader;
+import org.restexpress.plugin.CacheControlPlugin;
+import org.restexpress.route.VersionProvider;
+
+/**
+ * Conditional GET of versioned routes test case.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public class ConditionalGetTest {
+	private static final int TEST_PORT = 8910;
+	private static final String SERVER_HOST = "http://localhost:" + TEST_PORT;
+	private static final Date UPDATE_AT = new Date(1400000000000L);
+
+	private RestExpressService restExpress;
+	private CountingController controller;
+
+	@Before
+	public void setup() {
+		controller = new CountingController();
+		restExpress = RestExpressService.newBuilder();
+		restExpress.register(new CacheControlPlugin());
+		restExpress.uri("/versioned.{format}", controller).versionedBy(new VersionProvider() {
+			@Override
+			public Object versionOf(final Request request) {
+				return 42;
+			}
+		});
+		restExpress.uri("/dated.{format}", controller).versionedBy(new VersionProvider() {
+			@Override
+			public Object versionOf(final Request request) {
+				return UPDATE_AT;
+			}
+		});
+		restExpress.uri("/stamped.{format}", new StampedController());
+		restExpress.bind(TEST_PORT);
+	}
+
+	@After
+	public void teardown() {
+		restExpress.shutdown();
+	}
+
+	@Test
+	public void shouldSkipControllerOnMatchingVersion() throws Exception {
+		HttpResponse response = get("/versioned.json", HttpHeader.IF_NONE_MATCH, null);
+		assertEquals(200, response.getStatusLine().getStatusCode());
+		assertEquals("W/\"42\"", response.getFirstHeader(HttpHeader.ETAG.toString()).getValue());
+		assertEquals(1, controller.invocations.get());
+
+		response = get("/versioned.json", HttpHeader.IF_NONE_MATCH, "W/\"42\"");
+		assertEquals(304, response.getStatusLine().getStatusCode());
+		assertEquals(1, controller.invocations.get());
+
+		response = get("/versioned.json", HttpHeader.IF_NONE_MATCH, "W/\"41\"");
+		assertEquals(200, response.getStatusLine().getStatusCode());
+		assertEquals(2, controller.invocations.get());
+	}
+
+	@Test
+	public void shouldSkipControllerWhenNotModifiedSince() throws Exception {
+		HttpResponse response = get("/dated.json", HttpHeader.IF_MODIFIED_SINCE, HttpDateTimeFormat.RFC_1123.format(UPDATE_AT));
+		assertEquals(304, response.getStatusLine().getStatusCode());
+		assertNotNull(response.getFirstHeader(HttpHeader.LAST_MODIFIED.toString()));
+		assertEquals(0, controller.invocations.get());
+
+		response = get("/dated.json", HttpHeader.IF_MODIFIED_SINCE, HttpDateTimeFormat.RFC_1123.format(new Date(UPDATE_AT.getTime() - 1000)));
+		assertEquals(200, response.getStatusLine().getStatusCode());
+		assertEquals(1, controller.invocations.get());
+	}
+
+	@Test
+	public void shouldRespondNotModifiedForTimeStampedEntity() throws Exception {
+		HttpResponse response = get("/stamped.json", HttpHeader.IF_MODIFIED_SINCE, HttpDateTimeFormat.RFC_1123.format(UPDATE_AT));
+		assertEquals(304, response.getStatusLine().getStatusCode());
+		assertEquals(HttpDateTimeFormat.RFC_1123.format(UPDATE_AT), response.getFirstHeader(HttpHeader.LAST_MODIFIED.toString()).getValue());
+	}
+
+	private static HttpResponse get(final String uri, final HttpHeader header, final String value) throws IOException {
+		final HttpGet request = new HttpGet(SERVER_HOST + uri);
+		if (value != null) {
+			request.addHeader(header.toString(), value);
+		}
+		final HttpResponse response = new DefaultHttpClient().execute(request);
+		if (response.getEntity() != null) {
+			EntityUtils.consume(response.getEntity());
+		}
+		return response;
+	}
+
+	public static class CountingController {
+		final AtomicInteger invocations = new AtomicInteger();
+
+		public String read(Request request, Response response) {
+			invocations.incrementAndGet();
+			return "content";
+		}
+	}
+
+	public static class StampedController {
+
+		public Stamped read(Request request, Response response) {
+			return new Stamped();
+		}
+	}
+
+	public static class Stamped implements TimeStamped {
+		public String name = "stamped";
+
+		@Override
+		public Date updateAt() {
+			return UPDATE_AT;
+		}
+	}
+}
@@ -0,0 +1,136 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.pipeline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+
+import org.jboss.netty.util.CharsetUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.restexpress.Request;
+import org.restexpress.Response;
+import org.restexpress.RestExpressService;
+
+/**
+ * Connection timeouts and limit test case.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public class ConnectionTimeoutTest {
+	private static final int TEST_PORT = 8909;
+	private static final long TIMEOUT = 200;
+	private static final String REQUEST = "GET /slow.json HTTP/1.1\r\nHost: localhost\r\n\r\n";
+
+	private RestExpressService restExpress;
+
+	@Before
+	public void setup() {
+		restExpress = RestExpressService.newBuilder();
+		restExpress.settings().socketSettings().setReadHeaderTimeout(TIMEOUT).setIdleTimeout(TIMEOUT).setMaxConnections(2);
+		restExpress.uri("/slow.{format}", new SlowController());
+		restExpress.bind(TEST_PORT);
+	}
+
+	@After
+	public void teardown() {
+		restExpress.shutdown();
+	}
+
+	@Test
+	public void shouldCloseConnectionWithoutRequestHeader() throws IOException {
+		final Socket socket = new Socket("localhost", TEST_PORT);
+		try {
+			// partial request header
+			socket.getOutputStream().write("GET /slow.json HTTP/1.1\r\n".getBytes(CharsetUtil.US_ASCII));
+			final long start = System.currentTimeMillis();
+			assertEquals("", read(socket.getInputStream()));
+			assertTrue(System.currentTimeMillis() - start < 10 * TIMEOUT);
+			assertEquals(1, restExpress.connectionCounters().getReapedCount());
+		} finally {
+			socket.close();
+		}
+	}
+
+	@Test
+	public void shouldCloseIdleConnectionButNotSlowRequest() throws IOException {
+		final Socket socket = new Socket("localhost", TEST_PORT);
+		try {
+			socket.getOutputStream().write(REQUEST.getBytes(CharsetUtil.US_ASCII));
+			// request is processed longer than timeouts, then connection is idle
+			final String response = read(socket.getInputStream());
+			assertTrue(response, response.startsWith("HTTP/1.1 200 OK"));
+			assertTrue(response, response.endsWith("\"done\""));
+			assertEquals(1, restExpress.connectionCounters().getReapedCount());
+		} finally {
+			socket.close();
+		}
+	}
+
+	@Test
+	public void shouldRejectConnectionsBeyondLimit() throws Exception {
+		final Socket first = new Socket("localhost", TEST_PORT);
+		final Socket second = new Socket("localhost", TEST_PORT);
+		final Socket third = new Socket("localhost", TEST_PORT);
+		try {
+			assertEquals("", read(third.getInputStream()));
+			assertEquals(1, restExpress.connectionCounters().getRejectedCount());
+			first.close();
+			second.close();
+			for (int wait = 0; (wait < 50) && (restExpress.connectionCounters().getOpenConnections() > 0); wait++) {
+				Thread.sleep(10);
+			}
+			assertEquals(0, restExpress.connectionCounters().getOpenConnections());
+		} finally {
+			first.close();
+			second.close();
+			third.close();
+		}
+	}
+
+	/**
+	 * @param input
+	 * @return all received data until connection is closed by server.
+	 * @throws IOException
+	 */
+	private static String read(final InputStream input) throws IOException {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		final byte[] buffer = new byte[1024];
+		int read;
+		while ((read = input.read(buffer)) >= 0) {
+			output.write(buffer, 0, read);
+		}
+		return new String(output.toByteArray(), CharsetUtil.US_ASCII);
+	}
+
+	public static class SlowController {
+
+		public String read(Request request, Response response) throws InterruptedException {
+			Thread.sleep(2 * TIMEOUT);
+			return "done";
+		}
+	}
+}
@@ -0,0 +1,128 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.pipeline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.restexpress.Request;
+import org.restexpress.Response;
+import org.restexpress.RestExpressService;
+import org.restexpress.settings.ExecutionMode;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Virtual thread execution mode test case.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public class ExecutionModeTest {
+	private static final int TEST_PORT = 8906;
+	private static final String SERVER_HOST = "http://localhost:" + TEST_PORT;
+	private static final long DELAY = 200;
+
+	private RestExpressService restExpress;
+
+	@Before
+	public void setup() {
+		restExpress = RestExpressService.newBuilder();
+		restExpress.settings().serverSettings().setExecutorThreadPoolSize(1).setExecutionMode(ExecutionMode.VIRTUAL_THREAD);
+		restExpress.uri("/blocking.{format}", new BlockingController());
+		restExpress.bind(TEST_PORT);
+	}
+
+	@After
+	public void teardown() {
+		restExpress.shutdown();
+	}
+
+	@Test
+	public void shouldProcessRequestsInOrderOnConnection() throws IOException {
+		HttpClient client = new DefaultHttpClient();
+		for (int i = 0; i < 3; i++) {
+			assertGet(client);
+		}
+	}
+
+	@Test
+	public void shouldNotBeLimitedByPoolSize() throws Exception {
+		Assume.assumeTrue(VirtualThreadExecutor.isSupported());
+		final int count = 20;
+		final ExecutorService clients = Executors.newFixedThreadPool(count);
+		try {
+			final List<Future<Void>> responses = Lists.newArrayList();
+			final long start = System.currentTimeMillis();
+			for (int i = 0; i < count; i++) {
+				responses.add(clients.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						assertGet(new DefaultHttpClient());
+						return null;
+					}
+				}));
+			}
+			for (final Future<Void> response : responses) {
+				response.get();
+			}
+			// a pool of one thread would take count * DELAY
+			final long elapsed = System.currentTimeMillis() - start;
+			assertTrue("elapsed " + elapsed + " ms", elapsed < (count * DELAY) / 2);
+		} finally {
+			clients.shutdown();
+		}
+	}
+
+	private static void assertGet(HttpClient client) throws IOException {
+		HttpGet get = new HttpGet(SERVER_HOST + "/blocking.json");
+		try {
+			HttpResponse response = client.execute(get);
+			assertEquals(200, response.getStatusLine().getStatusCode());
+			assertEquals("\"done\"", EntityUtils.toString(response.getEntity()));
+		} finally {
+			get.releaseConnection();
+		}
+	}
+
+	public static class BlockingController {
+
+		public String read(Request request, Response response) throws InterruptedException {
+			// blocking I/O
+			Thread.sleep(DELAY);
+			return "done";
+		}
+	}
+}
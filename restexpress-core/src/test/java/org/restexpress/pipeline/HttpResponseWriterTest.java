@@ -19,27 +19,33 @@
  */
 package org.restexpress.pipeline;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
 
 import org.apache.http.HttpResponse;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
 import org.junit.Test;
 import org.restexpress.Request;
 import org.restexpress.Response;
 import org.restexpress.RestExpressService;
 
-import com.google.common.io.ByteStreams;
+import com.google.common.base.Charsets;
 import com.google.common.io.Closer;
+import com.google.common.io.Files;
 
 /**
  * {@link HttpResponseWriter} test case.
@@ -69,45 +75,193 @@ public class HttpResponseWriterTest {
 	@Test
 	public void testFileAccess() throws ClientProtocolException, IOException {
 		RestExpressService restExpress = RestExpressService.newBuilder();
-		NoopController controller = new NoopController();
+		NoopController controller = new NoopController(new File("src/test/resources/unicode-chinese.json"));
 		restExpress.uri(TEST_PATH, controller);
 		restExpress.bind(TEST_PORT);
+		try {
+			assertFileTransfer(controller.file);
+		} finally {
+			restExpress.shutdown();
+		}
+	}
 
-		HttpClient client = new DefaultHttpClient();
-		HttpGet get = new HttpGet(TEST_URL);
-		HttpResponse response = (HttpResponse) client.execute(get);
-		assertEquals(200, response.getStatusLine().getStatusCode());
-		File result = File.createTempFile("restexpress", "result");
-
+	@Test
+	public void testLargeFileAccess() throws ClientProtocolException, IOException {
+		File file = File.createTempFile("restexpress", "large");
+		file.deleteOnExit();
+		byte[] block = new byte[64 * 1024];
+		Random random = new Random(42);
 		final Closer closer = Closer.create();
 		try {
-			// get a copy.
+			OutputStream out = closer.register(new FileOutputStream(file));
+			for (int i = 0; i < 48; i++) {
+				random.nextBytes(block);
+				out.write(block);
+			}
+		} finally {
+			closer.close();
+		}
+		RestExpressService restExpress = RestExpressService.newBuilder();
+		restExpress.uri(TEST_PATH, new NoopController(file));
+		restExpress.bind(TEST_PORT);
+		try {
+			// twice on same connection
+			HttpClient client = new DefaultHttpClient();
+			assertFileTransfer(client, file);
+			assertFileTransfer(client, file);
+		} finally {
+			restExpress.shutdown();
+			file.delete();
+		}
+	}
 
-			final OutputStream out = closer.register(new FileOutputStream(result));
-			response.getEntity().writeTo(out);
+	@Test
+	public void testFileRange() throws ClientProtocolException, IOException {
+		final File file = new File("src/test/resources/unicode-chinese.json");
+		RestExpressService restExpress = RestExpressService.newBuilder();
+		restExpress.uri(TEST_PATH, new NoopController(file));
+		restExpress.bind(TEST_PORT);
+		try {
+			HttpClient client = new DefaultHttpClient();
+			assertRanges(client, Files.toByteArray(file));
+		} finally {
+			restExpress.shutdown();
+		}
+	}
 
-			out.flush();
-		} catch (final Throwable e) {
-			e.printStackTrace();
-			if (result != null)
-				result.delete();
-			result = null;
+	@Test
+	public void testChannelBufferRange() throws ClientProtocolException, IOException {
+		final byte[] content = new byte[4096];
+		new Random(42).nextBytes(content);
+		RestExpressService restExpress = RestExpressService.newBuilder();
+		restExpress.uri(TEST_PATH, new BufferController(content));
+		restExpress.bind(TEST_PORT);
+		try {
+			HttpClient client = new DefaultHttpClient();
+			assertRanges(client, content);
 		} finally {
-			closer.close();
+			restExpress.shutdown();
 		}
+	}
 
-		get.releaseConnection();
+	private static void assertRanges(HttpClient client, byte[] content) throws ClientProtocolException, IOException {
+		final int length = content.length;
+		// single range
+		HttpGet get = new HttpGet(TEST_URL);
+		get.addHeader("Range", "bytes=10-19");
+		try {
+			HttpResponse response = client.execute(get);
+			assertEquals(206, response.getStatusLine().getStatusCode());
+			assertEquals("bytes 10-19/" + length, response.getFirstHeader("Content-Range").getValue());
+			assertEquals("10", response.getFirstHeader("Content-Length").getValue());
+			assertEquals("bytes", response.getFirstHeader("Accept-Ranges").getValue());
+			assertArrayEquals(Arrays.copyOfRange(content, 10, 20), EntityUtils.toByteArray(response.getEntity()));
+		} finally {
+			get.releaseConnection();
+		}
+		// suffix range
+		get = new HttpGet(TEST_URL);
+		get.addHeader("Range", "bytes=-5");
+		try {
+			HttpResponse response = client.execute(get);
+			assertEquals(206, response.getStatusLine().getStatusCode());
+			assertArrayEquals(Arrays.copyOfRange(content, length - 5, length), EntityUtils.toByteArray(response.getEntity()));
+		} finally {
+			get.releaseConnection();
+		}
+		// several ranges
+		get = new HttpGet(TEST_URL);
+		get.addHeader("Range", "bytes=0-4,20-29");
+		try {
+			HttpResponse response = client.execute(get);
+			assertEquals(206, response.getStatusLine().getStatusCode());
+			final String contentType = response.getFirstHeader("Content-Type").getValue();
+			assertTrue(contentType.startsWith("multipart/byteranges; boundary="));
+			final String boundary = contentType.substring(contentType.indexOf('=') + 1);
+			final byte[] body = EntityUtils.toByteArray(response.getEntity());
+			assertEquals(String.valueOf(body.length), response.getFirstHeader("Content-Length").getValue());
+			final String text = new String(body, Charsets.ISO_8859_1);
+			final String first = "--" + boundary + "\r\n";
+			final int part1 = text.indexOf("Content-Range: bytes 0-4/" + length + "\r\n\r\n");
+			final int part2 = text.indexOf("Content-Range: bytes 20-29/" + length + "\r\n\r\n");
+			assertTrue(text.startsWith("\r\n" + first));
+			assertTrue(part1 > 0 && part2 > part1);
+			final int start1 = text.indexOf("\r\n\r\n", part1) + 4;
+			final int start2 = text.indexOf("\r\n\r\n", part2) + 4;
+			assertArrayEquals(Arrays.copyOfRange(content, 0, 5), Arrays.copyOfRange(body, start1, start1 + 5));
+			assertArrayEquals(Arrays.copyOfRange(content, 20, 30), Arrays.copyOfRange(body, start2, start2 + 10));
+			assertTrue(text.endsWith("\r\n--" + boundary + "--\r\n"));
+		} finally {
+			get.releaseConnection();
+		}
+		// unsatisfiable
+		get = new HttpGet(TEST_URL);
+		get.addHeader("Range", "bytes=" + length + "-");
+		try {
+			HttpResponse response = client.execute(get);
+			assertEquals(416, response.getStatusLine().getStatusCode());
+			assertEquals("bytes */" + length, response.getFirstHeader("Content-Range").getValue());
+			EntityUtils.consume(response.getEntity());
+		} finally {
+			get.releaseConnection();
+		}
+		// If-Range which does not match: full content
+		get = new HttpGet(TEST_URL);
+		get.addHeader("Range", "bytes=0-4");
+		get.addHeader("If-Range", "\"unknown\"");
+		try {
+			HttpResponse response = client.execute(get);
+			assertEquals(200, response.getStatusLine().getStatusCode());
+			assertArrayEquals(content, EntityUtils.toByteArray(response.getEntity()));
+		} finally {
+			get.releaseConnection();
+		}
+	}
 
-		final InputStream in = closer.register(new FileInputStream(result));
-		ByteStreams.copy(in, System.out);
-		closer.close();
+	private static void assertFileTransfer(File file) throws ClientProtocolException, IOException {
+		assertFileTransfer(new DefaultHttpClient(), file);
+	}
 
+	private static void assertFileTransfer(HttpClient client, File file) throws ClientProtocolException, IOException {
+		HttpGet get = new HttpGet(TEST_URL);
+		try {
+			HttpResponse response = (HttpResponse) client.execute(get);
+			assertEquals(200, response.getStatusLine().getStatusCode());
+			assertEquals(String.valueOf(file.length()), response.getFirstHeader("Content-Length").getValue());
+			assertArrayEquals(Files.toByteArray(file), EntityUtils.toByteArray(response.getEntity()));
+		} finally {
+			get.releaseConnection();
+		}
 	}
 
 	public static class NoopController {
 
+		private final File file;
+
+		public NoopController() {
+			this(new File("src/test/resources/unicode-chinese.json"));
+		}
+
+		public NoopController(File file) {
+			this.file = file;
+		}
+
 		public File read(Request req, Response res) {
-			return new File("src/test/resources/unicode-chinese.json");
+			return file;
+		}
+
+	}
+
+	public static class BufferController {
+
+		private final byte[] content;
+
+		public BufferController(byte[] content) {
+			this.content = content;
+		}
+
+		public ChannelBuffer read(Request req, Response res) {
+			return ChannelBuffers.wrappedBuffer(content);
 		}
 
 	}
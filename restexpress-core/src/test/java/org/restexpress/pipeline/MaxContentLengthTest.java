@@ -0,0 +1,106 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.pipeline;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.restexpress.Request;
+import org.restexpress.Response;
+import org.restexpress.RestExpressService;
+
+/**
+ * Per route maximum content length test case.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public class MaxContentLengthTest {
+	private static final int TEST_PORT = 8904;
+	private static final String SERVER_HOST = "http://localhost:" + TEST_PORT;
+
+	private RestExpressService restExpress;
+
+	@Before
+	public void setup() {
+		restExpress = RestExpressService.newBuilder();
+		restExpress.uri("/default", new SizeController()).noSerialization();
+		restExpress.uri("/bulk", new SizeController()).maxContentLength(1024 * 1024).noSerialization();
+		restExpress.uri("/tiny", new SizeController()).maxContentLength(100).noSerialization();
+		restExpress.bind(TEST_PORT);
+	}
+
+	@After
+	public void teardown() {
+		restExpress.shutdown();
+	}
+
+	@Test
+	public void shouldAcceptContentUnderRouteLimit() throws IOException {
+		assertPost("/bulk", 512 * 1024, false, 200);
+		assertPost("/bulk", 512 * 1024, true, 200);
+		assertPost("/default", 1024, true, 200);
+	}
+
+	@Test
+	public void shouldRejectContentOverDefaultLimit() throws IOException {
+		assertPost("/default", 64 * 1024, false, 413);
+		assertPost("/default", 64 * 1024, true, 413);
+	}
+
+	@Test
+	public void shouldRejectContentOverRouteLimit() throws IOException {
+		assertPost("/tiny", 100, false, 200);
+		assertPost("/tiny", 101, false, 413);
+		assertPost("/tiny", 1024, true, 413);
+	}
+
+	private static void assertPost(String path, int size, boolean chunked, int status) throws IOException {
+		ByteArrayEntity entity = new ByteArrayEntity(new byte[size]);
+		entity.setChunked(chunked);
+		HttpPost post = new HttpPost(SERVER_HOST + path);
+		post.setEntity(entity);
+		try {
+			HttpResponse response = new DefaultHttpClient().execute(post);
+			assertEquals(status, response.getStatusLine().getStatusCode());
+			String content = EntityUtils.toString(response.getEntity());
+			if (status == 200) {
+				assertEquals(String.valueOf(size), content);
+			}
+		} finally {
+			post.releaseConnection();
+		}
+	}
+
+	public static class SizeController {
+
+		public String create(Request request, Response response) {
+			return String.valueOf(request.getEntity().readableBytes());
+		}
+	}
+}
@@ -0,0 +1,267 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.pipeline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.restexpress.Request;
+import org.restexpress.Response;
+import org.restexpress.RestExpressService;
+import org.restexpress.http.BadRequestException;
+import org.restexpress.http.HttpHeader;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * Request coalescing test case.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public class RequestCoalescingTest {
+	private static final int TEST_PORT = 8912;
+	private static final String SERVER_HOST = "http://localhost:" + TEST_PORT;
+	private static final int CLIENTS = 5;
+
+	private RestExpressService restExpress;
+	private SlowController controller;
+	private CompletionObserver observer;
+	private ExecutorService clients;
+
+	@Before
+	public void setup() {
+		controller = new SlowController();
+		observer = new CompletionObserver();
+		clients = Executors.newFixedThreadPool(CLIENTS);
+		restExpress = RestExpressService.newBuilder();
+		restExpress.uri("/sync/{id}.{format}", controller).action("sync", HttpMethod.GET).coalesce();
+		restExpress.uri("/async/{id}.{format}", controller).action("async", HttpMethod.GET).coalesce();
+		restExpress.uri("/failing/{id}.{format}", controller).action("failing", HttpMethod.GET).coalesce();
+		restExpress.uri("/session/{id}.{format}", controller).action("session", HttpMethod.GET).coalesce();
+		restExpress.addMessageObserver(observer);
+		restExpress.bind(TEST_PORT);
+	}
+
+	@After
+	public void teardown() throws InterruptedException {
+		controller.release.countDown();
+		// wait for every client response before shutdown
+		clients.shutdown();
+		clients.awaitTermination(5, TimeUnit.SECONDS);
+		restExpress.shutdown();
+	}
+
+	@Test
+	public void shouldCollapseSynchronousRequests() throws Exception {
+		final List<String> bodies = requests("/sync/1.json", 200);
+		assertEquals(1, controller.invocations.get());
+		assertEquals(CLIENTS - 1, restExpress.requestCoalescer().getCollapsedCount());
+		for (final String body : bodies) {
+			assertEquals("\"sync 1 #1\"", body);
+		}
+		assertEquals(0, restExpress.requestCoalescer().getInFlightCount());
+	}
+
+	@Test
+	public void shouldCollapseAsynchronousRequests() throws Exception {
+		final List<String> bodies = requests("/async/1.json", 200);
+		assertEquals(1, controller.invocations.get());
+		assertEquals(CLIENTS - 1, restExpress.requestCoalescer().getCollapsedCount());
+		for (final String body : bodies) {
+			assertEquals("\"async 1 #1\"", body);
+		}
+	}
+
+	@Test
+	public void shouldProcessFollowersOnTheirOwnWhenLeaderFails() throws Exception {
+		requests("/failing/1.json", -1);
+		assertEquals(CLIENTS, controller.invocations.get());
+		assertEquals(0, restExpress.requestCoalescer().getCollapsedCount());
+		assertEquals(CLIENTS - 1, restExpress.requestCoalescer().getFallbackCount());
+	}
+
+	@Test
+	public void shouldNotShareResponseSettingCookie() throws Exception {
+		final List<String> bodies = requests("/session/1.json", 200);
+		assertEquals(CLIENTS, controller.invocations.get());
+		assertEquals(0, restExpress.requestCoalescer().getCollapsedCount());
+		assertEquals(CLIENTS - 1, restExpress.requestCoalescer().getFallbackCount());
+		assertEquals(CLIENTS, new HashSet<String>(bodies).size());
+	}
+
+	@Test
+	public void shouldDropPendingResponsesOnShutdown() throws Exception {
+		final List<Future<String>> futures = submit("/async/2.json", -1);
+		controller.started.await(5, TimeUnit.SECONDS);
+		// let followers join the flight
+		Thread.sleep(500);
+		restExpress.shutdown();
+		for (final Future<String> future : futures) {
+			try {
+				future.get(5, TimeUnit.SECONDS);
+				fail();
+			} catch (final ExecutionException e) {
+				// connection closed on shutdown
+			}
+		}
+		// leader completes once executors are shut down: its response and
+		// those of followers are dropped
+		controller.release.countDown();
+		for (int wait = 0; (wait < 100) && (observer.completed.get() < CLIENTS); wait++) {
+			Thread.sleep(10);
+		}
+		assertEquals(CLIENTS, observer.completed.get());
+		assertEquals(0, observer.succeeded.get());
+	}
+
+	/**
+	 * Send concurrent requests, and release controller once they are all in
+	 * flight.
+	 */
+	private List<String> requests(final String uri, final int expectedStatus) throws Exception {
+		final List<Future<String>> futures = submit(uri, expectedStatus);
+		controller.started.await(5, TimeUnit.SECONDS);
+		// let followers join the flight
+		Thread.sleep(500);
+		controller.release.countDown();
+		final List<String> bodies = new ArrayList<String>();
+		for (final Future<String> future : futures) {
+			bodies.add(future.get(5, TimeUnit.SECONDS));
+		}
+		return bodies;
+	}
+
+	/**
+	 * Send concurrent requests.
+	 */
+	private List<Future<String>> submit(final String uri, final int expectedStatus) {
+		final List<Future<String>> futures = new ArrayList<Future<String>>();
+		for (int i = 0; i < CLIENTS; i++) {
+			futures.add(clients.submit(new Callable<String>() {
+				@Override
+				public String call() throws Exception {
+					final DefaultHttpClient client = new DefaultHttpClient();
+					try {
+						final HttpResponse response = client.execute(new HttpGet(SERVER_HOST + uri));
+						if (expectedStatus > 0) {
+							assertEquals(expectedStatus, response.getStatusLine().getStatusCode());
+						}
+						return EntityUtils.toString(response.getEntity());
+					} finally {
+						client.getConnectionManager().shutdown();
+					}
+				}
+			}));
+		}
+		return futures;
+	}
+
+	public static class CompletionObserver implements MessageObserver {
+		final AtomicInteger succeeded = new AtomicInteger();
+		final AtomicInteger completed = new AtomicInteger();
+
+		@Override
+		public void onReceived(Request request, Response response) {
+		}
+
+		@Override
+		public void onException(Throwable exception, Request request, Response response) {
+		}
+
+		@Override
+		public void onSuccess(Request request, Response response) {
+			succeeded.incrementAndGet();
+		}
+
+		@Override
+		public void onComplete(Request request, Response response) {
+			completed.incrementAndGet();
+		}
+	}
+
+	public static class SlowController {
+		final AtomicInteger invocations = new AtomicInteger();
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		public String sync(Request request, Response response) throws InterruptedException {
+			final int invocation = invocations.incrementAndGet();
+			started.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			return "sync " + request.getHeader("id") + " #" + invocation;
+		}
+
+		public ListenableFuture<String> async(final Request request, Response response) {
+			final int invocation = invocations.incrementAndGet();
+			final SettableFuture<String> result = SettableFuture.create();
+			new Thread() {
+				@Override
+				public void run() {
+					started.countDown();
+					try {
+						release.await(5, TimeUnit.SECONDS);
+					} catch (final InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					result.set("async " + request.getHeader("id") + " #" + invocation);
+				}
+			}.start();
+			return result;
+		}
+
+		public String session(Request request, Response response) throws InterruptedException {
+			final int invocation = invocations.incrementAndGet();
+			started.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			response.addHeader(HttpHeader.SET_COOKIE, "session=" + invocation);
+			return "session #" + invocation;
+		}
+
+		public String failing(Request request, Response response) throws InterruptedException {
+			if (invocations.incrementAndGet() == 1) {
+				started.countDown();
+				release.await(5, TimeUnit.SECONDS);
+				throw new BadRequestException("leader failure");
+			}
+			return "done";
+		}
+	}
+}
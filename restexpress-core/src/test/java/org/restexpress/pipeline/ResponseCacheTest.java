@@ -0,0 +1,150 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.pipeline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.restexpress.Parameters;
+import org.restexpress.Request;
+import org.restexpress.Response;
+import org.restexpress.RestExpressService;
+import org.restexpress.http.HttpHeader;
+import org.restexpress.plugin.ResponseCachePlugin;
+
+/**
+ * Server side response cache test case.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public class ResponseCacheTest {
+	private static final int TEST_PORT = 8911;
+	private static final String SERVER_HOST = "http://localhost:" + TEST_PORT;
+
+	private RestExpressService restExpress;
+	private ResponseCachePlugin plugin;
+	private CountingController controller;
+	private AtomicInteger preprocessed;
+
+	@Before
+	public void setup() throws IOException {
+		controller = new CountingController();
+		preprocessed = new AtomicInteger();
+		plugin = newPlugin();
+		restExpress = RestExpressService.newBuilder();
+		restExpress.register(plugin);
+		restExpress.addPreprocessor(new Preprocessor() {
+			@Override
+			public void process(final MessageContext context) {
+				preprocessed.incrementAndGet();
+			}
+		});
+		restExpress.uri("/items/{id}.{format}", controller).name("items").cacheable().parameter(Parameters.Cache.MAX_AGE, 60);
+		restExpress.uri("/expired/{id}.{format}", controller).cacheable().parameter(Parameters.Cache.MAX_AGE, 0);
+		restExpress.uri("/uncached/{id}.{format}", controller);
+		restExpress.bind(TEST_PORT);
+	}
+
+	@After
+	public void teardown() {
+		restExpress.shutdown();
+	}
+
+	protected ResponseCachePlugin newPlugin() throws IOException {
+		return new ResponseCachePlugin(1024 * 1024);
+	}
+
+	@Test
+	public void shouldServeFromCache() throws Exception {
+		HttpResponse response = get("/items/1.json?b=2&a=1");
+		assertEquals(200, response.getStatusLine().getStatusCode());
+		assertNull(response.getFirstHeader(HttpHeader.AGE.toString()));
+		final String body = EntityUtils.toString(response.getEntity());
+		assertEquals(1, controller.invocations.get());
+		assertEquals(1, preprocessed.get());
+
+		// same query, other order
+		response = get("/items/1.json?a=1&b=2");
+		assertEquals(200, response.getStatusLine().getStatusCode());
+		assertNotNull(response.getFirstHeader(HttpHeader.AGE.toString()));
+		assertNotNull(response.getFirstHeader(HttpHeader.CONTENT_TYPE.toString()));
+		assertEquals(body, EntityUtils.toString(response.getEntity()));
+		assertEquals(1, controller.invocations.get());
+		assertEquals(1, preprocessed.get());
+	}
+
+	@Test
+	public void shouldKeyByParametersAndMediaType() throws Exception {
+		consume(get("/items/1.json"));
+		consume(get("/items/2.json"));
+		consume(get("/items/1.json?a=1"));
+		consume(get("/items/1.xml"));
+		assertEquals(4, controller.invocations.get());
+		consume(get("/items/1.xml"));
+		assertEquals(4, controller.invocations.get());
+	}
+
+	@Test
+	public void shouldInvalidateRoute() throws Exception {
+		consume(get("/items/1.json"));
+		consume(get("/items/1.json"));
+		assertEquals(1, controller.invocations.get());
+		plugin.invalidate("items");
+		consume(get("/items/1.json"));
+		assertEquals(2, controller.invocations.get());
+	}
+
+	@Test
+	public void shouldNotCacheWithoutTimeToLiveOrFlag() throws Exception {
+		consume(get("/expired/1.json"));
+		consume(get("/expired/1.json"));
+		consume(get("/uncached/1.json"));
+		consume(get("/uncached/1.json"));
+		assertEquals(4, controller.invocations.get());
+	}
+
+	private static HttpResponse get(final String uri) throws IOException {
+		return new DefaultHttpClient().execute(new HttpGet(SERVER_HOST + uri));
+	}
+
+	private static void consume(final HttpResponse response) throws IOException {
+		assertEquals(200, response.getStatusLine().getStatusCode());
+		EntityUtils.consume(response.getEntity());
+	}
+
+	public static class CountingController {
+		final AtomicInteger invocations = new AtomicInteger();
+
+		public String read(Request request, Response response) {
+			return "item " + request.getHeader("id") + " #" + invocations.incrementAndGet();
+		}
+	}
+}
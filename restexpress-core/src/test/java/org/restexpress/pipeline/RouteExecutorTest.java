@@ -0,0 +1,217 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.pipeline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.restexpress.ConfigurationException;
+import org.restexpress.Request;
+import org.restexpress.Response;
+import org.restexpress.RestExpressService;
+import org.restexpress.settings.ExecutorSettings;
+import org.restexpress.settings.RejectionPolicy;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * Per-route executors test case.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public class RouteExecutorTest {
+	private static final int TEST_PORT = 8907;
+	private static final String SERVER_HOST = "http://localhost:" + TEST_PORT;
+
+	private RestExpressService restExpress;
+	private SlowController slowController;
+
+	@Before
+	public void setup() {
+		slowController = new SlowController();
+		restExpress = RestExpressService.newBuilder();
+		restExpress.settings().serverSettings().setExecutorThreadPoolSize(2)//
+				.addExecutor("reports", new ExecutorSettings().setPoolSize(1).setQueueSize(0));
+		restExpress.uri("/report.{format}", slowController).executor("reports");
+		restExpress.uri("/thread.{format}", new ThreadController());
+		restExpress.uri("/health.{format}", new ThreadController()).inline();
+		restExpress.uri("/async.{format}", new AsyncController()).executor("reports");
+		restExpress.addPostprocessor(new Postprocessor() {
+			@Override
+			public void process(final MessageContext context) {
+				context.getResponse().addHeader("X-Thread", Thread.currentThread().getName());
+			}
+		});
+	}
+
+	@After
+	public void teardown() {
+		slowController.release.countDown();
+		restExpress.shutdown();
+	}
+
+	@Test
+	public void shouldRejectWhenExecutorIsSaturated() throws Exception {
+		restExpress.bind(TEST_PORT);
+		final ExecutorService clients = Executors.newSingleThreadExecutor();
+		try {
+			final Future<Integer> first = clients.submit(new Callable<Integer>() {
+				@Override
+				public Integer call() throws Exception {
+					return status("/report.json");
+				}
+			});
+			assertTrue(slowController.started.await(5, TimeUnit.SECONDS));
+			// single thread of reports executor is busy, no queue
+			assertEquals(503, status("/report.json"));
+			// others routes are not affected
+			assertEquals(200, status("/thread.json"));
+			slowController.release.countDown();
+			assertEquals(Integer.valueOf(200), first.get(5, TimeUnit.SECONDS));
+		} finally {
+			clients.shutdown();
+		}
+	}
+
+	@Test
+	public void shouldDispatchAccordingToRoute() throws Exception {
+		restExpress.bind(TEST_PORT);
+		slowController.release.countDown();
+		assertTrue(body("/report.json").startsWith("\"reports-"));
+		assertTrue(body("/health.json").contains("I/O worker"));
+		final String thread = body("/thread.json");
+		assertTrue(thread, !thread.contains("I/O worker") && !thread.startsWith("\"reports-"));
+	}
+
+	@Test
+	public void shouldFallBackToDefaultExecutorWhenSaturated() throws Exception {
+		final SlowController batchController = new SlowController();
+		restExpress.settings().serverSettings().addExecutor("batch", new ExecutorSettings().setPoolSize(1).setQueueSize(0).setRejectionPolicy(RejectionPolicy.DEFAULT_EXECUTOR));
+		restExpress.uri("/batch.{format}", batchController).executor("batch");
+		restExpress.bind(TEST_PORT);
+		final ExecutorService clients = Executors.newFixedThreadPool(2);
+		try {
+			final Future<String> first = clients.submit(new Callable<String>() {
+				@Override
+				public String call() throws Exception {
+					return body("/batch.json");
+				}
+			});
+			assertTrue(batchController.started.await(5, TimeUnit.SECONDS));
+			final Future<String> second = clients.submit(new Callable<String>() {
+				@Override
+				public String call() throws Exception {
+					return body("/batch.json");
+				}
+			});
+			// let second request reach the saturated executor before releasing
+			Thread.sleep(200);
+			batchController.release.countDown();
+			assertTrue(first.get(5, TimeUnit.SECONDS).startsWith("\"batch-"));
+			final String thread = second.get(5, TimeUnit.SECONDS);
+			assertTrue(thread, !thread.contains("I/O worker") && !thread.startsWith("\"batch-"));
+		} finally {
+			clients.shutdown();
+		}
+	}
+
+	@Test
+	public void shouldResumeAsynchronousResultOnRouteExecutor() throws Exception {
+		restExpress.bind(TEST_PORT);
+		final HttpResponse response = new DefaultHttpClient().execute(new HttpGet(SERVER_HOST + "/async.json"));
+		assertEquals(200, response.getStatusLine().getStatusCode());
+		EntityUtils.consume(response.getEntity());
+		final Header thread = response.getFirstHeader("X-Thread");
+		assertTrue(thread.getValue(), thread.getValue().startsWith("reports-"));
+	}
+
+	@Test(expected = ConfigurationException.class)
+	public void shouldRejectUndeclaredExecutor() {
+		restExpress.uri("/unknown.{format}", new ThreadController()).executor("unknown");
+		restExpress.bind(TEST_PORT);
+	}
+
+	private static int status(final String uri) throws IOException {
+		final HttpResponse response = new DefaultHttpClient().execute(new HttpGet(SERVER_HOST + uri));
+		EntityUtils.consume(response.getEntity());
+		return response.getStatusLine().getStatusCode();
+	}
+
+	private static String body(final String uri) throws IOException {
+		final HttpResponse response = new DefaultHttpClient().execute(new HttpGet(SERVER_HOST + uri));
+		assertEquals(200, response.getStatusLine().getStatusCode());
+		return EntityUtils.toString(response.getEntity());
+	}
+
+	public static class SlowController {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		public String read(Request request, Response response) throws InterruptedException {
+			started.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			return Thread.currentThread().getName();
+		}
+	}
+
+	public static class AsyncController {
+
+		public ListenableFuture<String> read(Request request, Response response) {
+			final SettableFuture<String> result = SettableFuture.create();
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					// complete once the single thread of reports executor is free
+					try {
+						Thread.sleep(200);
+					} catch (final InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					result.set("done");
+				}
+			}).start();
+			return result;
+		}
+	}
+
+	public static class ThreadController {
+
+		public String read(Request request, Response response) {
+			return Thread.currentThread().getName();
+		}
+	}
+}
@@ -0,0 +1,212 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.pipeline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.jboss.netty.util.CharsetUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.restexpress.Request;
+import org.restexpress.Response;
+import org.restexpress.RestExpressService;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Streaming download test case.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public class StreamingDownloadTest {
+	private static final int TEST_PORT = 8902;
+	private static final String SERVER_HOST = "http://localhost:" + TEST_PORT;
+	private static final int SIZE = 200000;
+
+	private RestExpressService restExpress;
+
+	/**
+	 * Count of elements produced on a Netty I/O thread.
+	 */
+	private static final AtomicInteger IO_THREAD_ELEMENTS = new AtomicInteger();
+
+	@Before
+	public void setup() {
+		IO_THREAD_ELEMENTS.set(0);
+		restExpress = RestExpressService.newBuilder();
+		restExpress.uri("/streamed.{format}", new ItemController()).useStreamingDownload();
+		restExpress.uri("/buffered.{format}", new ItemController());
+		restExpress.uri("/small.{format}", new SmallController());
+		restExpress.bind(TEST_PORT);
+	}
+
+	@After
+	public void teardown() {
+		restExpress.shutdown();
+	}
+
+	@Test
+	public void shouldStreamInChunks() throws IOException {
+		HttpClient client = new DefaultHttpClient();
+		// twice on same connection
+		for (int i = 0; i < 2; i++) {
+			HttpGet get = new HttpGet(SERVER_HOST + "/streamed.json");
+			try {
+				HttpResponse response = client.execute(get);
+				assertEquals(200, response.getStatusLine().getStatusCode());
+				assertEquals("chunked", response.getFirstHeader("Transfer-Encoding").getValue());
+				assertNull(response.getFirstHeader("Content-Length"));
+				assertItems(EntityUtils.toByteArray(response.getEntity()));
+			} finally {
+				get.releaseConnection();
+			}
+		}
+	}
+
+	@Test
+	public void shouldNeverProduceElementsOnIoThread() throws IOException {
+		HttpGet get = new HttpGet(SERVER_HOST + "/streamed.json");
+		try {
+			HttpResponse response = new DefaultHttpClient().execute(get);
+			assertEquals(200, response.getStatusLine().getStatusCode());
+			assertItems(EntityUtils.toByteArray(response.getEntity()));
+			assertEquals(0, IO_THREAD_ELEMENTS.get());
+		} finally {
+			get.releaseConnection();
+		}
+	}
+
+	@Test
+	public void shouldNotWritePipelinedResponseBetweenChunks() throws IOException, InterruptedException {
+		final Socket socket = new Socket();
+		try {
+			socket.setReceiveBufferSize(4096);
+			socket.setSoTimeout(10000);
+			socket.connect(new InetSocketAddress("localhost", TEST_PORT));
+			socket.getOutputStream().write("GET /streamed.json HTTP/1.1\r\nHost: localhost\r\n\r\nGET /small.json HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(CharsetUtil.US_ASCII));
+			// slow reader: channel is saturated while streaming
+			Thread.sleep(500);
+			final InputStream input = socket.getInputStream();
+			final StringBuilder responses = new StringBuilder();
+			final byte[] buffer = new byte[16 * 1024];
+			int read;
+			while ((responses.indexOf("\"small\"") < 0) && ((read = input.read(buffer)) > 0)) {
+				responses.append(new String(buffer, 0, read, CharsetUtil.ISO_8859_1));
+			}
+			final int lastChunk = responses.indexOf("\r\n0\r\n\r\n");
+			assertTrue(lastChunk > 0);
+			assertTrue(responses.indexOf("HTTP/1.1", 1) > lastChunk);
+		} finally {
+			socket.close();
+		}
+	}
+
+	@Test
+	public void shouldSerializeWithoutStreaming() throws IOException {
+		HttpGet get = new HttpGet(SERVER_HOST + "/buffered.json");
+		try {
+			HttpResponse response = new DefaultHttpClient().execute(get);
+			assertEquals(200, response.getStatusLine().getStatusCode());
+			assertNull(response.getFirstHeader("Transfer-Encoding"));
+			assertItems(EntityUtils.toByteArray(response.getEntity()));
+		} finally {
+			get.releaseConnection();
+		}
+	}
+
+	@Test
+	public void shouldCollectWhenFormatCanNotStream() throws IOException {
+		HttpGet get = new HttpGet(SERVER_HOST + "/streamed.xml");
+		try {
+			HttpResponse response = new DefaultHttpClient().execute(get);
+			assertEquals(200, response.getStatusLine().getStatusCode());
+			assertNull(response.getFirstHeader("Transfer-Encoding"));
+			assertTrue(EntityUtils.toString(response.getEntity()).contains("<id>" + (SIZE - 1) + "</id>"));
+		} finally {
+			get.releaseConnection();
+		}
+	}
+
+	private static void assertItems(byte[] content) throws IOException {
+		List<Map<String, Object>> items = new ObjectMapper().readValue(content, new TypeReference<List<Map<String, Object>>>() {
+		});
+		assertEquals(SIZE, items.size());
+		assertEquals(SIZE - 1, items.get(SIZE - 1).get("id"));
+	}
+
+	public static class SmallController {
+
+		public String read(Request request, Response response) {
+			return "small";
+		}
+	}
+
+	public static class ItemController {
+
+		public Iterable<Map<String, Object>> read(Request request, Response response) {
+			return new Iterable<Map<String, Object>>() {
+				@Override
+				public Iterator<Map<String, Object>> iterator() {
+					return new Iterator<Map<String, Object>>() {
+						private int index;
+
+						@Override
+						public boolean hasNext() {
+							return index < SIZE;
+						}
+
+						@Override
+						public Map<String, Object> next() {
+							final int id = index++;
+							if (Thread.currentThread().getName().startsWith("New I/O")) {
+								IO_THREAD_ELEMENTS.incrementAndGet();
+							}
+							return ImmutableMap.<String, Object> of("id", id, "name", "item " + id);
+						}
+
+						@Override
+						public void remove() {
+							throw new UnsupportedOperationException();
+						}
+					};
+				}
+			};
+		}
+	}
+}
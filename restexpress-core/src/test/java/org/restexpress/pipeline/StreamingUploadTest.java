@@ -0,0 +1,193 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.pipeline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.jboss.netty.handler.codec.http.multipart.Attribute;
+import org.jboss.netty.handler.codec.http.multipart.DiskAttribute;
+import org.jboss.netty.handler.codec.http.multipart.DiskFileUpload;
+import org.jboss.netty.handler.codec.http.multipart.FileUpload;
+import org.jboss.netty.handler.codec.http.multipart.InterfaceHttpData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.restexpress.Request;
+import org.restexpress.Response;
+import org.restexpress.RestExpressService;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Maps;
+
+/**
+ * Streaming multipart upload test case.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public class StreamingUploadTest {
+	private static final int TEST_PORT = 8903;
+	private static final String SERVER_HOST = "http://localhost:" + TEST_PORT;
+	private static final String BOUNDARY = "----restexpress-boundary";
+	private static final int SIZE = 512 * 1024;
+
+	private RestExpressService restExpress;
+	private UploadController controller;
+
+	@Before
+	public void setup() {
+		controller = new UploadController();
+		restExpress = RestExpressService.newBuilder();
+		restExpress.uri("/streamed", controller).useStreamingMultipartUpload().noSerialization();
+		restExpress.uri("/aggregated", controller).noSerialization();
+		restExpress.uri("/limited", controller).useStreamingMultipartUpload().maxContentLength(SIZE / 2).noSerialization();
+		restExpress.bind(TEST_PORT);
+	}
+
+	@After
+	public void teardown() {
+		restExpress.shutdown();
+	}
+
+	@Test
+	public void shouldSpillLargePartToDisk() throws IOException, InterruptedException {
+		HttpClient client = new DefaultHttpClient();
+		// twice on same connection
+		for (int i = 0; i < 2; i++) {
+			HttpPost post = newUpload("/streamed", SIZE);
+			try {
+				HttpResponse response = client.execute(post);
+				assertEquals(200, response.getStatusLine().getStatusCode());
+				EntityUtils.consume(response.getEntity());
+			} finally {
+				post.releaseConnection();
+			}
+			assertEquals("restexpress", controller.parts.get("name"));
+			assertEquals(String.valueOf(SIZE), controller.parts.get("file"));
+			assertNotNull(controller.spilled);
+			// temporary file is deleted once request is processed, response
+			// could be received just before
+			for (int wait = 0; wait < 50 && controller.spilled.exists(); wait++) {
+				Thread.sleep(10);
+			}
+			assertFalse(controller.spilled.exists());
+		}
+	}
+
+	@Test
+	public void shouldKeepNettyDiskSettings() {
+		// temporary files are not registered with File.deleteOnExit() by
+		// their own factory, global settings are left to the application
+		assertTrue(DiskFileUpload.deleteOnExitTemporaryFile);
+		assertTrue(DiskAttribute.deleteOnExitTemporaryFile);
+	}
+
+	@Test
+	public void shouldDecodeAggregatedParts() throws IOException {
+		HttpPost post = newUpload("/aggregated", 1024);
+		try {
+			HttpResponse response = new DefaultHttpClient().execute(post);
+			assertEquals(200, response.getStatusLine().getStatusCode());
+			EntityUtils.consume(response.getEntity());
+		} finally {
+			post.releaseConnection();
+		}
+		assertEquals(String.valueOf(1024), controller.parts.get("file"));
+		assertEquals(null, controller.spilled);
+	}
+
+	@Test
+	public void shouldLimitAggregatedContent() throws IOException {
+		HttpPost post = newUpload("/aggregated", SIZE);
+		try {
+			HttpResponse response = new DefaultHttpClient().execute(post);
+			assertEquals(413, response.getStatusLine().getStatusCode());
+			EntityUtils.consume(response.getEntity());
+			assertTrue(controller.parts.isEmpty());
+		} finally {
+			post.releaseConnection();
+		}
+	}
+
+	@Test
+	public void shouldLimitStreamedContentOfRoute() throws IOException {
+		HttpPost post = newUpload("/limited", SIZE);
+		try {
+			HttpResponse response = new DefaultHttpClient().execute(post);
+			assertEquals(413, response.getStatusLine().getStatusCode());
+			EntityUtils.consume(response.getEntity());
+			assertTrue(controller.parts.isEmpty());
+		} finally {
+			post.releaseConnection();
+		}
+	}
+
+	private static HttpPost newUpload(String path, int size) throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		body.write(("--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"name\"\r\n\r\nrestexpress\r\n").getBytes(Charsets.US_ASCII));
+		body.write(("--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"file\"; filename=\"data.bin\"\r\nContent-Type: application/octet-stream\r\n\r\n").getBytes(Charsets.US_ASCII));
+		byte[] data = new byte[size];
+		Arrays.fill(data, (byte) 'x');
+		body.write(data);
+		body.write(("\r\n--" + BOUNDARY + "--\r\n").getBytes(Charsets.US_ASCII));
+
+		ByteArrayEntity entity = new ByteArrayEntity(body.toByteArray());
+		entity.setContentType("multipart/form-data; boundary=" + BOUNDARY);
+		entity.setChunked(true);
+		HttpPost post = new HttpPost(SERVER_HOST + path);
+		post.setEntity(entity);
+		return post;
+	}
+
+	public static class UploadController {
+		private final Map<String, String> parts = Maps.newHashMap();
+		private File spilled;
+
+		public void create(Request request, Response response) throws IOException {
+			parts.clear();
+			spilled = null;
+			for (InterfaceHttpData data : request.getParts()) {
+				if (data instanceof FileUpload) {
+					FileUpload upload = (FileUpload) data;
+					parts.put(data.getName(), String.valueOf(upload.length()));
+					if (!upload.isInMemory()) {
+						spilled = upload.getFile();
+					}
+				} else {
+					parts.put(data.getName(), ((Attribute) data).getValue());
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,121 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.pipeline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelEvent;
+import org.jboss.netty.channel.ChannelState;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+import org.jboss.netty.channel.UpstreamChannelStateEvent;
+import org.jboss.netty.channel.UpstreamMessageEvent;
+import org.jboss.netty.channel.local.DefaultLocalClientChannelFactory;
+import org.jboss.netty.handler.execution.ChannelEventRunnable;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+/**
+ * {@link VirtualThreadExecutor} test case.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public class VirtualThreadExecutorTest {
+	private static final int CHANNELS = 200;
+	private static final int EVENTS = 5;
+	private static final long DELAY = 20;
+
+	@Before
+	public void checkSupport() {
+		Assume.assumeTrue(VirtualThreadExecutor.isSupported());
+	}
+
+	@Test
+	public void shouldRunEventsOfChannelInOrder() throws InterruptedException {
+		final VirtualThreadExecutor executor = new VirtualThreadExecutor();
+		final DefaultLocalClientChannelFactory factory = new DefaultLocalClientChannelFactory();
+		final List<Channel> channels = Lists.newArrayList();
+		final List<List<Integer>> received = Lists.newArrayList();
+		final CountDownLatch done = new CountDownLatch(CHANNELS * EVENTS);
+		final long start = System.currentTimeMillis();
+		for (int c = 0; c < CHANNELS; c++) {
+			channels.add(factory.newChannel(Channels.pipeline(new SimpleChannelUpstreamHandler())));
+			received.add(Lists.<Integer> newArrayList());
+		}
+		for (int i = 0; i < EVENTS; i++) {
+			for (int c = 0; c < CHANNELS; c++) {
+				executor.execute(new BlockingEvent(new UpstreamMessageEvent(channels.get(c), i, null), received.get(c), done));
+			}
+		}
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		// blocking events of distinct channels run concurrently
+		final long elapsed = System.currentTimeMillis() - start;
+		assertTrue("elapsed " + elapsed + " ms", elapsed < (CHANNELS * DELAY));
+		for (int c = 0; c < CHANNELS; c++) {
+			assertEquals(Lists.newArrayList(0, 1, 2, 3, 4), received.get(c));
+		}
+		assertEquals(CHANNELS, executor.channelCount());
+
+		// closed channels are released
+		final CountDownLatch closed = new CountDownLatch(CHANNELS);
+		for (final Channel channel : channels) {
+			channel.close();
+			executor.execute(new BlockingEvent(new UpstreamChannelStateEvent(channel, ChannelState.OPEN, Boolean.FALSE), Lists.<Integer> newArrayList(), closed));
+		}
+		assertTrue(closed.await(10, TimeUnit.SECONDS));
+		for (int wait = 0; wait < 50 && executor.channelCount() > 0; wait++) {
+			Thread.sleep(10);
+		}
+		assertEquals(0, executor.channelCount());
+	}
+
+	private static final class BlockingEvent extends ChannelEventRunnable {
+		private final List<Integer> received;
+		private final CountDownLatch done;
+
+		BlockingEvent(ChannelEvent event, List<Integer> received, CountDownLatch done) {
+			super(null, event, null);
+			this.received = received;
+			this.done = done;
+		}
+
+		@Override
+		protected void doRun() {
+			try {
+				Thread.sleep(DELAY);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if (e instanceof UpstreamMessageEvent) {
+				received.add((Integer) ((UpstreamMessageEvent) e).getMessage());
+			}
+			done.countDown();
+		}
+	}
+}
@@ -0,0 +1,133 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.handler.codec.http.DefaultHttpRequest;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.jboss.netty.handler.codec.http.HttpRequest;
+import org.jboss.netty.handler.codec.http.HttpVersion;
+import org.junit.Test;
+import org.restexpress.Response;
+import org.restexpress.TestToolKit;
+import org.restexpress.domain.CharacterSet;
+import org.restexpress.http.HttpStatus;
+import org.restexpress.pipeline.MessageContext;
+import org.restexpress.pipeline.Postprocessor;
+import org.restexpress.response.ResponseProcessor;
+import org.restexpress.response.ResponseProcessorSetting;
+import org.restexpress.response.Wrapper;
+import org.restexpress.serialization.JacksonJsonProcessor;
+
+/**
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public class EtagHeaderPostprocessorTest {
+    private Postprocessor processor = new EtagHeaderPostprocessor();
+
+    @Test
+    public void shouldComputeSameEtagForSameBytes() {
+        String first = process(HttpMethod.GET, null, "{\"name\":\"value\"}").getHeader(HttpHeaders.Names.ETAG);
+        String second = process(HttpMethod.GET, null, "{\"name\":\"value\"}").getHeader(HttpHeaders.Names.ETAG);
+        assertNotNull(first);
+        assertTrue(first.startsWith("\"") && first.endsWith("\""));
+        assertEquals(first, second);
+        assertNotEquals(first, process(HttpMethod.GET, null, "{\"name\":\"other\"}").getHeader(HttpHeaders.Names.ETAG));
+    }
+
+    @Test
+    public void shouldComputeSameEtagForTextAndDirectBuffer() {
+        String text = "{\"name\":\"value\"}";
+        ChannelBuffer buffer = ChannelBuffers.directBuffer(64);
+        buffer.writeBytes(text.getBytes(CharacterSet.UTF_8.getCharset()));
+        assertFalse(buffer.hasArray());
+        assertEquals(EtagHeaderPostprocessor.etagOf(text), EtagHeaderPostprocessor.etagOf(buffer));
+    }
+
+    @Test
+    public void shouldRespondNotModifiedOnMatchingIfNoneMatch() {
+        String etag = process(HttpMethod.GET, null, "content").getHeader(HttpHeaders.Names.ETAG);
+        Response response = process(HttpMethod.GET, "\"other\", W/" + etag, "content");
+        assertEquals(HttpStatus.NOT_MODIFIED.getStatusCode(), response.getStatus());
+        assertFalse(response.hasEntity());
+        assertEquals(etag, response.getHeader(HttpHeaders.Names.ETAG));
+        assertFalse(response.hasHeader(HttpHeaders.Names.CONTENT_TYPE));
+    }
+
+    @Test
+    public void shouldRespondNotModifiedOnWildcard() {
+        assertEquals(HttpStatus.NOT_MODIFIED.getStatusCode(), process(HttpMethod.HEAD, "*", "content").getStatus());
+    }
+
+    @Test
+    public void shouldKeepContentOnMismatchingIfNoneMatch() {
+        Response response = process(HttpMethod.GET, "\"other\"", "content");
+        assertEquals(HttpStatus.OK.getStatusCode(), response.getStatus());
+        assertTrue(response.hasEntity());
+    }
+
+    @Test
+    public void shouldNotAddEtagOnPost() {
+        Response response = process(HttpMethod.POST, null, "content");
+        assertNull(response.getHeader(HttpHeaders.Names.ETAG));
+    }
+
+    @Test
+    public void shouldNotAddEtagOnUnserializedEntity() {
+        Response response = process(HttpMethod.GET, null, new Object());
+        assertNull(response.getHeader(HttpHeaders.Names.ETAG));
+    }
+
+    @Test
+    public void shouldFallBackToHashCodeBeforeSerialization() {
+        HttpRequest httpRequest = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/foo");
+        httpRequest.headers().add("Host", "testing-host");
+        Response response = new Response();
+        Object entity = new Object();
+        response.setEntity(entity);
+        MessageContext context = new MessageContext(TestToolKit.newRequest(httpRequest), response);
+        // serialization is pending, as when added as a postprocessor
+        context.setResponseProcessorSetting(new ResponseProcessorSetting("application/json", new ResponseProcessor(new JacksonJsonProcessor(), Wrapper.newRawResponseWrapper())));
+        processor.process(context);
+        assertEquals("\"" + entity.hashCode() + "\"", response.getHeader(HttpHeaders.Names.ETAG));
+    }
+
+    private Response process(HttpMethod method, String ifNoneMatch, Object content) {
+        HttpRequest httpRequest = new DefaultHttpRequest(HttpVersion.HTTP_1_1, method, "/foo");
+        httpRequest.headers().add("Host", "testing-host");
+        if (ifNoneMatch != null)
+            httpRequest.headers().add(HttpHeaders.Names.IF_NONE_MATCH, ifNoneMatch);
+        Response response = new Response();
+        response.setEntity(content instanceof String ? ChannelBuffers.copiedBuffer((String) content, CharacterSet.UTF_8.getCharset()) : content);
+        response.addHeader(HttpHeaders.Names.CONTENT_TYPE, "application/json");
+        processor.process(new MessageContext(TestToolKit.newRequest(httpRequest), response));
+        return response;
+    }
+}
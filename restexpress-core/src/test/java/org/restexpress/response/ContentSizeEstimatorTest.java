@@ -0,0 +1,71 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.response;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.junit.Test;
+import org.restexpress.Response;
+import org.restexpress.serialization.JacksonJsonProcessor;
+
+import com.google.common.base.Strings;
+
+public class ContentSizeEstimatorTest {
+
+	@Test
+	public void estimateWithinBounds() {
+		ContentSizeEstimator estimator = new ContentSizeEstimator();
+		assertEquals(ContentSizeEstimator.MIN_CAPACITY, estimator.estimate());
+		estimator.record(10);
+		assertEquals(ContentSizeEstimator.MIN_CAPACITY, estimator.estimate());
+		estimator.record(Integer.MAX_VALUE / 2);
+		assertEquals(ContentSizeEstimator.MAX_CAPACITY, estimator.estimate());
+	}
+
+	@Test
+	public void estimateFollowsRecordedSizes() {
+		ContentSizeEstimator estimator = new ContentSizeEstimator();
+		estimator.record(64000);
+		assertEquals(72000, estimator.estimate());
+		for (int i = 0; i < 64; i++) {
+			estimator.record(32000);
+		}
+		int estimate = estimator.estimate();
+		assertTrue(String.valueOf(estimate), estimate >= 32000 && estimate <= 37000);
+	}
+
+	@Test
+	public void serializeIntoEstimatedBuffer() {
+		ResponseProcessor processor = new ResponseProcessor(new JacksonJsonProcessor(), Wrapper.newRawResponseWrapper());
+		ContentSizeEstimator estimator = new ContentSizeEstimator();
+		String value = Strings.repeat("a", 10000);
+		for (int i = 0; i < 2; i++) {
+			Response response = new Response();
+			response.setEntity(value);
+			processor.serialize(response, estimator);
+			ChannelBuffer content = (ChannelBuffer) response.getEntity();
+			assertEquals(10002, content.readableBytes());
+			// second buffer is allocated large enough
+			assertTrue(i == 0 || content.capacity() == estimator.estimate());
+		}
+	}
+}
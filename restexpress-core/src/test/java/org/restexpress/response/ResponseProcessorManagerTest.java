@@ -21,14 +21,26 @@ package org.restexpress.response;
 
 import com.google.common.collect.Lists;
 
+import org.jboss.netty.handler.codec.http.DefaultHttpRequest;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.jboss.netty.handler.codec.http.HttpRequest;
+import org.jboss.netty.handler.codec.http.HttpVersion;
 import org.junit.Test;
 
 import static org.junit.Assert.*;
 
+import org.restexpress.Request;
+import org.restexpress.Response;
+import org.restexpress.TestToolKit;
 import org.restexpress.domain.CharacterSet;
+import org.restexpress.domain.Format;
 import org.restexpress.domain.MediaRange;
 import org.restexpress.domain.MediaRanges;
 import org.restexpress.domain.MediaType;
+import org.restexpress.http.NotAcceptableException;
+import org.restexpress.serialization.JacksonJsonProcessor;
+import org.restexpress.serialization.JacksonXmlProcessor;
 
 import java.util.List;
 
@@ -78,4 +90,58 @@ public class ResponseProcessorManagerTest {
         assertEquals(null,ResponseProcessorManager.parseFormatFromUrl("://dummmy.com/file"));
         assertEquals(null,ResponseProcessorManager.parseFormatFromUrl("://dummmy.com/file."));
     }
+
+    @Test
+    public void resolveIsCachedPerAcceptValue() {
+        ResponseProcessorManager manager = newManager();
+        ResponseProcessorSetting xml = manager.resolve(newRequest("application/xml"), new Response(), false);
+        assertEquals(Format.XML.getMediaType(), xml.mediaType());
+        ResponseProcessorSetting json = manager.resolve(newRequest("text/html, application/json;q=0.9"), new Response(), false);
+        assertEquals(new JacksonJsonProcessor().mediaType(), json.mediaType());
+        // same raw value, same shared instance
+        assertSame(xml, manager.resolve(newRequest("application/xml"), new Response(), false));
+        assertEquals(2, manager.negotiationCacheStats().missCount());
+        assertEquals(1, manager.negotiationCacheStats().hitCount());
+        // no Accept header: default processor
+        assertSame(json.responseProcessor(), manager.resolve(newRequest(null), new Response(), false).responseProcessor());
+    }
+
+    @Test
+    public void unacceptableValueIsCachedToo() {
+        ResponseProcessorManager manager = newManager();
+        for (int i = 0; i < 2; i++) {
+            try {
+                manager.resolve(newRequest("image/png"), new Response(), false);
+                fail("NotAcceptableException expected");
+            } catch (NotAcceptableException e) {
+                // expected
+            }
+        }
+        assertEquals(1, manager.negotiationCacheStats().hitCount());
+        assertNotNull(manager.resolve(newRequest("image/png"), new Response(), true));
+    }
+
+    @Test
+    public void addProcessorInvalidateCache() {
+        ResponseProcessorManager manager = new ResponseProcessorManager();
+        manager.add(new JacksonJsonProcessor(), Wrapper.newRawResponseWrapper(), true);
+        assertEquals(new JacksonJsonProcessor().mediaType(), manager.resolve(newRequest("application/xml"), new Response(), true).mediaType());
+        manager.add(new JacksonXmlProcessor(Format.XML.getMediaType()), Wrapper.newRawResponseWrapper());
+        assertEquals(Format.XML.getMediaType(), manager.resolve(newRequest("application/xml"), new Response(), true).mediaType());
+    }
+
+    private static ResponseProcessorManager newManager() {
+        ResponseProcessorManager manager = new ResponseProcessorManager();
+        manager.add(new JacksonJsonProcessor(), Wrapper.newRawResponseWrapper(), true);
+        manager.add(new JacksonXmlProcessor(Format.XML.getMediaType()), Wrapper.newRawResponseWrapper());
+        return manager;
+    }
+
+    private static Request newRequest(String accept) {
+        HttpRequest httpRequest = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/foo");
+        if (accept != null) {
+            httpRequest.headers().add(HttpHeaders.Names.ACCEPT, accept);
+        }
+        return TestToolKit.newRequest(httpRequest);
+    }
 }
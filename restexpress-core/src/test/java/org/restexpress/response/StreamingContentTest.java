@@ -0,0 +1,138 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.response;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.util.CharsetUtil;
+import org.junit.Test;
+import org.restexpress.Response;
+import org.restexpress.serialization.JacksonJsonProcessor;
+import org.restexpress.serialization.JacksonXmlProcessor;
+
+public class StreamingContentTest {
+
+	@Test
+	public void streamAsJsonArray() {
+		List<String> values = Arrays.asList("a", null, "c");
+		ChannelBuffer content = drain(new StreamingContent(values.iterator(), new JacksonJsonProcessor(), null), 1);
+		assertEquals("[\"a\",null,\"c\"]", content.toString(CharsetUtil.UTF_8));
+		content = drain(new StreamingContent(Collections.emptyIterator(), new JacksonJsonProcessor(), null), 1);
+		assertEquals("[]", content.toString(CharsetUtil.UTF_8));
+	}
+
+	@Test
+	public void chunksAreBounded() {
+		StreamingContent streaming = new StreamingContent(new CountingIterator(100000), new JacksonJsonProcessor(), null);
+		int chunks = 0;
+		while (streaming.hasNext()) {
+			ChannelBuffer chunk = streaming.next(1024);
+			// one element at most beyond requested size, plus closing bracket
+			assertTrue(chunk.readableBytes() < 1024 + 16);
+			chunks++;
+		}
+		assertEquals(100000, streaming.count());
+		assertTrue(chunks > 500);
+	}
+
+	@Test
+	public void closeResourceAtEnd() {
+		final CountingIterator iterator = new CountingIterator(3);
+		StreamingContent streaming = new StreamingContent(iterator, new JacksonJsonProcessor(), StreamingContent.resource(iterator));
+		drain(streaming, 1);
+		assertTrue(iterator.closed.get());
+	}
+
+	@Test
+	public void streamOnlyWithStreamingProcessor() {
+		ResponseProcessorSetting json = new ResponseProcessorSetting("application/json", new ResponseProcessor(new JacksonJsonProcessor(), Wrapper.newRawResponseWrapper()));
+		Response response = new Response();
+		response.setEntity(new CountingIterator(3));
+		assertTrue(json.stream(response));
+		assertTrue(response.getEntity() instanceof StreamingContent);
+		assertEquals("application/json", response.getContentType());
+
+		// enveloped body can not be streamed
+		ResponseProcessorSetting jsend = new ResponseProcessorSetting("application/json", new ResponseProcessor(new JacksonJsonProcessor(), Wrapper.newJsendResponseWrapper()));
+		response = new Response();
+		CountingIterator iterator = new CountingIterator(3);
+		response.setEntity(iterator);
+		assertFalse(jsend.stream(response));
+		assertEquals(Arrays.asList(0, 1, 2), response.getEntity());
+		assertTrue(iterator.closed.get());
+
+		ResponseProcessorSetting xml = new ResponseProcessorSetting("application/xml", new ResponseProcessor(new JacksonXmlProcessor(), Wrapper.newRawResponseWrapper()));
+		response = new Response();
+		response.setEntity(Arrays.asList(1, 2));
+		assertFalse(xml.stream(response));
+		response.setEntity("a");
+		assertFalse(json.stream(response));
+	}
+
+	private static ChannelBuffer drain(StreamingContent streaming, int size) {
+		ChannelBuffer content = ChannelBuffers.dynamicBuffer();
+		while (streaming.hasNext()) {
+			content.writeBytes(streaming.next(size));
+		}
+		return content;
+	}
+
+	public static class CountingIterator implements Iterator<Integer>, Closeable {
+		private final int size;
+		private int index;
+		final AtomicBoolean closed = new AtomicBoolean();
+
+		public CountingIterator(int size) {
+			this.size = size;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return index < size;
+		}
+
+		@Override
+		public Integer next() {
+			return index++;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void close() throws IOException {
+			closed.set(true);
+		}
+	}
+}
@@ -0,0 +1,218 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.route.invoker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.QueryParam;
+
+import org.jboss.netty.handler.codec.http.DefaultHttpRequest;
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.jboss.netty.handler.codec.http.HttpVersion;
+import org.junit.Test;
+import org.restexpress.Request;
+import org.restexpress.Response;
+import org.restexpress.pipeline.MessageContext;
+import org.restexpress.route.invoker.GeneratedInvokers.GeneratedInvoker;
+import org.restexpress.route.invoker.GeneratedInvokers.PrimitiveInvoker;
+import org.restexpress.route.invoker.Invokers.FieldMapInvoker;
+import org.restexpress.route.invoker.Invokers.StandardInvoker;
+import org.restexpress.url.UrlPattern;
+
+/**
+ * {@link InvokersTest} implement test case for {@link Invokers} and
+ * {@link GeneratedInvokers}.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public class InvokersTest {
+
+	private final RestExpressParamConverterProvider provider = new RestExpressParamConverterProvider();
+
+	private final MessageContext context = new MessageContext(new Request(new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/foo?id=12&name=bar"), null), new Response());
+
+	@Test
+	public void shouldGenerateStandardInvoker() throws Exception {
+		final Invoker invoker = newInvoker(new Controller(), "read", Request.class, Response.class);
+		assertTrue(invoker instanceof GeneratedInvoker);
+		assertEquals("/foo?id=12&name=bar", invoker.invoke(context));
+	}
+
+	@Test
+	public void shouldGenerateNoArgInvoker() throws Exception {
+		final Invoker invoker = newInvoker(new Controller(), "count");
+		assertTrue(invoker instanceof GeneratedInvoker);
+		assertEquals(Integer.valueOf(3), invoker.invoke(context));
+	}
+
+	@Test
+	public void shouldGenerateVoidInvoker() throws Exception {
+		final Controller controller = new Controller();
+		final Invoker invoker = newInvoker(controller, "update", Request.class, Response.class);
+		assertTrue(invoker instanceof GeneratedInvoker);
+		assertNull(invoker.invoke(context));
+		assertEquals(1, controller.updated);
+	}
+
+	@Test
+	public void shouldGenerateFieldMapInvoker() throws Exception {
+		final Invoker invoker = newInvoker(new Controller(), "find", int.class, String.class, long.class, Request.class);
+		assertTrue(invoker instanceof PrimitiveInvoker);
+		assertEquals("12:bar:7", invoker.invoke(context));
+	}
+
+	@Test
+	public void shouldBindFromPathAndQueryString() throws Exception {
+		final Request request = new Request(new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/orders/42?active=true&count=7&label=a%20b"), null);
+		request.addHeader("label", "header");
+		request.setUrlMatch(new UrlPattern("/orders/{id}").match("/orders/42"));
+		final MessageContext context = new MessageContext(request, new Response());
+
+		final Invoker invoker = newInvoker(new Controller(), "bind", long.class, boolean.class, int.class, String.class);
+		assertTrue(invoker instanceof PrimitiveInvoker);
+		assertEquals("42:true:7:a b", invoker.invoke(context));
+		// path parameter is not read from query string, nor query parameter
+		// from headers
+		final Request other = new Request(new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/orders?id=42"), null);
+		other.addHeader("label", "header");
+		assertEquals("-1:false:0:null", invoker.invoke(new MessageContext(other, new Response())));
+	}
+
+	@Test
+	public void shouldBindPrimitiveSlots() throws Exception {
+		final Request request = new Request(new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/orders/9876543210?count=-2147483648"), null);
+		request.setUrlMatch(new UrlPattern("/orders/{id}").match("/orders/9876543210"));
+		final MessageContext context = new MessageContext(request, new Response());
+
+		final Controller controller = new Controller();
+		final Invoker invoker = newInvoker(controller, "mark", long.class, int.class, boolean.class);
+		assertTrue(invoker instanceof PrimitiveInvoker);
+		assertNull(invoker.invoke(context));
+		assertEquals("9876543210:-2147483648:true", controller.marked);
+
+		final Invoker single = newInvoker(controller, "negate", boolean.class);
+		assertTrue(single instanceof PrimitiveInvoker);
+		assertEquals(Boolean.FALSE, single.invoke(context));
+		assertEquals(Boolean.TRUE, single.invoke(new MessageContext(new Request(new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/orders?active=false"), null), new Response())));
+
+		try {
+			invoker.invoke(new MessageContext(new Request(new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/orders?count=x"), null), new Response()));
+			fail();
+		} catch (final NumberFormatException e) {
+			assertEquals("9876543210:-2147483648:true", controller.marked);
+		}
+	}
+
+	@Test
+	public void shouldFallbackToReflection() throws Exception {
+		Invoker invoker = newInvoker(new PrivateController(), "read", Request.class, Response.class);
+		assertTrue(invoker instanceof StandardInvoker);
+		assertEquals("private", invoker.invoke(context));
+
+		invoker = newInvoker(new Controller(), "five", int.class, int.class, int.class, int.class, int.class);
+		assertTrue(invoker instanceof FieldMapInvoker);
+		assertEquals(Integer.valueOf(60), invoker.invoke(context));
+	}
+
+	@Test
+	public void shouldPropagateExceptionLikeReflection() throws Exception {
+		final Controller controller = new Controller();
+		try {
+			newInvoker(controller, "fail").invoke(context);
+			fail();
+		} catch (final IllegalStateException e) {
+			assertSame(controller.runtime, e);
+		}
+		try {
+			newInvoker(controller, "failChecked").invoke(context);
+			fail();
+		} catch (final RuntimeException e) {
+			assertTrue(e.getCause() instanceof IOException);
+		}
+	}
+
+	private Invoker newInvoker(final Object controller, final String name, final Class<?>... parameterTypes) throws Exception {
+		final Method method = controller.getClass().getMethod(name, parameterTypes);
+		method.setAccessible(true);
+		return Invokers.newInvoker(provider, controller, method);
+	}
+
+	public static class Controller {
+		private int updated = 0;
+		private String marked;
+		private final IllegalStateException runtime = new IllegalStateException();
+
+		public String read(final Request request, final Response response) {
+			return request.getPath();
+		}
+
+		public void update(final Request request, final Response response) {
+			updated++;
+		}
+
+		public int count() {
+			return 3;
+		}
+
+		public String find(@QueryParam("id") @DefaultValue("0") final int id, @QueryParam("name") final String name, @QueryParam("size") @DefaultValue("7") final long size, final Request request) {
+			return id + ":" + name + ":" + size;
+		}
+
+		public String bind(@PathParam("id") @DefaultValue("-1") final long id, @QueryParam("active") final boolean active, @QueryParam("count") final int count, @QueryParam("label") final String label) {
+			return id + ":" + active + ":" + count + ":" + label;
+		}
+
+		public void mark(@PathParam("id") @DefaultValue("-1") final long id, @QueryParam("count") final int count, @QueryParam("active") @DefaultValue("true") final boolean active) {
+			marked = id + ":" + count + ":" + active;
+		}
+
+		public boolean negate(@QueryParam("active") @DefaultValue("true") final boolean active) {
+			return !active;
+		}
+
+		public int five(@QueryParam("id") @DefaultValue("0") final int a, @QueryParam("id") @DefaultValue("0") final int b, @QueryParam("id") @DefaultValue("0") final int c, @QueryParam("id") @DefaultValue("0") final int d, @QueryParam("id") @DefaultValue("0") final int e) {
+			return a + b + c + d + e;
+		}
+
+		public void fail() {
+			throw runtime;
+		}
+
+		public void failChecked() throws IOException {
+			throw new IOException();
+		}
+	}
+
+	private static class PrivateController {
+		@SuppressWarnings("unused")
+		public String read(final Request request, final Response response) {
+			return "private";
+		}
+	}
+}
@@ -0,0 +1,209 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.route.trie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.handler.codec.embedder.DecoderEmbedder;
+import org.jboss.netty.handler.codec.http.DefaultHttpRequest;
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.jboss.netty.handler.codec.http.HttpRequest;
+import org.jboss.netty.handler.codec.http.HttpVersion;
+import org.jboss.netty.util.CharsetUtil;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.restexpress.Request;
+import org.restexpress.Response;
+import org.restexpress.RestExpress;
+import org.restexpress.RestExpressService;
+import org.restexpress.TestToolKit;
+import org.restexpress.http.HttpHeader;
+import org.restexpress.http.MethodNotAllowedException;
+import org.restexpress.http.NotFoundException;
+import org.restexpress.pipeline.MessageContext;
+import org.restexpress.pipeline.handler.RoutedHttpRequest;
+import org.restexpress.pipeline.handler.RoutedHttpRequestDecoder;
+import org.restexpress.route.Action;
+import org.restexpress.route.RouteDeclaration;
+import org.restexpress.route.RouteMapping;
+import org.restexpress.route.RouteResolverTest;
+import org.restexpress.url.UrlPattern;
+
+public class TrieRouteResolverTest {
+
+	private static RouteMapping routeMapping;
+	private static TrieRouteResolver resolver;
+
+	private static final String[] URLS = { "/", "/foo", "/foo/", "/foo.json", "/foo.", "/foo.json.xml", "/foo/123", "/foo/123.json", "/foo/123.json?a=b/c", "/foo/1.2.3",
+			"/foo/1.2-3", "/foo/.json", "/foo/a%20b.x%41", "/foo/123/bar", "/foo/123/bar.xml", "/foo/bar", "/foo/bar.json", "/foo/bar/", "/foo/bar/baz", "/bar/12.json",
+			"/blah/foo/12", "/regex/anything/here", "/yada/yada.json", "/foo/a#b", "/foo/a b", "/foo/é", "/foo/!$&'()*+,;=:[]@~_-", "/users/john/orders/42.json",
+			"/users/john/orders/42/items", "/users/john/orders/items", "/static/file.txt", "/mixed/pre-12", "http://host/foo", "", "?a=b", "/foo?", "/foo/?x" };
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		RouteDeclaration routeDeclarations = new RouteDeclaration();
+		RouteResolverTest.defineRoutes(routeDeclarations);
+		RouteResolverTest.InnerService service = new RouteResolverTest.InnerService();
+		routeDeclarations.uri("/", service).method(HttpMethod.GET);
+		routeDeclarations.regex("^/regex/.*", service).method(HttpMethod.GET);
+		routeDeclarations.uri("/foo/bar", service).method(HttpMethod.GET, HttpMethod.DELETE);
+		routeDeclarations.uri("/foo/bar/", service).method(HttpMethod.GET);
+		routeDeclarations.uri("/foo/{id}/bar.{format}", service).method(HttpMethod.GET);
+		routeDeclarations.uri("/users/{user}/orders/{order}.{format}", service).alias("/users/{user}/orders/{order}/items").method(HttpMethod.GET);
+		routeDeclarations.uri("/users/{user}/orders/items", service).method(HttpMethod.GET);
+		routeDeclarations.uri("/static/file.txt", service).method(HttpMethod.GET);
+		routeDeclarations.uri("/mixed/pre-{id}", service).method(HttpMethod.GET);
+		routeDeclarations.regex("^/foo/1\\..*", service).method(HttpMethod.GET);
+		RestExpress restExpress = RestExpressService.newBuilder();
+		restExpress.settings().serverSettings().setBaseUrl(TestToolKit.BASE_URL);
+		routeMapping = routeDeclarations.createRouteMapping(restExpress);
+		resolver = new TrieRouteResolver(routeMapping);
+	}
+
+	@Test
+	public void shouldResolveLikeRouteMapping() {
+		for (HttpMethod method : new HttpMethod[] { HttpMethod.GET, HttpMethod.POST, HttpMethod.PUT, HttpMethod.DELETE, HttpMethod.OPTIONS, HttpMethod.HEAD }) {
+			for (String url : URLS) {
+				Action expected = routeMapping.getActionFor(method, url);
+				Action action = resolver.getActionFor(method, url);
+				if (expected == null) {
+					assertNull(method + " " + url, action);
+				} else {
+					assertNotNull(method + " " + url, action);
+					assertSame(method + " " + url, expected.resolvedRoute(), action.resolvedRoute());
+					assertEquals(method + " " + url, asMap(expected), asMap(action));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void shouldResolveAllowedMethodsLikeRouteMapping() {
+		for (String url : URLS) {
+			List<HttpMethod> expected = new ArrayList<HttpMethod>();
+			for (HttpMethod method : routeMapping.getAllowedMethods(url)) {
+				if (!expected.contains(method))
+					expected.add(method);
+			}
+			assertEquals(url, expected, resolver.getAllowedMethods(url));
+		}
+	}
+
+	@Test
+	public void shouldSendPrecomputedAllowHeader() {
+		MessageContext context = newContext(HttpMethod.OPTIONS, "/blah/foo/foo23.json?value=ignored");
+		try {
+			resolver.resolve(context);
+			fail("MethodNotAllowedException expected");
+		} catch (MethodNotAllowedException e) {
+			List<String> allowed = context.getResponse().getHeaders(HttpHeader.ALLOW);
+			assertEquals(1, allowed.size());
+			assertEquals("GET, POST, PUT, DELETE", allowed.get(0));
+		}
+	}
+
+	@Test
+	public void shouldAcceptSameParameterCharactersThanUrlPattern() {
+		UrlPattern pattern = new UrlPattern("/{id}");
+		for (char c = 0; c < 0x3000; c++) {
+			assertEquals("character " + (int) c, pattern.matches("/" + c), TrieRouteResolver.isParameterCharacter(c));
+		}
+	}
+
+	@Test
+	public void shouldExtractParameters() {
+		Action action = resolver.getActionFor(HttpMethod.GET, "/users/john/orders/42.json?value=ignored");
+		assertNotNull(action);
+		Map<String, String> parameters = asMap(action);
+		assertEquals(3, parameters.size());
+		assertEquals("john", parameters.get("user"));
+		assertEquals("42", parameters.get("order"));
+		assertEquals("json", parameters.get("format"));
+	}
+
+	@Test
+	public void shouldResolveWithDeclarationOrder() {
+		// regex route is declared before the parameterized one
+		assertEquals("^/regex/.*", resolver.getActionFor(HttpMethod.GET, "/regex/a").resolvedRoute().getPattern());
+		// regex route is declared after '/foo/{fooId}.{format}'
+		assertEquals("/foo/{fooId}", resolver.getActionFor(HttpMethod.GET, "/foo/1.json").resolvedRoute().getPattern());
+	}
+
+	@Test
+	public void shouldResolveContext() {
+		Action action = resolver.resolve(newContext(HttpMethod.GET, "/foo/bar/bar432.json?value=ignored"));
+		assertNotNull(action);
+		assertEquals("/foo/bar/{barId}", action.resolvedRoute().getPattern());
+	}
+
+	@Test(expected = MethodNotAllowedException.class)
+	public void shouldThrowMethodNotAllowed() {
+		resolver.resolve(newContext(HttpMethod.OPTIONS, "/foo/foo23.json?value=ignored"));
+	}
+
+	@Test(expected = NotFoundException.class)
+	public void shouldThrowNotFound() {
+		resolver.resolve(newContext(HttpMethod.GET, "/not/found"));
+	}
+
+	@Test
+	public void shouldResolveWhenRequestLineIsDecoded() {
+		DecoderEmbedder<Object> decoder = new DecoderEmbedder<Object>(new RoutedHttpRequestDecoder(resolver));
+		decoder.offer(ChannelBuffers.copiedBuffer("GET /users/john/orders/42.json?value=ignored HTTP/1.1\r\nHost: testing-host\r\n\r\nGET /not/found HTTP/1.1\r\n\r\n", CharsetUtil.US_ASCII));
+		RoutedHttpRequest request = (RoutedHttpRequest) decoder.poll();
+		assertSame(resolver.getActionFor(HttpMethod.GET, "/users/john/orders/42.json").resolvedRoute(), request.action().resolvedRoute());
+		assertEquals("42", request.action().urlMatch().get("order"));
+		assertSame(request.action(), RoutedHttpRequest.actionOf(request, resolver));
+		assertNull(((RoutedHttpRequest) decoder.poll()).action());
+	}
+
+	@Test
+	public void shouldDelegateNamedRoute() {
+		assertSame(routeMapping.getNamedRoute("CRUD_ROUTE", HttpMethod.GET), resolver.getNamedRoute("CRUD_ROUTE", HttpMethod.GET));
+		assertEquals(routeMapping.getNamedUrl("CRUD_ROUTE", HttpMethod.GET), resolver.getNamedUrl("CRUD_ROUTE", HttpMethod.GET));
+	}
+
+	private static MessageContext newContext(HttpMethod method, String url) {
+		HttpRequest httpRequest = new DefaultHttpRequest(HttpVersion.HTTP_1_1, method, url);
+		httpRequest.headers().add("Host", "testing-host");
+		Request request = TestToolKit.newRequest(httpRequest);
+		return new MessageContext(request, new Response());
+	}
+
+	private static Map<String, String> asMap(Action action) {
+		Map<String, String> result = new HashMap<String, String>();
+		List<Entry<String, String>> entries = new ArrayList<Entry<String, String>>(action.parameters());
+		for (Entry<String, String> entry : entries) {
+			result.put(entry.getKey(), entry.getValue());
+		}
+		return result;
+	}
+}
@@ -0,0 +1,76 @@
+/**
+ *        Licensed to the Apache Software Foundation (ASF) under one
+ *        or more contributor license agreements.  See the NOTICE file
+ *        distributed with this work for additional information
+ *        regarding copyright ownership.  The ASF licenses this file
+ *        to you under the Apache License, Version 2.0 (the
+ *        "License"); you may not use this file except in compliance
+ *        with the License.  You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *        Unless required by applicable law or agreed to in writing,
+ *        software distributed under the License is distributed on an
+ *        "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *        KIND, either express or implied.  See the License for the
+ *        specific language governing permissions and limitations
+ *        under the License.
+ *
+ */
+package org.restexpress.url;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * {@link QueryStringTest} implement test case for {@link QueryString}.
+ * 
+ * @author <a href="mailto:jguibert@intelligents-ia.com" >Jerome Guibert</a>
+ */
+public class QueryStringTest {
+
+	@Test
+	public void shouldParseLikeQueryStringParser() {
+		for (final String uri : new String[] { "/foo", "/foo?", "/foo?a=1", "/foo?a=1&b=2;c=3", "/foo?a&b=&=c&d=4", "/foo?a=1&a=2&b", "/foo?x=a%20b&y=c+d", "/foo?&&a=1&&", "/foo?a==1" }) {
+			final Map<String, List<String>> expected = new QueryStringParser(uri, true).getParameters();
+			final QueryString queryString = QueryString.parse(uri);
+			assertEquals(uri, expected.keySet(), queryString.names());
+			for (final String name : expected.keySet()) {
+				assertEquals(uri, expected.get(name).get(0), queryString.toMap().get(name));
+			}
+		}
+	}
+
+	@Test
+	public void shouldDecodeValuesOnRead() {
+		final QueryString queryString = QueryString.parse("/foo?x=a%20b&y=c+d&x=e&Z=%zz");
+		assertEquals(4, queryString.size());
+		assertEquals("a b", queryString.getFirst("x"));
+		assertEquals("c d", queryString.getFirst("y"));
+		assertEquals(Arrays.asList("a b", "e"), queryString.getAll("x", false));
+		assertNull(queryString.getFirst("z"));
+		assertEquals("%zz", queryString.getFirstIgnoreCase("z"));
+		assertEquals("a%20b", queryString.toMap().get("x"));
+		assertTrue(queryString.getAll("w", true).isEmpty());
+	}
+
+	@Test
+	public void shouldLimitNumberOfParameters() {
+		final StringBuilder uri = new StringBuilder("/foo?");
+		for (int i = 0; i < QueryString.MAX_PARAMS + 10; i++) {
+			uri.append("p").append(i).append("=").append(i).append("&");
+		}
+		final QueryString queryString = QueryString.parse(uri.toString());
+		assertEquals(QueryString.MAX_PARAMS, queryString.size());
+		assertNull(queryString.getFirst("p" + QueryString.MAX_PARAMS));
+		assertSame(QueryString.EMPTY, QueryString.parse("/foo?"));
+	}
+}
@@ -265,4 +265,19 @@ public class UrlPatternTest
 		assertEquals("/xxx/{a_id}/yyy/{b_id}", new UrlPattern("/xxx/{a_id}/yyy/{b_id}").getPattern());
 		assertEquals("/xxx/{a_id}/yyy/{b_id}", new UrlPattern("/xxx/{a_id}/yyy/{b_id}.{format}").getPattern());
 	}
+
+	@Test
+	public void shouldDecodeParametersOnRead()
+	{
+		UrlMatch match = pFormat.match("/xxx/a%20b/yyy/c+d.json?x=y");
+		assertNotNull(match);
+		assertEquals("a%20b", match.get("a_id"));
+		assertEquals("a b", match.getDecoded("a_id"));
+		assertEquals("a b", match.getDecoded("A_ID"));
+		assertEquals("c d", match.getDecoded("b_id"));
+		assertEquals("json", match.getDecoded("format"));
+		assertNull(match.getDecoded("x"));
+		assertNull(p.match("/xxx/a/yyy/b").getDecoded("format"));
+		assertEquals(":,!'%", p.match("/xxx/a/yyy/:,!'%").getDecoded("b_id"));
+	}
 }